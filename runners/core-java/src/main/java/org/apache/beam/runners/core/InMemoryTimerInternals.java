@@ -21,8 +21,9 @@ import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Pr
 import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Preconditions.checkNotNull;
 import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Preconditions.checkState;
 
+import java.util.Map;
 import java.util.NavigableSet;
-import java.util.NoSuchElementException;
+import java.util.TreeMap;
 import java.util.TreeSet;
 import org.apache.beam.sdk.state.TimeDomain;
 import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
@@ -30,6 +31,7 @@ import org.apache.beam.sdk.util.WindowTracing;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.MoreObjects;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Preconditions;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.HashBasedTable;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Iterables;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Table;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.joda.time.Instant;
@@ -44,13 +46,13 @@ public class InMemoryTimerInternals implements TimerInternals {
   Table<StateNamespace, String, TimerData> existingTimers = HashBasedTable.create();
 
   /** Pending input watermark timers, in timestamp order. */
-  private final NavigableSet<TimerData> watermarkTimers = new TreeSet<>();
+  private final TimerQueue watermarkTimers = new TimerQueue();
 
   /** Pending processing time timers, in timestamp order. */
-  private final NavigableSet<TimerData> processingTimers = new TreeSet<>();
+  private final TimerQueue processingTimers = new TimerQueue();
 
   /** Pending synchronized processing time timers, in timestamp order. */
-  private final NavigableSet<TimerData> synchronizedProcessingTimers = new TreeSet<>();
+  private final TimerQueue synchronizedProcessingTimers = new TimerQueue();
 
   /** Current input watermark. */
   private Instant inputWatermarkTime = BoundedWindow.TIMESTAMP_MIN_VALUE;
@@ -82,23 +84,10 @@ public class InMemoryTimerInternals implements TimerInternals {
    * timers scheduled in that time domain.
    */
   public @Nullable Instant getNextTimer(TimeDomain domain) {
-    try {
-      switch (domain) {
-        case EVENT_TIME:
-          return watermarkTimers.first().getTimestamp();
-        case PROCESSING_TIME:
-          return processingTimers.first().getTimestamp();
-        case SYNCHRONIZED_PROCESSING_TIME:
-          return synchronizedProcessingTimers.first().getTimestamp();
-        default:
-          throw new IllegalArgumentException("Unexpected time domain: " + domain);
-      }
-    } catch (NoSuchElementException exc) {
-      return null;
-    }
+    return timersForDomain(domain).firstTimestamp();
   }
 
-  private NavigableSet<TimerData> timersForDomain(TimeDomain domain) {
+  private TimerQueue timersForDomain(TimeDomain domain) {
     switch (domain) {
       case EVENT_TIME:
         return watermarkTimers;
@@ -145,7 +134,7 @@ public class InMemoryTimerInternals implements TimerInternals {
           existing.getDomain());
 
       if (!timerData.getTimestamp().equals(existing.getTimestamp())) {
-        NavigableSet<TimerData> timers = timersForDomain(timerData.getDomain());
+        TimerQueue timers = timersForDomain(timerData.getDomain());
         timers.remove(existing);
         timers.add(timerData);
         existingTimers.put(timerData.getNamespace(), colKey, timerData);
@@ -321,15 +310,56 @@ public class InMemoryTimerInternals implements TimerInternals {
   }
 
   private @Nullable TimerData removeNextTimer(Instant currentTime, TimeDomain domain) {
-    NavigableSet<TimerData> timers = timersForDomain(domain);
-
-    if (!timers.isEmpty() && currentTime.isAfter(timers.first().getTimestamp())) {
-      TimerData timer = timers.pollFirst();
+    TimerData timer = timersForDomain(domain).pollFirstBefore(currentTime);
+    if (timer != null) {
       existingTimers.remove(
           timer.getNamespace(), timer.getTimerId() + '+' + timer.getTimerFamilyId());
+    }
+    return timer;
+  }
+
+  /**
+   * Pending timers of a single time domain, in {@link TimerData} order.
+   *
+   * <p>Timers are bucketed by timestamp, so that adding, removing and polling a timer only compares
+   * full {@link TimerData} instances with the timers sharing its timestamp. Ordering across buckets
+   * only compares instants.
+   */
+  private static class TimerQueue {
+    private final TreeMap<Instant, NavigableSet<TimerData>> timersByTimestamp = new TreeMap<>();
+
+    void add(TimerData timer) {
+      timersByTimestamp.computeIfAbsent(timer.getTimestamp(), unused -> new TreeSet<>()).add(timer);
+    }
+
+    void remove(TimerData timer) {
+      NavigableSet<TimerData> bucket = timersByTimestamp.get(timer.getTimestamp());
+      if (bucket != null && bucket.remove(timer) && bucket.isEmpty()) {
+        timersByTimestamp.remove(timer.getTimestamp());
+      }
+    }
+
+    @Nullable Instant firstTimestamp() {
+      return timersByTimestamp.isEmpty() ? null : timersByTimestamp.firstKey();
+    }
+
+    /** Removes and returns the first timer if its timestamp is before {@code currentTime}. */
+    @Nullable TimerData pollFirstBefore(Instant currentTime) {
+      Map.Entry<Instant, NavigableSet<TimerData>> first = timersByTimestamp.firstEntry();
+      if (first == null || !currentTime.isAfter(first.getKey())) {
+        return null;
+      }
+      NavigableSet<TimerData> bucket = first.getValue();
+      TimerData timer = bucket.pollFirst();
+      if (bucket.isEmpty()) {
+        timersByTimestamp.remove(first.getKey());
+      }
       return timer;
-    } else {
-      return null;
+    }
+
+    @Override
+    public String toString() {
+      return Iterables.toString(Iterables.concat(timersByTimestamp.values()));
     }
   }
 }
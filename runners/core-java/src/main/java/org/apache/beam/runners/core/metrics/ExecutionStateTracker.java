@@ -21,11 +21,14 @@ import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Pr
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import java.io.Closeable;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.annotations.VisibleForTesting;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.MoreObjects;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -49,6 +52,13 @@ public class ExecutionStateTracker implements Comparable<ExecutionStateTracker>
   private static final long BUNDLE_LULL_REPORT_MS = TimeUnit.MINUTES.toMillis(10);
   private static final AtomicIntegerFieldUpdater<ExecutionStateTracker> SAMPLING_UPDATER =
       AtomicIntegerFieldUpdater.newUpdater(ExecutionStateTracker.class, "sampling");
+  private static final AtomicReferenceFieldUpdater<ExecutionStateTracker, ExecutionState>
+      CURRENT_STATE_UPDATER =
+          AtomicReferenceFieldUpdater.newUpdater(
+              ExecutionStateTracker.class, ExecutionState.class, "currentState");
+  private static final AtomicLongFieldUpdater<ExecutionStateTracker> NUM_TRANSITIONS_UPDATER =
+      AtomicLongFieldUpdater.newUpdater(ExecutionStateTracker.class, "numTransitions");
+  private static final int INITIAL_STATE_STACK_DEPTH = 16;
 
   public static final String START_STATE_NAME = "start";
   public static final String PROCESS_STATE_NAME = "process";
@@ -117,10 +127,20 @@ public class ExecutionStateTracker implements Comparable<ExecutionStateTracker>
    * The current state of the thread managed by this {@link ExecutionStateTracker}.
    *
    * <p>This variable is written by the Execution thread, and read by the sampling and progress
-   * reporting threads, thus it being marked volatile.
+   * reporting threads, thus it being marked volatile. The Execution thread only needs release
+   * semantics when publishing a transition, so it writes through {@link #CURRENT_STATE_UPDATER}.
    */
   private volatile @Nullable ExecutionState currentState;
 
+  /**
+   * Preallocated slots returned by {@link #enterState}, one per nesting depth, so that entering
+   * and leaving a state does not allocate. Only accessed by the Execution thread.
+   */
+  private StateSlot[] stateSlots = newStateSlots(0, INITIAL_STATE_STACK_DEPTH);
+
+  /** The number of states currently entered. Only accessed by the Execution thread. */
+  private int depth = 0;
+
   @SuppressWarnings("UnusedVariable")
   private volatile int sampling = 0;
 
@@ -128,7 +148,8 @@ public class ExecutionStateTracker implements Comparable<ExecutionStateTracker>
    * The current number of times that this {@link ExecutionStateTracker} has transitioned state.
    *
    * <p>This variable is written by the Execution thread, and read by the sampling and progress
-   * reporting threads, thus it being marked volatile.
+   * reporting threads, thus it being marked volatile. Only the Execution thread writes it, so it
+   * is published with release semantics through {@link #NUM_TRANSITIONS_UPDATER}.
    */
   private volatile long numTransitions = 0;
 
@@ -163,6 +184,11 @@ public class ExecutionStateTracker implements Comparable<ExecutionStateTracker>
       trackedThread = null;
     }
     currentState = null;
+    for (int i = 0; i < depth; ++i) {
+      stateSlots[i].state = null;
+      stateSlots[i].previous = null;
+    }
+    depth = 0;
     numTransitions = 0;
     millisSinceLastTransition = 0;
     transitionsAtLastSample = 0;
@@ -269,32 +295,118 @@ public class ExecutionStateTracker implements Comparable<ExecutionStateTracker>
    * Indicates that the execution thread has entered the {@code newState}. Returns a {@link
    * Closeable} that should be called when that state is completed.
    *
+   * <p>The returned {@link Closeable} is preallocated per nesting depth and remembers the
+   * activation it was returned for. Closing it again, also after another state was entered at the
+   * same depth, is ignored. Closing it while states entered after {@code newState} are still
+   * active throws an {@link IllegalStateException}.
+   *
    * <p>This must be the only place where incTransitions is called, and always called from the
    * execution thread.
    */
   public Closeable enterState(ExecutionState newState) {
     // WARNING: This method is called in the hottest path, and must be kept as efficient as
-    // possible. Avoid blocking, synchronizing, etc.
-    final ExecutionState previous = currentState;
-    currentState = newState;
+    // possible. Avoid blocking, synchronizing, allocating, etc.
+    StateSlot[] slots = stateSlots;
+    if (depth == slots.length) {
+      slots = Arrays.copyOf(slots, depth * 2);
+      System.arraycopy(newStateSlots(depth, depth), 0, slots, depth, depth);
+      stateSlots = slots;
+    }
+    StateSlot slot = slots[depth++];
+    slot.state = newState;
+    slot.previous = currentState;
+    ActivationHandle handle = slot.nextHandle();
+    CURRENT_STATE_UPDATER.lazySet(this, newState);
     newState.onActivate(true);
     incTransitions();
-    return () -> {
-      currentState = previous;
-      incTransitions();
-      if (previous != null) {
-        previous.onActivate(false);
-      }
-    };
+    return handle;
   }
 
-  @SuppressWarnings("NonAtomicVolatileUpdate")
-  // Helper method necessary due to https://github.com/spotbugs/spotbugs/issues/724
-  @SuppressFBWarnings(
-      value = "VO_VOLATILE_INCREMENT",
-      justification = "Intentional for performance.")
+  /** Returns to the state that was current before the activation of {@code handle}. */
+  private void exitState(ActivationHandle handle) {
+    StateSlot slot = handle.slot;
+    ExecutionState exited = slot.state;
+    if (exited == null || handle.activation != slot.activations) {
+      // The activation was already closed.
+      return;
+    }
+    checkState(
+        depth == slot.depth + 1,
+        "Closing state %s while states entered after it are still active, the current state is %s",
+        exited,
+        currentState);
+    onExitState(exited);
+    ExecutionState previous = slot.previous;
+    slot.state = null;
+    slot.previous = null;
+    depth = slot.depth;
+    CURRENT_STATE_UPDATER.lazySet(this, previous);
+    incTransitions();
+    if (previous != null) {
+      previous.onActivate(false);
+    }
+  }
+
+  /**
+   * Called on the execution thread when {@code state} is exited, before the state that was current
+   * before it is restored. Overriding this avoids wrapping the {@link Closeable} returned by {@link
+   * #enterState}, which would allocate on every transition.
+   */
+  protected void onExitState(ExecutionState state) {}
+
+  private StateSlot[] newStateSlots(int fromDepth, int count) {
+    StateSlot[] slots = new StateSlot[count];
+    for (int i = 0; i < count; ++i) {
+      slots[i] = new StateSlot(fromDepth + i);
+    }
+    return slots;
+  }
+
+  /**
+   * The state entered at a given nesting depth. Only accessed by the Execution thread.
+   *
+   * <p>Its two handles are returned for alternate activations, so the handle of an activation is
+   * not reused by the next one at the same depth and a late close can be told apart by the
+   * activation it remembers.
+   */
+  private class StateSlot {
+    private final int depth;
+    private final ActivationHandle[] handles;
+    private long activations = 0;
+    private @Nullable ExecutionState state;
+    private @Nullable ExecutionState previous;
+
+    private StateSlot(int depth) {
+      this.depth = depth;
+      this.handles =
+          new ActivationHandle[] {new ActivationHandle(this), new ActivationHandle(this)};
+    }
+
+    private ActivationHandle nextHandle() {
+      ActivationHandle handle = handles[(int) (++activations & 1)];
+      handle.activation = activations;
+      return handle;
+    }
+  }
+
+  /** The {@link Closeable} handed out by {@link #enterState}. */
+  private class ActivationHandle implements Closeable {
+    private final StateSlot slot;
+    private long activation = 0;
+
+    private ActivationHandle(StateSlot slot) {
+      this.slot = slot;
+    }
+
+    @Override
+    public void close() {
+      exitState(this);
+    }
+  }
+
+  // Only the Execution thread updates numTransitions so a release store is sufficient.
   private void incTransitions() {
-    numTransitions++;
+    NUM_TRANSITIONS_UPDATER.lazySet(this, numTransitions + 1);
   }
 
   /** Return the number of transitions that have been observed by this state tracker. */
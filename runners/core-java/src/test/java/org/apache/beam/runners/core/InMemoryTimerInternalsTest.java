@@ -161,6 +161,36 @@ public class InMemoryTimerInternalsTest {
     assertThat(underTest.removeNextProcessingTimer(), nullValue());
   }
 
+  @Test
+  public void testTimersSharingTimestamp() throws Exception {
+    InMemoryTimerInternals underTest = new InMemoryTimerInternals();
+    StateNamespace ns2 = new StateNamespaceForTest("NS2");
+    underTest.setTimer(NS1, ID2, "", new Instant(10), new Instant(10), TimeDomain.EVENT_TIME);
+    underTest.setTimer(NS1, ID1, "", new Instant(10), new Instant(10), TimeDomain.EVENT_TIME);
+    underTest.setTimer(ns2, ID1, "", new Instant(10), new Instant(10), TimeDomain.EVENT_TIME);
+    underTest.setTimer(ns2, ID2, "", new Instant(20), new Instant(20), TimeDomain.EVENT_TIME);
+    assertThat(underTest.getNextTimer(TimeDomain.EVENT_TIME), equalTo(new Instant(10)));
+    assertThat(underTest.getNextTimer(TimeDomain.PROCESSING_TIME), nullValue());
+
+    // Moving the only timer out of a timestamp drops that timestamp.
+    underTest.setTimer(ns2, ID2, "", new Instant(5), new Instant(5), TimeDomain.EVENT_TIME);
+    underTest.deleteTimer(NS1, ID2, "", TimeDomain.EVENT_TIME);
+    assertThat(underTest.getNextTimer(TimeDomain.EVENT_TIME), equalTo(new Instant(5)));
+
+    underTest.advanceInputWatermark(new Instant(30));
+    assertThat(
+        underTest.removeNextEventTimer(),
+        equalTo(TimerData.of(ID2, "", ns2, new Instant(5), new Instant(5), TimeDomain.EVENT_TIME)));
+    TimerData first = underTest.removeNextEventTimer();
+    TimerData second = underTest.removeNextEventTimer();
+    assertThat(first.getTimestamp(), equalTo(new Instant(10)));
+    assertThat(second.getTimestamp(), equalTo(new Instant(10)));
+    assertThat(first.compareTo(second) < 0, equalTo(true));
+    assertThat(underTest.removeNextEventTimer(), nullValue());
+    assertThat(underTest.getNextTimer(TimeDomain.EVENT_TIME), nullValue());
+    assertThat(underTest.hasPendingTimers(), equalTo(false));
+  }
+
   @Test
   public void testTimerOrdering() throws Exception {
     InMemoryTimerInternals underTest = new InMemoryTimerInternals();
@@ -19,6 +19,8 @@ package org.apache.beam.runners.core.metrics;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThrows;
 import static org.mockito.Mockito.mock;
 
 import java.io.Closeable;
@@ -123,6 +125,69 @@ public class ExecutionStateSamplerTest {
     assertThat(step1act1.lullReported, equalTo(true));
   }
 
+  @Test
+  public void testDeeplyNestedStates() throws Exception {
+    ExecutionStateTracker tracker = createTracker();
+    // Go deeper than the initial number of preallocated state slots.
+    Closeable[] closeables = new Closeable[50];
+    try (Closeable t = tracker.activate(new Thread())) {
+      for (int i = 0; i < closeables.length; ++i) {
+        closeables[i] = tracker.enterState(i % 2 == 0 ? step1act1 : step1act2);
+      }
+      sampler.doSampling(100);
+      for (int i = closeables.length - 1; i > 0; --i) {
+        closeables[i].close();
+        assertThat(tracker.getCurrentState(), equalTo(i % 2 == 0 ? step1act2 : step1act1));
+      }
+      sampler.doSampling(200);
+      closeables[0].close();
+      assertThat(tracker.getCurrentState(), nullValue());
+      assertThat(tracker.getNumTransitions(), equalTo(100L));
+    }
+
+    assertThat(step1act2.totalMillis, equalTo(100L));
+    assertThat(step1act1.totalMillis, equalTo(200L));
+  }
+
+  @Test
+  public void testStaleClosesAreIgnored() throws Exception {
+    ExecutionStateTracker tracker = createTracker();
+    try (Closeable t = tracker.activate(new Thread())) {
+      Closeable c1 = tracker.enterState(step1act1);
+      Closeable c2 = tracker.enterState(step1act2);
+      c2.close();
+      // Closing the inner state a second time is ignored.
+      c2.close();
+      assertThat(tracker.getCurrentState(), equalTo(step1act1));
+
+      // A late close of an earlier activation doesn't close a state entered at the same depth.
+      Closeable c3 = tracker.enterState(step1act2);
+      c2.close();
+      assertThat(tracker.getCurrentState(), equalTo(step1act2));
+      c3.close();
+      assertThat(tracker.getCurrentState(), equalTo(step1act1));
+
+      c1.close();
+      c1.close();
+      assertThat(tracker.getCurrentState(), nullValue());
+      assertThat(tracker.getNumTransitions(), equalTo(6L));
+    }
+  }
+
+  @Test
+  public void testOutOfOrderClosesAreRejected() throws Exception {
+    ExecutionStateTracker tracker = createTracker();
+    try (Closeable t = tracker.activate(new Thread())) {
+      Closeable c1 = tracker.enterState(step1act1);
+      Closeable c2 = tracker.enterState(step1act2);
+      assertThrows(IllegalStateException.class, c1::close);
+      assertThat(tracker.getCurrentState(), equalTo(step1act2));
+      c2.close();
+      c1.close();
+      assertThat(tracker.getCurrentState(), nullValue());
+    }
+  }
+
   @Test
   public void testReset() throws Exception {
     sampler.lastSampleTimeMillis = 100L;
@@ -18,10 +18,13 @@
 package org.apache.beam.runners.flink.streaming;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.core.Is.is;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 import org.apache.beam.runners.core.StateInternals;
 import org.apache.beam.runners.core.StateInternalsTest;
@@ -34,10 +37,14 @@ import org.apache.beam.runners.flink.adapter.FlinkKey;
 import org.apache.beam.runners.flink.translation.wrappers.streaming.state.FlinkStateInternals;
 import org.apache.beam.sdk.coders.CoderException;
 import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.coders.VarIntCoder;
+import org.apache.beam.sdk.state.OrderedListState;
 import org.apache.beam.sdk.state.WatermarkHoldState;
 import org.apache.beam.sdk.transforms.windowing.IntervalWindow;
 import org.apache.beam.sdk.transforms.windowing.TimestampCombiner;
 import org.apache.beam.sdk.util.CoderUtils;
+import org.apache.beam.sdk.values.TimestampedValue;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Iterables;
 import org.apache.flink.api.common.JobID;
 import org.apache.flink.api.common.serialization.SerializerConfigImpl;
 import org.apache.flink.api.java.typeutils.ValueTypeInfo;
@@ -188,6 +195,144 @@ public class FlinkStateInternalsTest extends StateInternalsTest {
     assertThat(state.read(), is((Instant) null));
   }
 
+  @Test
+  public void testOrderedListStateInTimeBuckets() throws Exception {
+    FlinkPipelineOptions options = FlinkPipelineOptions.defaults();
+    options.setOrderedListStateInTimeBuckets(true);
+    FlinkStateInternals<String> stateInternals =
+        new FlinkStateInternals<>(
+            createStateBackend(),
+            StringUtf8Coder.of(),
+            IntervalWindow.getCoder(),
+            new SerializablePipelineOptions(options));
+    StateTag<OrderedListState<Integer>> stateTag =
+        StateTags.orderedList("orderedList", VarIntCoder.of());
+    OrderedListState<Integer> state = stateInternals.state(StateNamespaces.global(), stateTag);
+
+    assertThat(state.isEmpty().read(), is(true));
+    state.add(TimestampedValue.of(3, new Instant(30)));
+    state.add(TimestampedValue.of(1, new Instant(-10)));
+    state.add(TimestampedValue.of(2, new Instant(10)));
+    state.add(TimestampedValue.of(4, new Instant(10)));
+    state.add(TimestampedValue.of(5, new Instant(40)));
+    assertThat(state.isEmpty().read(), is(false));
+
+    assertThat(
+        state.read(),
+        contains(
+            TimestampedValue.of(1, new Instant(-10)),
+            TimestampedValue.of(2, new Instant(10)),
+            TimestampedValue.of(4, new Instant(10)),
+            TimestampedValue.of(3, new Instant(30)),
+            TimestampedValue.of(5, new Instant(40))));
+    assertThat(
+        state.readRange(new Instant(-10), new Instant(30)),
+        contains(
+            TimestampedValue.of(1, new Instant(-10)),
+            TimestampedValue.of(2, new Instant(10)),
+            TimestampedValue.of(4, new Instant(10))));
+
+    state.clearRange(new Instant(0), new Instant(40));
+    assertThat(
+        state.read(),
+        contains(
+            TimestampedValue.of(1, new Instant(-10)), TimestampedValue.of(5, new Instant(40))));
+
+    state.clear();
+    assertThat(state.isEmpty().read(), is(true));
+    assertThat(Iterables.isEmpty(state.read()), is(true));
+  }
+
+  @Test
+  public void testOrderedListStateInTimeBucketsAcrossBuckets() throws Exception {
+    FlinkPipelineOptions options = FlinkPipelineOptions.defaults();
+    options.setOrderedListStateInTimeBuckets(true);
+    FlinkStateInternals<String> stateInternals =
+        new FlinkStateInternals<>(
+            createStateBackend(),
+            StringUtf8Coder.of(),
+            IntervalWindow.getCoder(),
+            new SerializablePipelineOptions(options));
+    StateTag<OrderedListState<Integer>> stateTag =
+        StateTags.orderedList("orderedList", VarIntCoder.of());
+    OrderedListState<Integer> state = stateInternals.state(StateNamespaces.global(), stateTag);
+
+    for (int minute = 4; minute >= 0; minute--) {
+      state.add(TimestampedValue.of(minute, Instant.ofEpochSecond(minute * 60L + 30)));
+    }
+    assertThat(
+        state.readRange(Instant.ofEpochSecond(60), Instant.ofEpochSecond(180)),
+        contains(
+            TimestampedValue.of(1, Instant.ofEpochSecond(90)),
+            TimestampedValue.of(2, Instant.ofEpochSecond(150))));
+
+    // Covers the second bucket entirely and half of the first and third bucket.
+    state.clearRange(Instant.ofEpochSecond(45), Instant.ofEpochSecond(135));
+    assertThat(
+        state.read(),
+        contains(
+            TimestampedValue.of(0, Instant.ofEpochSecond(30)),
+            TimestampedValue.of(2, Instant.ofEpochSecond(150)),
+            TimestampedValue.of(3, Instant.ofEpochSecond(210)),
+            TimestampedValue.of(4, Instant.ofEpochSecond(270))));
+
+    state.clearRange(Instant.ofEpochSecond(0), Instant.ofEpochSecond(240));
+    state.add(TimestampedValue.of(5, Instant.ofEpochSecond(20)));
+    assertThat(
+        state.read(),
+        contains(
+            TimestampedValue.of(5, Instant.ofEpochSecond(20)),
+            TimestampedValue.of(4, Instant.ofEpochSecond(270))));
+  }
+
+  @Test
+  public void testOrderedListStateInTimeBucketsRepeatedPartialClears() throws Exception {
+    FlinkPipelineOptions options = FlinkPipelineOptions.defaults();
+    options.setOrderedListStateInTimeBuckets(true);
+    FlinkStateInternals<String> stateInternals =
+        new FlinkStateInternals<>(
+            createStateBackend(),
+            StringUtf8Coder.of(),
+            IntervalWindow.getCoder(),
+            new SerializablePipelineOptions(options));
+    StateTag<OrderedListState<Integer>> stateTag =
+        StateTags.orderedList("orderedList", VarIntCoder.of());
+    OrderedListState<Integer> state = stateInternals.state(StateNamespaces.global(), stateTag);
+
+    // All elements share a single bucket, which is cleared from the front one element at a time
+    // while new elements keep being added at the back.
+    for (int i = 0; i < 10; i++) {
+      state.add(TimestampedValue.of(i, new Instant(i)));
+    }
+    for (int i = 0; i < 20; i++) {
+      state.clearRange(new Instant(i), new Instant(i + 1));
+      state.add(TimestampedValue.of(i + 10, new Instant(i + 10)));
+      List<TimestampedValue<Integer>> expected = new ArrayList<>();
+      for (int j = i + 1; j <= i + 10; j++) {
+        expected.add(TimestampedValue.of(j, new Instant(j)));
+      }
+      assertThat(state.read(), contains(expected.toArray()));
+      assertThat(
+          state.readRange(new Instant(i + 5), new Instant(i + 7)),
+          contains(
+              TimestampedValue.of(i + 5, new Instant(i + 5)),
+              TimestampedValue.of(i + 6, new Instant(i + 6))));
+    }
+
+    // Clearing the middle of the bucket keeps the elements on both sides in order.
+    state.clearRange(new Instant(23), new Instant(28));
+    assertThat(
+        state.read(),
+        contains(
+            TimestampedValue.of(20, new Instant(20)),
+            TimestampedValue.of(21, new Instant(21)),
+            TimestampedValue.of(22, new Instant(22)),
+            TimestampedValue.of(28, new Instant(28)),
+            TimestampedValue.of(29, new Instant(29))));
+    state.clearRange(new Instant(0), new Instant(60_000));
+    assertThat(state.isEmpty().read(), is(true));
+  }
+
   public static KeyedStateBackend<FlinkKey> createStateBackend() throws Exception {
     AbstractKeyedStateBackend<FlinkKey> keyedStateBackend =
         MemoryStateBackendWrapper.createKeyedStateBackend(
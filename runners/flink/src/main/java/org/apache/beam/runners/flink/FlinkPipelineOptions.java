@@ -365,6 +365,27 @@ public interface FlinkPipelineOptions
 
   void setFasterCopy(Boolean fasterCopy);
 
+  @Description(
+      "Skip the deep copy between operators for values whose coder only produces immutable "
+          + "objects, e.g. strings, numbers and KVs or WindowedValues of them, and report such "
+          + "types as immutable to Flink. Flink then also stops copying these values in heap "
+          + "state backends.")
+  @Default.Boolean(false)
+  Boolean getSkipImmutableCopies();
+
+  void setSkipImmutableCopies(Boolean skipImmutableCopies);
+
+  @Description(
+      "Store OrderedListState in buckets of one minute of event time, with an index of the "
+          + "buckets, instead of a single list. Range reads and range deletes then only load the "
+          + "elements of the buckets overlapping the range, and adding an element does not read "
+          + "the existing elements. The two layouts are not compatible, so this must not be "
+          + "changed when restoring from a savepoint.")
+  @Default.Boolean(false)
+  Boolean getOrderedListStateInTimeBuckets();
+
+  void setOrderedListStateInTimeBuckets(Boolean orderedListStateInTimeBuckets);
+
   @Description(
       "Directory containing Flink YAML configuration files. "
           + "These properties will be set to all jobs submitted to Flink and take precedence "
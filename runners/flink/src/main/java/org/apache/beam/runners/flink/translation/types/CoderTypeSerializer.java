@@ -23,10 +23,31 @@ import org.apache.beam.runners.core.construction.SerializablePipelineOptions;
 import org.apache.beam.runners.flink.FlinkPipelineOptions;
 import org.apache.beam.runners.flink.translation.wrappers.DataInputViewWrapper;
 import org.apache.beam.runners.flink.translation.wrappers.DataOutputViewWrapper;
+import org.apache.beam.sdk.coders.BigDecimalCoder;
+import org.apache.beam.sdk.coders.BigEndianIntegerCoder;
+import org.apache.beam.sdk.coders.BigEndianLongCoder;
+import org.apache.beam.sdk.coders.BigEndianShortCoder;
+import org.apache.beam.sdk.coders.BigIntegerCoder;
+import org.apache.beam.sdk.coders.BooleanCoder;
+import org.apache.beam.sdk.coders.ByteCoder;
 import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.coders.CoderException;
+import org.apache.beam.sdk.coders.DoubleCoder;
+import org.apache.beam.sdk.coders.FloatCoder;
+import org.apache.beam.sdk.coders.InstantCoder;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.NullableCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.coders.VarIntCoder;
+import org.apache.beam.sdk.coders.VarLongCoder;
+import org.apache.beam.sdk.coders.VoidCoder;
+import org.apache.beam.sdk.transforms.windowing.GlobalWindow;
+import org.apache.beam.sdk.transforms.windowing.IntervalWindow;
 import org.apache.beam.sdk.util.CoderUtils;
+import org.apache.beam.sdk.values.WindowedValues.FullWindowedValueCoder;
+import org.apache.beam.sdk.values.WindowedValues.ValueOnlyWindowedValueCoder;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Preconditions;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ImmutableSet;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.api.common.typeutils.TypeSerializerSnapshot;
 import org.apache.flink.core.memory.DataInputView;
@@ -36,6 +57,11 @@ import org.checkerframework.checker.nullness.qual.Nullable;
 /**
  * Flink {@link org.apache.flink.api.common.typeutils.TypeSerializer} for Beam {@link
  * org.apache.beam.sdk.coders.Coder Coders}.
+ *
+ * <p>With {@link FlinkPipelineOptions#getSkipImmutableCopies()}, values of coders which only
+ * produce immutable objects, e.g. {@link org.apache.beam.sdk.values.WindowedValue WindowedValues}
+ * of strings or longs, are not cloned even without {@link FlinkPipelineOptions#getFasterCopy()}, as
+ * the copy could not be observed.
  */
 @SuppressWarnings({
   "rawtypes", // TODO(https://github.com/apache/beam/issues/20447)
@@ -47,31 +73,88 @@ public class CoderTypeSerializer<T> extends TypeSerializer<T> {
 
   private final Coder<T> coder;
 
+  /**
+   * Coders whose decoded values are immutable. Matched by exact class so that subclasses with
+   * different value types are not treated as immutable.
+   */
+  private static final ImmutableSet<Class<?>> IMMUTABLE_VALUE_CODERS =
+      ImmutableSet.of(
+          BigDecimalCoder.class,
+          BigEndianIntegerCoder.class,
+          BigEndianLongCoder.class,
+          BigEndianShortCoder.class,
+          BigIntegerCoder.class,
+          BooleanCoder.class,
+          ByteCoder.class,
+          DoubleCoder.class,
+          FloatCoder.class,
+          InstantCoder.class,
+          StringUtf8Coder.class,
+          VarIntCoder.class,
+          VarLongCoder.class,
+          VoidCoder.class,
+          GlobalWindow.Coder.class,
+          IntervalWindow.IntervalWindowCoder.class);
+
   private final boolean fasterCopy;
 
+  private final boolean skipImmutableCopies;
+
+  /** Whether values of {@link #coder} are immutable, so that copies can be skipped. */
+  private final boolean immutableType;
+
   public CoderTypeSerializer(Coder<T> coder, SerializablePipelineOptions pipelineOptions) {
-    this(
-        coder,
-        Preconditions.checkNotNull(pipelineOptions)
-            .get()
-            .as(FlinkPipelineOptions.class)
-            .getFasterCopy());
+    this(coder, Preconditions.checkNotNull(pipelineOptions).get().as(FlinkPipelineOptions.class));
+  }
+
+  private CoderTypeSerializer(Coder<T> coder, FlinkPipelineOptions pipelineOptions) {
+    this(coder, pipelineOptions.getFasterCopy(), pipelineOptions.getSkipImmutableCopies());
   }
 
   public CoderTypeSerializer(Coder<T> coder, boolean fasterCopy) {
+    this(coder, fasterCopy, false);
+  }
+
+  public CoderTypeSerializer(Coder<T> coder, boolean fasterCopy, boolean skipImmutableCopies) {
     Preconditions.checkNotNull(coder);
     this.coder = coder;
     this.fasterCopy = fasterCopy;
+    this.skipImmutableCopies = skipImmutableCopies;
+    this.immutableType = skipImmutableCopies && hasImmutableValues(coder);
+  }
+
+  /** Returns whether all values decoded by the given coder are immutable. */
+  static boolean hasImmutableValues(Coder<?> coder) {
+    if (IMMUTABLE_VALUE_CODERS.contains(coder.getClass())) {
+      return true;
+    }
+    if (coder.getClass() == NullableCoder.class) {
+      return hasImmutableValues(((NullableCoder<?>) coder).getValueCoder());
+    }
+    if (coder.getClass() == KvCoder.class) {
+      KvCoder<?, ?> kvCoder = (KvCoder<?, ?>) coder;
+      return hasImmutableValues(kvCoder.getKeyCoder())
+          && hasImmutableValues(kvCoder.getValueCoder());
+    }
+    if (coder.getClass() == FullWindowedValueCoder.class) {
+      FullWindowedValueCoder<?> windowedValueCoder = (FullWindowedValueCoder<?>) coder;
+      return hasImmutableValues(windowedValueCoder.getWindowCoder())
+          && hasImmutableValues(windowedValueCoder.getValueCoder());
+    }
+    if (coder.getClass() == ValueOnlyWindowedValueCoder.class) {
+      return hasImmutableValues(((ValueOnlyWindowedValueCoder<?>) coder).getValueCoder());
+    }
+    return false;
   }
 
   @Override
   public boolean isImmutableType() {
-    return false;
+    return immutableType;
   }
 
   @Override
   public CoderTypeSerializer<T> duplicate() {
-    return new CoderTypeSerializer<>(coder, fasterCopy);
+    return new CoderTypeSerializer<>(coder, fasterCopy, skipImmutableCopies);
   }
 
   @Override
@@ -81,7 +164,7 @@ public class CoderTypeSerializer<T> extends TypeSerializer<T> {
 
   @Override
   public T copy(T t) {
-    if (fasterCopy) {
+    if (fasterCopy || immutableType) {
       return t;
     }
     try {
@@ -18,9 +18,12 @@
 package org.apache.beam.runners.flink.translation.wrappers.streaming.state;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -39,6 +42,8 @@ import org.apache.beam.runners.flink.translation.types.CoderTypeSerializer;
 import org.apache.beam.runners.flink.translation.wrappers.streaming.FlinkKeyUtils;
 import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.coders.InstantCoder;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.VarLongCoder;
 import org.apache.beam.sdk.coders.VoidCoder;
 import org.apache.beam.sdk.state.BagState;
 import org.apache.beam.sdk.state.CombiningState;
@@ -61,6 +66,7 @@ import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
 import org.apache.beam.sdk.transforms.windowing.GlobalWindow;
 import org.apache.beam.sdk.transforms.windowing.TimestampCombiner;
 import org.apache.beam.sdk.util.CombineContextFactory;
+import org.apache.beam.sdk.values.KV;
 import org.apache.beam.sdk.values.TimestampedValue;
 import org.apache.beam.sdk.values.TimestampedValue.TimestampedValueCoder;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.MoreObjects;
@@ -172,6 +178,7 @@ public class FlinkStateInternals<K> implements StateInternals {
   private final MapStateDescriptor<String, Instant> watermarkHoldStateDescriptor;
 
   private final boolean fasterCopy;
+  private final boolean orderedListStateInTimeBuckets;
 
   public FlinkStateInternals(
       KeyedStateBackend<FlinkKey> flinkStateBackend,
@@ -181,7 +188,9 @@ public class FlinkStateInternals<K> implements StateInternals {
       throws Exception {
     this.flinkStateBackend = Objects.requireNonNull(flinkStateBackend);
     this.keyCoder = Objects.requireNonNull(keyCoder);
-    this.fasterCopy = pipelineOptions.get().as(FlinkPipelineOptions.class).getFasterCopy();
+    FlinkPipelineOptions options = pipelineOptions.get().as(FlinkPipelineOptions.class);
+    this.fasterCopy = options.getFasterCopy();
+    this.orderedListStateInTimeBuckets = options.getOrderedListStateInTimeBuckets();
     this.namespaceKeySerializer = new FlinkStateNamespaceKeySerializer(windowCoder);
 
     watermarkHoldStateDescriptor =
@@ -302,6 +311,20 @@ public class FlinkStateInternals<K> implements StateInternals {
     @Override
     public <T> OrderedListState<T> bindOrderedList(
         String id, StateSpec<OrderedListState<T>> spec, Coder<T> elemCoder) {
+      if (orderedListStateInTimeBuckets) {
+        FlinkTimeBucketedOrderedListState<T> orderedListState =
+            new FlinkTimeBucketedOrderedListState<>(
+                flinkStateBackend, id, namespace, elemCoder, namespaceKeySerializer, fasterCopy);
+        collectGlobalWindowStateDescriptor(
+            orderedListState.flinkStateDescriptor,
+            orderedListState.namespace,
+            namespaceKeySerializer);
+        collectGlobalWindowStateDescriptor(
+            orderedListState.flinkBucketIndexDescriptor,
+            orderedListState.namespace,
+            namespaceKeySerializer);
+        return orderedListState;
+      }
       FlinkOrderedListState<T> flinkOrderedListState =
           new FlinkOrderedListState<>(
               flinkStateBackend, id, namespace, elemCoder, namespaceKeySerializer, fasterCopy);
@@ -718,6 +741,239 @@ public class FlinkStateInternals<K> implements StateInternals {
     }
   }
 
+  /**
+   * {@link OrderedListState} stored in coarse buckets of event time.
+   *
+   * <p>Each element is stored in a Flink map state under its bucket and a sequence number within
+   * the bucket. A second map state indexes the buckets with the number of their elements, which
+   * are kept under consecutive sequence numbers starting at zero. Range reads and range clears only
+   * look up the elements of the buckets overlapping the range, and buckets entirely within a
+   * cleared range are removed without reading their elements. A range clear that covers part of a
+   * bucket moves the remaining elements of the bucket down, so no lookups are spent on removed
+   * elements. Adding an element does not read any other element. Unlike {@link
+   * FlinkOrderedListState}, elements that share a timestamp are all kept.
+   */
+  private static class FlinkTimeBucketedOrderedListState<T> implements OrderedListState<T> {
+    // One minute of event time per bucket.
+    private static final long BUCKET_MILLIS = 60_000L;
+    private static final String BUCKET_INDEX_SUFFIX = "/buckets";
+    // Ranges spanning fewer buckets look up each of them in the index instead of iterating it.
+    private static final long MAX_BUCKET_LOOKUPS = 64;
+
+    private final StateNamespace namespace;
+    private final MapStateDescriptor<KV<Long, Long>, TimestampedValue<T>> flinkStateDescriptor;
+    private final MapStateDescriptor<Long, Long> flinkBucketIndexDescriptor;
+    private final KeyedStateBackend<FlinkKey> flinkStateBackend;
+    private final FlinkStateNamespaceKeySerializer namespaceSerializer;
+
+    FlinkTimeBucketedOrderedListState(
+        KeyedStateBackend<FlinkKey> flinkStateBackend,
+        String stateId,
+        StateNamespace namespace,
+        Coder<T> coder,
+        FlinkStateNamespaceKeySerializer namespaceSerializer,
+        boolean fasterCopy) {
+      this.namespace = namespace;
+      this.flinkStateBackend = flinkStateBackend;
+      this.flinkStateDescriptor = elementsDescriptor(stateId, coder, fasterCopy);
+      this.flinkBucketIndexDescriptor = bucketIndexDescriptor(stateId, fasterCopy);
+      this.namespaceSerializer = namespaceSerializer;
+    }
+
+    static <T> MapStateDescriptor<KV<Long, Long>, TimestampedValue<T>> elementsDescriptor(
+        String stateId, Coder<T> coder, boolean fasterCopy) {
+      return new MapStateDescriptor<>(
+          stateId,
+          new CoderTypeSerializer<>(KvCoder.of(VarLongCoder.of(), VarLongCoder.of()), fasterCopy),
+          new CoderTypeSerializer<>(TimestampedValueCoder.of(coder), fasterCopy));
+    }
+
+    static MapStateDescriptor<Long, Long> bucketIndexDescriptor(
+        String stateId, boolean fasterCopy) {
+      return new MapStateDescriptor<>(
+          stateId + BUCKET_INDEX_SUFFIX,
+          new CoderTypeSerializer<>(VarLongCoder.of(), fasterCopy),
+          new CoderTypeSerializer<>(VarLongCoder.of(), fasterCopy));
+    }
+
+    private org.apache.flink.api.common.state.MapState<KV<Long, Long>, TimestampedValue<T>>
+        getElements() throws Exception {
+      return flinkStateBackend.getPartitionedState(
+          namespace, namespaceSerializer, flinkStateDescriptor);
+    }
+
+    private org.apache.flink.api.common.state.MapState<Long, Long> getBucketIndex()
+        throws Exception {
+      return flinkStateBackend.getPartitionedState(
+          namespace, namespaceSerializer, flinkBucketIndexDescriptor);
+    }
+
+    private static long bucketOf(long millis) {
+      return Math.floorDiv(millis, BUCKET_MILLIS);
+    }
+
+    private static boolean isInRange(TimestampedValue<?> value, long minMillis, long limitMillis) {
+      long millis = value.getTimestamp().getMillis();
+      return millis >= minMillis && millis < limitMillis;
+    }
+
+    /** Returns the buckets overlapping the range together with their number of elements. */
+    private List<Map.Entry<Long, Long>> overlappingBuckets(long minMillis, long limitMillis)
+        throws Exception {
+      List<Map.Entry<Long, Long>> buckets = new ArrayList<>();
+      if (limitMillis <= minMillis) {
+        return buckets;
+      }
+      long minBucket = bucketOf(minMillis);
+      long maxBucket = bucketOf(limitMillis - 1);
+      org.apache.flink.api.common.state.MapState<Long, Long> bucketIndex = getBucketIndex();
+      if (maxBucket - minBucket < MAX_BUCKET_LOOKUPS) {
+        for (long bucket = minBucket; bucket <= maxBucket; bucket++) {
+          Long size = bucketIndex.get(bucket);
+          if (size != null) {
+            buckets.add(Maps.immutableEntry(bucket, size));
+          }
+        }
+        return buckets;
+      }
+      Iterable<Map.Entry<Long, Long>> entries = bucketIndex.entries();
+      if (entries != null) {
+        for (Map.Entry<Long, Long> entry : entries) {
+          long bucket = entry.getKey();
+          if (bucket >= minBucket && bucket <= maxBucket) {
+            buckets.add(Maps.immutableEntry(bucket, entry.getValue()));
+          }
+        }
+      }
+      return buckets;
+    }
+
+    @Override
+    public Iterable<TimestampedValue<T>> readRange(Instant minTimestamp, Instant limitTimestamp) {
+      return readRangeMillis(minTimestamp.getMillis(), limitTimestamp.getMillis());
+    }
+
+    private List<TimestampedValue<T>> readRangeMillis(long minMillis, long limitMillis) {
+      List<TimestampedValue<T>> result = new ArrayList<>();
+      try {
+        org.apache.flink.api.common.state.MapState<KV<Long, Long>, TimestampedValue<T>> elements =
+            getElements();
+        for (Map.Entry<Long, Long> bucket : overlappingBuckets(minMillis, limitMillis)) {
+          for (long sequence = 0; sequence < bucket.getValue(); sequence++) {
+            TimestampedValue<T> value = elements.get(KV.of(bucket.getKey(), sequence));
+            if (value != null && isInRange(value, minMillis, limitMillis)) {
+              result.add(value);
+            }
+          }
+        }
+      } catch (Exception e) {
+        throw new RuntimeException("Error reading state.", e);
+      }
+      // The sort is stable, so elements that share a timestamp stay in the order they were added.
+      result.sort(Comparator.comparing(TimestampedValue::getTimestamp));
+      return result;
+    }
+
+    @Override
+    public void clearRange(Instant minTimestamp, Instant limitTimestamp) {
+      long minMillis = minTimestamp.getMillis();
+      long limitMillis = limitTimestamp.getMillis();
+      long firstCoveredBucket =
+          bucketOf(minMillis) + (Math.floorMod(minMillis, BUCKET_MILLIS) == 0 ? 0 : 1);
+      long lastCoveredBucket = bucketOf(limitMillis) - 1;
+      try {
+        org.apache.flink.api.common.state.MapState<KV<Long, Long>, TimestampedValue<T>> elements =
+            getElements();
+        org.apache.flink.api.common.state.MapState<Long, Long> bucketIndex = getBucketIndex();
+        for (Map.Entry<Long, Long> bucket : overlappingBuckets(minMillis, limitMillis)) {
+          long bucketId = bucket.getKey();
+          long size = bucket.getValue();
+          long remaining = 0;
+          if (bucketId < firstCoveredBucket || bucketId > lastCoveredBucket) {
+            // Move the elements outside of the range down to close the gaps of the removed ones.
+            for (long sequence = 0; sequence < size; sequence++) {
+              TimestampedValue<T> value = elements.get(KV.of(bucketId, sequence));
+              if (value != null && !isInRange(value, minMillis, limitMillis)) {
+                if (remaining != sequence) {
+                  elements.put(KV.of(bucketId, remaining), value);
+                }
+                remaining++;
+              }
+            }
+          }
+          for (long sequence = remaining; sequence < size; sequence++) {
+            elements.remove(KV.of(bucketId, sequence));
+          }
+          if (remaining == 0) {
+            bucketIndex.remove(bucketId);
+          } else if (remaining != size) {
+            bucketIndex.put(bucketId, remaining);
+          }
+        }
+      } catch (Exception e) {
+        throw new RuntimeException("Error clearing state.", e);
+      }
+    }
+
+    @Override
+    public OrderedListState<T> readRangeLater(Instant minTimestamp, Instant limitTimestamp) {
+      return this;
+    }
+
+    @Override
+    public void add(TimestampedValue<T> value) {
+      try {
+        org.apache.flink.api.common.state.MapState<Long, Long> bucketIndex = getBucketIndex();
+        long bucketId = bucketOf(value.getTimestamp().getMillis());
+        Long size = bucketIndex.get(bucketId);
+        long sequence = size == null ? 0 : size;
+        getElements().put(KV.of(bucketId, sequence), value);
+        bucketIndex.put(bucketId, sequence + 1);
+      } catch (Exception e) {
+        throw new RuntimeException("Error adding to ordered list state.", e);
+      }
+    }
+
+    @Override
+    public ReadableState<Boolean> isEmpty() {
+      return new ReadableState<Boolean>() {
+        @Override
+        public Boolean read() {
+          try {
+            return getBucketIndex().isEmpty();
+          } catch (Exception e) {
+            throw new RuntimeException("Error reading state.", e);
+          }
+        }
+
+        @Override
+        public ReadableState<Boolean> readLater() {
+          return this;
+        }
+      };
+    }
+
+    @Override
+    public Iterable<TimestampedValue<T>> read() {
+      return readRangeMillis(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    @Override
+    public GroupingState<TimestampedValue<T>, Iterable<TimestampedValue<T>>> readLater() {
+      return this;
+    }
+
+    @Override
+    public void clear() {
+      try {
+        getElements().clear();
+        getBucketIndex().clear();
+      } catch (Exception e) {
+        throw new RuntimeException("Error clearing state.", e);
+      }
+    }
+  }
+
   private static class FlinkBagState<T> implements BagState<T> {
 
     private final StateNamespace namespace;
@@ -1705,6 +1961,7 @@ public class FlinkStateInternals<K> implements StateInternals {
 
     private final KeyedStateBackend keyedStateBackend;
     private final Boolean fasterCopy;
+    private final boolean orderedListStateInTimeBuckets;
     private final FlinkStateNamespaceKeySerializer namespaceSerializer;
 
     public EarlyBinder(
@@ -1712,7 +1969,9 @@ public class FlinkStateInternals<K> implements StateInternals {
         SerializablePipelineOptions pipelineOptions,
         Coder<? extends BoundedWindow> windowCoder) {
       this.keyedStateBackend = keyedStateBackend;
-      this.fasterCopy = pipelineOptions.get().as(FlinkPipelineOptions.class).getFasterCopy();
+      FlinkPipelineOptions options = pipelineOptions.get().as(FlinkPipelineOptions.class);
+      this.fasterCopy = options.getFasterCopy();
+      this.orderedListStateInTimeBuckets = options.getOrderedListStateInTimeBuckets();
       this.namespaceSerializer = new FlinkStateNamespaceKeySerializer(windowCoder);
     }
 
@@ -1778,10 +2037,19 @@ public class FlinkStateInternals<K> implements StateInternals {
     public <T> OrderedListState<T> bindOrderedList(
         String id, StateSpec<OrderedListState<T>> spec, Coder<T> elemCoder) {
       try {
-        keyedStateBackend.getOrCreateKeyedState(
-            namespaceSerializer,
-            new ListStateDescriptor<>(
-                id, new CoderTypeSerializer<>(TimestampedValueCoder.of(elemCoder), fasterCopy)));
+        if (orderedListStateInTimeBuckets) {
+          keyedStateBackend.getOrCreateKeyedState(
+              namespaceSerializer,
+              FlinkTimeBucketedOrderedListState.elementsDescriptor(id, elemCoder, fasterCopy));
+          keyedStateBackend.getOrCreateKeyedState(
+              namespaceSerializer,
+              FlinkTimeBucketedOrderedListState.bucketIndexDescriptor(id, fasterCopy));
+        } else {
+          keyedStateBackend.getOrCreateKeyedState(
+              namespaceSerializer,
+              new ListStateDescriptor<>(
+                  id, new CoderTypeSerializer<>(TimestampedValueCoder.of(elemCoder), fasterCopy)));
+        }
       } catch (Exception e) {
         throw new RuntimeException(e);
       }
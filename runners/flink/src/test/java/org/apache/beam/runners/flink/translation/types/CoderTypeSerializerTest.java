@@ -19,6 +19,8 @@ package org.apache.beam.runners.flink.translation.types;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsSame.sameInstance;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -26,9 +28,16 @@ import java.io.OutputStream;
 import java.io.Serializable;
 import org.apache.beam.runners.core.construction.SerializablePipelineOptions;
 import org.apache.beam.sdk.coders.AtomicCoder;
+import org.apache.beam.sdk.coders.ByteArrayCoder;
 import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.KvCoder;
 import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.coders.VarLongCoder;
 import org.apache.beam.sdk.options.PipelineOptionsFactory;
+import org.apache.beam.sdk.transforms.windowing.GlobalWindow;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.WindowedValue;
+import org.apache.beam.sdk.values.WindowedValues;
 import org.apache.flink.api.common.typeutils.ComparatorTestBase;
 import org.apache.flink.api.common.typeutils.TypeSerializerSnapshot;
 import org.junit.Test;
@@ -62,6 +71,49 @@ public class CoderTypeSerializerTest implements Serializable {
     testWriteAndReadConfigSnapshot(concreteClassCoder);
   }
 
+  @Test
+  public void shouldNotCopyImmutableValues() {
+    CoderTypeSerializer<WindowedValue<KV<String, Long>>> serializer =
+        new CoderTypeSerializer<>(
+            WindowedValues.getFullCoder(
+                KvCoder.of(StringUtf8Coder.of(), VarLongCoder.of()), GlobalWindow.Coder.INSTANCE),
+            false,
+            true);
+    WindowedValue<KV<String, Long>> value = WindowedValues.valueInGlobalWindow(KV.of("k", 1L));
+
+    assertThat(serializer.isImmutableType(), is(true));
+    assertThat(serializer.copy(value), sameInstance(value));
+    assertThat(serializer.duplicate().isImmutableType(), is(true));
+  }
+
+  @Test
+  public void shouldCopyImmutableValuesByDefault() {
+    CoderTypeSerializer<KV<String, Long>> serializer =
+        new CoderTypeSerializer<>(
+            KvCoder.of(StringUtf8Coder.of(), VarLongCoder.of()),
+            new SerializablePipelineOptions(PipelineOptionsFactory.create()));
+    KV<String, Long> value = KV.of("k", 1L);
+
+    assertThat(serializer.isImmutableType(), is(false));
+    assertThat(serializer.copy(value), not(sameInstance(value)));
+  }
+
+  @Test
+  public void shouldCopyMutableValues() {
+    CoderTypeSerializer<WindowedValue<KV<String, byte[]>>> serializer =
+        new CoderTypeSerializer<>(
+            WindowedValues.getFullCoder(
+                KvCoder.of(StringUtf8Coder.of(), ByteArrayCoder.of()),
+                GlobalWindow.Coder.INSTANCE),
+            false,
+            true);
+    WindowedValue<KV<String, byte[]>> value =
+        WindowedValues.valueInGlobalWindow(KV.of("k", new byte[] {1}));
+
+    assertThat(serializer.isImmutableType(), is(false));
+    assertThat(serializer.copy(value), not(sameInstance(value)));
+  }
+
   private void testWriteAndReadConfigSnapshot(Coder<String> coder) throws IOException {
     CoderTypeSerializer<String> serializer =
         new CoderTypeSerializer<>(
@@ -153,6 +153,15 @@ public interface DataflowStreamingPipelineOptions extends PipelineOptions {
 
   void setWindmillRequestBatchedGetWorkResponse(boolean value);
 
+  @Description(
+      "The number of threads used to parse GetWork responses off of the gRPC response threads. "
+          + "Work items for the same key are still processed in the order they were received. "
+          + "If 0, work items are parsed on the gRPC response threads.")
+  @Default.Integer(0)
+  int getWindmillGetWorkDecodeParallelism();
+
+  void setWindmillGetWorkDecodeParallelism(int value);
+
   @Description("The number of streams to use for GetData requests.")
   @Default.Integer(1)
   int getWindmillGetDataStreamCount();
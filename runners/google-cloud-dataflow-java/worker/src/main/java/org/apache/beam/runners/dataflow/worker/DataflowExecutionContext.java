@@ -435,15 +435,17 @@ public abstract class DataflowExecutionContext<T extends DataflowStepContext> {
         elementExecutionTracker.enter(newDFState.getStepName());
       }
 
-      return () -> {
-        if (isDataflowProcessElementState) {
-          if (isStreaming) {
-            recordActiveMessageInProcessingTimesMap();
-          }
-          elementExecutionTracker.exit();
+      return baseCloseable;
+    }
+
+    @Override
+    protected void onExitState(ExecutionState state) {
+      if (state.isProcessElementState && state instanceof DataflowExecutionState) {
+        if (isStreaming) {
+          recordActiveMessageInProcessingTimesMap();
         }
-        baseCloseable.close();
-      };
+        elementExecutionTracker.exit();
+      }
     }
 
     public String getWorkItemId() {
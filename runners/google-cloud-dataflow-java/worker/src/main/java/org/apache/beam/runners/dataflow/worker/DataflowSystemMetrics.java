@@ -34,6 +34,10 @@ public class DataflowSystemMetrics {
     WINDMILL_SHUFFLE_BYTES_READ("WindmillShuffleBytesRead"),
     WINDMILL_STATE_BYTES_READ("WindmillStateBytesRead"),
     WINDMILL_STATE_BYTES_WRITTEN("WindmillStateBytesWritten"),
+    WINDMILL_STATE_PREFETCH_HITS("dataflow_windmill_state_prefetch_hits"),
+    WINDMILL_STATE_PREFETCH_UNUSED("dataflow_windmill_state_prefetch_unused"),
+    HOT_KEYS_PRECOMBINED("dataflow_hot_keys_precombined"),
+    HOT_KEY_PRECOMBINE_RETAINED_ENTRIES("dataflow_hot_key_precombine_retained_entries"),
     WINDMILL_MAX_WORK_ITEM_COMMIT_BYTES("WindmillMaxWorkItemCommitBytes"),
     JAVA_HARNESS_USED_MEMORY("dataflow_java_harness_used_memory"),
     JAVA_HARNESS_MAX_MEMORY("dataflow_java_harness_max_memory"),
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.dataflow.worker;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.beam.sdk.annotations.Internal;
+import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.ByteString;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.annotations.VisibleForTesting;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Ticker;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.cache.Cache;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.cache.CacheBuilder;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ImmutableSet;
+import org.joda.time.Duration;
+
+/**
+ * Tracks the keys that Streaming Engine recently reported as hot, so that partial combines ahead
+ * of the shuffle can keep aggregating them instead of flushing them early.
+ *
+ * <p>Keys are the Windmill encoding of the user key, and are forgotten once they have not been
+ * reported hot for {@link #HOT_KEY_EXPIRY}. They are tracked for the whole worker: the hot key
+ * information arrives on the work items of the computation reading the shuffle, while the partial
+ * combine that writes to it runs in the producing computation.
+ *
+ * <p>Pre-aggregation is bounded by a work item. The outputs of a work item are committed together
+ * with the consumption of its inputs, so an accumulator carried over into a later work item would
+ * be lost if the worker failed between the two commits. Within a work item the partial combine
+ * already folds all values of a key into one accumulator unless its table fills up, which is when
+ * the entries of hot keys are kept and the entries of other keys are flushed instead.
+ */
+@Internal
+@ThreadSafe
+public final class HotKeyTracker {
+
+  /** Experiment enabling the precombining of hot keys. */
+  public static final String ENABLE_HOT_KEY_PRECOMBINE_EXPERIMENT = "enable_hot_key_precombine";
+
+  @VisibleForTesting static final Duration HOT_KEY_EXPIRY = Duration.standardMinutes(5);
+  private static final int MAX_HOT_KEYS = 1000;
+
+  private final Cache<ByteString, Boolean> hotKeys;
+  private final AtomicLong retainedEntries;
+
+  public HotKeyTracker() {
+    this(Ticker.systemTicker());
+  }
+
+  @VisibleForTesting
+  HotKeyTracker(Ticker ticker) {
+    this.hotKeys =
+        CacheBuilder.newBuilder()
+            .maximumSize(MAX_HOT_KEYS)
+            .expireAfterWrite(HOT_KEY_EXPIRY.getMillis(), TimeUnit.MILLISECONDS)
+            .ticker(ticker)
+            .build();
+    this.retainedEntries = new AtomicLong();
+  }
+
+  /** Records that {@code key} was reported hot. Returns true if it was not already tracked. */
+  public boolean recordHotKey(ByteString key) {
+    return hotKeys.asMap().put(key, Boolean.TRUE) == null;
+  }
+
+  /** Returns whether no key is currently tracked, which lets callers skip matching their keys. */
+  public boolean isEmpty() {
+    return hotKeys.size() == 0;
+  }
+
+  public boolean isHotKey(ByteString key) {
+    return hotKeys.getIfPresent(key) != null;
+  }
+
+  /** Returns a snapshot of the currently tracked keys. */
+  public Set<ByteString> getHotKeys() {
+    return ImmutableSet.copyOf(hotKeys.asMap().keySet());
+  }
+
+  /** Records that a partial combine kept the entry of a hot key instead of flushing it. */
+  void recordRetainedEntry() {
+    retainedEntries.incrementAndGet();
+  }
+
+  /**
+   * Returns the number of times entries of hot keys were kept instead of flushed since the last
+   * call.
+   */
+  public long getAndResetRetainedEntries() {
+    return retainedEntries.getAndSet(0);
+  }
+}
@@ -21,8 +21,12 @@ import static org.apache.beam.runners.dataflow.util.Structs.getBytes;
 
 import com.google.api.services.dataflow.model.PartialGroupByKeyInstruction;
 import com.google.api.services.dataflow.model.SideInputInfo;
+import java.io.IOException;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import org.apache.beam.runners.core.GlobalCombineFnRunner;
 import org.apache.beam.runners.core.GlobalCombineFnRunners;
 import org.apache.beam.runners.core.NullSideInputReader;
@@ -43,11 +47,13 @@ import org.apache.beam.sdk.options.StreamingOptions;
 import org.apache.beam.sdk.state.BagState;
 import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
 import org.apache.beam.sdk.util.AppliedCombineFn;
+import org.apache.beam.sdk.util.CoderUtils;
 import org.apache.beam.sdk.util.SerializableUtils;
 import org.apache.beam.sdk.util.common.ElementByteSizeObserver;
 import org.apache.beam.sdk.values.KV;
 import org.apache.beam.sdk.values.WindowedValue;
 import org.apache.beam.sdk.values.WindowedValues;
+import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.ByteString;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.annotations.VisibleForTesting;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.io.ByteStreams;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.io.CountingOutputStream;
@@ -89,8 +95,18 @@ public class PartialGroupByKeyParDoFns {
               sideInputInfos, combineFn.getSideInputViews(), operationContext);
       stepContext = executionContext.getStepContext(operationContext);
     }
+    @Nullable HotKeyTracker hotKeyTracker =
+        executionContext instanceof StreamingModeExecutionContext
+            ? ((StreamingModeExecutionContext) executionContext).getHotKeyTracker()
+            : null;
     return create(
-        options, inputElementCoder, combineFn, sideInputReader, receivers.get(0), stepContext);
+        options,
+        inputElementCoder,
+        combineFn,
+        sideInputReader,
+        receivers.get(0),
+        stepContext,
+        hotKeyTracker);
   }
 
   @VisibleForTesting
@@ -102,6 +118,25 @@ public class PartialGroupByKeyParDoFns {
       Receiver receiver,
       @Nullable StepContext stepContext)
       throws Exception {
+    return create(
+        options, inputElementCoder, combineFn, sideInputReader, receiver, stepContext, null);
+  }
+
+  /**
+   * Creates the {@link ParDoFn}. If {@code hotKeyTracker} is set, a combining table keeps
+   * aggregating the values of hot keys when it is full, and flushes other keys first. Entries are
+   * still flushed when the bundle finishes, see {@link HotKeyTracker}.
+   */
+  @VisibleForTesting
+  static <K, InputT, AccumT> ParDoFn create(
+      PipelineOptions options,
+      KvCoder<K, ?> inputElementCoder,
+      @Nullable AppliedCombineFn<K, InputT, AccumT, ?> combineFn,
+      SideInputReader sideInputReader,
+      Receiver receiver,
+      @Nullable StepContext stepContext,
+      @Nullable HotKeyTracker hotKeyTracker)
+      throws Exception {
     long maxSizeBytes =
         options.as(SdkHarnessOptions.class).getGroupingTableMaxSizeMb() * (1024L * 1024L);
 
@@ -124,7 +159,7 @@ public class PartialGroupByKeyParDoFns {
           new ValueCombiner<>(
               GlobalCombineFnRunners.create(combineFn.getFn()), sideInputReader, options);
 
-      GroupingTable<WindowedValue<K>, InputT, AccumT> groupingTable =
+      GroupingTables.GroupingTableBase<WindowedValue<K>, InputT, AccumT> groupingTable =
           GroupingTables.combiningAndSampling(
               new WindowingCoderGroupingKeyCreator<>(keyCoder),
               PairInfo.create(),
@@ -133,6 +168,9 @@ public class PartialGroupByKeyParDoFns {
               new CoderSizeEstimator<>(combineFn.getAccumulatorCoder()),
               0.001, /*sizeEstimatorSampleRate*/
               maxSizeBytes /*maxSizeBytes*/);
+      if (hotKeyTracker != null) {
+        groupingTable.setRetainWhenFull(new HotKeyMatcher<>(hotKeyTracker, keyCoder));
+      }
       if (sideInputReader.isEmpty()) {
         return new SimplePartialGroupByKeyParDoFn<>(groupingTable, receiver);
       } else if (options.as(StreamingOptions.class).isStreaming()) {
@@ -149,6 +187,49 @@ public class PartialGroupByKeyParDoFns {
     }
   }
 
+  /**
+   * Supplies the predicate matching the windowed keys that the {@link HotKeyTracker} reports as hot
+   * for a flush of the combining table. The hot keys are decoded once per flush, so that the keys
+   * in the table are matched by their structural value instead of being encoded one by one.
+   */
+  @VisibleForTesting
+  static class HotKeyMatcher<K> implements Supplier<Predicate<WindowedValue<K>>> {
+    private final HotKeyTracker hotKeyTracker;
+    private final Coder<K> keyCoder;
+
+    HotKeyMatcher(HotKeyTracker hotKeyTracker, Coder<K> keyCoder) {
+      this.hotKeyTracker = hotKeyTracker;
+      this.keyCoder = keyCoder;
+    }
+
+    @Override
+    public Predicate<WindowedValue<K>> get() {
+      if (hotKeyTracker.isEmpty()) {
+        return windowedKey -> false;
+      }
+      Set<Object> hotKeys = new HashSet<>();
+      for (ByteString encodedKey : hotKeyTracker.getHotKeys()) {
+        try {
+          // Windmill keys are encoded in the outer context.
+          hotKeys.add(
+              keyCoder.structuralValue(CoderUtils.decodeFromByteString(keyCoder, encodedKey)));
+        } catch (IOException | RuntimeException e) {
+          // The key was reported for a shuffle with a different key coder.
+        }
+      }
+      if (hotKeys.isEmpty()) {
+        return windowedKey -> false;
+      }
+      return windowedKey -> {
+        if (hotKeys.contains(keyCoder.structuralValue(windowedKey.getValue()))) {
+          hotKeyTracker.recordRetainedEntry();
+          return true;
+        }
+        return false;
+      };
+    }
+  }
+
   /** Implements PGBKOp.Combiner via Combine.KeyedCombineFn. */
   public static class ValueCombiner<K, InputT, AccumT, OutputT>
       implements GroupingTables.Combiner<WindowedValue<K>, InputT, AccumT, OutputT> {
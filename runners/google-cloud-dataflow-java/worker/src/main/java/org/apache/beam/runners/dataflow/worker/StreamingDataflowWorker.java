@@ -173,6 +173,9 @@ public final class StreamingDataflowWorker {
   // Experiment make the monitor within BoundedQueueExecutor fair
   public static final String BOUNDED_QUEUE_EXECUTOR_USE_FAIR_MONITOR_EXPERIMENT =
       "windmill_bounded_queue_executor_use_fair_monitor";
+  // Experiment to fetch side inputs on GetData streams separate from the ones used for state reads.
+  private static final String SEPARATE_SIDE_INPUT_GET_DATA_STREAMS_EXPERIMENT =
+      "streaming_engine_separate_side_input_get_data_streams";
 
   private final WindmillStateCache stateCache;
   private AtomicReference<StreamingWorkerStatusPages> statusPages = new AtomicReference<>();
@@ -432,7 +435,11 @@ public final class StreamingDataflowWorker {
             options, fanOutStreamingEngineWorkerHarness::currentWindmillEndpoints);
     return StreamingWorkerHarnessFactoryOutput.builder()
         .setStreamingWorkerHarness(fanOutStreamingEngineWorkerHarness)
-        .setGetDataStatusProvider(getDataMetricTracker::printHtml)
+        .setGetDataStatusProvider(
+            writer -> {
+              getDataMetricTracker.printHtml(writer);
+              fanOutStreamingEngineWorkerHarness.printCommitHtml(writer);
+            })
         .setCurrentActiveCommitBytesProvider(
             fanOutStreamingEngineWorkerHarness::currentActiveCommitBytes)
         .setChannelzServlet(channelzServlet)
@@ -460,8 +467,18 @@ public final class StreamingDataflowWorker {
             Math.max(1, options.getWindmillGetDataStreamCount()),
             GET_DATA_STREAM_TIMEOUT,
             windmillServer::getDataStream);
+    // Large side input responses can delay state reads queued behind them on the same stream, so
+    // optionally give side inputs their own streams.
+    WindmillStreamPool<GetDataStream> sideInputGetDataStreamPool =
+        DataflowRunner.hasExperiment(options, SEPARATE_SIDE_INPUT_GET_DATA_STREAMS_EXPERIMENT)
+            ? WindmillStreamPool.create(
+                Math.max(1, options.getWindmillGetDataStreamCount() / 2),
+                GET_DATA_STREAM_TIMEOUT,
+                windmillServer::getDataStream)
+            : getDataStreamPool;
     GetDataClient getDataClient =
-        new StreamPoolGetDataClient(getDataMetricTracker, getDataStreamPool);
+        new StreamPoolGetDataClient(
+            getDataMetricTracker, getDataStreamPool, sideInputGetDataStreamPool);
     HeartbeatSender heartbeatSender = createStreamingEngineHeartbeatSender(windmillServer);
     @SuppressWarnings("methodref.receiver.bound")
     WorkCommitter workCommitter =
@@ -490,7 +507,11 @@ public final class StreamingDataflowWorker {
                 .setHeartbeatSender(heartbeatSender)
                 .setGetWorkSender(getWorkSender)
                 .build())
-        .setGetDataStatusProvider(getDataClient::printHtml)
+        .setGetDataStatusProvider(
+            writer -> {
+              getDataClient.printHtml(writer);
+              workCommitter.printHtml(writer);
+            })
         .setCurrentActiveCommitBytesProvider(workCommitter::currentActiveCommitBytes)
         .setChannelzServlet(channelzServlet)
         .setChannelCache(null) // SingleSourceWorkerHarness doesn't use ChannelCache
@@ -949,7 +970,8 @@ public final class StreamingDataflowWorker {
             !options.isEnableStreamingEngine()
                 || DataflowRunner.hasExperiment(
                     options, "streaming_engine_disable_new_heartbeat_requests"))
-        .setRequestBatchedGetWorkResponse(options.getWindmillRequestBatchedGetWorkResponse());
+        .setRequestBatchedGetWorkResponse(options.getWindmillRequestBatchedGetWorkResponse())
+        .setGetWorkDecodeParallelism(options.getWindmillGetWorkDecodeParallelism());
   }
 
   private static JobHeader createJobHeader(DataflowWorkerHarnessOptions options, long clientId) {
@@ -1103,6 +1125,7 @@ public final class StreamingDataflowWorker {
       running.set(false);
       harnessSwitchExecutor.shutdown();
       streamingWorkerHarness.get().shutdown();
+      windmillStreamFactory.shutdown();
       memoryMonitor.shutdown();
       workUnitExecutor.shutdown();
       computationStateCache.closeAndInvalidateAll();
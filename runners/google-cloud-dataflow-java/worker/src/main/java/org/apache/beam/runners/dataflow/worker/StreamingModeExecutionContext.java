@@ -120,6 +120,7 @@ public class StreamingModeExecutionContext extends DataflowExecutionContext<Step
   private final ReaderCache readerCache;
   private final StreamingGlobalConfigHandle globalConfigHandle;
   private final boolean throwExceptionOnLargeOutput;
+  private final @Nullable HotKeyTracker hotKeyTracker;
   private volatile long backlogBytes;
 
   /**
@@ -168,7 +169,8 @@ public class StreamingModeExecutionContext extends DataflowExecutionContext<Step
       StreamingModeExecutionStateRegistry executionStateRegistry,
       StreamingGlobalConfigHandle globalConfigHandle,
       long sinkByteLimit,
-      boolean throwExceptionOnLargeOutput) {
+      boolean throwExceptionOnLargeOutput,
+      @Nullable HotKeyTracker hotKeyTracker) {
     super(
         counterFactory,
         metricsContainerRegistry,
@@ -183,6 +185,7 @@ public class StreamingModeExecutionContext extends DataflowExecutionContext<Step
     this.stateCache = stateCache;
     this.backlogBytes = UnboundedReader.BACKLOG_UNKNOWN;
     this.throwExceptionOnLargeOutput = throwExceptionOnLargeOutput;
+    this.hotKeyTracker = hotKeyTracker;
   }
 
   @VisibleForTesting
@@ -202,6 +205,11 @@ public class StreamingModeExecutionContext extends DataflowExecutionContext<Step
     return throwExceptionOnLargeOutput;
   }
 
+  /** Returns the tracker of hot keys if hot keys should be precombined, or null. */
+  public @Nullable HotKeyTracker getHotKeyTracker() {
+    return hotKeyTracker;
+  }
+
   public boolean workIsFailed() {
     return work != null && work.isFailed();
   }
@@ -17,16 +17,17 @@
  */
 package org.apache.beam.runners.dataflow.worker.streaming;
 
-import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ImmutableList.toImmutableList;
-
 import java.io.PrintWriter;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NavigableSet;
 import java.util.Optional;
 import java.util.Queue;
+import java.util.TreeSet;
 import java.util.function.BiConsumer;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.GuardedBy;
@@ -58,6 +59,16 @@ public final class ActiveWorkState {
   /* The max number of keys in COMMITTING or COMMIT_QUEUED status to be shown for observability.*/
   private static final int MAX_PRINTABLE_COMMIT_PENDING_KEYS = 50;
 
+  /**
+   * Orders {@link ExecutableWork} by {@link Work#getStartTime()}. Ties are broken by sharding key
+   * and {@link WorkId}, which together identify a single entry in {@link #activeWork}.
+   */
+  private static final Comparator<ExecutableWork> BY_START_TIME =
+      Comparator.<ExecutableWork>comparingLong(work -> work.work().getStartTime().getMillis())
+          .thenComparingLong(work -> work.work().getShardedKey().shardingKey())
+          .thenComparingLong(work -> work.id().workToken())
+          .thenComparingLong(work -> work.id().cacheToken());
+
   /**
    * Map from shardingKey to {@link Work} for the key. The first item in the {@link LinkedHashMap}
    * is actively processing.
@@ -65,6 +76,14 @@ public final class ActiveWorkState {
   @GuardedBy("this")
   private final Map<Long /*shardingKey*/, LinkedHashMap<WorkId, ExecutableWork>> activeWork;
 
+  /**
+   * Every {@link ExecutableWork} in {@link #activeWork}, ordered by start time. Maintained
+   * alongside {@link #activeWork} so that refreshing and detecting stuck commits only visit the
+   * work that started before the relevant deadline instead of scanning every key.
+   */
+  @GuardedBy("this")
+  private final NavigableSet<ExecutableWork> workByStartTime;
+
   @GuardedBy("this")
   private final WindmillStateCache.ForComputation computationStateCache;
 
@@ -80,6 +99,10 @@ public final class ActiveWorkState {
       Map<Long, LinkedHashMap<WorkId, ExecutableWork>> activeWork,
       ForComputation computationStateCache) {
     this.activeWork = activeWork;
+    this.workByStartTime = new TreeSet<>(BY_START_TIME);
+    for (LinkedHashMap<WorkId, ExecutableWork> workQueue : activeWork.values()) {
+      workByStartTime.addAll(workQueue.values());
+    }
     this.computationStateCache = computationStateCache;
     this.activeGetWorkBudget = GetWorkBudget.noBudget();
   }
@@ -127,6 +150,7 @@ public final class ActiveWorkState {
     // to be executed.
     if (workQueue.isEmpty()) {
       workQueue.put(executableWork.id(), executableWork);
+      workByStartTime.add(executableWork);
       incrementActiveWorkBudget(executableWork.work());
       return ActivateWorkResult.EXECUTE;
     }
@@ -145,6 +169,7 @@ public final class ActiveWorkState {
           // currently active.
           if (!queuedWork.equals(Preconditions.checkNotNull(firstValue(workQueue)))) {
             workIterator.remove();
+            workByStartTime.remove(queuedWork);
             decrementActiveWorkBudget(queuedWork.work());
           }
           // Continue here to possibly remove more non-active stale work that is queued.
@@ -156,6 +181,7 @@ public final class ActiveWorkState {
 
     // Queue the work for later processing.
     workQueue.put(executableWork.id(), executableWork);
+    workByStartTime.add(executableWork);
     incrementActiveWorkBudget(executableWork.work());
     return ActivateWorkResult.QUEUED;
   }
@@ -186,11 +212,18 @@ public final class ActiveWorkState {
   }
 
   synchronized ImmutableList<RefreshableWork> getRefreshableWork(Instant refreshDeadline) {
-    return activeWork.values().stream()
-        .flatMap(workMap -> workMap.values().stream())
-        .map(ExecutableWork::work)
-        .filter(work -> !work.isFailed() && work.getStartTime().isBefore(refreshDeadline))
-        .collect(toImmutableList());
+    ImmutableList.Builder<RefreshableWork> refreshableWork = ImmutableList.builder();
+    for (ExecutableWork executableWork : workByStartTime) {
+      Work work = executableWork.work();
+      if (!work.getStartTime().isBefore(refreshDeadline)) {
+        // Everything after this started at or after the deadline.
+        break;
+      }
+      if (!work.isFailed()) {
+        refreshableWork.add(work);
+      }
+    }
+    return refreshableWork.build();
   }
 
   private synchronized void incrementActiveWorkBudget(Work work) {
@@ -248,6 +281,7 @@ public final class ActiveWorkState {
     }
     // We consumed the matching work item.
     completedWorkIterator.remove();
+    workByStartTime.remove(completedWork);
     decrementActiveWorkBudget(completedWork.work());
   }
 
@@ -276,6 +310,15 @@ public final class ActiveWorkState {
     }
   }
 
+  /** Returns true if the {@link ExecutableWork} is at the head of its key's work queue. */
+  @SuppressWarnings("ReferenceEquality")
+  private synchronized boolean isActive(ExecutableWork executableWork) {
+    @Nullable
+    LinkedHashMap<WorkId, ExecutableWork> workQueue =
+        activeWork.get(executableWork.work().getShardedKey().shardingKey());
+    return workQueue != null && firstValue(workQueue) == executableWork;
+  }
+
   private static @Nullable ExecutableWork firstValue(Map<WorkId, ExecutableWork> map) {
     Iterator<Entry<WorkId, ExecutableWork>> iterator = map.entrySet().iterator();
     return iterator.hasNext() ? iterator.next().getValue() : null;
@@ -285,18 +328,20 @@ public final class ActiveWorkState {
       Instant stuckCommitDeadline) {
     // Determine the stuck commit keys but complete them outside the loop iterating over
     // activeWork as completeWork may delete the entry from activeWork.
+    // Work enters COMMITTING after it starts, so only work that started before the deadline can
+    // be stuck.
     ImmutableMap.Builder<ShardedKey, WorkId> stuckCommits = ImmutableMap.builder();
-    for (Entry<Long, LinkedHashMap<WorkId, ExecutableWork>> entry : activeWork.entrySet()) {
-      @Nullable ExecutableWork executableWork = firstValue(entry.getValue());
-      if (executableWork != null) {
-        Work work = executableWork.work();
-        if (work.isStuckCommittingAt(stuckCommitDeadline)) {
-          LOG.error(
-              "Detected key {} stuck in COMMITTING state since {}, completing it with error.",
-              work.getShardedKey(),
-              work.getStateStartTime());
-          stuckCommits.put(work.getShardedKey(), work.id());
-        }
+    for (ExecutableWork executableWork : workByStartTime) {
+      Work work = executableWork.work();
+      if (!work.getStartTime().isBefore(stuckCommitDeadline)) {
+        break;
+      }
+      if (work.isStuckCommittingAt(stuckCommitDeadline) && isActive(executableWork)) {
+        LOG.error(
+            "Detected key {} stuck in COMMITTING state since {}, completing it with error.",
+            work.getShardedKey(),
+            work.getStateStartTime());
+        stuckCommits.put(work.getShardedKey(), work.id());
       }
     }
 
@@ -24,6 +24,7 @@ import java.util.Optional;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import javax.annotation.Nullable;
 import org.apache.beam.runners.dataflow.worker.util.BoundedQueueExecutor;
+import org.apache.beam.runners.dataflow.worker.windmill.state.StateAccessHistory;
 import org.apache.beam.runners.dataflow.worker.windmill.state.WindmillStateCache;
 import org.apache.beam.runners.dataflow.worker.windmill.work.budget.GetWorkBudget;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.annotations.VisibleForTesting;
@@ -46,6 +47,7 @@ public class ComputationState {
   private final BoundedQueueExecutor executor;
   private final ConcurrentLinkedQueue<ComputationWorkExecutor> computationWorkExecutors;
   private final String sourceBytesProcessCounterName;
+  private final StateAccessHistory stateAccessHistory;
 
   public ComputationState(
       String computationId,
@@ -63,6 +65,7 @@ public class ComputationState {
     this.activeWorkState = ActiveWorkState.create(computationStateCache);
     this.sourceBytesProcessCounterName =
         "dataflow_source_bytes_processed-" + mapTask.getSystemName();
+    this.stateAccessHistory = new StateAccessHistory();
   }
 
   public String getComputationId() {
@@ -77,6 +80,11 @@ public class ComputationState {
     return transformUserNameToStateFamily;
   }
 
+  /** State tags read by recent work items of this computation, used to prefetch state. */
+  public StateAccessHistory getStateAccessHistory() {
+    return stateAccessHistory;
+  }
+
   /**
    * Cache the {@link ComputationWorkExecutor} so that it can be re-used in future {@link
    * #acquireComputationWorkExecutor()} calls.
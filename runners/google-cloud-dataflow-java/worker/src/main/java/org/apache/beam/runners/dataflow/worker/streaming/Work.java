@@ -47,6 +47,7 @@ import org.apache.beam.runners.dataflow.worker.windmill.Windmill.WorkItemCommitR
 import org.apache.beam.runners.dataflow.worker.windmill.client.commits.Commit;
 import org.apache.beam.runners.dataflow.worker.windmill.client.commits.WorkCommitter;
 import org.apache.beam.runners.dataflow.worker.windmill.client.getdata.GetDataClient;
+import org.apache.beam.runners.dataflow.worker.windmill.state.StateAccessHistory;
 import org.apache.beam.runners.dataflow.worker.windmill.state.WindmillStateReader;
 import org.apache.beam.runners.dataflow.worker.windmill.work.refresh.HeartbeatSender;
 import org.apache.beam.sdk.annotations.Internal;
@@ -265,6 +266,10 @@ public final class Work implements RefreshableWork {
     return WindmillStateReader.forWork(this);
   }
 
+  public WindmillStateReader createWindmillStateReader(StateAccessHistory accessHistory) {
+    return WindmillStateReader.forWork(this, accessHistory);
+  }
+
   @Override
   public WorkId id() {
     return id;
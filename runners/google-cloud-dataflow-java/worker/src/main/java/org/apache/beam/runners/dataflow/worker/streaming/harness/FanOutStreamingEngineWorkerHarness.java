@@ -21,6 +21,7 @@ import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect
 import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ImmutableSet.toImmutableSet;
 
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import java.io.PrintWriter;
 import java.util.HashSet;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
@@ -381,6 +382,11 @@ public final class FanOutStreamingEngineWorkerHarness implements StreamingWorker
         .reduce(0L, Long::sum);
   }
 
+  /** Prints the commit statistics of the work committers of all current backends. */
+  public void printCommitHtml(PrintWriter writer) {
+    backends.get().windmillStreams().values().forEach(sender -> sender.printCommitHtml(writer));
+  }
+
   @VisibleForTesting
   StreamingEngineBackends currentBackends() {
     return backends.get();
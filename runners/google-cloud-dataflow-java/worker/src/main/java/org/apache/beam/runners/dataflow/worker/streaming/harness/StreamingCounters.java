@@ -40,6 +40,14 @@ public abstract class StreamingCounters {
             StreamingSystemCounterNames.WINDMILL_STATE_BYTES_READ.counterName()),
         pendingDeltaCounters.longSum(
             StreamingSystemCounterNames.WINDMILL_STATE_BYTES_WRITTEN.counterName()),
+        pendingDeltaCounters.longSum(
+            StreamingSystemCounterNames.WINDMILL_STATE_PREFETCH_HITS.counterName()),
+        pendingDeltaCounters.longSum(
+            StreamingSystemCounterNames.WINDMILL_STATE_PREFETCH_UNUSED.counterName()),
+        pendingDeltaCounters.longSum(
+            StreamingSystemCounterNames.HOT_KEYS_PRECOMBINED.counterName()),
+        pendingDeltaCounters.longSum(
+            StreamingSystemCounterNames.HOT_KEY_PRECOMBINE_RETAINED_ENTRIES.counterName()),
         pendingDeltaCounters.longSum(
             StreamingSystemCounterNames.TIME_AT_MAX_ACTIVE_THREADS.counterName()),
         pendingCumulativeCounters.longSum(
@@ -73,6 +81,14 @@ public abstract class StreamingCounters {
 
   public abstract Counter<Long, Long> windmillStateBytesWritten();
 
+  public abstract Counter<Long, Long> windmillStatePrefetchHits();
+
+  public abstract Counter<Long, Long> windmillStatePrefetchUnused();
+
+  public abstract Counter<Long, Long> hotKeysPrecombined();
+
+  public abstract Counter<Long, Long> hotKeyPrecombineRetainedEntries();
+
   public abstract Counter<Long, Long> timeAtMaxActiveThreads();
   // Built-in cumulative counters.
   public abstract Counter<Long, Long> javaHarnessUsedMemory();
@@ -19,6 +19,7 @@ package org.apache.beam.runners.dataflow.worker.streaming.harness;
 
 import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Preconditions.checkState;
 
+import java.io.PrintWriter;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -171,4 +172,8 @@ final class WindmillStreamSender implements GetWorkBudgetSpender, StreamSender {
   long getCurrentActiveCommitBytes() {
     return workCommitter.currentActiveCommitBytes();
   }
+
+  void printCommitHtml(PrintWriter writer) {
+    workCommitter.printHtml(writer);
+  }
 }
@@ -0,0 +1,260 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.dataflow.worker.streaming.sideinput;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.CoderException;
+import org.apache.beam.sdk.transforms.Materializations.MultimapView;
+import org.apache.beam.sdk.util.ByteStringOutputStream;
+import org.apache.beam.sdk.util.VarInt;
+import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.ByteString;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.AbstractIterator;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.primitives.UnsignedBytes;
+
+/**
+ * A {@link MultimapView} that keeps a multimap side input in its encoded form and decodes keys
+ * and values lazily on each lookup.
+ *
+ * <p>The encoded {@code Iterable<KV<K, V>>} payload fetched from Windmill is held in a single
+ * array, next to an index of element offsets sorted by encoded key. Lookups encode the requested
+ * key and binary search the index, similar to the key index of {@code IsmFormat} in batch. Keys are
+ * compared by their encoded bytes, which matches the structural key equality used by {@link
+ * org.apache.beam.runners.core.InMemoryMultimapSideInputView}. Values with equal keys keep their
+ * original order.
+ */
+@ThreadSafe
+final class EncodedMultimapSideInputView<K, V> implements MultimapView<K, V> {
+
+  /** Index overhead per element, three int offsets. */
+  private static final int INDEX_BYTES_PER_ELEMENT = 3 * Integer.BYTES;
+
+  private final Coder<K> keyCoder;
+  private final Coder<V> valueCoder;
+  private final byte[] payload;
+
+  // The i-th element in key order has its nested key encoding in
+  // [keyStarts[i], keyEnds[i]) and its nested value encoding in [keyEnds[i], valueEnds[i]).
+  private final int[] keyStarts;
+  private final int[] keyEnds;
+  private final int[] valueEnds;
+
+  private EncodedMultimapSideInputView(
+      Coder<K> keyCoder,
+      Coder<V> valueCoder,
+      byte[] payload,
+      int[] keyStarts,
+      int[] keyEnds,
+      int[] valueEnds) {
+    this.keyCoder = keyCoder;
+    this.valueCoder = valueCoder;
+    this.payload = payload;
+    this.keyStarts = keyStarts;
+    this.keyEnds = keyEnds;
+    this.valueEnds = valueEnds;
+  }
+
+  /**
+   * Indexes the given encoded {@code Iterable<KV<K, V>>}, as produced by {@link
+   * org.apache.beam.sdk.coders.IterableCoder} with a {@link org.apache.beam.sdk.coders.KvCoder}
+   * element coder. Each element is decoded once to find its boundaries and then discarded.
+   */
+  static <K, V> EncodedMultimapSideInputView<K, V> create(
+      Coder<K> keyCoder, Coder<V> valueCoder, ByteString encodedIterable) throws IOException {
+    byte[] payload = encodedIterable.toByteArray();
+    PositionTrackingInputStream in = new PositionTrackingInputStream(payload);
+    List<int[]> elements = new ArrayList<>();
+    if (payload.length > 0) {
+      int size = new DataInputStream(in).readInt();
+      if (size >= 0) {
+        for (int i = 0; i < size; i++) {
+          elements.add(readElement(keyCoder, valueCoder, in));
+        }
+      } else {
+        long count = VarInt.decodeLong(in);
+        while (count > 0L) {
+          elements.add(readElement(keyCoder, valueCoder, in));
+          if (--count == 0L) {
+            count = VarInt.decodeLong(in);
+          }
+        }
+        if (count < 0L) {
+          throw new CoderException("Unsupported encoded iterable block count " + count);
+        }
+      }
+    }
+
+    // List.sort is stable, so values for the same key stay in their encoded order.
+    elements.sort((a, b) -> compare(payload, a[0], a[1], payload, b[0], b[1]));
+    int[] keyStarts = new int[elements.size()];
+    int[] keyEnds = new int[elements.size()];
+    int[] valueEnds = new int[elements.size()];
+    for (int i = 0; i < elements.size(); i++) {
+      int[] element = elements.get(i);
+      keyStarts[i] = element[0];
+      keyEnds[i] = element[1];
+      valueEnds[i] = element[2];
+    }
+    return new EncodedMultimapSideInputView<>(
+        keyCoder, valueCoder, payload, keyStarts, keyEnds, valueEnds);
+  }
+
+  private static int[] readElement(
+      Coder<?> keyCoder, Coder<?> valueCoder, PositionTrackingInputStream in) throws IOException {
+    int keyStart = in.position();
+    keyCoder.decode(in);
+    int keyEnd = in.position();
+    valueCoder.decode(in);
+    return new int[] {keyStart, keyEnd, in.position()};
+  }
+
+  /** Returns the number of bytes retained by this view, used to weigh it in the cache. */
+  int getWeight() {
+    return payload.length + keyStarts.length * INDEX_BYTES_PER_ELEMENT;
+  }
+
+  @Override
+  public Iterable<K> get() {
+    return () ->
+        new AbstractIterator<K>() {
+          private int next = 0;
+
+          @Override
+          protected K computeNext() {
+            if (next >= keyStarts.length) {
+              return endOfData();
+            }
+            int current = next;
+            do {
+              next++;
+            } while (next < keyStarts.length && compareKeyAt(next, current) == 0);
+            return decode(keyCoder, keyStarts[current], keyEnds[current]);
+          }
+        };
+  }
+
+  @Override
+  public Iterable<V> get(K k) {
+    byte[] encodedKey = encodeKey(k);
+    int first = lowerBound(encodedKey);
+    if (first >= keyStarts.length || compareKey(first, encodedKey) != 0) {
+      return Collections.emptyList();
+    }
+    int end = first + 1;
+    while (end < keyStarts.length && compareKey(end, encodedKey) == 0) {
+      end++;
+    }
+    int last = end;
+    return () ->
+        new Iterator<V>() {
+          private int next = first;
+
+          @Override
+          public boolean hasNext() {
+            return next < last;
+          }
+
+          @Override
+          public V next() {
+            if (!hasNext()) {
+              throw new NoSuchElementException();
+            }
+            int current = next++;
+            return decode(valueCoder, keyEnds[current], valueEnds[current]);
+          }
+        };
+  }
+
+  private byte[] encodeKey(K k) {
+    try {
+      ByteStringOutputStream out = new ByteStringOutputStream();
+      keyCoder.encode(k, out);
+      return out.toByteString().toByteArray();
+    } catch (IOException e) {
+      throw new RuntimeException("Unable to encode side input key " + k, e);
+    }
+  }
+
+  private <T> T decode(Coder<T> coder, int start, int end) {
+    try {
+      return coder.decode(new ByteArrayInputStream(payload, start, end - start));
+    } catch (IOException e) {
+      throw new RuntimeException("Unable to decode side input element", e);
+    }
+  }
+
+  /** Returns the first index whose key is not less than {@code encodedKey}. */
+  private int lowerBound(byte[] encodedKey) {
+    int low = 0;
+    int high = keyStarts.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (compareKey(mid, encodedKey) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private int compareKey(int index, byte[] encodedKey) {
+    return compare(payload, keyStarts[index], keyEnds[index], encodedKey, 0, encodedKey.length);
+  }
+
+  private int compareKeyAt(int index, int otherIndex) {
+    return compare(
+        payload,
+        keyStarts[index],
+        keyEnds[index],
+        payload,
+        keyStarts[otherIndex],
+        keyEnds[otherIndex]);
+  }
+
+  private static int compare(
+      byte[] left, int leftStart, int leftEnd, byte[] right, int rightStart, int rightEnd) {
+    int length = Math.min(leftEnd - leftStart, rightEnd - rightStart);
+    for (int i = 0; i < length; i++) {
+      int result = UnsignedBytes.compare(left[leftStart + i], right[rightStart + i]);
+      if (result != 0) {
+        return result;
+      }
+    }
+    return Integer.compare(leftEnd - leftStart, rightEnd - rightStart);
+  }
+
+  /** A {@link ByteArrayInputStream} that exposes how many bytes have been consumed. */
+  private static final class PositionTrackingInputStream extends ByteArrayInputStream {
+    private PositionTrackingInputStream(byte[] buf) {
+      super(buf);
+    }
+
+    private int position() {
+      return pos;
+    }
+  }
+}
@@ -65,12 +65,21 @@ public class SideInputStateFetcher {
 
   private final SideInputCache sideInputCache;
   private final Function<GlobalDataRequest, GlobalData> fetchGlobalDataFn;
+  private final boolean keepMultimapsEncoded;
   private long bytesRead = 0L;
 
   SideInputStateFetcher(
       Function<GlobalDataRequest, GlobalData> fetchGlobalDataFn, SideInputCache sideInputCache) {
+    this(fetchGlobalDataFn, sideInputCache, false);
+  }
+
+  SideInputStateFetcher(
+      Function<GlobalDataRequest, GlobalData> fetchGlobalDataFn,
+      SideInputCache sideInputCache,
+      boolean keepMultimapsEncoded) {
     this.fetchGlobalDataFn = fetchGlobalDataFn;
     this.sideInputCache = sideInputCache;
+    this.keepMultimapsEncoded = keepMultimapsEncoded;
   }
 
   private static <T> Iterable<?> decodeRawData(PCollectionView<T> view, GlobalData data)
@@ -100,11 +109,11 @@ public class SideInputStateFetcher {
   }
 
   private static <T> SideInput<T> createSideInputCacheEntry(
-      PCollectionView<T> view, GlobalData data) throws IOException {
-    Iterable<?> rawData = decodeRawData(view, data);
+      PCollectionView<T> view, GlobalData data, boolean keepMultimapsEncoded) throws IOException {
     switch (getViewFn(view).getMaterialization().getUrn()) {
       case ITERABLE_MATERIALIZATION_URN:
         {
+          Iterable<?> rawData = decodeRawData(view, data);
           @SuppressWarnings({
             "unchecked", // ITERABLE_MATERIALIZATION_URN has ViewFn<IterableView, T>.
             "rawtypes" //  TODO(https://github.com/apache/beam/issues/20447)
@@ -119,7 +128,15 @@ public class SideInputStateFetcher {
             "rawtypes" //  TODO(https://github.com/apache/beam/issues/20447)
           })
           ViewFn<MultimapView, T> viewFn = (ViewFn<MultimapView, T>) getViewFn(view);
-          Coder<?> keyCoder = ((KvCoder<?, ?>) getCoder(view)).getKeyCoder();
+          KvCoder<?, ?> kvCoder = (KvCoder<?, ?>) getCoder(view);
+          if (keepMultimapsEncoded) {
+            EncodedMultimapSideInputView<?, ?> encodedView =
+                EncodedMultimapSideInputView.create(
+                    kvCoder.getKeyCoder(), kvCoder.getValueCoder(), data.getData());
+            return SideInput.ready(viewFn.apply(encodedView), encodedView.getWeight());
+          }
+          Coder<?> keyCoder = kvCoder.getKeyCoder();
+          Iterable<?> rawData = decodeRawData(view, data);
 
           @SuppressWarnings({
             "unchecked", // Safe since multimap rawData is of type Iterable<KV<K, V>>
@@ -242,6 +259,8 @@ public class SideInputStateFetcher {
     GlobalData data =
         fetchGlobalDataFromWindmill(view, sideWindow, stateFamily, scopedReadStateSupplier);
     bytesRead += data.getSerializedSize();
-    return data.getIsReady() ? createSideInputCacheEntry(view, data) : SideInput.notReady();
+    return data.getIsReady()
+        ? createSideInputCacheEntry(view, data, keepMultimapsEncoded)
+        : SideInput.notReady();
   }
 }
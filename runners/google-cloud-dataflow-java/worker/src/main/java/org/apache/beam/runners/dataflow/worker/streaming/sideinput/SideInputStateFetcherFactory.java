@@ -17,6 +17,8 @@
  */
 package org.apache.beam.runners.dataflow.worker.streaming.sideinput;
 
+import static org.apache.beam.sdk.options.ExperimentalOptions.hasExperiment;
+
 import java.util.function.Function;
 import org.apache.beam.runners.dataflow.options.DataflowStreamingPipelineOptions;
 import org.apache.beam.runners.dataflow.worker.windmill.Windmill.GlobalData;
@@ -29,18 +31,30 @@ import org.apache.beam.sdk.annotations.Internal;
  */
 @Internal
 public final class SideInputStateFetcherFactory {
+  /**
+   * Keeps multimap side inputs in their encoded form in the cache, decoding keys and values on
+   * each lookup instead of materializing them on the heap.
+   */
+  public static final String ENCODED_MULTIMAP_SIDE_INPUTS_EXPERIMENT =
+      "streaming_encoded_multimap_side_inputs";
+
   private final SideInputCache globalSideInputCache;
+  private final boolean keepMultimapsEncoded;
 
-  private SideInputStateFetcherFactory(SideInputCache globalSideInputCache) {
+  private SideInputStateFetcherFactory(
+      SideInputCache globalSideInputCache, boolean keepMultimapsEncoded) {
     this.globalSideInputCache = globalSideInputCache;
+    this.keepMultimapsEncoded = keepMultimapsEncoded;
   }
 
   public static SideInputStateFetcherFactory fromOptions(DataflowStreamingPipelineOptions options) {
-    return new SideInputStateFetcherFactory(SideInputCache.create(options));
+    return new SideInputStateFetcherFactory(
+        SideInputCache.create(options),
+        hasExperiment(options, ENCODED_MULTIMAP_SIDE_INPUTS_EXPERIMENT));
   }
 
   public SideInputStateFetcher createSideInputStateFetcher(
       Function<GlobalDataRequest, GlobalData> fetchGlobalDataFn) {
-    return new SideInputStateFetcher(fetchGlobalDataFn, globalSideInputCache);
+    return new SideInputStateFetcher(fetchGlobalDataFn, globalSideInputCache, keepMultimapsEncoded);
   }
 }
@@ -17,12 +17,12 @@
  */
 package org.apache.beam.runners.dataflow.worker.util;
 
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.concurrent.GuardedBy;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.util.concurrent.Monitor;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.util.concurrent.Monitor.Guard;
@@ -36,16 +36,16 @@ public class BoundedQueueExecutor {
   private final ThreadPoolExecutor executor;
   private final long maximumBytesOutstanding;
 
-  // Used to guard elementsOutstanding and bytesOutstanding.
+  // Used to park callers of execute() while there is not enough budget to admit their work. Work
+  // is admitted and completed without entering the monitor unless a caller is waiting on it.
   private final Monitor monitor;
-  private final ConcurrentLinkedQueue<Long> decrementQueue = new ConcurrentLinkedQueue<>();
-  private final Object decrementQueueDrainLock = new Object();
-  private final AtomicBoolean isDecrementBatchPending = new AtomicBoolean(false);
-  private int elementsOutstanding = 0;
-  private long bytesOutstanding = 0;
+  private final AtomicInteger elementsOutstanding = new AtomicInteger();
+  private final AtomicLong bytesOutstanding = new AtomicLong();
+  // The number of callers of execute() that are waiting, or about to wait, on the monitor.
+  private final AtomicInteger waitersForBudget = new AtomicInteger();
 
-  @GuardedBy("this")
-  private int maximumElementsOutstanding;
+  // Written while holding the lock on this, read without it when admitting work.
+  private volatile int maximumElementsOutstanding;
 
   @GuardedBy("this")
   private int activeCount;
@@ -106,23 +106,23 @@ public class BoundedQueueExecutor {
 
   // Before adding a Work to the queue, check that there are enough bytes of space or no other
   // outstanding elements of work.
+  //
+  // Admission is lock-free while the budget allows it. Concurrent callers may each be admitted on
+  // the same remaining bytes, so the byte limit can be exceeded by at most the work of concurrent
+  // callers; the element limit is exact.
   public void execute(Runnable work, long workBytes) {
-    monitor.enterWhenUninterruptibly(
-        new Guard(monitor) {
-          @Override
-          public boolean isSatisfied() {
-            return elementsOutstanding == 0
-                || (bytesAvailable() >= workBytes
-                    && elementsOutstanding < maximumElementsOutstanding());
-          }
-        });
-    executeMonitorHeld(work, workBytes);
+    // Don't overtake callers that are already waiting for budget.
+    if (waitersForBudget.get() != 0 || !tryReserve(workBytes)) {
+      waitForBudget(workBytes);
+    }
+    executeReserved(work, workBytes);
   }
 
   // Forcibly add something to the queue, ignoring the length limit.
   public void forceExecute(Runnable work, long workBytes) {
-    monitor.enter();
-    executeMonitorHeld(work, workBytes);
+    elementsOutstanding.incrementAndGet();
+    bytesOutstanding.addAndGet(workBytes);
+    executeReserved(work, workBytes);
   }
 
   // Set the maximum/core pool size of the executor.
@@ -138,6 +138,8 @@ public class BoundedQueueExecutor {
     }
     this.maximumPoolSize = maximumPoolSize;
     this.maximumElementsOutstanding = maximumElementsOutstanding;
+    // A larger limit may allow waiting callers to be admitted.
+    signalWaitersForBudget();
   }
 
   public void shutdown() throws InterruptedException {
@@ -160,28 +162,18 @@ public class BoundedQueueExecutor {
   }
 
   public long bytesOutstanding() {
-    monitor.enter();
-    try {
-      return bytesOutstanding;
-    } finally {
-      monitor.leave();
-    }
+    return bytesOutstanding.get();
   }
 
   public int elementsOutstanding() {
-    monitor.enter();
-    try {
-      return elementsOutstanding;
-    } finally {
-      monitor.leave();
-    }
+    return elementsOutstanding.get();
   }
 
   public long maximumBytesOutstanding() {
     return maximumBytesOutstanding;
   }
 
-  public synchronized int maximumElementsOutstanding() {
+  public int maximumElementsOutstanding() {
     return maximumElementsOutstanding;
   }
 
@@ -190,100 +182,109 @@ public class BoundedQueueExecutor {
   }
 
   public String summaryHtml() {
-    monitor.enter();
-    try {
-      StringBuilder builder = new StringBuilder();
-      builder.append("Worker Threads: ");
-      builder.append(executor.getPoolSize());
-      builder.append("/");
-      builder.append(executor.getMaximumPoolSize());
-      builder.append("<br>/n");
-
-      builder.append("Active Threads: ");
-      builder.append(executor.getActiveCount());
-      builder.append("<br>/n");
-
-      builder.append("Work Queue Size: ");
-      builder.append(elementsOutstanding);
-      builder.append("/");
-      builder.append(maximumElementsOutstanding());
-      builder.append("<br>/n");
-
-      builder.append("Work Queue Bytes: ");
-      builder.append(bytesOutstanding);
-      builder.append("/");
-      builder.append(maximumBytesOutstanding);
-      builder.append("<br>/n");
-
-      return builder.toString();
-    } finally {
-      monitor.leave();
-    }
+    StringBuilder builder = new StringBuilder();
+    builder.append("Worker Threads: ");
+    builder.append(executor.getPoolSize());
+    builder.append("/");
+    builder.append(executor.getMaximumPoolSize());
+    builder.append("<br>/n");
+
+    builder.append("Active Threads: ");
+    builder.append(executor.getActiveCount());
+    builder.append("<br>/n");
+
+    builder.append("Work Queue Size: ");
+    builder.append(elementsOutstanding.get());
+    builder.append("/");
+    builder.append(maximumElementsOutstanding());
+    builder.append("<br>/n");
+
+    builder.append("Work Queue Bytes: ");
+    builder.append(bytesOutstanding.get());
+    builder.append("/");
+    builder.append(maximumBytesOutstanding);
+    builder.append("<br>/n");
+
+    return builder.toString();
   }
 
-  private void executeMonitorHeld(Runnable work, long workBytes) {
-    bytesOutstanding += workBytes;
-    ++elementsOutstanding;
-    monitor.leave();
-
+  private void executeReserved(Runnable work, long workBytes) {
     try {
       executor.execute(
           () -> {
             try {
               work.run();
             } finally {
-              decrementCounters(workBytes);
+              release(workBytes);
             }
           });
     } catch (RuntimeException e) {
-      // If the execute() call threw an exception, decrement counters here.
-      decrementCounters(workBytes);
+      // If the execute() call threw an exception, release the reservation here.
+      release(workBytes);
       throw e;
     }
   }
 
-  private void decrementCounters(long workBytes) {
-    // All threads queue decrements and one thread grabs the monitor and updates
-    // counters. We do this to reduce contention on monitor which is locked by
-    // GetWork thread
-    decrementQueue.add(workBytes);
-    boolean submittedToExistingBatch = isDecrementBatchPending.getAndSet(true);
-    if (submittedToExistingBatch) {
-      // There is already a thread about to drain the decrement queue
-      // Current thread does not need to drain.
-      return;
+  // Reserves budget for the work if there are enough bytes of space or no other outstanding
+  // elements of work.
+  private boolean tryReserve(long workBytes) {
+    while (true) {
+      int elements = elementsOutstanding.get();
+      if (elements != 0
+          && (bytesAvailable() < workBytes || elements >= maximumElementsOutstanding)) {
+        return false;
+      }
+      if (elementsOutstanding.compareAndSet(elements, elements + 1)) {
+        bytesOutstanding.addAndGet(workBytes);
+        return true;
+      }
     }
-    synchronized (decrementQueueDrainLock) {
-      // By setting false here, we may allow another decrement to claim submission of the next batch
-      // and start waiting on the decrementQueueDrainLock.
-      //
-      // However this prevents races that would leave decrements in the queue and unclaimed and we
-      // are ensured there is at most one additional thread blocked. This helps prevent the executor
-      // from creating threads over the limit if many were contending on the lock while their
-      // decrements were already applied.
-      isDecrementBatchPending.set(false);
-      long bytesToDecrement = 0;
-      int elementsToDecrement = 0;
+  }
+
+  private void waitForBudget(long workBytes) {
+    Guard hasBudget =
+        new Guard(monitor) {
+          @Override
+          public boolean isSatisfied() {
+            int elements = elementsOutstanding.get();
+            return elements == 0
+                || (bytesAvailable() >= workBytes && elements < maximumElementsOutstanding);
+          }
+        };
+    // Registering as a waiter before evaluating the guard ensures that a concurrent release()
+    // either observes the waiter and signals it, or its release is observed by the guard.
+    waitersForBudget.incrementAndGet();
+    try {
       while (true) {
-        Long pollResult = decrementQueue.poll();
-        if (pollResult == null) {
-          break;
+        monitor.enterWhenUninterruptibly(hasBudget);
+        try {
+          if (tryReserve(workBytes)) {
+            return;
+          }
+        } finally {
+          monitor.leave();
         }
-        bytesToDecrement += pollResult;
-        ++elementsToDecrement;
-      }
-      if (elementsToDecrement == 0) {
-        return;
       }
+    } finally {
+      waitersForBudget.decrementAndGet();
+    }
+  }
+
+  private void release(long workBytes) {
+    bytesOutstanding.addAndGet(-workBytes);
+    elementsOutstanding.decrementAndGet();
+    signalWaitersForBudget();
+  }
 
+  private void signalWaitersForBudget() {
+    if (waitersForBudget.get() != 0) {
+      // Leaving the monitor re-evaluates the guards of the waiting callers.
       monitor.enter();
-      elementsOutstanding -= elementsToDecrement;
-      bytesOutstanding -= bytesToDecrement;
       monitor.leave();
     }
   }
 
   private long bytesAvailable() {
-    return maximumBytesOutstanding - bytesOutstanding;
+    return maximumBytesOutstanding - bytesOutstanding.get();
   }
 }
@@ -23,7 +23,10 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.annotations.VisibleForTesting;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /** Static utility methods that provide {@link GroupingTable} implementations. */
 @SuppressWarnings({
@@ -92,7 +95,7 @@ public class GroupingTables {
    * Returns a {@link GroupingTable} that combines inputs into a accumulator with sampling {@link
    * SizeEstimator SizeEstimators}.
    */
-  public static <K, InputT, AccumT> GroupingTable<K, InputT, AccumT> combiningAndSampling(
+  public static <K, InputT, AccumT> GroupingTableBase<K, InputT, AccumT> combiningAndSampling(
       GroupingKeyCreator<? super K> groupingKeyCreator,
       PairInfo pairInfo,
       Combiner<? super K, InputT, AccumT, ?> combineFn,
@@ -186,6 +189,9 @@ public class GroupingTables {
 
     private long size = 0;
     private Map<Object, GroupingTableEntry<K, InputT, AccumT>> table;
+    // Entries whose keys match are only flushed early if flushing every other entry did not free
+    // enough space. A new predicate is obtained for every flush.
+    private Supplier<? extends Predicate<? super K>> retainWhenFull = () -> key -> false;
 
     private GroupingTableBase(
         long maxSize, GroupingKeyCreator<? super K> groupingKeyCreator, PairInfo pairInfo) {
@@ -238,21 +244,42 @@ public class GroupingTables {
 
       if (size >= maxSize) {
         long targetSize = (long) (TARGET_LOAD * maxSize);
-        Iterator<GroupingTableEntry<K, InputT, AccumT>> entries = table.values().iterator();
-        while (size >= targetSize) {
-          if (!entries.hasNext()) {
+        flushUntil(targetSize, retainWhenFull.get(), receiver);
+        flushUntil(targetSize, null, receiver);
+      }
+    }
+
+    private void flushUntil(
+        long targetSize, @Nullable Predicate<? super K> retained, Receiver receiver)
+        throws Exception {
+      Iterator<GroupingTableEntry<K, InputT, AccumT>> entries = table.values().iterator();
+      while (size >= targetSize) {
+        if (!entries.hasNext()) {
+          if (retained == null) {
             // Should never happen, but sizes may be estimates...
             size = 0;
-            break;
           }
-          GroupingTableEntry<K, InputT, AccumT> toFlush = entries.next();
-          entries.remove();
-          size -= toFlush.getSize() + PER_KEY_OVERHEAD;
-          output(toFlush, receiver);
+          break;
+        }
+        GroupingTableEntry<K, InputT, AccumT> toFlush = entries.next();
+        if (retained != null && retained.test(toFlush.getKey())) {
+          continue;
         }
+        entries.remove();
+        size -= toFlush.getSize() + PER_KEY_OVERHEAD;
+        output(toFlush, receiver);
       }
     }
 
+    /**
+     * Sets the keys whose entries are kept when the table is full, as long as flushing other
+     * entries frees enough space. This lets hot keys keep aggregating their values. {@code
+     * retainWhenFull} is called once per flush, so the predicate can prepare the keys to match.
+     */
+    public void setRetainWhenFull(Supplier<? extends Predicate<? super K>> retainWhenFull) {
+      this.retainWhenFull = retainWhenFull;
+    }
+
     /**
      * Output the given entry. Does not actually remove it from the table or update this table's
      * size.
@@ -18,10 +18,12 @@
 package org.apache.beam.runners.dataflow.worker.windmill.client.commits;
 
 import com.google.auto.value.AutoBuilder;
+import java.io.PrintWriter;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
@@ -30,9 +32,12 @@ import javax.annotation.concurrent.ThreadSafe;
 import org.apache.beam.runners.dataflow.worker.streaming.WeightedBoundedQueue;
 import org.apache.beam.runners.dataflow.worker.streaming.WeightedSemaphore;
 import org.apache.beam.runners.dataflow.worker.streaming.Work;
+import org.apache.beam.runners.dataflow.worker.windmill.Windmill.CommitStatus;
 import org.apache.beam.runners.dataflow.worker.windmill.client.CloseableStream;
 import org.apache.beam.runners.dataflow.worker.windmill.client.WindmillStream.CommitWorkStream;
 import org.apache.beam.sdk.annotations.Internal;
+import org.apache.beam.sdk.util.HistogramData;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.annotations.VisibleForTesting;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Preconditions;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.slf4j.Logger;
@@ -48,7 +53,15 @@ public final class StreamingEngineWorkCommitter implements WorkCommitter {
 
   private static final Logger LOG = LoggerFactory.getLogger(StreamingEngineWorkCommitter.class);
   private static final int TARGET_COMMIT_BATCH_KEYS = 5;
+  // Bounds on how long a sender waits for more commits before flushing a batch. The wait adapts
+  // between these bounds: it shrinks when waiting does not yield more commits, and grows back when
+  // it does.
+  private static final int MIN_BATCH_WAIT_MILLIS = 1;
+  private static final int MAX_BATCH_WAIT_MILLIS = 10;
   private static final String NO_BACKEND_WORKER_TOKEN = "";
+  // The batch size and commit latency histograms shown on the status page cover the last complete
+  // window of this length, so they reflect current behavior rather than the worker's lifetime.
+  private static final long STATS_WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
 
   private final Supplier<CloseableStream<CommitWorkStream>> commitWorkStreamFactory;
   private final WeightedBoundedQueue<Commit> commitQueue;
@@ -57,6 +70,15 @@ public final class StreamingEngineWorkCommitter implements WorkCommitter {
   private final Consumer<CompleteCommit> onCommitComplete;
   private final int numCommitSenders;
   private final AtomicBoolean isRunning;
+  private final AtomicInteger batchWaitMillis;
+  private final String backendWorkerToken;
+  private final AtomicLong committedBytes;
+  private final HistogramData batchSizes;
+  private final HistogramData commitLatencyMillis;
+  private final AtomicLong statsWindowStartNanos;
+  // Until the first window completes, these are the histograms of the current window.
+  private volatile HistogramData lastBatchSizes;
+  private volatile HistogramData lastCommitLatencyMillis;
 
   StreamingEngineWorkCommitter(
       Supplier<CloseableStream<CommitWorkStream>> commitWorkStreamFactory,
@@ -81,6 +103,14 @@ public final class StreamingEngineWorkCommitter implements WorkCommitter {
     this.onCommitComplete = onCommitComplete;
     this.numCommitSenders = numCommitSenders;
     this.isRunning = new AtomicBoolean(false);
+    this.batchWaitMillis = new AtomicInteger(MAX_BATCH_WAIT_MILLIS);
+    this.backendWorkerToken = backendWorkerToken;
+    this.committedBytes = new AtomicLong();
+    this.batchSizes = HistogramData.exponential(0, 12);
+    this.commitLatencyMillis = HistogramData.exponential(0, 16);
+    this.statsWindowStartNanos = new AtomicLong(System.nanoTime());
+    this.lastBatchSizes = batchSizes;
+    this.lastCommitLatencyMillis = commitLatencyMillis;
   }
 
   public static Builder builder() {
@@ -124,6 +154,33 @@ public final class StreamingEngineWorkCommitter implements WorkCommitter {
     return activeCommitBytes.get();
   }
 
+  @Override
+  public void printHtml(PrintWriter writer) {
+    maybeStartNewStatsWindow();
+    writer.println(
+        backendWorkerToken.isEmpty()
+            ? "<h2>Commits</h2>"
+            : "<h2>Commits to " + backendWorkerToken + "</h2>");
+    writer.println("Committed bytes: " + committedBytes.get() + "<br>");
+    writer.println("Batch wait: " + batchWaitMillis.get() + "ms<br>");
+    writer.println(
+        lastBatchSizes.getPercentileString("commit batches in the last minute", "commits")
+            + "<br>");
+    writer.println(
+        lastCommitLatencyMillis.getPercentileString("commits in the last minute", "ms") + "<br>");
+  }
+
+  /** Moves the histograms to a new window once the current window is complete. */
+  private void maybeStartNewStatsWindow() {
+    long windowStartNanos = statsWindowStartNanos.get();
+    long nowNanos = System.nanoTime();
+    if (nowNanos - windowStartNanos >= STATS_WINDOW_NANOS
+        && statsWindowStartNanos.compareAndSet(windowStartNanos, nowNanos)) {
+      lastBatchSizes = batchSizes.getAndReset();
+      lastCommitLatencyMillis = commitLatencyMillis.getAndReset();
+    }
+  }
+
   @Override
   public void stop() {
     Preconditions.checkState(isRunning.compareAndSet(true, false));
@@ -204,11 +261,18 @@ public final class StreamingEngineWorkCommitter implements WorkCommitter {
     Preconditions.checkNotNull(commit);
     commit.work().setState(Work.State.COMMITTING);
     activeCommitBytes.addAndGet(commit.getSize());
+    long startNanos = System.nanoTime();
     boolean isCommitAccepted =
         batcher.commitWorkItem(
             commit.computationId(),
             commit.request(),
             commitStatus -> {
+              maybeStartNewStatsWindow();
+              commitLatencyMillis.record(
+                  TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+              if (commitStatus == CommitStatus.OK) {
+                committedBytes.addAndGet(commit.getSize());
+              }
               onCommitComplete.accept(CompleteCommit.create(commit, commitStatus));
               activeCommitBytes.addAndGet(-commit.getSize());
             });
@@ -228,36 +292,66 @@ public final class StreamingEngineWorkCommitter implements WorkCommitter {
    */
   private @Nullable Commit expandBatch(CommitWorkStream.RequestBatcher batcher) {
     int commits = 1;
-    while (true) {
-      Commit commit;
-      try {
-        if (commits < TARGET_COMMIT_BATCH_KEYS) {
-          commit = commitQueue.poll(10 - 2L * commits, TimeUnit.MILLISECONDS);
-        } else {
-          commit = commitQueue.poll();
+    try {
+      while (true) {
+        Commit commit;
+        try {
+          commit = pollForBatch(commits);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return null;
         }
-      } catch (InterruptedException e) {
-        Thread.currentThread().interrupt();
-        return null;
-      }
 
-      if (commit == null) {
-        return null;
-      }
+        if (commit == null) {
+          return null;
+        }
 
-      // Drop commits for failed work. Such commits will be dropped by Windmill anyway.
-      if (commit.work().isFailed()) {
-        onCommitComplete.accept(CompleteCommit.forFailedWork(commit));
-        continue;
-      }
+        // Drop commits for failed work. Such commits will be dropped by Windmill anyway.
+        if (commit.work().isFailed()) {
+          onCommitComplete.accept(CompleteCommit.forFailedWork(commit));
+          continue;
+        }
 
-      if (!tryAddToCommitBatch(commit, batcher)) {
-        return commit;
+        if (!tryAddToCommitBatch(commit, batcher)) {
+          return commit;
+        }
+        commits++;
       }
-      commits++;
+    } finally {
+      maybeStartNewStatsWindow();
+      batchSizes.record(commits);
     }
   }
 
+  /**
+   * Polls for the next commit to add to a batch of {@code commits} commits. Small batches wait for
+   * up to the current batch wait, less the time already spent on earlier commits of the batch.
+   */
+  private @Nullable Commit pollForBatch(int commits) throws InterruptedException {
+    @Nullable Commit commit = commitQueue.poll();
+    if (commit != null || commits >= TARGET_COMMIT_BATCH_KEYS) {
+      return commit;
+    }
+    int currentBatchWaitMillis = batchWaitMillis.get();
+    long waitMillis = currentBatchWaitMillis - (currentBatchWaitMillis / 5L) * commits;
+    if (waitMillis <= 0) {
+      return null;
+    }
+    commit = commitQueue.poll(waitMillis, TimeUnit.MILLISECONDS);
+    // Waiting only pays off if commits arrive while waiting, otherwise it only adds latency.
+    int newBatchWaitMillis =
+        commit == null
+            ? Math.max(MIN_BATCH_WAIT_MILLIS, currentBatchWaitMillis / 2)
+            : Math.min(MAX_BATCH_WAIT_MILLIS, currentBatchWaitMillis + 1);
+    batchWaitMillis.compareAndSet(currentBatchWaitMillis, newBatchWaitMillis);
+    return commit;
+  }
+
+  @VisibleForTesting
+  int currentBatchWaitMillis() {
+    return batchWaitMillis.get();
+  }
+
   @AutoBuilder
   public interface Builder {
 
@@ -17,6 +17,7 @@
  */
 package org.apache.beam.runners.dataflow.worker.windmill.client.commits;
 
+import java.io.PrintWriter;
 import javax.annotation.concurrent.ThreadSafe;
 import org.apache.beam.sdk.annotations.Internal;
 
@@ -51,4 +52,7 @@ public interface WorkCommitter {
    * layer.
    */
   int parallelism();
+
+  /** Prints commit statistics to the status page, if any are tracked. */
+  default void printHtml(PrintWriter writer) {}
 }
@@ -30,20 +30,30 @@ import org.apache.beam.sdk.annotations.Internal;
 /**
  * StreamingEngine implementation of {@link GetDataClient}.
  *
- * @implNote Uses {@link WindmillStreamPool} to send requests.
+ * @implNote Uses {@link WindmillStreamPool} to send requests. State reads and side input fetches
+ *     may use separate pools so that large side input responses do not delay state reads.
  */
 @Internal
 @ThreadSafe
 public final class StreamPoolGetDataClient implements GetDataClient {
 
   private final WindmillStreamPool<GetDataStream> getDataStreamPool;
+  private final WindmillStreamPool<GetDataStream> sideInputGetDataStreamPool;
   private final ThrottlingGetDataMetricTracker getDataMetricTracker;
 
   public StreamPoolGetDataClient(
       ThrottlingGetDataMetricTracker getDataMetricTracker,
       WindmillStreamPool<GetDataStream> getDataStreamPool) {
+    this(getDataMetricTracker, getDataStreamPool, getDataStreamPool);
+  }
+
+  public StreamPoolGetDataClient(
+      ThrottlingGetDataMetricTracker getDataMetricTracker,
+      WindmillStreamPool<GetDataStream> getDataStreamPool,
+      WindmillStreamPool<GetDataStream> sideInputGetDataStreamPool) {
     this.getDataMetricTracker = getDataMetricTracker;
     this.getDataStreamPool = getDataStreamPool;
+    this.sideInputGetDataStreamPool = sideInputGetDataStreamPool;
   }
 
   @Override
@@ -65,7 +75,8 @@ public final class StreamPoolGetDataClient implements GetDataClient {
   @Override
   public Windmill.GlobalData getSideInputData(GlobalDataRequest request) {
     try (AutoCloseable ignored = getDataMetricTracker.trackSideInputFetchWithThrottling();
-        CloseableStream<GetDataStream> closeableStream = getDataStreamPool.getCloseableStream()) {
+        CloseableStream<GetDataStream> closeableStream =
+            sideInputGetDataStreamPool.getCloseableStream()) {
       return closeableStream.stream().requestGlobalData(request);
     } catch (Exception e) {
       throw new GetDataException(
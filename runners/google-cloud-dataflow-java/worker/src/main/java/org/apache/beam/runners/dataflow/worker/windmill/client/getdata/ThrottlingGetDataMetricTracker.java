@@ -19,7 +19,10 @@ package org.apache.beam.runners.dataflow.worker.windmill.client.getdata;
 
 import com.google.auto.value.AutoValue;
 import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
 import javax.annotation.concurrent.ThreadSafe;
 import org.apache.beam.runners.dataflow.worker.util.MemoryMonitor;
 import org.apache.beam.sdk.annotations.Internal;
@@ -27,7 +30,8 @@ import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.annotations.Vi
 
 /**
  * Wraps GetData calls to track metrics for the number of in-flight requests and throttles requests
- * when memory pressure is high.
+ * when memory pressure is high. State reads and side input fetches are tracked separately,
+ * including how long they waited to be throttled and how long the fetch itself took.
  */
 @Internal
 @ThreadSafe
@@ -39,12 +43,23 @@ public final class ThrottlingGetDataMetricTracker {
   private final AtomicInteger activeStateReads;
   private final AtomicInteger activeSideInputs;
   private final AtomicInteger activeHeartbeats;
+  private final FetchLatencies stateReadLatencies;
+  private final FetchLatencies sideInputLatencies;
+  private final LongSupplier nanoClock;
 
   public ThrottlingGetDataMetricTracker(MemoryMonitor gcThrashingMonitor) {
+    this(gcThrashingMonitor, System::nanoTime);
+  }
+
+  @VisibleForTesting
+  ThrottlingGetDataMetricTracker(MemoryMonitor gcThrashingMonitor, LongSupplier nanoClock) {
     this.gcThrashingMonitor = gcThrashingMonitor;
     this.activeStateReads = new AtomicInteger();
     this.activeSideInputs = new AtomicInteger();
     this.activeHeartbeats = new AtomicInteger();
+    this.stateReadLatencies = new FetchLatencies();
+    this.sideInputLatencies = new FetchLatencies();
+    this.nanoClock = nanoClock;
   }
 
   /**
@@ -52,9 +67,8 @@ public final class ThrottlingGetDataMetricTracker {
    * {@link AutoCloseable} that will decrement the metric after the call is finished.
    */
   AutoCloseable trackStateDataFetchWithThrottling() {
-    gcThrashingMonitor.waitForResources(GET_STATE_DATA_RESOURCE_CONTEXT);
-    activeStateReads.getAndIncrement();
-    return activeStateReads::getAndDecrement;
+    return trackFetchWithThrottling(
+        GET_STATE_DATA_RESOURCE_CONTEXT, activeStateReads, stateReadLatencies);
   }
 
   /**
@@ -62,9 +76,20 @@ public final class ThrottlingGetDataMetricTracker {
    * {@link AutoCloseable} that will decrement the metric after the call is finished.
    */
   AutoCloseable trackSideInputFetchWithThrottling() {
-    gcThrashingMonitor.waitForResources(GET_SIDE_INPUT_RESOURCE_CONTEXT);
-    activeSideInputs.getAndIncrement();
-    return activeSideInputs::getAndDecrement;
+    return trackFetchWithThrottling(
+        GET_SIDE_INPUT_RESOURCE_CONTEXT, activeSideInputs, sideInputLatencies);
+  }
+
+  private AutoCloseable trackFetchWithThrottling(
+      String resourceContext, AtomicInteger activeFetches, FetchLatencies latencies) {
+    long queuedNanos = nanoClock.getAsLong();
+    gcThrashingMonitor.waitForResources(resourceContext);
+    long startNanos = nanoClock.getAsLong();
+    activeFetches.getAndIncrement();
+    return () -> {
+      activeFetches.getAndDecrement();
+      latencies.record(startNanos - queuedNanos, nanoClock.getAsLong() - startNanos);
+    };
   }
 
   /**
@@ -81,6 +106,64 @@ public final class ThrottlingGetDataMetricTracker {
     writer.println("  Side Inputs: " + activeSideInputs.get());
     writer.println("  State Reads: " + activeStateReads.get());
     writer.println("Heartbeat Keys Active: " + activeHeartbeats.get());
+    writer.println("Completed Fetches:");
+    writer.println("  Side Inputs: " + sideInputLatencies);
+    writer.println("  State Reads: " + stateReadLatencies);
+  }
+
+  @VisibleForTesting
+  FetchLatencies stateReadLatencies() {
+    return stateReadLatencies;
+  }
+
+  @VisibleForTesting
+  FetchLatencies sideInputLatencies() {
+    return sideInputLatencies;
+  }
+
+  /** Cumulative queueing and fetch latencies of completed fetches of one kind. */
+  @VisibleForTesting
+  static final class FetchLatencies {
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalQueuedNanos = new AtomicLong();
+    private final AtomicLong totalFetchNanos = new AtomicLong();
+    private final AtomicLong maxFetchNanos = new AtomicLong();
+
+    private void record(long queuedNanos, long fetchNanos) {
+      count.incrementAndGet();
+      totalQueuedNanos.addAndGet(queuedNanos);
+      totalFetchNanos.addAndGet(fetchNanos);
+      maxFetchNanos.accumulateAndGet(fetchNanos, Math::max);
+    }
+
+    long count() {
+      return count.get();
+    }
+
+    long totalQueuedMillis() {
+      return TimeUnit.NANOSECONDS.toMillis(totalQueuedNanos.get());
+    }
+
+    long totalFetchMillis() {
+      return TimeUnit.NANOSECONDS.toMillis(totalFetchNanos.get());
+    }
+
+    long maxFetchMillis() {
+      return TimeUnit.NANOSECONDS.toMillis(maxFetchNanos.get());
+    }
+
+    @Override
+    public String toString() {
+      long completed = count();
+      return completed
+          + ", avg queued "
+          + (completed == 0 ? 0 : totalQueuedMillis() / completed)
+          + "ms, avg fetch "
+          + (completed == 0 ? 0 : totalFetchMillis() / completed)
+          + "ms, max fetch "
+          + maxFetchMillis()
+          + "ms";
+    }
   }
 
   @VisibleForTesting
@@ -70,13 +70,26 @@ final class GetWorkResponseChunkAssembler {
    * WorkItem if all response chunks for a WorkItem have been received.
    */
   List<AssembledWorkItem> append(Windmill.StreamingGetWorkResponseChunk chunk) {
+    List<AssembledWorkItem> response = new ArrayList<>();
+    for (SerializedWorkItem serializedWorkItem : appendSerialized(chunk)) {
+      serializedWorkItem.parse(workItemBuilder).ifPresent(response::add);
+    }
+    return response;
+  }
+
+  /**
+   * Appends the response chunk bytes to the {@link #data} byte buffer. Returns the still serialized
+   * WorkItem bytes and metadata if all response chunks for a WorkItem have been received, so that
+   * the caller can parse them on another thread.
+   */
+  List<SerializedWorkItem> appendSerialized(Windmill.StreamingGetWorkResponseChunk chunk) {
     if (chunk.hasComputationMetadata()) {
       metadata = ComputationMetadata.fromProto(chunk.getComputationMetadata());
     }
     workTimingInfosTracker.addTimingInfo(chunk.getPerWorkItemTimingInfosList());
     appliedFinalizeIds.addAll(chunk.getAppliedFinalizeIdsList());
 
-    List<AssembledWorkItem> response = new ArrayList<>();
+    List<SerializedWorkItem> response = new ArrayList<>();
     for (int i = 0; i < chunk.getSerializedWorkItemList().size(); i++) {
       ByteString serializedWorkItem = chunk.getSerializedWorkItemList().get(i);
       data = data.concat(serializedWorkItem);
@@ -86,38 +99,30 @@ final class GetWorkResponseChunkAssembler {
         remainingSize = chunk.getRemainingBytesForWorkItem();
       }
       if (remainingSize == 0) {
-        flushToWorkItem().ifPresent(response::add);
+        response.add(flush());
       }
     }
     return response;
   }
 
   /**
-   * Attempt to flush the {@link #data} bytes into a {@link WorkItem} w/ its metadata. Resets the
-   * data byte string and tracking metadata afterwards, whether the {@link WorkItem} deserialization
-   * was successful or not.
+   * Flushes the {@link #data} bytes and metadata of a {@link WorkItem} into a {@link
+   * SerializedWorkItem}. Resets the data byte string and tracking metadata afterwards.
    */
-  private Optional<AssembledWorkItem> flushToWorkItem() {
+  private SerializedWorkItem flush() {
     try {
-      workItemBuilder.mergeFrom(data);
-      workItemBuilder.addAllAppliedFinalizeIds(appliedFinalizeIds);
-      return Optional.of(
-          AssembledWorkItem.create(
-              workItemBuilder.build(),
-              Preconditions.checkNotNull(metadata),
-              workTimingInfosTracker.getLatencyAttributions(),
-              bufferedSize));
-    } catch (IOException e) {
-      LOG.error("Failed to parse work item from stream: ", e);
+      return SerializedWorkItem.create(
+          data,
+          Preconditions.checkNotNull(metadata),
+          workTimingInfosTracker.getLatencyAttributions(),
+          ImmutableList.copyOf(appliedFinalizeIds),
+          bufferedSize);
     } finally {
-      workItemBuilder.clear();
       workTimingInfosTracker.reset();
       data = ByteString.EMPTY;
       bufferedSize = 0;
       appliedFinalizeIds.clear();
     }
-
-    return Optional.empty();
   }
 
   @AutoValue
@@ -142,6 +147,58 @@ final class GetWorkResponseChunkAssembler {
     abstract boolean drainMode();
   }
 
+  /** All the bytes and metadata of a {@link WorkItem} that has not been parsed yet. */
+  @AutoValue
+  abstract static class SerializedWorkItem {
+
+    private static SerializedWorkItem create(
+        ByteString data,
+        ComputationMetadata computationMetadata,
+        ImmutableList<LatencyAttribution> latencyAttributions,
+        ImmutableList<Long> appliedFinalizeIds,
+        long size) {
+      return new AutoValue_GetWorkResponseChunkAssembler_SerializedWorkItem(
+          data, computationMetadata, latencyAttributions, appliedFinalizeIds, size);
+    }
+
+    abstract ByteString data();
+
+    abstract ComputationMetadata computationMetadata();
+
+    abstract ImmutableList<LatencyAttribution> latencyAttributions();
+
+    abstract ImmutableList<Long> appliedFinalizeIds();
+
+    abstract long bufferedSize();
+
+    /** Parses the {@link WorkItem}, returning empty if the bytes could not be parsed. */
+    Optional<AssembledWorkItem> parse() {
+      return parse(WorkItem.newBuilder());
+    }
+
+    /**
+     * Parses the {@link WorkItem} with the given builder, which is cleared afterwards whether the
+     * {@link WorkItem} deserialization was successful or not.
+     */
+    private Optional<AssembledWorkItem> parse(WorkItem.Builder workItemBuilder) {
+      try {
+        workItemBuilder.mergeFrom(data());
+        workItemBuilder.addAllAppliedFinalizeIds(appliedFinalizeIds());
+        return Optional.of(
+            AssembledWorkItem.create(
+                workItemBuilder.build(),
+                computationMetadata(),
+                latencyAttributions(),
+                bufferedSize()));
+      } catch (IOException e) {
+        LOG.error("Failed to parse work item from stream: ", e);
+      } finally {
+        workItemBuilder.clear();
+      }
+      return Optional.empty();
+    }
+  }
+
   @AutoValue
   abstract static class AssembledWorkItem {
 
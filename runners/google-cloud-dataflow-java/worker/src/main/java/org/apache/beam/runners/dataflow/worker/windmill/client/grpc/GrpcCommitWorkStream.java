@@ -23,8 +23,11 @@ import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Pr
 import com.google.auto.value.AutoValue;
 import java.io.PrintWriter;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -307,8 +310,12 @@ final class GrpcCommitWorkStream
   private void issueBatchedRequest(Map<Long, PendingRequest> requests)
       throws WindmillStreamShutdownException {
     StreamingCommitWorkRequest.Builder requestBuilder = StreamingCommitWorkRequest.newBuilder();
+    // The computation id is only sent when it differs from the previous chunk, so group the chunks
+    // of each computation together.
+    List<Map.Entry<Long, PendingRequest>> entries = new ArrayList<>(requests.entrySet());
+    entries.sort(Comparator.comparing(entry -> entry.getValue().computationId()));
     String lastComputation = null;
-    for (Map.Entry<Long, PendingRequest> entry : requests.entrySet()) {
+    for (Map.Entry<Long, PendingRequest> entry : entries) {
       PendingRequest request = entry.getValue();
       StreamingCommitRequestChunk.Builder chunkBuilder = requestBuilder.addCommitChunkBuilder();
       if (lastComputation == null || !lastComputation.equals(request.computationId())) {
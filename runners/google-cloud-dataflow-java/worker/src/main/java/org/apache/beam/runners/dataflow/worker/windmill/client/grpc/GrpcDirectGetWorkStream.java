@@ -24,9 +24,11 @@ import java.time.Duration;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.GuardedBy;
 import net.jcip.annotations.ThreadSafe;
 import org.apache.beam.runners.dataflow.worker.streaming.Watermarks;
@@ -85,6 +87,19 @@ final class GrpcDirectGetWorkStream
 
   private final boolean requestBatchedGetWorkResponse;
 
+  /**
+   * Executor to parse work items on, off of the gRPC response thread. If null, work items are
+   * parsed on the response thread.
+   */
+  private final @Nullable Executor workItemDecodeExecutor;
+
+  /**
+   * The physical stream the budget was last reset for. Work items decoded after their physical
+   * stream was replaced were requested with the budget of that stream, so they must not consume the
+   * budget of the current one.
+   */
+  private volatile @Nullable PhysicalStreamHandler budgetedPhysicalStream;
+
   private GrpcDirectGetWorkStream(
       String backendWorkerToken,
       Function<
@@ -102,7 +117,8 @@ final class GrpcDirectGetWorkStream
       WorkCommitter workCommitter,
       WorkItemScheduler workItemScheduler,
       Duration halfClosePhysicalStreamAfter,
-      ScheduledExecutorService executorService) {
+      ScheduledExecutorService executorService,
+      @Nullable Executor workItemDecodeExecutor) {
     super(
         LOG,
         startGetWorkRpcFn,
@@ -126,6 +142,7 @@ final class GrpcDirectGetWorkStream
                 .setBytes(requestHeader.getMaxBytes())
                 .build());
     this.requestBatchedGetWorkResponse = requestBatchedGetWorkResponse;
+    this.workItemDecodeExecutor = workItemDecodeExecutor;
   }
 
   static GrpcDirectGetWorkStream create(
@@ -145,7 +162,8 @@ final class GrpcDirectGetWorkStream
       WorkCommitter workCommitter,
       WorkItemScheduler workItemScheduler,
       Duration halfClosePhysicalStreamAfter,
-      ScheduledExecutorService executor) {
+      ScheduledExecutorService executor,
+      @Nullable Executor workItemDecodeExecutor) {
     return new GrpcDirectGetWorkStream(
         backendWorkerToken,
         startGetWorkRpcFn,
@@ -160,7 +178,8 @@ final class GrpcDirectGetWorkStream
         workCommitter,
         workItemScheduler,
         halfClosePhysicalStreamAfter,
-        executor);
+        executor,
+        workItemDecodeExecutor);
   }
 
   private static Watermarks createWatermarks(
@@ -210,12 +229,23 @@ final class GrpcDirectGetWorkStream
     final ConcurrentMap<Long, GetWorkResponseChunkAssembler> workItemAssemblers =
         new ConcurrentHashMap<>();
 
+    private final @Nullable OrderedWorkItemDecoder workItemDecoder =
+        workItemDecodeExecutor == null
+            ? null
+            : OrderedWorkItemDecoder.create(
+                workItemDecodeExecutor,
+                workItem -> consumeAssembledWorkItem(workItem, isBudgetedPhysicalStream(this)));
+
     @Override
     public void onResponse(StreamingGetWorkResponseChunk response) {
-      workItemAssemblers
-          .computeIfAbsent(response.getStreamId(), unused -> new GetWorkResponseChunkAssembler())
-          .append(response)
-          .forEach(GrpcDirectGetWorkStream.this::consumeAssembledWorkItem);
+      GetWorkResponseChunkAssembler assembler =
+          workItemAssemblers.computeIfAbsent(
+              response.getStreamId(), unused -> new GetWorkResponseChunkAssembler());
+      if (workItemDecoder == null) {
+        assembler.append(response).forEach(workItem -> consumeAssembledWorkItem(workItem, true));
+      } else {
+        assembler.appendSerialized(response).forEach(workItemDecoder::submit);
+      }
     }
 
     @Override
@@ -230,6 +260,10 @@ final class GrpcDirectGetWorkStream
     public void appendHtml(PrintWriter writer) {
       // Number of buffers is same as distinct workers that sent work on this stream.
       writer.format("%d buffers", workItemAssemblers.size());
+      if (workItemDecoder != null) {
+        writer.append(", ");
+        workItemDecoder.appendHtml(writer);
+      }
     }
   }
 
@@ -244,6 +278,7 @@ final class GrpcDirectGetWorkStream
     if (!isNewStream) {
       return;
     }
+    budgetedPhysicalStream = currentPhysicalStream;
     budgetTracker.reset();
     GetWorkBudget initialGetWorkBudget = budgetTracker.computeBudgetExtension();
     StreamingGetWorkRequest request =
@@ -272,7 +307,13 @@ final class GrpcDirectGetWorkStream
     trySend(HEALTH_CHECK_REQUEST);
   }
 
-  private void consumeAssembledWorkItem(AssembledWorkItem assembledWorkItem) {
+  @SuppressWarnings("ReferenceEquality")
+  private boolean isBudgetedPhysicalStream(PhysicalStreamHandler handler) {
+    return handler == budgetedPhysicalStream;
+  }
+
+  private void consumeAssembledWorkItem(
+      AssembledWorkItem assembledWorkItem, boolean consumesBudget) {
     WorkItem workItem = assembledWorkItem.workItem();
     GetWorkResponseChunkAssembler.ComputationMetadata metadata =
         assembledWorkItem.computationMetadata();
@@ -283,6 +324,9 @@ final class GrpcDirectGetWorkStream
         createProcessingContext(metadata.computationId()),
         metadata.drainMode(),
         assembledWorkItem.latencyAttributions());
+    if (!consumesBudget) {
+      return;
+    }
     budgetTracker.recordBudgetReceived(assembledWorkItem.bufferedSize());
     GetWorkBudget extension = budgetTracker.computeBudgetExtension();
     maybeSendRequestExtension(extension);
@@ -21,9 +21,11 @@ import java.io.PrintWriter;
 import java.time.Duration;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
+import javax.annotation.Nullable;
 import org.apache.beam.runners.dataflow.worker.windmill.Windmill.GetWorkRequest;
 import org.apache.beam.runners.dataflow.worker.windmill.Windmill.StreamingGetWorkRequest;
 import org.apache.beam.runners.dataflow.worker.windmill.Windmill.StreamingGetWorkRequestExtension;
@@ -58,6 +60,19 @@ final class GrpcGetWorkStream
   private final AtomicLong inflightBytes;
   private final boolean requestBatchedGetWorkResponse;
 
+  /**
+   * Executor to parse work items on, off of the gRPC response thread. If null, work items are
+   * parsed on the response thread.
+   */
+  private final @Nullable Executor workItemDecodeExecutor;
+
+  /**
+   * The physical stream the budget was last reset for. Work items decoded after their physical
+   * stream was replaced were requested with the budget of that stream, so they must not consume the
+   * budget of the current one.
+   */
+  private volatile @Nullable PhysicalStreamHandler budgetedPhysicalStream;
+
   private GrpcGetWorkStream(
       String backendWorkerToken,
       Function<
@@ -72,7 +87,8 @@ final class GrpcGetWorkStream
       boolean requestBatchedGetWorkResponse,
       WorkItemReceiver receiver,
       Duration halfClosePhysicalStreamAfter,
-      ScheduledExecutorService executor) {
+      ScheduledExecutorService executor,
+      @Nullable Executor workItemDecodeExecutor) {
     super(
         LOG,
         startGetWorkRpcFn,
@@ -88,6 +104,7 @@ final class GrpcGetWorkStream
     this.inflightMessages = new AtomicLong();
     this.inflightBytes = new AtomicLong();
     this.requestBatchedGetWorkResponse = requestBatchedGetWorkResponse;
+    this.workItemDecodeExecutor = workItemDecodeExecutor;
   }
 
   public static GrpcGetWorkStream create(
@@ -104,7 +121,8 @@ final class GrpcGetWorkStream
       boolean requestBatchedGetWorkResponse,
       WorkItemReceiver receiver,
       Duration halfClosePhysicalStreamAfter,
-      ScheduledExecutorService executor) {
+      ScheduledExecutorService executor,
+      @Nullable Executor workItemDecodeExecutor) {
     return new GrpcGetWorkStream(
         backendWorkerToken,
         startGetWorkRpcFn,
@@ -116,7 +134,8 @@ final class GrpcGetWorkStream
         requestBatchedGetWorkResponse,
         receiver,
         halfClosePhysicalStreamAfter,
-        executor);
+        executor,
+        workItemDecodeExecutor);
   }
 
   private void sendRequestExtension(long moreItems, long moreBytes) {
@@ -143,12 +162,23 @@ final class GrpcGetWorkStream
     private final ConcurrentHashMap<Long, GetWorkResponseChunkAssembler> workItemAssemblers =
         new ConcurrentHashMap<>();
 
+    private final @Nullable OrderedWorkItemDecoder workItemDecoder =
+        workItemDecodeExecutor == null
+            ? null
+            : OrderedWorkItemDecoder.create(
+                workItemDecodeExecutor,
+                workItem -> consumeAssembledWorkItem(workItem, isBudgetedPhysicalStream(this)));
+
     @Override
     public void onResponse(StreamingGetWorkResponseChunk response) {
-      workItemAssemblers
-          .computeIfAbsent(response.getStreamId(), unused -> new GetWorkResponseChunkAssembler())
-          .append(response)
-          .forEach(GrpcGetWorkStream.this::consumeAssembledWorkItem);
+      GetWorkResponseChunkAssembler assembler =
+          workItemAssemblers.computeIfAbsent(
+              response.getStreamId(), unused -> new GetWorkResponseChunkAssembler());
+      if (workItemDecoder == null) {
+        assembler.append(response).forEach(workItem -> consumeAssembledWorkItem(workItem, true));
+      } else {
+        assembler.appendSerialized(response).forEach(workItemDecoder::submit);
+      }
     }
 
     @Override
@@ -163,6 +193,10 @@ final class GrpcGetWorkStream
     public void appendHtml(PrintWriter writer) {
       // Number of buffers is same as distinct workers that sent work on this stream.
       writer.format("%d buffers", workItemAssemblers.size());
+      if (workItemDecoder != null) {
+        writer.append(", ");
+        workItemDecoder.appendHtml(writer);
+      }
     }
   }
 
@@ -177,6 +211,7 @@ final class GrpcGetWorkStream
     if (!isNewStream) {
       return;
     }
+    budgetedPhysicalStream = currentPhysicalStream;
     inflightMessages.set(request.getMaxItems());
     inflightBytes.set(request.getMaxBytes());
     trySend(
@@ -198,7 +233,13 @@ final class GrpcGetWorkStream
     trySend(HEALTH_CHECK);
   }
 
-  private void consumeAssembledWorkItem(AssembledWorkItem assembledWorkItem) {
+  @SuppressWarnings("ReferenceEquality")
+  private boolean isBudgetedPhysicalStream(PhysicalStreamHandler handler) {
+    return handler == budgetedPhysicalStream;
+  }
+
+  private void consumeAssembledWorkItem(
+      AssembledWorkItem assembledWorkItem, boolean consumesBudget) {
     receiver.receiveWork(
         assembledWorkItem.computationMetadata().computationId(),
         assembledWorkItem.computationMetadata().inputDataWatermark(),
@@ -207,6 +248,9 @@ final class GrpcGetWorkStream
         assembledWorkItem.workItem(),
         assembledWorkItem.bufferedSize(),
         assembledWorkItem.latencyAttributions());
+    if (!consumesBudget) {
+      return;
+    }
 
     // Record the fact that there are now fewer outstanding messages and bytes on the stream.
     long numInflight = inflightMessages.decrementAndGet();
@@ -27,6 +27,7 @@ import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
@@ -35,6 +36,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 import org.apache.beam.runners.dataflow.worker.status.StatusDataProvider;
 import org.apache.beam.runners.dataflow.worker.windmill.CloudWindmillMetadataServiceV1Alpha1Grpc.CloudWindmillMetadataServiceV1Alpha1Stub;
@@ -100,6 +102,9 @@ public class GrpcWindmillStreamFactory implements StatusDataProvider {
   private final Consumer<List<ComputationHeartbeatResponse>> processHeartbeatResponses;
   private final java.time.Duration directStreamingRpcPhysicalStreamHalfCloseAfter;
   private final Supplier<ScheduledExecutorService> executorServiceSupplier;
+  // Shared by all GetWork streams to parse work items off of the gRPC response threads, or null to
+  // parse on the response threads.
+  private final @Nullable ExecutorService workItemDecodeExecutor;
 
   private GrpcWindmillStreamFactory(
       JobHeader jobHeader,
@@ -111,7 +116,8 @@ public class GrpcWindmillStreamFactory implements StatusDataProvider {
       Consumer<List<ComputationHeartbeatResponse>> processHeartbeatResponses,
       Supplier<Duration> maxBackOffSupplier,
       java.time.Duration directStreamingRpcPhysicalStreamHalfCloseAfter,
-      Supplier<ScheduledExecutorService> executorServiceSupplier) {
+      Supplier<ScheduledExecutorService> executorServiceSupplier,
+      int getWorkDecodeParallelism) {
     this.jobHeader = jobHeader;
     this.logEveryNStreamFailures = logEveryNStreamFailures;
     this.streamingRpcBatchLimit = streamingRpcBatchLimit;
@@ -132,6 +138,15 @@ public class GrpcWindmillStreamFactory implements StatusDataProvider {
     this.directStreamingRpcPhysicalStreamHalfCloseAfter =
         directStreamingRpcPhysicalStreamHalfCloseAfter;
     this.executorServiceSupplier = executorServiceSupplier;
+    this.workItemDecodeExecutor =
+        getWorkDecodeParallelism > 0
+            ? Executors.newFixedThreadPool(
+                getWorkDecodeParallelism,
+                new ThreadFactoryBuilder()
+                    .setDaemon(true)
+                    .setNameFormat("GetWorkDecode-%d")
+                    .build())
+            : null;
   }
 
   /** @implNote Used for {@link AutoBuilder} {@link Builder} class, do not call directly. */
@@ -146,7 +161,8 @@ public class GrpcWindmillStreamFactory implements StatusDataProvider {
       Supplier<Duration> maxBackOffSupplier,
       int healthCheckIntervalMillis,
       java.time.Duration directStreamingRpcPhysicalStreamHalfCloseAfter,
-      Supplier<ScheduledExecutorService> scheduledExecutorServiceSupplier) {
+      Supplier<ScheduledExecutorService> scheduledExecutorServiceSupplier,
+      int getWorkDecodeParallelism) {
     GrpcWindmillStreamFactory streamFactory =
         new GrpcWindmillStreamFactory(
             jobHeader,
@@ -158,7 +174,8 @@ public class GrpcWindmillStreamFactory implements StatusDataProvider {
             processHeartbeatResponses,
             maxBackOffSupplier,
             directStreamingRpcPhysicalStreamHalfCloseAfter,
-            scheduledExecutorServiceSupplier);
+            scheduledExecutorServiceSupplier,
+            getWorkDecodeParallelism);
 
     if (healthCheckIntervalMillis >= 0) {
       // Health checks are run on background daemon thread, which will only be cleaned up on JVM
@@ -200,7 +217,8 @@ public class GrpcWindmillStreamFactory implements StatusDataProvider {
         .setProcessHeartbeatResponses(ignored -> {})
         .setDirectStreamingRpcPhysicalStreamHalfCloseAfter(
             DEFAULT_DIRECT_STREAMING_RPC_PHYSICAL_STREAM_HALF_CLOSE_AFTER)
-        .setScheduledExecutorServiceSupplier(() -> null);
+        .setScheduledExecutorServiceSupplier(() -> null)
+        .setGetWorkDecodeParallelism(0);
   }
 
   private static <T extends AbstractStub<T>> T withDefaultDeadline(T stub) {
@@ -272,7 +290,8 @@ public class GrpcWindmillStreamFactory implements StatusDataProvider {
         requestBatchedGetWorkResponse,
         processWorkItem,
         java.time.Duration.ZERO,
-        executorForDispatchedStreams("GetWork"));
+        executorForDispatchedStreams("GetWork"),
+        workItemDecodeExecutor);
   }
 
   public GetWorkStream createDirectGetWorkStream(
@@ -297,7 +316,8 @@ public class GrpcWindmillStreamFactory implements StatusDataProvider {
         workCommitter,
         workItemScheduler,
         directStreamingRpcPhysicalStreamHalfCloseAfter,
-        executorForDirectStreams(connection.backendWorkerToken(), "GetWork"));
+        executorForDirectStreams(connection.backendWorkerToken(), "GetWork"),
+        workItemDecodeExecutor);
   }
 
   public GetDataStream createGetDataStream(CloudWindmillServiceV1Alpha1Stub stub) {
@@ -397,6 +417,16 @@ public class GrpcWindmillStreamFactory implements StatusDataProvider {
         .forEach((workerToken, streams) -> printSummaryHtmlForWorker(workerToken, streams, writer));
   }
 
+  /**
+   * Shuts down the pool used to parse GetWork responses, if any. Streams created by this factory
+   * should be shut down first.
+   */
+  public void shutdown() {
+    if (workItemDecodeExecutor != null) {
+      workItemDecodeExecutor.shutdown();
+    }
+  }
+
   @VisibleForTesting
   final ImmutableSet<AbstractWindmillStream<?, ?>> streamRegistry() {
     return ImmutableSet.copyOf(streamRegistry);
@@ -429,6 +459,12 @@ public class GrpcWindmillStreamFactory implements StatusDataProvider {
     Builder setScheduledExecutorServiceSupplier(
         Supplier<ScheduledExecutorService> scheduledExecutorServiceSupplier);
 
+    /**
+     * Number of threads used to parse GetWork responses off of the gRPC response threads. Work
+     * items are parsed on the response threads if 0.
+     */
+    Builder setGetWorkDecodeParallelism(int getWorkDecodeParallelism);
+
     GrpcWindmillStreamFactory build();
   }
 }
@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.dataflow.worker.windmill.client.grpc;
+
+import java.io.PrintWriter;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.beam.runners.dataflow.worker.windmill.client.grpc.GetWorkResponseChunkAssembler.AssembledWorkItem;
+import org.apache.beam.runners.dataflow.worker.windmill.client.grpc.GetWorkResponseChunkAssembler.SerializedWorkItem;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Parses {@link SerializedWorkItem}s on a shared decode {@link Executor} and hands the resulting
+ * {@link AssembledWorkItem}s to a consumer in the order they were submitted.
+ *
+ * <p>Work items are parsed in parallel, but delivered one at a time, in submission order, by
+ * whichever decode thread completes the item at the head of the queue. Since all work items of a
+ * physical GetWork stream are submitted by its single response thread, work items for the same key
+ * are delivered in the order Windmill sent them.
+ *
+ * <p>At most {@code maxPendingWorkItems} items may be parsing or waiting for delivery at once.
+ * Further submissions block the submitting thread, which pushes back on the gRPC stream.
+ */
+@ThreadSafe
+final class OrderedWorkItemDecoder {
+  private static final Logger LOG = LoggerFactory.getLogger(OrderedWorkItemDecoder.class);
+  private static final int DEFAULT_MAX_PENDING_WORK_ITEMS = 256;
+
+  private final Executor decodeExecutor;
+  private final Consumer<AssembledWorkItem> workItemConsumer;
+  private final Semaphore pendingPermits;
+
+  @GuardedBy("this")
+  private final Deque<PendingWorkItem> pending;
+
+  @GuardedBy("this")
+  private boolean delivering;
+
+  private final AtomicLong decodedWorkItems;
+  private final AtomicLong totalQueuedNanos;
+  private final AtomicLong totalDecodeNanos;
+
+  OrderedWorkItemDecoder(
+      Executor decodeExecutor,
+      int maxPendingWorkItems,
+      Consumer<AssembledWorkItem> workItemConsumer) {
+    Preconditions.checkArgument(maxPendingWorkItems > 0);
+    this.decodeExecutor = decodeExecutor;
+    this.workItemConsumer = workItemConsumer;
+    this.pendingPermits = new Semaphore(maxPendingWorkItems);
+    this.pending = new ArrayDeque<>();
+    this.delivering = false;
+    this.decodedWorkItems = new AtomicLong();
+    this.totalQueuedNanos = new AtomicLong();
+    this.totalDecodeNanos = new AtomicLong();
+  }
+
+  static OrderedWorkItemDecoder create(
+      Executor decodeExecutor, Consumer<AssembledWorkItem> workItemConsumer) {
+    return new OrderedWorkItemDecoder(
+        decodeExecutor, DEFAULT_MAX_PENDING_WORK_ITEMS, workItemConsumer);
+  }
+
+  /** Schedules the work item to be parsed and delivered after all previously submitted items. */
+  void submit(SerializedWorkItem serializedWorkItem) {
+    pendingPermits.acquireUninterruptibly();
+    PendingWorkItem pendingWorkItem = new PendingWorkItem(serializedWorkItem, System.nanoTime());
+    synchronized (this) {
+      pending.addLast(pendingWorkItem);
+    }
+    try {
+      decodeExecutor.execute(() -> decode(pendingWorkItem));
+    } catch (RejectedExecutionException e) {
+      // The decode executor is shut down, decode on the calling thread to preserve ordering.
+      decode(pendingWorkItem);
+    }
+  }
+
+  private void decode(PendingWorkItem pendingWorkItem) {
+    long decodeStartNanos = System.nanoTime();
+    Optional<AssembledWorkItem> assembledWorkItem = pendingWorkItem.serializedWorkItem.parse();
+    long decodeEndNanos = System.nanoTime();
+    decodedWorkItems.incrementAndGet();
+    totalQueuedNanos.addAndGet(decodeStartNanos - pendingWorkItem.submittedNanos);
+    totalDecodeNanos.addAndGet(decodeEndNanos - decodeStartNanos);
+    synchronized (this) {
+      pendingWorkItem.complete(assembledWorkItem.orElse(null));
+    }
+    deliverCompleted();
+  }
+
+  /**
+   * Delivers completed work items from the head of the queue. Only one thread delivers at a time;
+   * other threads leave their completed items for it.
+   */
+  private void deliverCompleted() {
+    synchronized (this) {
+      if (delivering) {
+        return;
+      }
+      delivering = true;
+    }
+    while (true) {
+      PendingWorkItem next;
+      synchronized (this) {
+        @Nullable PendingWorkItem head = pending.peekFirst();
+        if (head == null || !head.isCompleted()) {
+          delivering = false;
+          return;
+        }
+        next = head;
+        pending.removeFirst();
+      }
+      try {
+        if (next.assembledWorkItem != null) {
+          workItemConsumer.accept(next.assembledWorkItem);
+        }
+      } catch (RuntimeException e) {
+        // Keep delivering the remaining work items, the failed one will be retried by Windmill.
+        LOG.error("Failed to consume decoded work item: ", e);
+      } finally {
+        pendingPermits.release();
+      }
+    }
+  }
+
+  void appendHtml(PrintWriter writer) {
+    long decoded = decodedWorkItems.get();
+    int pendingCount;
+    synchronized (this) {
+      pendingCount = pending.size();
+    }
+    writer.format(
+        "%d work items pending decode, %d decoded, avg decode queue %dus, avg decode %dus",
+        pendingCount,
+        decoded,
+        decoded == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalQueuedNanos.get()) / decoded,
+        decoded == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalDecodeNanos.get()) / decoded);
+  }
+
+  private static final class PendingWorkItem {
+    private final SerializedWorkItem serializedWorkItem;
+    private final long submittedNanos;
+    private boolean completed;
+    private @Nullable AssembledWorkItem assembledWorkItem;
+
+    private PendingWorkItem(SerializedWorkItem serializedWorkItem, long submittedNanos) {
+      this.serializedWorkItem = serializedWorkItem;
+      this.submittedNanos = submittedNanos;
+      this.completed = false;
+      this.assembledWorkItem = null;
+    }
+
+    private void complete(@Nullable AssembledWorkItem assembledWorkItem) {
+      this.assembledWorkItem = assembledWorkItem;
+      this.completed = true;
+    }
+
+    private boolean isCompleted() {
+      return completed;
+    }
+  }
+}
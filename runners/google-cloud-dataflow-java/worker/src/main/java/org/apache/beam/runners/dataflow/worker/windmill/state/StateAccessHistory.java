@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.dataflow.worker.windmill.state;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.beam.sdk.annotations.Internal;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.annotations.VisibleForTesting;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ImmutableSet;
+
+/**
+ * Learns which state tags are read from Windmill by almost every work item of a computation, so
+ * that {@link WindmillStateReader} can fetch them speculatively together with the first read of a
+ * work item instead of in a later round trip.
+ *
+ * <p>Only first pages of values, bags and watermark holds are tracked, since the response for those
+ * can be kept undecoded until the coder is known.
+ */
+@Internal
+@ThreadSafe
+public final class StateAccessHistory {
+
+  // The number of work items observed before the predicted tags are recomputed.
+  @VisibleForTesting static final int WORK_ITEMS_PER_GENERATION = 100;
+  // Tags read by at least this fraction of the work items of a generation are predicted.
+  private static final double PREDICTION_THRESHOLD = 0.9;
+  // Bounds the memory used for tracking and the size of speculative requests.
+  private static final int MAX_TRACKED_TAGS = 1000;
+  private static final int MAX_PREDICTED_TAGS = 32;
+
+  @GuardedBy("this")
+  private final Map<StateTag<?>, Integer> readCounts = new HashMap<>();
+
+  @GuardedBy("this")
+  private int workItems = 0;
+
+  private volatile ImmutableSet<StateTag<?>> predictedTags = ImmutableSet.of();
+
+  /** Returns whether reads of {@code stateTag} are tracked and may be prefetched. */
+  static boolean isPrefetchable(StateTag<?> stateTag) {
+    if (stateTag.getRequestPosition() != null) {
+      return false;
+    }
+    switch (stateTag.getKind()) {
+      case VALUE:
+      case BAG:
+      case WATERMARK:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /** Returns the tags that are expected to be read by the next work item. */
+  ImmutableSet<StateTag<?>> predictedTags() {
+    return predictedTags;
+  }
+
+  /** Records the prefetchable tags that were read by a single work item. */
+  synchronized void recordWorkItem(Set<StateTag<?>> tagsRead) {
+    for (StateTag<?> stateTag : tagsRead) {
+      if (readCounts.size() < MAX_TRACKED_TAGS || readCounts.containsKey(stateTag)) {
+        readCounts.merge(stateTag, 1, Integer::sum);
+      }
+    }
+    if (++workItems < WORK_ITEMS_PER_GENERATION) {
+      return;
+    }
+
+    long minReads = (long) Math.ceil(workItems * PREDICTION_THRESHOLD);
+    ImmutableSet.Builder<StateTag<?>> newPredictedTags = ImmutableSet.builder();
+    int numPredictedTags = 0;
+    for (Map.Entry<StateTag<?>, Integer> entry : readCounts.entrySet()) {
+      if (entry.getValue() >= minReads && numPredictedTags < MAX_PREDICTED_TAGS) {
+        newPredictedTags.add(entry.getKey());
+        ++numPredictedTags;
+      }
+    }
+    predictedTags = newPredictedTags.build();
+    readCounts.clear();
+    workItems = 0;
+  }
+}
@@ -19,6 +19,8 @@ package org.apache.beam.runners.dataflow.worker.windmill.state;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -28,10 +30,12 @@ import org.apache.beam.runners.core.StateNamespace;
 import org.apache.beam.runners.dataflow.worker.util.common.worker.InternedByteString;
 import org.apache.beam.runners.dataflow.worker.windmill.Windmill;
 import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.CustomCoder;
 import org.apache.beam.sdk.state.ReadableState;
 import org.apache.beam.sdk.state.ReadableStates;
 import org.apache.beam.sdk.util.ByteStringOutputStream;
 import org.apache.beam.sdk.util.Weighted;
+import org.apache.beam.sdk.util.WeightedValue;
 import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.ByteString;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Preconditions;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ImmutableMap;
@@ -39,6 +43,7 @@ import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Immuta
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Iterables;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Maps;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Sets;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.io.CountingInputStream;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.util.concurrent.Futures;
 import org.checkerframework.checker.initialization.qual.Initialized;
 import org.checkerframework.checker.nullness.qual.NonNull;
@@ -53,10 +58,17 @@ public class WindmillMap<K, V> extends AbstractWindmillMap<K, V> {
   private final String stateFamily;
   private final Coder<K> keyCoder;
   private final Coder<V> valueCoder;
+  private final WeighingValueCoder<V> weighingValueCoder;
   // TODO(reuvenlax): Should we evict items from the cache? We would have to make sure
   // that anything in the cache that is not committed is not evicted. negativeCache could be
   // evicted whenever we want.
   private final Map<K, V> cachedValues = Maps.newHashMap();
+  // Encoded size of the entries of cachedValues and of the keys in negativeCache, maintained as
+  // entries are added and removed so that the weight of the map in the cache is not recomputed on
+  // every persist. Entries read from Windmill are weighed by the bytes fetched for them, entries
+  // written locally when they are encoded for the commit.
+  private final Map<K, Long> cachedEntryWeights = Maps.newHashMap();
+  private long cachedWeight = 0;
   private final Set<K> negativeCache = Sets.newHashSet();
   private final Set<K> localAdditions = Sets.newHashSet();
   private final Set<K> localRemovals = Sets.newHashSet();
@@ -75,6 +87,7 @@ public class WindmillMap<K, V> extends AbstractWindmillMap<K, V> {
     this.stateFamily = stateFamily;
     this.keyCoder = keyCoder;
     this.valueCoder = valueCoder;
+    this.weighingValueCoder = WeighingValueCoder.of(valueCoder);
     this.complete = isNewKey;
   }
 
@@ -95,7 +108,11 @@ public class WindmillMap<K, V> extends AbstractWindmillMap<K, V> {
   protected Windmill.WorkItemCommitRequest persistDirectly(WindmillStateCache.ForKeyAndFamily cache)
       throws IOException {
     if (!cleared && localAdditions.isEmpty() && localRemovals.isEmpty()) {
-      // No changes, so return directly.
+      // No changes to commit, but keep what was read so that later work items need not read it
+      // again.
+      if (complete || !cachedValues.isEmpty() || !negativeCache.isEmpty()) {
+        cache.put(namespace, stateKeyPrefix, this, cacheWeight());
+      }
       return Windmill.WorkItemCommitRequest.newBuilder().buildPartial();
     }
 
@@ -115,6 +132,7 @@ public class WindmillMap<K, V> extends AbstractWindmillMap<K, V> {
       ByteStringOutputStream valueStream = new ByteStringOutputStream();
       valueCoder.encode(cachedValues.get(key), valueStream, Coder.Context.OUTER);
       ByteString valueBytes = valueStream.toByteString();
+      setEntryWeight(key, keyBytes.size() + valueBytes.size());
 
       commitBuilder
           .addValueUpdatesBuilder()
@@ -127,33 +145,47 @@ public class WindmillMap<K, V> extends AbstractWindmillMap<K, V> {
     localAdditions.clear();
 
     for (K key : localRemovals) {
-      ByteStringOutputStream keyStream = new ByteStringOutputStream();
-      stateKeyPrefix.byteString().writeTo(keyStream);
-      keyCoder.encode(key, keyStream, Coder.Context.OUTER);
-      ByteString keyBytes = keyStream.toByteString();
+      ByteString keyBytes = protoKeyFromUserKey(key);
       // Leaving data blank means that we delete the tag.
       commitBuilder.addValueUpdatesBuilder().setTag(keyBytes).setStateFamily(stateFamily);
 
-      V cachedValue = cachedValues.remove(key);
-      if (cachedValue != null) {
-        ByteStringOutputStream valueStream = new ByteStringOutputStream();
-        valueCoder.encode(cachedValues.get(key), valueStream, Coder.Context.OUTER);
-      }
+      uncacheEntry(key);
+      cacheNegativeEntry(key, keyBytes.size());
     }
-    negativeCache.addAll(localRemovals);
     localRemovals.clear();
 
-    // TODO(reuvenlax): We should store in the cache parameter, as that would enable caching the
-    // map
-    // between work items, reducing fetches to Windmill. To do so, we need keep track of the
-    // encoded size
-    // of the map, and to do so efficiently (i.e. without iterating over the entire map on every
-    // persist)
-    // we need to track the sizes of each map entry.
-    cache.put(namespace, stateKeyPrefix, this, 1);
+    cache.put(namespace, stateKeyPrefix, this, cacheWeight());
     return commitBuilder.buildPartial();
   }
 
+  private long cacheWeight() {
+    return cachedWeight + stateKeyPrefix.byteString().size();
+  }
+
+  /** Caches a value read from Windmill, weighed by the bytes that were fetched for it. */
+  private void cacheReadEntry(K key, V value, long weight) {
+    cachedValues.put(key, value);
+    setEntryWeight(key, weight);
+  }
+
+  /** Caches the absence of a key, weighed by its encoded tag. */
+  private void cacheNegativeEntry(K key, long weight) {
+    negativeCache.add(key);
+    setEntryWeight(key, weight);
+  }
+
+  private void uncacheEntry(K key) {
+    cachedValues.remove(key);
+    setEntryWeight(key, 0);
+  }
+
+  private void setEntryWeight(K key, long weight) {
+    @Nullable
+    Long oldWeight =
+        weight > 0 ? cachedEntryWeights.put(key, weight) : cachedEntryWeights.remove(key);
+    cachedWeight += weight - (oldWeight == null ? 0 : oldWeight);
+  }
+
   @Override
   public @UnknownKeyFor @NonNull @Initialized ReadableState<V> get(K key) {
     return getOrDefault(key, null);
@@ -200,6 +232,8 @@ public class WindmillMap<K, V> extends AbstractWindmillMap<K, V> {
     if (valueCoder.consistentWithEquals() && value.equals(oldValue)) {
       return;
     }
+    // The new value is weighed when it is persisted.
+    setEntryWeight(key, 0);
     localAdditions.add(key);
     localRemovals.remove(key);
     negativeCache.remove(key);
@@ -208,7 +242,6 @@ public class WindmillMap<K, V> extends AbstractWindmillMap<K, V> {
   @Override
   public @UnknownKeyFor @NonNull @Initialized ReadableState<V> computeIfAbsent(
       K key, Function<? super K, ? extends V> mappingFunction) {
-    Future<V> persistedData = getFutureForKey(key);
     try (Closeable scope = scopedReadState()) {
       if (localRemovals.contains(key) || negativeCache.contains(key)) {
         return ReadableStates.immediate(null);
@@ -218,15 +251,18 @@ public class WindmillMap<K, V> extends AbstractWindmillMap<K, V> {
         return ReadableStates.immediate(cachedValue);
       }
 
-      V persistedValue = persistedData.get();
+      // Only fetch keys that are not cached, so cached maps do not cause reads.
+      ByteString keyBytes = protoKeyFromUserKey(key);
+      WeightedValue<V> persistedValue = getFutureForKey(keyBytes).get();
       if (persistedValue == null) {
         // This is a new value. Add it to the map and return null.
         put(key, mappingFunction.apply(key));
         return ReadableStates.immediate(null);
       }
       // TODO: Don't do this if it was already in cache.
-      cachedValues.put(key, persistedValue);
-      return ReadableStates.immediate(persistedValue);
+      cacheReadEntry(
+          key, persistedValue.getValue(), keyBytes.size() + persistedValue.getWeight());
+      return ReadableStates.immediate(persistedValue.getValue());
     } catch (InterruptedException | ExecutionException | IOException e) {
       if (e instanceof InterruptedException) {
         Thread.currentThread().interrupt();
@@ -238,7 +274,7 @@ public class WindmillMap<K, V> extends AbstractWindmillMap<K, V> {
   @Override
   public void remove(K key) {
     if (localRemovals.add(key)) {
-      cachedValues.remove(key);
+      uncacheEntry(key);
       localAdditions.remove(key);
     }
   }
@@ -246,6 +282,8 @@ public class WindmillMap<K, V> extends AbstractWindmillMap<K, V> {
   @Override
   public void clear() {
     cachedValues.clear();
+    cachedEntryWeights.clear();
+    cachedWeight = 0;
     localAdditions.clear();
     localRemovals.clear();
     negativeCache.clear();
@@ -253,15 +291,8 @@ public class WindmillMap<K, V> extends AbstractWindmillMap<K, V> {
     complete = true;
   }
 
-  private Future<V> getFutureForKey(K key) {
-    try {
-      ByteStringOutputStream keyStream = new ByteStringOutputStream();
-      stateKeyPrefix.byteString().writeTo(keyStream);
-      keyCoder.encode(key, keyStream, Coder.Context.OUTER);
-      return reader.valueFuture(keyStream.toByteString(), stateFamily, valueCoder);
-    } catch (IOException e) {
-      throw new RuntimeException(e);
-    }
+  private Future<WeightedValue<V>> getFutureForKey(ByteString keyBytes) {
+    return reader.valueFuture(keyBytes, stateFamily, weighingValueCoder);
   }
 
   private Future<Iterable<Map.Entry<ByteString, V>>> getFuture() {
@@ -334,11 +365,16 @@ public class WindmillMap<K, V> extends AbstractWindmillMap<K, V> {
                 });
 
         if (data instanceof Weighted) {
-          // This is a known amount of data. Cache it all.
+          // This is a known amount of data. Cache it all, spreading the bytes fetched for it
+          // evenly over the entries.
+          int size = Iterables.size(data);
+          long entryWeight = size == 0 ? 0 : ((Weighted) data).getWeight() / size;
           transformedData.forEach(
               e -> {
-                // The cached data overrides what is read from state, so call putIfAbsent.
-                cachedValues.putIfAbsent(e.getKey(), e.getValue());
+                // The cached data overrides what is read from state.
+                if (!cachedValues.containsKey(e.getKey())) {
+                  cacheReadEntry(e.getKey(), e.getValue(), entryWeight);
+                }
               });
           complete = true;
           return ImmutableMap.copyOf(cachedValues).entrySet();
@@ -404,7 +440,6 @@ public class WindmillMap<K, V> extends AbstractWindmillMap<K, V> {
 
     @Override
     public @Nullable V read() {
-      Future<V> persistedData = getFutureForKey(key);
       try (Closeable scope = scopedReadState()) {
         if (localRemovals.contains(key) || negativeCache.contains(key)) {
           return null;
@@ -414,13 +449,15 @@ public class WindmillMap<K, V> extends AbstractWindmillMap<K, V> {
           return cachedValue;
         }
 
-        V persistedValue = persistedData.get();
+        ByteString keyBytes = protoKeyFromUserKey(key);
+        WeightedValue<V> persistedValue = getFutureForKey(keyBytes).get();
         if (persistedValue == null) {
-          negativeCache.add(key);
+          cacheNegativeEntry(key, keyBytes.size());
           return defaultValue;
         }
-        cachedValues.put(key, persistedValue);
-        return persistedValue;
+        cacheReadEntry(
+            key, persistedValue.getValue(), keyBytes.size() + persistedValue.getWeight());
+        return persistedValue.getValue();
       } catch (InterruptedException | ExecutionException | IOException e) {
         if (e instanceof InterruptedException) {
           Thread.currentThread().interrupt();
@@ -432,8 +469,64 @@ public class WindmillMap<K, V> extends AbstractWindmillMap<K, V> {
     @Override
     @SuppressWarnings("FutureReturnValueIgnored")
     public @UnknownKeyFor @NonNull @Initialized ReadableState<V> readLater() {
-      WindmillMap.this.getFutureForKey(key);
+      if (!complete && !cachedValues.containsKey(key) && !negativeCache.contains(key)) {
+        try {
+          WindmillMap.this.getFutureForKey(protoKeyFromUserKey(key));
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      }
       return this;
     }
   }
+
+  /**
+   * Decodes values read for single keys together with the number of bytes they were decoded from,
+   * so that they can be weighed in the cache without being encoded again.
+   */
+  static final class WeighingValueCoder<T> extends CustomCoder<WeightedValue<T>> {
+    private final Coder<T> valueCoder;
+
+    private WeighingValueCoder(Coder<T> valueCoder) {
+      this.valueCoder = valueCoder;
+    }
+
+    static <T> WeighingValueCoder<T> of(Coder<T> valueCoder) {
+      return new WeighingValueCoder<>(valueCoder);
+    }
+
+    @Override
+    public void encode(WeightedValue<T> value, OutputStream outStream) throws IOException {
+      encode(value, outStream, Context.NESTED);
+    }
+
+    @Override
+    public void encode(WeightedValue<T> value, OutputStream outStream, Context context)
+        throws IOException {
+      valueCoder.encode(value.getValue(), outStream, context);
+    }
+
+    @Override
+    public WeightedValue<T> decode(InputStream inStream) throws IOException {
+      return decode(inStream, Context.NESTED);
+    }
+
+    @Override
+    public WeightedValue<T> decode(InputStream inStream, Context context) throws IOException {
+      CountingInputStream countingStream = new CountingInputStream(inStream);
+      T value = valueCoder.decode(countingStream, context);
+      return WeightedValue.of(value, countingStream.getCount());
+    }
+
+    @Override
+    public boolean equals(@Nullable Object other) {
+      return other instanceof WeighingValueCoder
+          && valueCoder.equals(((WeighingValueCoder<?>) other).valueCoder);
+    }
+
+    @Override
+    public int hashCode() {
+      return valueCoder.hashCode();
+    }
+  }
 }
@@ -20,14 +20,21 @@ package org.apache.beam.runners.dataflow.worker.windmill.state;
 import com.google.auto.value.AutoBuilder;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiConsumer;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import org.apache.beam.runners.core.StateNamespace;
+import org.apache.beam.runners.core.StateNamespaces;
 import org.apache.beam.runners.dataflow.worker.*;
 import org.apache.beam.runners.dataflow.worker.status.BaseStatusServlet;
 import org.apache.beam.runners.dataflow.worker.status.StatusDataProvider;
@@ -40,6 +47,7 @@ import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Precondit
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.cache.Cache;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.cache.CacheBuilder;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.cache.CacheStats;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.cache.RemovalNotification;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.MapMaker;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
@@ -51,6 +59,13 @@ import org.checkerframework.checker.nullness.qual.Nullable;
  * * processing key * state_family * namespace) by a single thread at a time. {@link
  * StreamingDataflowWorker} ensures that a single computation * processing key is executing on one
  * thread at a time, so this is safe.
+ *
+ * <p>The state of each computation is cached separately and split into stripes by sharding key.
+ * Every stripe is a Guava cache with its own lock and least recently used order, so keys of
+ * different computations or stripes never contend. Computations may freely use capacity that other
+ * computations don't need. Once the cache is nearly full, a computation that exceeds its fair share
+ * of the cache evicts its own least recently used entries. That way a single hot computation cannot
+ * evict the state of every other computation.
  */
 public class WindmillStateCache implements StatusDataProvider {
 
@@ -67,28 +82,29 @@ public class WindmillStateCache implements StatusDataProvider {
   // Overhead of each StateCacheEntry.  One long, plus a hash table.
   private static final int PER_CACHE_ENTRY_OVERHEAD =
       8 + HASH_MAP_ENTRY_OVERHEAD * INITIAL_HASH_MAP_CAPACITY;
+  // Fraction of the cache that may be used before computations over their fair share evict their
+  // own entries. Such a computation is shrunk to the same fraction of its share.
+  private static final double QUOTA_ENFORCEMENT_THRESHOLD = 0.9;
 
-  private final Cache<StateId, StateCacheEntry> stateCache;
   // Contains the current valid ForKey object. Entries in the cache are keyed by ForKey with pointer
   // equality so entries may be invalidated by creating a new key object, rendering the previous
   // entries inaccessible. They will be evicted through normal cache operation.
   private final ConcurrentMap<WindmillComputationKey, ForKey> keyIndex;
   private final long workerCacheBytes; // Copy workerCacheMb and convert to bytes.
   private final boolean supportMapViaMultimap;
+  private final int stripeCount;
+  // Cached state of each computation, keyed by computation id.
+  private final ConcurrentMap<String, ComputationCache> computationCaches;
+  // Sum of the bytes cached by all computations.
+  private final LongAdder totalBytes;
 
   WindmillStateCache(long sizeMb, boolean supportMapViaMultimap) {
     this.workerCacheBytes = sizeMb * MEGABYTES;
-    int stateCacheConcurrencyLevel =
+    this.stripeCount =
         Math.max(STATE_CACHE_CONCURRENCY_LEVEL, Runtime.getRuntime().availableProcessors());
-    this.stateCache =
-        CacheBuilder.newBuilder()
-            .maximumWeight(workerCacheBytes)
-            .recordStats()
-            .weigher(Weighers.weightedKeysAndValues())
-            .concurrencyLevel(stateCacheConcurrencyLevel)
-            .build();
-    this.keyIndex =
-        new MapMaker().weakValues().concurrencyLevel(stateCacheConcurrencyLevel).makeMap();
+    this.computationCaches = new ConcurrentHashMap<>();
+    this.totalBytes = new LongAdder();
+    this.keyIndex = new MapMaker().weakValues().concurrencyLevel(stripeCount).makeMap();
     this.supportMapViaMultimap = supportMapViaMultimap;
   }
 
@@ -108,15 +124,23 @@ public class WindmillStateCache implements StatusDataProvider {
 
   private EntryStats calculateEntryStats() {
     EntryStats stats = new EntryStats();
-    BiConsumer<StateId, StateCacheEntry> consumer =
-        (stateId, stateCacheEntry) -> {
-          stats.entries++;
-          stats.idWeight += stateId.getWeight();
-          stats.entryWeight += stateCacheEntry.getWeight();
-          stats.entryValues += stateCacheEntry.values.size();
-          stats.maxEntryValues = Math.max(stats.maxEntryValues, stateCacheEntry.values.size());
-        };
-    stateCache.asMap().forEach(consumer);
+    for (ComputationCache computationCache : computationCaches.values()) {
+      BiConsumer<StateId, CachedEntry> consumer =
+          (stateId, cachedEntry) -> {
+            if (stateId == computationCache.placeholderId) {
+              return;
+            }
+            StateCacheEntry stateCacheEntry = cachedEntry.entry;
+            stats.entries++;
+            stats.idWeight += stateId.getWeight();
+            stats.entryWeight += stateCacheEntry.getWeight();
+            stats.entryValues += stateCacheEntry.values.size();
+            stats.maxEntryValues = Math.max(stats.maxEntryValues, stateCacheEntry.values.size());
+          };
+      for (Cache<StateId, CachedEntry> stripe : computationCache.stripes) {
+        stripe.asMap().forEach(consumer);
+      }
+    }
     return stats;
   }
 
@@ -130,7 +154,17 @@ public class WindmillStateCache implements StatusDataProvider {
   }
 
   public CacheStats getCacheStats() {
-    return stateCache.stats();
+    CacheStats stats = new CacheStats(0, 0, 0, 0, 0, 0);
+    for (ComputationCache computationCache : computationCaches.values()) {
+      stats = stats.plus(computationCache.stats());
+    }
+    return stats;
+  }
+
+  /** Returns the number of bytes the given computation currently holds in the cache. */
+  public long getComputationWeight(String computation) {
+    @Nullable ComputationCache computationCache = computationCaches.get(computation);
+    return computationCache == null ? 0 : computationCache.bytes.sum();
   }
 
   /** Returns a per-computation view of the state cache. */
@@ -138,6 +172,48 @@ public class WindmillStateCache implements StatusDataProvider {
     return new ForComputation(computation);
   }
 
+  private ComputationCache computationCacheFor(String computation) {
+    @Nullable ComputationCache computationCache = computationCaches.get(computation);
+    return computationCache != null
+        ? computationCache
+        : computationCaches.computeIfAbsent(computation, ComputationCache::new);
+  }
+
+  /**
+   * Shrinks {@code persisting} if the cache is nearly full and it holds more than its fair share,
+   * which is the capacity divided by the number of computations. As the stripes already bound every
+   * computation, the other computations are only looked at once the whole capacity is exceeded, to
+   * shrink the one that exceeds its share the most.
+   */
+  private void enforceQuota(ComputationCache persisting) {
+    long total = totalBytes.sum();
+    if (total <= workerCacheBytes * QUOTA_ENFORCEMENT_THRESHOLD) {
+      return;
+    }
+    long fairShare = workerCacheBytes / computationCaches.size();
+    long quota = (long) (fairShare * QUOTA_ENFORCEMENT_THRESHOLD);
+    if (persisting.bytes.sum() > fairShare) {
+      persisting.shrinkTo(quota);
+    } else if (total > workerCacheBytes) {
+      ComputationCache largest = persisting;
+      long largestBytes = persisting.bytes.sum();
+      for (ComputationCache computationCache : computationCaches.values()) {
+        long bytes = computationCache.bytes.sum();
+        if (bytes > largestBytes) {
+          largest = computationCache;
+          largestBytes = bytes;
+        }
+      }
+      if (largestBytes > fairShare) {
+        largest.shrinkTo(quota);
+      }
+    }
+  }
+
+  private static String formatPercentage(double ratio) {
+    return String.format("%.2f%%", ratio * 100);
+  }
+
   /** Print summary statistics of the cache to the given {@link PrintWriter}. */
   @Override
   public void appendSummaryHtml(PrintWriter response) {
@@ -147,11 +223,11 @@ public class WindmillStateCache implements StatusDataProvider {
             + "<th>Entry Values</th><th>Max Entry Values</th>"
             + "<th>Id Weight</th><th>Entry Weight</th><th>Max Weight</th><th>Keys</th>"
             + "</tr><tr>");
-    CacheStats cacheStats = stateCache.stats();
+    CacheStats cacheStats = getCacheStats();
     EntryStats entryStats = calculateEntryStats();
-    response.println("<td>" + cacheStats.hitRate() + "</td>");
+    response.println("<td>" + formatPercentage(cacheStats.hitRate()) + "</td>");
     response.println("<td>" + cacheStats.evictionCount() + "</td>");
-    response.println("<td>" + entryStats.entries + "(" + stateCache.size() + " inc. weak) </td>");
+    response.println("<td>" + entryStats.entries + "</td>");
     response.println("<td>" + entryStats.entryValues + "</td>");
     response.println("<td>" + entryStats.maxEntryValues + "</td>");
     response.println("<td>" + entryStats.idWeight / MEGABYTES + "MB</td>");
@@ -159,6 +235,21 @@ public class WindmillStateCache implements StatusDataProvider {
     response.println("<td>" + getMaxWeight() / MEGABYTES + "MB</td>");
     response.println("<td>" + keyIndex.size() + "</td>");
     response.println("</tr></table><br>");
+
+    response.println("Per Computation Cache Stats: <br><table>");
+    response.println(
+        "<tr><th>Computation</th><th>Hit Ratio</th><th>Evictions</th><th>Weight</th></tr>");
+    Map<String, ComputationCache> sortedCaches = new TreeMap<>(computationCaches);
+    for (Map.Entry<String, ComputationCache> entry : sortedCaches.entrySet()) {
+      CacheStats computationStats = entry.getValue().stats();
+      response.println("<tr>");
+      response.println("<td>" + entry.getKey() + "</td>");
+      response.println("<td>" + formatPercentage(computationStats.hitRate()) + "</td>");
+      response.println("<td>" + computationStats.evictionCount() + "</td>");
+      response.println("<td>" + entry.getValue().bytes.sum() / MEGABYTES + "MB</td>");
+      response.println("</tr>");
+    }
+    response.println("</table><br>");
   }
 
   public BaseStatusServlet statusServlet() {
@@ -173,6 +264,87 @@ public class WindmillStateCache implements StatusDataProvider {
     };
   }
 
+  /**
+   * The cached state of a single computation. Each stripe may hold an equal part of the whole
+   * cache, so a computation may use all of it while others don't need it. The bytes held by the
+   * computation are counted by the removal listener of the stripes.
+   */
+  private class ComputationCache {
+
+    private final List<Cache<StateId, CachedEntry>> stripes;
+    private final long stripeWeight;
+    // Key of the placeholder entry inserted to make a stripe evict its least recently used entries.
+    private final StateId placeholderId;
+    private final LongAdder bytes = new LongAdder();
+
+    @SuppressWarnings("methodref.receiver.bound")
+    private ComputationCache(String computation) {
+      this.stripeWeight = workerCacheBytes / stripeCount;
+      this.stripes = new ArrayList<>(stripeCount);
+      for (int i = 0; i < stripeCount; ++i) {
+        stripes.add(
+            CacheBuilder.newBuilder()
+                .maximumWeight(stripeWeight)
+                .recordStats()
+                .weigher(Weighers.weightedKeysAndValues())
+                .removalListener(this::onRemoval)
+                .concurrencyLevel(1)
+                .build());
+      }
+      this.placeholderId =
+          new StateId(
+              new ForKey(WindmillComputationKey.create(computation, ByteString.EMPTY, 0L), 0L, 0L),
+              "",
+              StateNamespaces.global());
+    }
+
+    private Cache<StateId, CachedEntry> stripeFor(StateId id) {
+      long shardingKey = id.forKey.computationKey.shardingKey();
+      return stripes.get(Math.floorMod(Long.hashCode(shardingKey), stripeCount));
+    }
+
+    private CacheStats stats() {
+      CacheStats stats = new CacheStats(0, 0, 0, 0, 0, 0);
+      for (Cache<StateId, CachedEntry> stripe : stripes) {
+        stats = stats.plus(stripe.stats());
+      }
+      return stats;
+    }
+
+    private void put(StateId id, CachedEntry cachedEntry) {
+      // Account for the entry before inserting it so that the removal of the entry, which may
+      // happen immediately, never observes negative usage.
+      long weight = id.getWeight() + cachedEntry.getWeight();
+      bytes.add(weight);
+      totalBytes.add(weight);
+      stripeFor(id).put(id, cachedEntry);
+    }
+
+    private void onRemoval(RemovalNotification<StateId, CachedEntry> notification) {
+      @Nullable StateId id = notification.getKey();
+      @Nullable CachedEntry cachedEntry = notification.getValue();
+      if (id != null && cachedEntry != null && id != placeholderId) {
+        long weight = id.getWeight() + cachedEntry.getWeight();
+        bytes.add(-weight);
+        totalBytes.add(-weight);
+      }
+    }
+
+    /**
+     * Evicts the least recently used entries of every stripe until the computation holds at most
+     * {@code targetBytes}. Guava does not expose the order of its entries, so a placeholder that
+     * takes up the capacity not to be used is inserted and removed again.
+     */
+    private void shrinkTo(long targetBytes) {
+      long placeholderWeight =
+          Math.max(0, stripeWeight - targetBytes / stripeCount - placeholderId.getWeight());
+      for (Cache<StateId, CachedEntry> stripe : stripes) {
+        stripe.put(placeholderId, new CachedEntry(new StateCacheEntry(), placeholderWeight));
+        stripe.invalidate(placeholderId);
+      }
+    }
+  }
+
   private static class EntryStats {
 
     long entries;
@@ -225,6 +397,31 @@ public class WindmillStateCache implements StatusDataProvider {
     }
   }
 
+  /**
+   * The value stored in the cache for a {@link StateCacheEntry}. The weight is captured when the
+   * entry is persisted so that the same weight is released when the entry is removed, even though
+   * the {@link StateCacheEntry} itself may have been modified since.
+   */
+  private static class CachedEntry implements Weighted {
+
+    private final StateCacheEntry entry;
+    private final long weight;
+
+    private CachedEntry(StateCacheEntry entry) {
+      this(entry, entry.getWeight());
+    }
+
+    private CachedEntry(StateCacheEntry entry, long weight) {
+      this.entry = entry;
+      this.weight = weight;
+    }
+
+    @Override
+    public long getWeight() {
+      return weight;
+    }
+  }
+
   /** Entry in the state cache that stores a map of values. */
   private static class StateCacheEntry implements Weighted {
 
@@ -369,11 +566,13 @@ public class WindmillStateCache implements StatusDataProvider {
 
     final ForKey forKey;
     final String stateFamily;
+    private final ComputationCache computationCache;
     private final HashMap<StateId, StateCacheEntry> localCache;
 
     private ForKeyAndFamily(ForKey forKey, String stateFamily) {
       this.forKey = forKey;
       this.stateFamily = stateFamily;
+      this.computationCache = computationCacheFor(forKey.computationKey.computationId());
       localCache = new HashMap<>();
     }
 
@@ -387,22 +586,27 @@ public class WindmillStateCache implements StatusDataProvider {
 
     public @Nullable State get(StateNamespace namespace, InternedByteString encodedAddress) {
       @Nullable
-      @SuppressWarnings("nullness") // stateCache::getIfPresent returns null
+      @SuppressWarnings("nullness") // getFromCache returns null
       StateCacheEntry stateCacheEntry =
           localCache.computeIfAbsent(
-              new StateId(forKey, stateFamily, namespace), stateCache::getIfPresent);
+              new StateId(forKey, stateFamily, namespace), this::getFromCache);
       if (stateCacheEntry == null) {
         return null;
       }
       return stateCacheEntry.get(encodedAddress);
     }
 
+    private @Nullable StateCacheEntry getFromCache(StateId id) {
+      @Nullable CachedEntry cachedEntry = computationCache.stripeFor(id).getIfPresent(id);
+      return cachedEntry == null ? null : cachedEntry.entry;
+    }
+
     public <T extends State> void put(
         StateNamespace namespace, InternedByteString encodedAddress, T value, long weight) {
       StateId id = new StateId(forKey, stateFamily, namespace);
       @Nullable StateCacheEntry entry = localCache.get(id);
       if (entry == null) {
-        entry = stateCache.getIfPresent(id);
+        entry = getFromCache(id);
         if (entry == null) {
           entry = new StateCacheEntry();
         }
@@ -413,7 +617,8 @@ public class WindmillStateCache implements StatusDataProvider {
     }
 
     public void persist() {
-      localCache.forEach(stateCache::put);
+      localCache.forEach((id, entry) -> computationCache.put(id, new CachedEntry(entry)));
+      enforceQuota(computationCache);
     }
   }
 }
@@ -125,6 +125,14 @@ public class WindmillStateReader {
   private final ConcurrentHashMap<StateTag<?>, CoderAndFuture<?>> waiting;
   private long bytesRead = 0L;
   private final Supplier<Boolean> workItemIsFailed;
+  // If set, the tags predicted by the history are fetched along with the first read of this work
+  // item, and the prefetchable tags read by this work item can be recorded to it.
+  private final @Nullable StateAccessHistory accessHistory;
+  private final Set<StateTag<?>> prefetchableTagsRead;
+  // Undecoded responses for speculatively fetched tags that have not been requested yet.
+  private final ConcurrentHashMap<StateTag<?>, Object> prefetchedResponses;
+  private boolean prefetchIssued = false;
+  private long prefetchHits = 0L;
 
   private WindmillStateReader(
       Function<KeyedGetDataRequest, Optional<KeyedGetDataResponse>> fetchStateFromWindmillFn,
@@ -132,7 +140,8 @@ public class WindmillStateReader {
       long shardingKey,
       long workToken,
       Supplier<AutoCloseable> readWrapperSupplier,
-      Supplier<Boolean> workItemIsFailed) {
+      Supplier<Boolean> workItemIsFailed,
+      @Nullable StateAccessHistory accessHistory) {
     this.fetchStateFromWindmillFn = fetchStateFromWindmillFn;
     this.key = key;
     this.shardingKey = shardingKey;
@@ -141,6 +150,9 @@ public class WindmillStateReader {
     this.waiting = new ConcurrentHashMap<>();
     this.pendingLookups = new ConcurrentLinkedQueue<>();
     this.workItemIsFailed = workItemIsFailed;
+    this.accessHistory = accessHistory;
+    this.prefetchableTagsRead = ConcurrentHashMap.newKeySet();
+    this.prefetchedResponses = new ConcurrentHashMap<>();
   }
 
   @VisibleForTesting
@@ -149,11 +161,35 @@ public class WindmillStateReader {
       ByteString key,
       long shardingKey,
       long workToken) {
+    return forTesting(fetchStateFromWindmillFn, key, shardingKey, workToken, null);
+  }
+
+  @VisibleForTesting
+  static WindmillStateReader forTesting(
+      Function<KeyedGetDataRequest, Optional<KeyedGetDataResponse>> fetchStateFromWindmillFn,
+      ByteString key,
+      long shardingKey,
+      long workToken,
+      @Nullable StateAccessHistory accessHistory) {
     return new WindmillStateReader(
-        fetchStateFromWindmillFn, key, shardingKey, workToken, () -> null, () -> Boolean.FALSE);
+        fetchStateFromWindmillFn,
+        key,
+        shardingKey,
+        workToken,
+        () -> null,
+        () -> Boolean.FALSE,
+        accessHistory);
   }
 
   public static WindmillStateReader forWork(Work work) {
+    return forWork(work, null);
+  }
+
+  /**
+   * Returns a reader for {@code work}. If {@code accessHistory} is set, the state tags it predicts
+   * are fetched speculatively along with the first read of the work item.
+   */
+  public static WindmillStateReader forWork(Work work, @Nullable StateAccessHistory accessHistory) {
     return new WindmillStateReader(
         work::fetchKeyedState,
         work.getWorkItem().getKey(),
@@ -163,7 +199,8 @@ public class WindmillStateReader {
           work.setState(Work.State.READING);
           return () -> work.setState(Work.State.PROCESSING);
         },
-        work::isFailed);
+        work::isFailed,
+        accessHistory);
   }
 
   private <FutureT> Future<FutureT> stateFuture(StateTag<?> stateTag, @Nullable Coder<?> coder) {
@@ -171,8 +208,18 @@ public class WindmillStateReader {
     CoderAndFuture<?> existingCoderAndFutureWildcard =
         waiting.putIfAbsent(stateTag, coderAndFuture);
     if (existingCoderAndFutureWildcard == null) {
-      // Schedule a new request. Its response is guaranteed to find the future and coder.
-      pendingLookups.add(stateTag);
+      if (accessHistory != null && StateAccessHistory.isPrefetchable(stateTag)) {
+        prefetchableTagsRead.add(stateTag);
+      }
+      @Nullable Object prefetchedResponse = prefetchedResponses.remove(stateTag);
+      if (prefetchedResponse != null) {
+        // The response was already fetched speculatively, so no request is needed.
+        ++prefetchHits;
+        consumePrefetchedResponse(stateTag, prefetchedResponse);
+      } else {
+        // Schedule a new request. Its response is guaranteed to find the future and coder.
+        pendingLookups.add(stateTag);
+      }
     } else {
       // Piggy-back on the pending or already answered request.
       @SuppressWarnings("unchecked")
@@ -387,6 +434,24 @@ public class WindmillStateReader {
     return toFetch;
   }
 
+  /**
+   * Returns the tags predicted by the access history that are not already requested, the first
+   * time it is called for this work item.
+   */
+  private Set<StateTag<?>> takeSpeculativeFetchSet(Set<StateTag<?>> toFetch) {
+    if (accessHistory == null || prefetchIssued) {
+      return Collections.emptySet();
+    }
+    prefetchIssued = true;
+    HashSet<StateTag<?>> speculative = Sets.newHashSet();
+    for (StateTag<?> stateTag : accessHistory.predictedTags()) {
+      if (!toFetch.contains(stateTag) && !waiting.containsKey(stateTag)) {
+        speculative.add(stateTag);
+      }
+    }
+    return speculative;
+  }
+
   public void performReads() {
     while (true) {
       HashSet<StateTag<?>> toFetch = buildFetchSet();
@@ -394,9 +459,12 @@ public class WindmillStateReader {
         return;
       }
       try {
-        KeyedGetDataResponse response = tryGetDataFromWindmill(toFetch);
-        // Removes tags from toFetch as they are processed.
-        consumeResponse(response, toFetch);
+        Set<StateTag<?>> speculative = takeSpeculativeFetchSet(toFetch);
+        KeyedGetDataResponse response =
+            tryGetDataFromWindmill(
+                speculative.isEmpty() ? toFetch : Sets.union(toFetch, speculative));
+        // Removes tags from toFetch and speculative as they are processed.
+        consumeResponse(response, toFetch, speculative);
         if (!toFetch.isEmpty()) {
           throw new IllegalStateException(
               "Didn't receive responses for all pending fetches. Missing: " + toFetch);
@@ -418,7 +486,7 @@ public class WindmillStateReader {
     }
   }
 
-  private KeyedGetDataResponse tryGetDataFromWindmill(HashSet<StateTag<?>> stateTags)
+  private KeyedGetDataResponse tryGetDataFromWindmill(Set<StateTag<?>> stateTags)
       throws Exception {
     if (workItemIsFailed.get()) {
       throw new WorkItemCancelledException(shardingKey);
@@ -438,6 +506,23 @@ public class WindmillStateReader {
     return bytesRead;
   }
 
+  /** Returns the number of reads that were answered by a speculative fetch. */
+  public long getPrefetchHits() {
+    return prefetchHits;
+  }
+
+  /** Returns the number of speculatively fetched tags that have not been read. */
+  public long getUnusedPrefetches() {
+    return prefetchedResponses.size();
+  }
+
+  /** Records the tags read by this work item to the access history, if any. */
+  public void recordAccessHistory() {
+    if (accessHistory != null) {
+      accessHistory.recordWorkItem(prefetchableTagsRead);
+    }
+  }
+
   private KeyedGetDataRequest createRequest(Iterable<StateTag<?>> toFetch) {
     KeyedGetDataRequest.Builder keyedDataBuilder =
         KeyedGetDataRequest.newBuilder()
@@ -585,7 +670,25 @@ public class WindmillStateReader {
     return keyedDataBuilder.build();
   }
 
-  private void consumeResponse(KeyedGetDataResponse response, Set<StateTag<?>> toFetch) {
+  @SuppressWarnings("unchecked")
+  private void consumePrefetchedResponse(StateTag<?> stateTag, Object response) {
+    switch (stateTag.getKind()) {
+      case BAG:
+        consumeBag((TagBag) response, (StateTag<Long>) stateTag);
+        break;
+      case WATERMARK:
+        consumeWatermark((Windmill.WatermarkHold) response, (StateTag<Long>) stateTag);
+        break;
+      case VALUE:
+        consumeTagValue((TagValue) response, (StateTag<Long>) stateTag);
+        break;
+      default:
+        throw new IllegalStateException("Unexpected prefetched tag " + stateTag);
+    }
+  }
+
+  private void consumeResponse(
+      KeyedGetDataResponse response, Set<StateTag<?>> toFetch, Set<StateTag<?>> speculative) {
     bytesRead += response.getSerializedSize();
     if (response.getFailed()) {
       throw new KeyTokenInvalidException(key.toStringUtf8());
@@ -602,6 +705,10 @@ public class WindmillStateReader {
               bag.getTag(),
               bag.getStateFamily(),
               bag.hasRequestPosition() ? bag.getRequestPosition() : null);
+      if (speculative.remove(stateTag)) {
+        prefetchedResponses.put(stateTag, bag);
+        continue;
+      }
       if (!toFetch.remove(stateTag)) {
         throw new IllegalStateException(
             "Received response for unrequested tag " + stateTag + ". Pending tags: " + toFetch);
@@ -612,6 +719,10 @@ public class WindmillStateReader {
     for (Windmill.WatermarkHold hold : response.getWatermarkHoldsList()) {
       StateTag<Long> stateTag =
           StateTag.of(StateTag.Kind.WATERMARK, hold.getTag(), hold.getStateFamily());
+      if (speculative.remove(stateTag)) {
+        prefetchedResponses.put(stateTag, hold);
+        continue;
+      }
       if (!toFetch.remove(stateTag)) {
         throw new IllegalStateException(
             "Received response for unrequested tag " + stateTag + ". Pending tags: " + toFetch);
@@ -622,6 +733,10 @@ public class WindmillStateReader {
     for (Windmill.TagValue value : response.getValuesList()) {
       StateTag<Long> stateTag =
           StateTag.of(StateTag.Kind.VALUE, value.getTag(), value.getStateFamily());
+      if (speculative.remove(stateTag)) {
+        prefetchedResponses.put(stateTag, value);
+        continue;
+      }
       if (!toFetch.remove(stateTag)) {
         throw new IllegalStateException(
             "Received response for unrequested tag " + stateTag + ". Pending tags: " + toFetch);
@@ -31,6 +31,7 @@ import org.apache.beam.runners.dataflow.options.DataflowWorkerHarnessOptions;
 import org.apache.beam.runners.dataflow.worker.DataflowExecutionStateSampler;
 import org.apache.beam.runners.dataflow.worker.DataflowMapTaskExecutorFactory;
 import org.apache.beam.runners.dataflow.worker.HotKeyLogger;
+import org.apache.beam.runners.dataflow.worker.HotKeyTracker;
 import org.apache.beam.runners.dataflow.worker.ReaderCache;
 import org.apache.beam.runners.dataflow.worker.WorkItemCancelledException;
 import org.apache.beam.runners.dataflow.worker.logging.DataflowWorkerLoggingMDC;
@@ -74,6 +75,8 @@ import org.slf4j.LoggerFactory;
 public class StreamingWorkScheduler {
 
   private static final Logger LOG = LoggerFactory.getLogger(StreamingWorkScheduler.class);
+  // Experiment enabling speculative prefetch of the state tags that recent work items read.
+  private static final String STATE_PREFETCH_EXPERIMENT = "enable_streaming_state_prefetch";
 
   private final DataflowWorkerHarnessOptions options;
   private final Supplier<Instant> clock;
@@ -84,9 +87,11 @@ public class StreamingWorkScheduler {
   private final StreamingCommitFinalizer commitFinalizer;
   private final StreamingCounters streamingCounters;
   private final HotKeyLogger hotKeyLogger;
+  private final @Nullable HotKeyTracker hotKeyTracker;
   private final ConcurrentMap<String, StageInfo> stageInfoMap;
   private final DataflowExecutionStateSampler sampler;
   private final StreamingGlobalConfigHandle globalConfigHandle;
+  private final boolean statePrefetchEnabled;
 
   public StreamingWorkScheduler(
       DataflowWorkerHarnessOptions options,
@@ -98,6 +103,7 @@ public class StreamingWorkScheduler {
       StreamingCommitFinalizer commitFinalizer,
       StreamingCounters streamingCounters,
       HotKeyLogger hotKeyLogger,
+      @Nullable HotKeyTracker hotKeyTracker,
       ConcurrentMap<String, StageInfo> stageInfoMap,
       DataflowExecutionStateSampler sampler,
       StreamingGlobalConfigHandle globalConfigHandle) {
@@ -110,9 +116,11 @@ public class StreamingWorkScheduler {
     this.commitFinalizer = commitFinalizer;
     this.streamingCounters = streamingCounters;
     this.hotKeyLogger = hotKeyLogger;
+    this.hotKeyTracker = hotKeyTracker;
     this.stageInfoMap = stageInfoMap;
     this.sampler = sampler;
     this.globalConfigHandle = globalConfigHandle;
+    this.statePrefetchEnabled = hasExperiment(options, STATE_PREFETCH_EXPERIMENT);
   }
 
   public static StreamingWorkScheduler create(
@@ -130,6 +138,11 @@ public class StreamingWorkScheduler {
       IdGenerator idGenerator,
       StreamingGlobalConfigHandle globalConfigHandle,
       ConcurrentMap<String, StageInfo> stageInfoMap) {
+    @Nullable
+    HotKeyTracker hotKeyTracker =
+        hasExperiment(options, HotKeyTracker.ENABLE_HOT_KEY_PRECOMBINE_EXPERIMENT)
+            ? new HotKeyTracker()
+            : null;
     ComputationWorkExecutorFactory computationWorkExecutorFactory =
         new ComputationWorkExecutorFactory(
             options,
@@ -139,7 +152,8 @@ public class StreamingWorkScheduler {
             sampler,
             streamingCounters.pendingDeltaCounters(),
             idGenerator,
-            globalConfigHandle);
+            globalConfigHandle,
+            hotKeyTracker);
 
     return new StreamingWorkScheduler(
         options,
@@ -151,6 +165,7 @@ public class StreamingWorkScheduler {
         StreamingCommitFinalizer.create(workExecutor),
         streamingCounters,
         hotKeyLogger,
+        hotKeyTracker,
         stageInfoMap,
         sampler,
         globalConfigHandle);
@@ -356,6 +371,15 @@ public class StreamingWorkScheduler {
     streamingCounters.windmillShuffleBytesRead().addValue(computeShuffleBytesRead(workItem));
     streamingCounters.windmillStateBytesRead().addValue(executeWorkResult.stateBytesRead());
     streamingCounters.windmillStateBytesWritten().addValue(stateBytesWritten);
+    streamingCounters.windmillStatePrefetchHits().addValue(executeWorkResult.statePrefetchHits());
+    streamingCounters
+        .windmillStatePrefetchUnused()
+        .addValue(executeWorkResult.statePrefetchUnused());
+    if (hotKeyTracker != null) {
+      streamingCounters
+          .hotKeyPrecombineRetainedEntries()
+          .addValue(hotKeyTracker.getAndResetRetainedEntries());
+    }
   }
 
   private ExecuteWorkResult executeWork(
@@ -372,7 +396,10 @@ public class StreamingWorkScheduler {
                         stageInfo, computationState, work.getLatencyTrackingId()));
 
     try {
-      WindmillStateReader stateReader = work.createWindmillStateReader();
+      WindmillStateReader stateReader =
+          statePrefetchEnabled
+              ? work.createWindmillStateReader(computationState.getStateAccessHistory())
+              : work.createWindmillStateReader();
       SideInputStateFetcher localSideInputStateFetcher =
           sideInputStateFetcherFactory.createSideInputStateFetcher(work::fetchSideInput);
 
@@ -401,6 +428,9 @@ public class StreamingWorkScheduler {
         } else {
           hotKeyLogger.logHotKeyDetection(stepName, hotKeyAge);
         }
+        if (hotKeyTracker != null && hotKeyTracker.recordHotKey(key)) {
+          streamingCounters.hotKeysPrecombined().addValue(1L);
+        }
       }
 
       // Blocks while executing work.
@@ -422,6 +452,7 @@ public class StreamingWorkScheduler {
       }
 
       commitFinalizer.cacheCommitFinalizers(computationWorkExecutor.context().flushState());
+      stateReader.recordAccessHistory();
 
       // Release the execution state for another thread to use.
       computationState.releaseComputationWorkExecutor(computationWorkExecutor);
@@ -431,7 +462,10 @@ public class StreamingWorkScheduler {
       outputBuilder.addAllPerWorkItemLatencyAttributions(work.getLatencyAttributions(sampler));
 
       return ExecuteWorkResult.create(
-          outputBuilder, stateReader.getBytesRead() + localSideInputStateFetcher.getBytesRead());
+          outputBuilder,
+          stateReader.getBytesRead() + localSideInputStateFetcher.getBytesRead(),
+          stateReader.getPrefetchHits(),
+          stateReader.getUnusedPrefetches());
     } catch (Throwable t) {
       if (computationWorkExecutor != null) {
         // If processing failed due to a thrown exception, close the executionState. Do not
@@ -450,13 +484,20 @@ public class StreamingWorkScheduler {
   abstract static class ExecuteWorkResult {
 
     private static ExecuteWorkResult create(
-        Windmill.WorkItemCommitRequest.Builder commitWorkRequest, long stateBytesRead) {
+        Windmill.WorkItemCommitRequest.Builder commitWorkRequest,
+        long stateBytesRead,
+        long statePrefetchHits,
+        long statePrefetchUnused) {
       return new AutoValue_StreamingWorkScheduler_ExecuteWorkResult(
-          commitWorkRequest, stateBytesRead);
+          commitWorkRequest, stateBytesRead, statePrefetchHits, statePrefetchUnused);
     }
 
     abstract Windmill.WorkItemCommitRequest.Builder commitWorkRequest();
 
     abstract long stateBytesRead();
+
+    abstract long statePrefetchHits();
+
+    abstract long statePrefetchUnused();
   }
 }
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.dataflow.worker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import org.apache.beam.runners.core.NullSideInputReader;
+import org.apache.beam.runners.dataflow.worker.util.common.worker.ParDoFn;
+import org.apache.beam.sdk.coders.CoderRegistry;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.coders.VarLongCoder;
+import org.apache.beam.sdk.options.PipelineOptionsFactory;
+import org.apache.beam.sdk.options.SdkHarnessOptions;
+import org.apache.beam.sdk.options.StreamingOptions;
+import org.apache.beam.sdk.transforms.Sum;
+import org.apache.beam.sdk.util.AppliedCombineFn;
+import org.apache.beam.sdk.util.CoderUtils;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.WindowedValue;
+import org.apache.beam.sdk.values.WindowedValues;
+import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.ByteString;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Ticker;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ImmutableList;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class HotKeyTrackerTest {
+  private final AtomicLong nowNanos = new AtomicLong();
+  private final HotKeyTracker hotKeyTracker =
+      new HotKeyTracker(
+          new Ticker() {
+            @Override
+            public long read() {
+              return nowNanos.get();
+            }
+          });
+
+  @Test
+  public void testHotKeysExpire() {
+    ByteString key = ByteString.copyFromUtf8("key");
+    assertTrue(hotKeyTracker.isEmpty());
+
+    assertTrue(hotKeyTracker.recordHotKey(key));
+    assertFalse(hotKeyTracker.recordHotKey(key));
+    assertTrue(hotKeyTracker.isHotKey(key));
+    assertFalse(hotKeyTracker.isHotKey(ByteString.copyFromUtf8("other")));
+    assertEquals(ImmutableSet.of(key), hotKeyTracker.getHotKeys());
+
+    nowNanos.addAndGet(
+        TimeUnit.MILLISECONDS.toNanos(HotKeyTracker.HOT_KEY_EXPIRY.getMillis()) + 1);
+    assertFalse(hotKeyTracker.isHotKey(key));
+    assertTrue(hotKeyTracker.recordHotKey(key));
+  }
+
+  @Test
+  public void testHotKeyMatcherMatchesWindmillEncodedKeys() throws Exception {
+    PartialGroupByKeyParDoFns.HotKeyMatcher<String> matcher =
+        new PartialGroupByKeyParDoFns.HotKeyMatcher<>(hotKeyTracker, StringUtf8Coder.of());
+    assertFalse(matcher.get().test(WindowedValues.valueInGlobalWindow("hot")));
+
+    hotKeyTracker.recordHotKey(
+        ByteString.copyFrom(CoderUtils.encodeToByteArray(StringUtf8Coder.of(), "hot")));
+    Predicate<WindowedValue<String>> isHot = matcher.get();
+    assertTrue(isHot.test(WindowedValues.valueInGlobalWindow("hot")));
+    assertFalse(isHot.test(WindowedValues.valueInGlobalWindow("cold")));
+
+    assertEquals(1, hotKeyTracker.getAndResetRetainedEntries());
+    assertEquals(0, hotKeyTracker.getAndResetRetainedEntries());
+  }
+
+  /**
+   * The hot key is reported on a work item of the computation reading the shuffle, and picked up by
+   * the partial combine of the computation writing to it.
+   */
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testProducerPartialCombineRetainsKeyReportedHotByConsumer() throws Exception {
+    KvCoder<String, Long> kvCoder = KvCoder.of(StringUtf8Coder.of(), VarLongCoder.of());
+    // The consumer stage records the Windmill key of its work item.
+    hotKeyTracker.recordHotKey(
+        ByteString.copyFrom(CoderUtils.encodeToByteArray(StringUtf8Coder.of(), "hot")));
+
+    StreamingOptions options = PipelineOptionsFactory.as(StreamingOptions.class);
+    options.setStreaming(true);
+    options.as(SdkHarnessOptions.class).setGroupingTableMaxSizeMb(1);
+    // Partial combines output the accumulators, which are long[] for Sum.
+    List<WindowedValue<KV<String, long[]>>> outputs = new ArrayList<>();
+    ParDoFn pgbk =
+        PartialGroupByKeyParDoFns.create(
+            options,
+            kvCoder,
+            AppliedCombineFn.withInputCoder(Sum.ofLongs(), CoderRegistry.createDefault(), kvCoder),
+            NullSideInputReader.empty(),
+            output -> outputs.add((WindowedValue<KV<String, long[]>>) output),
+            null,
+            hotKeyTracker);
+
+    // The producer stage sees many more distinct keys than fit into its grouping table.
+    int coldKeys = 20_000;
+    pgbk.startBundle();
+    for (int i = 0; i < coldKeys; i++) {
+      pgbk.processElement(WindowedValues.valueInGlobalWindow(KV.of("hot", 2L)));
+      pgbk.processElement(WindowedValues.valueInGlobalWindow(KV.of("cold" + i, 1L)));
+    }
+    long flushedBeforeFinish = outputs.size();
+    pgbk.finishBundle();
+
+    assertTrue(flushedBeforeFinish > 0);
+    assertTrue(hotKeyTracker.getAndResetRetainedEntries() > 0);
+    List<Long> hotOutputs = new ArrayList<>();
+    long coldSum = 0;
+    for (WindowedValue<KV<String, long[]>> output : outputs) {
+      if (output.getValue().getKey().equals("hot")) {
+        hotOutputs.add(output.getValue().getValue()[0]);
+      } else {
+        coldSum += output.getValue().getValue()[0];
+      }
+    }
+    assertEquals(ImmutableList.of(2L * coldKeys), hotOutputs);
+    assertEquals(coldKeys, coldSum);
+  }
+}
@@ -137,7 +137,8 @@ public class StreamingModeExecutionContextTest {
             executionStateRegistry,
             globalConfigHandle,
             Long.MAX_VALUE,
-            /*throwExceptionOnLargeOutput=*/ false);
+            /*throwExceptionOnLargeOutput=*/ false,
+            /*hotKeyTracker=*/ null);
   }
 
   private static Work createMockWork(Windmill.WorkItem workItem, Watermarks watermarks) {
@@ -619,7 +619,8 @@ public class WorkerCustomSourcesTest {
             executionStateRegistry,
             globalConfigHandle,
             Long.MAX_VALUE,
-            /*throwExceptionOnLargeOutput=*/ false);
+            /*throwExceptionOnLargeOutput=*/ false,
+            /*hotKeyTracker=*/ null);
 
     options.setNumWorkers(5);
     int maxElements = 10;
@@ -990,7 +991,8 @@ public class WorkerCustomSourcesTest {
             executionStateRegistry,
             globalConfigHandle,
             Long.MAX_VALUE,
-            /*throwExceptionOnLargeOutput=*/ false);
+            /*throwExceptionOnLargeOutput=*/ false,
+            /*hotKeyTracker=*/ null);
 
     options.setNumWorkers(5);
     int maxElements = 100;
@@ -336,6 +336,68 @@ public class ActiveWorkStateTest {
     verify(computationStateCache).invalidate(shardedKey2.key(), shardedKey2.shardingKey());
   }
 
+  @Test
+  public void testInvalidateStuckCommits_ignoresQueuedWork() {
+    Map<ShardedKey, WorkId> invalidatedCommits = new HashMap<>();
+    ShardedKey shardedKey = shardedKey("someKey", 1L);
+
+    ExecutableWork activeWork = createWork(createWorkItem(1L, 1L, shardedKey));
+    ExecutableWork queuedWork = expiredWork(createWorkItem(2L, 2L, shardedKey));
+    queuedWork.work().setState(Work.State.COMMITTING);
+
+    activeWorkState.activateWorkForKey(activeWork);
+    activeWorkState.activateWorkForKey(queuedWork);
+
+    activeWorkState.invalidateStuckCommits(Instant.now(), invalidatedCommits::put);
+
+    assertThat(invalidatedCommits).isEmpty();
+  }
+
+  @Test
+  public void testGetRefreshableWork_includesWorkPassedToForTesting() {
+    ShardedKey shardedKey = shardedKey("someKey", 1L);
+    ExecutableWork expiredWork = expiredWork(createWorkItem(1L, 1L, shardedKey));
+    LinkedHashMap<WorkId, ExecutableWork> workQueue = new LinkedHashMap<>();
+    workQueue.put(expiredWork.id(), expiredWork);
+    Map<Long, LinkedHashMap<WorkId, ExecutableWork>> activeWork = new HashMap<>();
+    activeWork.put(shardedKey.shardingKey(), workQueue);
+
+    ActiveWorkState seededActiveWorkState =
+        ActiveWorkState.forTesting(activeWork, computationStateCache);
+
+    assertThat(seededActiveWorkState.getRefreshableWork(Instant.EPOCH.plus(1)))
+        .containsExactly(expiredWork.work());
+  }
+
+  @Test
+  public void testGetRefreshableWork_onlyReturnsWorkStartedBeforeDeadline() {
+    ShardedKey shardedKey1 = shardedKey("someKey", 1L);
+    ShardedKey shardedKey2 = shardedKey("anotherKey", 2L);
+    ShardedKey shardedKey3 = shardedKey("yetAnotherKey", 3L);
+
+    ExecutableWork expiredWork1 = expiredWork(createWorkItem(1L, 1L, shardedKey1));
+    ExecutableWork expiredQueuedWork1 = expiredWork(createWorkItem(2L, 2L, shardedKey1));
+    ExecutableWork failedExpiredWork = expiredWork(createWorkItem(3L, 1L, shardedKey2));
+    ExecutableWork recentWork = createWork(createWorkItem(4L, 1L, shardedKey3));
+
+    activeWorkState.activateWorkForKey(expiredWork1);
+    activeWorkState.activateWorkForKey(expiredQueuedWork1);
+    activeWorkState.activateWorkForKey(failedExpiredWork);
+    activeWorkState.activateWorkForKey(recentWork);
+    failedExpiredWork.work().setFailed();
+
+    Instant refreshDeadline = Instant.EPOCH.plus(1);
+    assertThat(activeWorkState.getRefreshableWork(refreshDeadline))
+        .containsExactly(expiredWork1.work(), expiredQueuedWork1.work());
+
+    activeWorkState.completeWorkAndGetNextWorkForKey(shardedKey1, expiredWork1.id());
+    assertThat(activeWorkState.getRefreshableWork(refreshDeadline))
+        .containsExactly(expiredQueuedWork1.work());
+
+    assertThat(activeWorkState.getRefreshableWork(Instant.now().plus(1)))
+        .containsExactly(expiredQueuedWork1.work(), recentWork.work());
+  }
+
   @Test
   public void
       testActivateWorkForKey_withMatchingWorkTokenAndDifferentCacheToken_queuedWorkIsNotActive_QUEUED() {
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.dataflow.worker.streaming.sideinput;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.emptyIterable;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+import org.apache.beam.sdk.coders.IterableCoder;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.NullableCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.coders.VarIntCoder;
+import org.apache.beam.sdk.util.ByteStringOutputStream;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.ByteString;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.FluentIterable;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class EncodedMultimapSideInputViewTest {
+  private static final KvCoder<String, Integer> KV_CODER =
+      KvCoder.of(NullableCoder.of(StringUtf8Coder.of()), VarIntCoder.of());
+
+  private static final List<KV<String, Integer>> ELEMENTS =
+      Arrays.asList(
+          KV.of("b", 1),
+          KV.of("a", 2),
+          KV.of("bb", 3),
+          KV.of("b", 4),
+          KV.of(null, 5),
+          KV.of("a", 6),
+          KV.of("b", 7));
+
+  private static ByteString encode(Iterable<KV<String, Integer>> elements) throws Exception {
+    ByteStringOutputStream stream = new ByteStringOutputStream();
+    IterableCoder.of(KV_CODER).encode(elements, stream);
+    return stream.toByteString();
+  }
+
+  private static EncodedMultimapSideInputView<String, Integer> create(ByteString encoded)
+      throws Exception {
+    return EncodedMultimapSideInputView.create(
+        KV_CODER.getKeyCoder(), KV_CODER.getValueCoder(), encoded);
+  }
+
+  @Test
+  public void testLookupsPreserveValueOrder() throws Exception {
+    EncodedMultimapSideInputView<String, Integer> view = create(encode(ELEMENTS));
+
+    assertThat(view.get("a"), contains(2, 6));
+    assertThat(view.get("b"), contains(1, 4, 7));
+    assertThat(view.get("bb"), contains(3));
+    assertThat(view.get(null), contains(5));
+    assertThat(view.get("c"), emptyIterable());
+    assertThat(view.get(), containsInAnyOrder("a", "b", "bb", null));
+  }
+
+  @Test
+  public void testBlockEncodedIterable() throws Exception {
+    // A non-Collection iterable is encoded in blocks without a leading element count.
+    EncodedMultimapSideInputView<String, Integer> view =
+        create(encode(FluentIterable.from(ELEMENTS)));
+
+    assertThat(view.get("b"), contains(1, 4, 7));
+    assertThat(view.get(), containsInAnyOrder("a", "b", "bb", null));
+  }
+
+  @Test
+  public void testEmptyPayload() throws Exception {
+    EncodedMultimapSideInputView<String, Integer> view = create(ByteString.EMPTY);
+
+    assertThat(view.get(), emptyIterable());
+    assertThat(view.get("a"), emptyIterable());
+    assertEquals(0, view.getWeight());
+  }
+
+  @Test
+  public void testWeightIncludesPayloadAndIndex() throws Exception {
+    ByteString encoded = encode(ELEMENTS);
+    EncodedMultimapSideInputView<String, Integer> view = create(encoded);
+
+    assertEquals(encoded.size() + ELEMENTS.size() * 3 * Integer.BYTES, view.getWeight());
+  }
+}
@@ -351,6 +351,55 @@ public class BoundedQueueExecutorTest {
     executor.shutdown();
   }
 
+  @Test
+  public void testForceExecuteIgnoresLimits() throws Exception {
+    CountDownLatch processStart1 = new CountDownLatch(1);
+    CountDownLatch processStart2 = new CountDownLatch(1);
+    CountDownLatch stop = new CountDownLatch(1);
+    Runnable m1 = createSleepProcessWorkFn(processStart1, stop);
+    Runnable m2 = createSleepProcessWorkFn(processStart2, stop);
+
+    executor.execute(m1, MAXIMUM_BYTES_OUTSTANDING);
+    processStart1.await();
+    // The byte budget is exhausted but forced work is still admitted.
+    executor.forceExecute(m2, MAXIMUM_BYTES_OUTSTANDING);
+    processStart2.await();
+    assertEquals(2, executor.elementsOutstanding());
+    assertEquals(2 * MAXIMUM_BYTES_OUTSTANDING, executor.bytesOutstanding());
+
+    stop.countDown();
+    executor.shutdown();
+    assertEquals(0, executor.elementsOutstanding());
+    assertEquals(0L, executor.bytesOutstanding());
+  }
+
+  @Test
+  public void testConcurrentExecuteReleasesAllBudget() throws Exception {
+    int numProducers = 4;
+    int workPerProducer = 1000;
+    CountDownLatch done = new CountDownLatch(numProducers * workPerProducer);
+    Thread[] producers = new Thread[numProducers];
+    for (int i = 0; i < numProducers; ++i) {
+      producers[i] =
+          new Thread(
+              () -> {
+                for (int j = 0; j < workPerProducer; ++j) {
+                  // Each item takes a third of the byte budget so producers regularly wait.
+                  executor.execute(done::countDown, MAXIMUM_BYTES_OUTSTANDING / 3);
+                }
+              });
+      producers[i].start();
+    }
+    for (Thread producer : producers) {
+      producer.join();
+    }
+    done.await();
+    executor.shutdown();
+
+    assertEquals(0, executor.elementsOutstanding());
+    assertEquals(0L, executor.bytesOutstanding());
+  }
+
   @Test
   public void testRenderSummaryHtml() {
     String expectedSummaryHtml =
@@ -22,6 +22,7 @@ import static org.hamcrest.Matchers.anyOf;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.in;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertEquals;
 
@@ -87,38 +88,7 @@ public class GroupingTablesTest {
 
   @Test
   public void testCombiningGroupingTable() throws Exception {
-    Combiner<Object, Integer, Long, Long> summingCombineFn =
-        new Combiner<Object, Integer, Long, Long>() {
-
-          @Override
-          public Long createAccumulator(Object key) {
-            return 0L;
-          }
-
-          @Override
-          public Long add(Object key, Long accumulator, Integer value) {
-            return accumulator + value;
-          }
-
-          @Override
-          public Long merge(Object key, Iterable<Long> accumulators) {
-            long sum = 0;
-            for (Long part : accumulators) {
-              sum += part;
-            }
-            return sum;
-          }
-
-          @Override
-          public Long compact(Object key, Long accumulator) {
-            return accumulator;
-          }
-
-          @Override
-          public Long extract(Object key, Long accumulator) {
-            return accumulator;
-          }
-        };
+    Combiner<Object, Integer, Long, Long> summingCombineFn = summingCombineFn();
 
     GroupingTableBase<String, Integer, Long> table =
         (GroupingTableBase<String, Integer, Long>)
@@ -154,6 +124,45 @@ public class GroupingTablesTest {
             KV.of("A", 1L), KV.of("B", 2L + 3), KV.of("C", 5000L + 4), KV.of("DDDD", 6L)));
   }
 
+  @Test
+  public void testCombiningGroupingTableRetainsHotKeysWhenFull() throws Exception {
+    GroupingTableBase<String, Integer, Long> table =
+        (GroupingTableBase<String, Integer, Long>)
+            GroupingTables.combining(
+                new IdentityGroupingKeyCreator(),
+                new KvPairInfo(),
+                summingCombineFn(),
+                new StringPowerSizeEstimator(),
+                new IdentitySizeEstimator());
+    table.setMaxSize(1000);
+    table.setRetainWhenFull(() -> "H"::equals);
+
+    TestOutputReceiver receiver =
+        new TestOutputReceiver(
+            KvCoder.of(StringUtf8Coder.of(), BigEndianLongCoder.of()),
+            NameContextsForTests.nameContextForTest());
+
+    // A skewed input: every other element has the hot key, and the table only fits a few keys.
+    for (int i = 0; i < 20; i++) {
+      table.put("H", 2, receiver);
+      table.put("c" + (i % 10), 1, receiver);
+    }
+    // Cold keys were flushed to make room, but the hot key kept aggregating.
+    assertThat(receiver.outputElems, not(empty()));
+    for (Object output : receiver.outputElems) {
+      assertThat(((KV<?, ?>) output).getKey(), not(is("H")));
+    }
+
+    table.flush(receiver);
+    // All values of the hot key were folded into a single output.
+    assertThat(receiver.outputElems, hasItem((Object) KV.of("H", 40L)));
+    long hotOutputs =
+        receiver.outputElems.stream()
+            .filter(output -> ((KV<?, ?>) output).getKey().equals("H"))
+            .count();
+    assertEquals(1, hotOutputs);
+  }
+
   ////////////////////////////////////////////////////////////////////////////
   // Tests for the sampling size estimator.
 
@@ -335,4 +344,38 @@ public class GroupingTablesTest {
       return KV.of(key, value);
     }
   }
+
+  private static Combiner<Object, Integer, Long, Long> summingCombineFn() {
+    return new Combiner<Object, Integer, Long, Long>() {
+
+      @Override
+      public Long createAccumulator(Object key) {
+        return 0L;
+      }
+
+      @Override
+      public Long add(Object key, Long accumulator, Integer value) {
+        return accumulator + value;
+      }
+
+      @Override
+      public Long merge(Object key, Iterable<Long> accumulators) {
+        long sum = 0;
+        for (Long part : accumulators) {
+          sum += part;
+        }
+        return sum;
+      }
+
+      @Override
+      public Long compact(Object key, Long accumulator) {
+        return accumulator;
+      }
+
+      @Override
+      public Long extract(Object key, Long accumulator) {
+        return accumulator;
+      }
+    };
+  }
 }
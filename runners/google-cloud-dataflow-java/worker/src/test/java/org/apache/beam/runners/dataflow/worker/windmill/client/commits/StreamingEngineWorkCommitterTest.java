@@ -25,6 +25,8 @@ import static org.mockito.Mockito.mock;
 
 import com.google.api.services.dataflow.model.MapTask;
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -474,4 +476,35 @@ public class StreamingEngineWorkCommitterTest {
 
     waitForExpectedSetSize(completeCommits, sentCommits.intValue());
   }
+
+  @Test
+  public void testCommit_shrinksBatchWaitWhenNoCommitsArrive() {
+    Set<CompleteCommit> completeCommits = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    StreamingEngineWorkCommitter committer =
+        (StreamingEngineWorkCommitter) createWorkCommitter(completeCommits::add);
+    workCommitter = committer;
+    int initialBatchWaitMillis = committer.currentBatchWaitMillis();
+    workCommitter.start();
+
+    for (int i = 1; i <= 3; i++) {
+      Work work = createMockWork(i);
+      WorkItemCommitRequest commitRequest =
+          WorkItemCommitRequest.newBuilder()
+              .setKey(work.getWorkItem().getKey())
+              .setShardingKey(work.getWorkItem().getShardingKey())
+              .setWorkToken(work.getWorkItem().getWorkToken())
+              .setCacheToken(work.getWorkItem().getCacheToken())
+              .build();
+      workCommitter.commit(
+          Commit.create(commitRequest, createComputationState("computationId"), work));
+      // Each commit is sent alone, so waiting for more commits to batch with it is wasted.
+      waitForExpectedSetSize(completeCommits, i);
+    }
+
+    assertThat(committer.currentBatchWaitMillis()).isLessThan(initialBatchWaitMillis);
+    StringWriter status = new StringWriter();
+    committer.printHtml(new PrintWriter(status));
+    assertThat(status.toString()).contains("Total number of commit batches");
+    workCommitter.stop();
+  }
 }
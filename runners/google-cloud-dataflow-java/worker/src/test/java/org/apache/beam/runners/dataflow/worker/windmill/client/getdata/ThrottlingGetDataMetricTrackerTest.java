@@ -28,6 +28,7 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.beam.runners.dataflow.worker.util.MemoryMonitor;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -262,6 +263,43 @@ public class ThrottlingGetDataMetricTrackerTest {
     assertThat(metricsAfterProcessing.activeHeartbeats()).isEqualTo(0);
   }
 
+  @Test
+  public void testTracksQueueingAndFetchLatencyPerFetchKind() throws Exception {
+    AtomicLong nanos = new AtomicLong();
+    doAnswer(
+            invocationOnMock -> {
+              // Throttled for 5ms.
+              nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(5));
+              return null;
+            })
+        .when(memoryMonitor)
+        .waitForResources(anyString());
+    ThrottlingGetDataMetricTracker tracker =
+        new ThrottlingGetDataMetricTracker(memoryMonitor, nanos::get);
+
+    try (AutoCloseable ignored = tracker.trackStateDataFetchWithThrottling()) {
+      nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(10));
+    }
+    try (AutoCloseable ignored = tracker.trackStateDataFetchWithThrottling()) {
+      nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(20));
+    }
+    try (AutoCloseable ignored = tracker.trackSideInputFetchWithThrottling()) {
+      nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    ThrottlingGetDataMetricTracker.FetchLatencies stateReads = tracker.stateReadLatencies();
+    assertThat(stateReads.count()).isEqualTo(2);
+    assertThat(stateReads.totalQueuedMillis()).isEqualTo(10);
+    assertThat(stateReads.totalFetchMillis()).isEqualTo(30);
+    assertThat(stateReads.maxFetchMillis()).isEqualTo(20);
+
+    ThrottlingGetDataMetricTracker.FetchLatencies sideInputs = tracker.sideInputLatencies();
+    assertThat(sideInputs.count()).isEqualTo(1);
+    assertThat(sideInputs.totalQueuedMillis()).isEqualTo(5);
+    assertThat(sideInputs.totalFetchMillis()).isEqualTo(100);
+    assertThat(sideInputs.maxFetchMillis()).isEqualTo(100);
+  }
+
   /** Have the memory monitor block when waitForResources is called simulating memory pressure. */
   private CountDownLatch simulateMemoryPressure() {
     CountDownLatch mockThrottler = new CountDownLatch(1);
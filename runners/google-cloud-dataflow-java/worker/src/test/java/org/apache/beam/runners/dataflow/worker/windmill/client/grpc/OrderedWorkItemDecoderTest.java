@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.dataflow.worker.windmill.client.grpc;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import org.apache.beam.runners.dataflow.worker.windmill.Windmill;
+import org.apache.beam.runners.dataflow.worker.windmill.Windmill.ComputationWorkItemMetadata;
+import org.apache.beam.runners.dataflow.worker.windmill.Windmill.StreamingGetWorkResponseChunk;
+import org.apache.beam.runners.dataflow.worker.windmill.client.grpc.GetWorkResponseChunkAssembler.SerializedWorkItem;
+import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.ByteString;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class OrderedWorkItemDecoderTest {
+
+  private static Windmill.WorkItem workItem(long workToken) {
+    return Windmill.WorkItem.newBuilder()
+        .setKey(ByteString.copyFromUtf8("key"))
+        .setShardingKey(1L)
+        .setWorkToken(workToken)
+        .setCacheToken(1L)
+        .build();
+  }
+
+  private static List<SerializedWorkItem> serializedWorkItems(long... workTokens) {
+    StreamingGetWorkResponseChunk.Builder chunk =
+        StreamingGetWorkResponseChunk.newBuilder()
+            .setStreamId(1L)
+            .setComputationMetadata(
+                ComputationWorkItemMetadata.newBuilder()
+                    .setComputationId("computation")
+                    .setInputDataWatermark(1L)
+                    .setDependentRealtimeInputWatermark(1L));
+    for (long workToken : workTokens) {
+      chunk.addSerializedWorkItem(workItem(workToken).toByteString());
+    }
+    return new GetWorkResponseChunkAssembler().appendSerialized(chunk.build());
+  }
+
+  /** Records tasks so the test can run them in an arbitrary order. */
+  private static class ManualExecutor implements Executor {
+    private final List<Runnable> tasks = new ArrayList<>();
+
+    @Override
+    public void execute(Runnable task) {
+      tasks.add(task);
+    }
+  }
+
+  @Test
+  public void testDeliversInSubmissionOrderWhenDecodedOutOfOrder() {
+    ManualExecutor executor = new ManualExecutor();
+    List<Long> delivered = new ArrayList<>();
+    OrderedWorkItemDecoder decoder =
+        OrderedWorkItemDecoder.create(
+            executor, assembled -> delivered.add(assembled.workItem().getWorkToken()));
+
+    serializedWorkItems(1L, 2L, 3L).forEach(decoder::submit);
+    assertThat(executor.tasks).hasSize(3);
+
+    // Decoding the later items first must not deliver them ahead of the first item.
+    executor.tasks.get(2).run();
+    executor.tasks.get(1).run();
+    assertThat(delivered).isEmpty();
+
+    executor.tasks.get(0).run();
+    assertThat(delivered).containsExactly(1L, 2L, 3L).inOrder();
+  }
+
+  @Test
+  public void testSkipsUnparseableWorkItems() {
+    ManualExecutor executor = new ManualExecutor();
+    List<Long> delivered = new ArrayList<>();
+    OrderedWorkItemDecoder decoder =
+        OrderedWorkItemDecoder.create(
+            executor, assembled -> delivered.add(assembled.workItem().getWorkToken()));
+
+    List<SerializedWorkItem> workItems = new ArrayList<>(serializedWorkItems(1L));
+    StreamingGetWorkResponseChunk invalidChunk =
+        StreamingGetWorkResponseChunk.newBuilder()
+            .setStreamId(1L)
+            .setComputationMetadata(
+                ComputationWorkItemMetadata.newBuilder().setComputationId("computation"))
+            .addSerializedWorkItem(ByteString.copyFrom(new byte[] {(byte) 0xff}))
+            .build();
+    workItems.addAll(new GetWorkResponseChunkAssembler().appendSerialized(invalidChunk));
+    workItems.addAll(serializedWorkItems(3L));
+    workItems.forEach(decoder::submit);
+
+    Collections.reverse(executor.tasks);
+    executor.tasks.forEach(Runnable::run);
+
+    assertThat(delivered).containsExactly(1L, 3L).inOrder();
+  }
+
+  @Test
+  public void testDecodesInlineWhenExecutorRejects() {
+    List<Long> delivered = new ArrayList<>();
+    OrderedWorkItemDecoder decoder =
+        OrderedWorkItemDecoder.create(
+            task -> {
+              throw new RejectedExecutionException();
+            },
+            assembled -> delivered.add(assembled.workItem().getWorkToken()));
+
+    serializedWorkItems(1L, 2L).forEach(decoder::submit);
+
+    assertThat(delivered).containsExactly(1L, 2L).inOrder();
+  }
+}
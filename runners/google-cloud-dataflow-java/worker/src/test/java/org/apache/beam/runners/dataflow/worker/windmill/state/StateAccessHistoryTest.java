@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.dataflow.worker.windmill.state;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.ByteString;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class StateAccessHistoryTest {
+  private static final String STATE_FAMILY = "family";
+  private static final StateTag<Long> HOT_VALUE =
+      StateTag.of(StateTag.Kind.VALUE, ByteString.copyFromUtf8("hot"), STATE_FAMILY);
+  private static final StateTag<Long> HOT_BAG =
+      StateTag.of(StateTag.Kind.BAG, ByteString.copyFromUtf8("hot"), STATE_FAMILY);
+  private static final StateTag<Long> COLD_VALUE =
+      StateTag.of(StateTag.Kind.VALUE, ByteString.copyFromUtf8("cold"), STATE_FAMILY);
+
+  @Test
+  public void testPredictsTagsReadByMostWorkItems() {
+    StateAccessHistory history = new StateAccessHistory();
+    for (int i = 0; i < StateAccessHistory.WORK_ITEMS_PER_GENERATION; i++) {
+      assertTrue(history.predictedTags().isEmpty());
+      history.recordWorkItem(
+          i % 2 == 0
+              ? ImmutableSet.of(HOT_VALUE, HOT_BAG, COLD_VALUE)
+              : ImmutableSet.of(HOT_VALUE, HOT_BAG));
+    }
+    assertEquals(ImmutableSet.of(HOT_VALUE, HOT_BAG), history.predictedTags());
+
+    // Predictions are replaced by the next generation.
+    for (int i = 0; i < StateAccessHistory.WORK_ITEMS_PER_GENERATION; i++) {
+      history.recordWorkItem(ImmutableSet.of(HOT_BAG));
+    }
+    assertEquals(ImmutableSet.of(HOT_BAG), history.predictedTags());
+  }
+
+  @Test
+  public void testIsPrefetchable() {
+    assertTrue(StateAccessHistory.isPrefetchable(HOT_VALUE));
+    assertTrue(StateAccessHistory.isPrefetchable(HOT_BAG));
+    assertTrue(
+        StateAccessHistory.isPrefetchable(
+            StateTag.of(StateTag.Kind.WATERMARK, ByteString.copyFromUtf8("hold"), STATE_FAMILY)));
+    assertFalse(
+        StateAccessHistory.isPrefetchable(
+            StateTag.of(StateTag.Kind.BAG, ByteString.copyFromUtf8("hot"), STATE_FAMILY, 5L)));
+    assertFalse(
+        StateAccessHistory.isPrefetchable(
+            StateTag.of(StateTag.Kind.MULTIMAP_ALL, ByteString.copyFromUtf8("map"), STATE_FAMILY)));
+  }
+}
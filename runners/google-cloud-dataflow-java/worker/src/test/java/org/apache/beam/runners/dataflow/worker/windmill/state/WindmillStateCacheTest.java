@@ -18,6 +18,7 @@
 package org.apache.beam.runners.dataflow.worker.windmill.state;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 
 import java.io.Closeable;
@@ -321,6 +322,102 @@ public class WindmillStateCacheTest {
         Optional.empty(), getFromCache(keyCache, triggerNamespace(0, 0), new TestStateTag("tag3")));
   }
 
+  /** Verifies that a computation over its share of a full cache does not evict others. */
+  @Test
+  public void testComputationQuota() throws Exception {
+    cache = WindmillStateCache.builder().setSizeMb(1).build();
+    String hotComputation = "hot";
+    String coldComputation = "cold";
+
+    // Fill the cache with the state of many keys of a single computation. Without other
+    // computations needing space the hot computation may use the whole cache.
+    for (int i = 0; i < 10000; ++i) {
+      WindmillStateCache.ForKeyAndFamily hotCache =
+          cache
+              .forComputation(hotComputation)
+              .forKey(computationKey(hotComputation, "key" + i, i), 0L, 1L)
+              .forFamily(STATE_FAMILY);
+      putInCache(hotCache, windowNamespace(0), new TestStateTag("tag"), new TestState("h"), 100);
+      hotCache.persist();
+    }
+    assertEquals(cache.getWeight(), cache.getComputationWeight(hotComputation));
+    assertTrue(cache.getWeight() > MEGABYTES * 9 / 10);
+
+    // The cold computation caches its state, after which the hot computation exceeds its share.
+    WindmillStateCache.ForKeyAndFamily coldCache =
+        cache
+            .forComputation(coldComputation)
+            .forKey(computationKey(coldComputation, "key", SHARDING_KEY), 0L, 1L)
+            .forFamily(STATE_FAMILY);
+    putInCache(coldCache, windowNamespace(0), new TestStateTag("tag"), new TestState("c"), 100);
+    coldCache.persist();
+
+    // New state of the hot computation is cached and only evicts its own older state.
+    WindmillStateCache.ForKeyAndFamily hotCache =
+        cache
+            .forComputation(hotComputation)
+            .forKey(computationKey(hotComputation, "newKey", SHARDING_KEY), 0L, 1L)
+            .forFamily(STATE_FAMILY);
+    putInCache(hotCache, windowNamespace(0), new TestStateTag("tag"), new TestState("h2"), 100);
+    hotCache.persist();
+    assertTrue(cache.getComputationWeight(hotComputation) <= MEGABYTES / 2);
+    assertTrue(cache.getWeight() <= MEGABYTES * 9 / 10);
+    assertEquals(
+        cache.getWeight(),
+        cache.getComputationWeight(hotComputation) + cache.getComputationWeight(coldComputation));
+
+    hotCache =
+        cache
+            .forComputation(hotComputation)
+            .forKey(computationKey(hotComputation, "newKey", SHARDING_KEY), 0L, 2L)
+            .forFamily(STATE_FAMILY);
+    assertEquals(
+        Optional.of(new TestState("h2")),
+        getFromCache(hotCache, windowNamespace(0), new TestStateTag("tag")));
+    hotCache =
+        cache
+            .forComputation(hotComputation)
+            .forKey(computationKey(hotComputation, "key9999", 9999), 0L, 2L)
+            .forFamily(STATE_FAMILY);
+    assertEquals(
+        Optional.of(new TestState("h")),
+        getFromCache(hotCache, windowNamespace(0), new TestStateTag("tag")));
+    hotCache =
+        cache
+            .forComputation(hotComputation)
+            .forKey(computationKey(hotComputation, "key0", 0), 0L, 2L)
+            .forFamily(STATE_FAMILY);
+    assertEquals(
+        Optional.empty(), getFromCache(hotCache, windowNamespace(0), new TestStateTag("tag")));
+    coldCache =
+        cache
+            .forComputation(coldComputation)
+            .forKey(computationKey(coldComputation, "key", SHARDING_KEY), 0L, 2L)
+            .forFamily(STATE_FAMILY);
+    assertEquals(
+        Optional.of(new TestState("c")),
+        getFromCache(coldCache, windowNamespace(0), new TestStateTag("tag")));
+  }
+
+  /** Verifies that the usage of a computation is released when its state is evicted. */
+  @Test
+  public void testComputationUsageIsReleased() throws Exception {
+    cache = WindmillStateCache.builder().setSizeMb(1).build();
+    WindmillStateCache.ForKeyAndFamily keyCache =
+        cache
+            .forComputation("gone")
+            .forKey(computationKey("gone", "key", SHARDING_KEY), 0L, 1L)
+            .forFamily(STATE_FAMILY);
+    // Larger than a stripe of the cache, so it is evicted as soon as it is inserted.
+    putInCache(
+        keyCache, windowNamespace(0), new TestStateTag("tag"), new TestState("g"), MEGABYTES);
+    keyCache.persist();
+
+    assertEquals(0, cache.getWeight());
+    assertEquals(0, cache.getComputationWeight("gone"));
+    assertEquals(1, cache.getCacheStats().evictionCount());
+  }
+
   /** Verifies that the cache does not vend for stale work tokens. */
   @Test
   public void testStaleWorkItem() throws Exception {
@@ -80,6 +80,7 @@ import org.apache.beam.sdk.transforms.Sum;
 import org.apache.beam.sdk.transforms.windowing.TimestampCombiner;
 import org.apache.beam.sdk.util.ByteStringOutputStream;
 import org.apache.beam.sdk.util.CoderUtils;
+import org.apache.beam.sdk.util.WeightedValue;
 import org.apache.beam.sdk.values.TimestampedValue;
 import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.ByteString;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Supplier;
@@ -335,14 +336,16 @@ public class WindmillStateInternalsTest {
     MapState<String, Integer> mapState = underTest.state(NAMESPACE, addr);
 
     final String tag = "tag";
-    SettableFuture<Integer> future = SettableFuture.create();
+    SettableFuture<WeightedValue<Integer>> future = SettableFuture.create();
     when(mockReader.valueFuture(
-            protoKeyFromUserKey(tag, StringUtf8Coder.of()), STATE_FAMILY, VarIntCoder.of()))
+            protoKeyFromUserKey(tag, StringUtf8Coder.of()),
+            STATE_FAMILY,
+            WindmillMap.WeighingValueCoder.of(VarIntCoder.of())))
         .thenReturn(future);
 
     ReadableState<Integer> result = mapState.get("tag");
     result = result.readLater();
-    waitAndSet(future, 1, 200);
+    waitAndSet(future, WeightedValue.of(1, 1L), 200);
     assertEquals(1, (int) result.read());
     mapState.put("tag", 2);
     assertEquals(2, (int) result.read());
@@ -385,16 +388,18 @@ public class WindmillStateInternalsTest {
 
     final String tag = "tag";
 
-    SettableFuture<Integer> future = SettableFuture.create();
+    SettableFuture<WeightedValue<Integer>> future = SettableFuture.create();
     when(mockReader.valueFuture(
-            protoKeyFromUserKey(tag, StringUtf8Coder.of()), STATE_FAMILY, VarIntCoder.of()))
+            protoKeyFromUserKey(tag, StringUtf8Coder.of()),
+            STATE_FAMILY,
+            WindmillMap.WeighingValueCoder.of(VarIntCoder.of())))
         .thenReturn(future);
     SettableFuture<Iterable<Map.Entry<ByteString, Integer>>> prefixFuture = SettableFuture.create();
     when(mockReader.valuePrefixFuture(
             protoKeyFromUserKey(null, StringUtf8Coder.of()), STATE_FAMILY, VarIntCoder.of()))
         .thenReturn(prefixFuture);
 
-    waitAndSet(future, 1, 50);
+    waitAndSet(future, WeightedValue.of(1, 1L), 50);
     waitAndSet(
         prefixFuture,
         ImmutableList.of(
@@ -416,16 +421,18 @@ public class WindmillStateInternalsTest {
     final String tag1 = "tag1";
     final String tag2 = "tag2";
 
-    SettableFuture<Integer> future = SettableFuture.create();
+    SettableFuture<WeightedValue<Integer>> future = SettableFuture.create();
     when(mockReader.valueFuture(
-            protoKeyFromUserKey(tag1, StringUtf8Coder.of()), STATE_FAMILY, VarIntCoder.of()))
+            protoKeyFromUserKey(tag1, StringUtf8Coder.of()),
+            STATE_FAMILY,
+            WindmillMap.WeighingValueCoder.of(VarIntCoder.of())))
         .thenReturn(future);
     SettableFuture<Iterable<Map.Entry<ByteString, Integer>>> prefixFuture = SettableFuture.create();
     when(mockReader.valuePrefixFuture(
             protoKeyFromUserKey(null, StringUtf8Coder.of()), STATE_FAMILY, VarIntCoder.of()))
         .thenReturn(prefixFuture);
 
-    waitAndSet(future, 1, 50);
+    waitAndSet(future, WeightedValue.of(1, 1L), 50);
     waitAndSet(
         prefixFuture,
         ImmutableList.of(
@@ -451,22 +458,26 @@ public class WindmillStateInternalsTest {
     final String tag1 = "tag1";
     final String tag2 = "tag2";
 
-    SettableFuture<Integer> future1 = SettableFuture.create();
-    SettableFuture<Integer> future2 = SettableFuture.create();
+    SettableFuture<WeightedValue<Integer>> future1 = SettableFuture.create();
+    SettableFuture<WeightedValue<Integer>> future2 = SettableFuture.create();
 
     when(mockReader.valueFuture(
-            protoKeyFromUserKey(tag1, StringUtf8Coder.of()), STATE_FAMILY, VarIntCoder.of()))
+            protoKeyFromUserKey(tag1, StringUtf8Coder.of()),
+            STATE_FAMILY,
+            WindmillMap.WeighingValueCoder.of(VarIntCoder.of())))
         .thenReturn(future1);
     when(mockReader.valueFuture(
-            protoKeyFromUserKey(tag2, StringUtf8Coder.of()), STATE_FAMILY, VarIntCoder.of()))
+            protoKeyFromUserKey(tag2, StringUtf8Coder.of()),
+            STATE_FAMILY,
+            WindmillMap.WeighingValueCoder.of(VarIntCoder.of())))
         .thenReturn(future2);
     SettableFuture<Iterable<Map.Entry<ByteString, Integer>>> prefixFuture = SettableFuture.create();
     when(mockReader.valuePrefixFuture(
             protoKeyFromUserKey(null, StringUtf8Coder.of()), STATE_FAMILY, VarIntCoder.of()))
         .thenReturn(prefixFuture);
 
-    waitAndSet(future1, 1, 50);
-    waitAndSet(future2, 2, 50);
+    waitAndSet(future1, WeightedValue.of(1, 1L), 50);
+    waitAndSet(future2, WeightedValue.of(2, 1L), 50);
     waitAndSet(
         prefixFuture,
         ImmutableList.of(
@@ -525,9 +536,11 @@ public class WindmillStateInternalsTest {
     MapState<String, Integer> mapState = underTest.state(NAMESPACE, addr);
 
     final String tag1 = "tag1";
-    SettableFuture<Integer> future = SettableFuture.create();
+    SettableFuture<WeightedValue<Integer>> future = SettableFuture.create();
     when(mockReader.valueFuture(
-            protoKeyFromUserKey(tag1, StringUtf8Coder.of()), STATE_FAMILY, VarIntCoder.of()))
+            protoKeyFromUserKey(tag1, StringUtf8Coder.of()),
+            STATE_FAMILY,
+            WindmillMap.WeighingValueCoder.of(VarIntCoder.of())))
         .thenReturn(future);
     waitAndSet(future, null, 50);
 
@@ -547,11 +560,13 @@ public class WindmillStateInternalsTest {
     assertEquals(1, (int) mapState.get(tag1).read());
 
     final String tag2 = "tag2";
-    SettableFuture<Integer> future = SettableFuture.create();
+    SettableFuture<WeightedValue<Integer>> future = SettableFuture.create();
     when(mockReader.valueFuture(
-            protoKeyFromUserKey(tag2, StringUtf8Coder.of()), STATE_FAMILY, VarIntCoder.of()))
+            protoKeyFromUserKey(tag2, StringUtf8Coder.of()),
+            STATE_FAMILY,
+            WindmillMap.WeighingValueCoder.of(VarIntCoder.of())))
         .thenReturn(future);
-    waitAndSet(future, 2, 50);
+    waitAndSet(future, WeightedValue.of(2, 1L), 50);
     assertEquals(2, (int) mapState.putIfAbsent(tag2, 42).read());
     assertEquals(2, (int) mapState.get(tag2).read());
   }
@@ -563,9 +578,11 @@ public class WindmillStateInternalsTest {
     MapState<String, Integer> mapState = underTest.state(NAMESPACE, addr);
 
     final String tag1 = "tag1";
-    SettableFuture<Integer> future = SettableFuture.create();
+    SettableFuture<WeightedValue<Integer>> future = SettableFuture.create();
     when(mockReader.valueFuture(
-            protoKeyFromUserKey(tag1, StringUtf8Coder.of()), STATE_FAMILY, VarIntCoder.of()))
+            protoKeyFromUserKey(tag1, StringUtf8Coder.of()),
+            STATE_FAMILY,
+            WindmillMap.WeighingValueCoder.of(VarIntCoder.of())))
         .thenReturn(future);
     waitAndSet(future, null, 50);
     ReadableState<Integer> readableState = mapState.putIfAbsent(tag1, 42);
@@ -586,11 +603,13 @@ public class WindmillStateInternalsTest {
     assertEquals(1, (int) readableState.read());
 
     final String tag2 = "tag2";
-    SettableFuture<Integer> future = SettableFuture.create();
+    SettableFuture<WeightedValue<Integer>> future = SettableFuture.create();
     when(mockReader.valueFuture(
-            protoKeyFromUserKey(tag2, StringUtf8Coder.of()), STATE_FAMILY, VarIntCoder.of()))
+            protoKeyFromUserKey(tag2, StringUtf8Coder.of()),
+            STATE_FAMILY,
+            WindmillMap.WeighingValueCoder.of(VarIntCoder.of())))
         .thenReturn(future);
-    waitAndSet(future, 2, 50);
+    waitAndSet(future, WeightedValue.of(2, 1L), 50);
     readableState = mapState.putIfAbsent(tag2, 42);
     assertEquals(2, (int) mapState.get(tag2).read());
     assertEquals(2, (int) readableState.read());
@@ -603,9 +622,11 @@ public class WindmillStateInternalsTest {
     MapState<String, Integer> mapState = underTest.state(NAMESPACE, addr);
 
     final String tag1 = "tag1";
-    SettableFuture<Integer> future = SettableFuture.create();
+    SettableFuture<WeightedValue<Integer>> future = SettableFuture.create();
     when(mockReader.valueFuture(
-            protoKeyFromUserKey(tag1, StringUtf8Coder.of()), STATE_FAMILY, VarIntCoder.of()))
+            protoKeyFromUserKey(tag1, StringUtf8Coder.of()),
+            STATE_FAMILY,
+            WindmillMap.WeighingValueCoder.of(VarIntCoder.of())))
         .thenReturn(future);
     waitAndSet(future, null, 50);
     ReadableState<Integer> readableState = mapState.putIfAbsent(tag1, 42);
@@ -626,13 +647,15 @@ public class WindmillStateInternalsTest {
     MapState<String, Integer> mapState = underTest.state(NAMESPACE, addr);
 
     final String tag = "tag";
-    SettableFuture<Integer> future = SettableFuture.create();
+    SettableFuture<WeightedValue<Integer>> future = SettableFuture.create();
     when(mockReader.valueFuture(
-            protoKeyFromUserKey(tag, StringUtf8Coder.of()), STATE_FAMILY, VarIntCoder.of()))
+            protoKeyFromUserKey(tag, StringUtf8Coder.of()),
+            STATE_FAMILY,
+            WindmillMap.WeighingValueCoder.of(VarIntCoder.of())))
         .thenReturn(future);
     waitAndSet(future, null, 200);
     assertNull(mapState.get(tag).read());
-    future.set(42);
+    future.set(WeightedValue.of(42, 1L));
     assertNull(mapState.get(tag).read());
   }
 
@@ -3427,6 +3450,42 @@ public class WindmillStateInternalsTest {
     Mockito.verifyNoMoreInteractions(mockReader);
   }
 
+  @Test
+  public void testCachedMap() throws Exception {
+    StateTag<MapState<String, Integer>> addr =
+        StateTags.map("map", StringUtf8Coder.of(), VarIntCoder.of());
+    MapState<String, Integer> mapState = underTest.state(NAMESPACE, addr);
+
+    assertEquals(0, cache.getWeight());
+
+    mapState.put("a", 1);
+    mapState.put("bb", 2);
+    underTest.persist(Windmill.WorkItemCommitRequest.newBuilder());
+    long weightWithTwoEntries = cache.getWeight();
+
+    resetUnderTest();
+    mapState = underTest.state(NAMESPACE, addr);
+    assertEquals(1, (int) mapState.get("a").read());
+    mapState.remove("bb");
+    underTest.persist(Windmill.WorkItemCommitRequest.newBuilder());
+
+    // The weight shrinks by the encoded tag and value of the removed entry.
+    long removedEntryWeight =
+        protoKeyFromUserKey("bb", StringUtf8Coder.of()).size()
+            + CoderUtils.encodeToByteArray(VarIntCoder.of(), 2).length;
+    assertEquals(weightWithTwoEntries - removedEntryWeight, cache.getWeight());
+
+    // Reads of cached entries and of removed entries are served without Windmill.
+    resetUnderTest();
+    mapState = underTest.state(NAMESPACE, addr);
+    assertEquals(1, (int) mapState.get("a").readLater().read());
+    assertNull(mapState.get("bb").read());
+    underTest.persist(Windmill.WorkItemCommitRequest.newBuilder());
+    assertEquals(weightWithTwoEntries - removedEntryWeight, cache.getWeight());
+
+    Mockito.verifyNoInteractions(mockReader);
+  }
+
   @Test
   public void testCachedWatermarkHold() throws Exception {
     StateTag<WatermarkHoldState> addr =
@@ -49,6 +49,7 @@ import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
 import org.apache.beam.sdk.util.ByteStringOutputStream;
 import org.apache.beam.sdk.values.TimestampedValue;
 import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.ByteString;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ImmutableSet;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Iterables;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Range;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.io.BaseEncoding;
@@ -1427,6 +1428,70 @@ public class WindmillStateReaderTest {
     assertNoReader(future);
   }
 
+  @Test
+  public void testReadValuePrefetchedFromAccessHistory() throws Exception {
+    StateAccessHistory accessHistory = new StateAccessHistory();
+    for (int i = 0; i < StateAccessHistory.WORK_ITEMS_PER_GENERATION; i++) {
+      accessHistory.recordWorkItem(
+          ImmutableSet.of(StateTag.of(StateTag.Kind.VALUE, STATE_KEY_2, STATE_FAMILY)));
+    }
+    underTest =
+        WindmillStateReader.forTesting(
+            (request) -> Optional.ofNullable(mockWindmill.getStateData(COMPUTATION, request)),
+            DATA_KEY,
+            SHARDING_KEY,
+            WORK_TOKEN,
+            accessHistory);
+
+    Future<Integer> future1 = underTest.valueFuture(STATE_KEY_1, STATE_FAMILY, INT_CODER);
+    Mockito.verifyNoMoreInteractions(mockWindmill);
+
+    Windmill.KeyedGetDataRequest.Builder expectedRequest =
+        Windmill.KeyedGetDataRequest.newBuilder()
+            .setKey(DATA_KEY)
+            .setShardingKey(SHARDING_KEY)
+            .setWorkToken(WORK_TOKEN)
+            .setMaxBytes(WindmillStateReader.MAX_KEY_BYTES)
+            .addValuesToFetch(
+                Windmill.TagValue.newBuilder()
+                    .setTag(STATE_KEY_1)
+                    .setStateFamily(STATE_FAMILY)
+                    .build())
+            .addValuesToFetch(
+                Windmill.TagValue.newBuilder()
+                    .setTag(STATE_KEY_2)
+                    .setStateFamily(STATE_FAMILY)
+                    .build());
+    Windmill.KeyedGetDataResponse.Builder response =
+        Windmill.KeyedGetDataResponse.newBuilder()
+            .setKey(DATA_KEY)
+            .addValues(
+                Windmill.TagValue.newBuilder()
+                    .setTag(STATE_KEY_1)
+                    .setStateFamily(STATE_FAMILY)
+                    .setValue(intValue(8)))
+            .addValues(
+                Windmill.TagValue.newBuilder()
+                    .setTag(STATE_KEY_2)
+                    .setStateFamily(STATE_FAMILY)
+                    .setValue(intValue(9)));
+
+    Mockito.when(mockWindmill.getStateData(COMPUTATION, expectedRequest.build()))
+        .thenReturn(response.build());
+
+    assertThat(future1.get(), Matchers.equalTo(8));
+    assertEquals(1, underTest.getUnusedPrefetches());
+
+    // The prefetched value is served without another request.
+    Future<Integer> future2 = underTest.valueFuture(STATE_KEY_2, STATE_FAMILY, INT_CODER);
+    assertThat(future2.get(), Matchers.equalTo(9));
+    Mockito.verify(mockWindmill).getStateData(COMPUTATION, expectedRequest.build());
+    Mockito.verifyNoMoreInteractions(mockWindmill);
+
+    assertEquals(1, underTest.getPrefetchHits());
+    assertEquals(0, underTest.getUnusedPrefetches());
+  }
+
   @Test
   public void testReadWatermark() throws Exception {
     Future<Instant> future = underTest.watermarkFuture(STATE_KEY_1, STATE_FAMILY);
@@ -37,6 +37,10 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.schemas.Schema.Field;
+import org.apache.beam.sdk.schemas.Schema.FieldType;
+import org.apache.beam.sdk.schemas.SchemaCoder;
 import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
 import org.apache.beam.sdk.transforms.windowing.GlobalWindow;
 import org.apache.beam.sdk.transforms.windowing.IntervalWindow;
@@ -44,6 +48,7 @@ import org.apache.beam.sdk.transforms.windowing.IntervalWindow.IntervalWindowCod
 import org.apache.beam.sdk.transforms.windowing.PaneInfo;
 import org.apache.beam.sdk.transforms.windowing.PaneInfo.PaneInfoCoder;
 import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.Row;
 import org.apache.beam.sdk.values.WindowedValue;
 import org.apache.beam.sdk.values.WindowedValues;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Preconditions;
@@ -52,6 +57,7 @@ import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Iterab
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Maps;
 import org.apache.spark.sql.Encoder;
 import org.apache.spark.sql.Encoders;
+import org.apache.spark.sql.catalyst.InternalRow;
 import org.apache.spark.sql.catalyst.SerializerBuildHelper;
 import org.apache.spark.sql.catalyst.SerializerBuildHelper.MapElementInformation;
 import org.apache.spark.sql.catalyst.analysis.GetColumnByOrdinal;
@@ -61,6 +67,7 @@ import org.apache.spark.sql.catalyst.expressions.Coalesce;
 import org.apache.spark.sql.catalyst.expressions.CreateNamedStruct;
 import org.apache.spark.sql.catalyst.expressions.EqualTo;
 import org.apache.spark.sql.catalyst.expressions.Expression;
+import org.apache.spark.sql.catalyst.expressions.GenericInternalRow;
 import org.apache.spark.sql.catalyst.expressions.GetStructField;
 import org.apache.spark.sql.catalyst.expressions.If;
 import org.apache.spark.sql.catalyst.expressions.IsNotNull;
@@ -76,11 +83,14 @@ import org.apache.spark.sql.types.DataType;
 import org.apache.spark.sql.types.DataTypes;
 import org.apache.spark.sql.types.MapType;
 import org.apache.spark.sql.types.ObjectType;
+import org.apache.spark.sql.types.StructField;
 import org.apache.spark.sql.types.StructType;
+import org.apache.spark.unsafe.types.UTF8String;
 import org.apache.spark.util.MutablePair;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.joda.time.Instant;
+import org.joda.time.ReadableInstant;
 import scala.Option;
 import scala.Some;
 import scala.Tuple2;
@@ -164,11 +174,16 @@ public class EncoderHelpers {
    * delegating to a Beam {@link Coder} underneath.
    *
    * <p>Note: For common types, if available, default Spark {@link Encoder}s are used instead.
+   * Types with a {@link SchemaCoder} are encoded as {@link StructType} if all fields have a native
+   * Spark type, see {@link #schemaEncoder(SchemaCoder)}.
    *
    * @param coder Beam {@link Coder}
    */
   public static <T> Encoder<T> encoderFor(Coder<T> coder) {
     Encoder<T> enc = getOrCreateDefaultEncoder(coder.getEncodedTypeDescriptor().getRawType());
+    if (enc == null && coder instanceof SchemaCoder) {
+      enc = schemaEncoder((SchemaCoder<T>) coder);
+    }
     return enc != null ? enc : binaryEncoder(coder, true);
   }
 
@@ -321,6 +336,96 @@ public class EncoderHelpers {
         coder.getEncodedTypeDescriptor().getRawType());
   }
 
+  /**
+   * Creates a Spark {@link Encoder} for {@link T} of {@link StructType} with a field for each field
+   * of the {@link Schema} of the {@link SchemaCoder}.
+   *
+   * <p>Contrary to the binary encoding, Spark can access individual fields, e.g. to hash aggregate
+   * by key without deserializing it. Returns {@code null} if any field type has no native Spark
+   * equivalent, see {@link #sparkTypeOf(FieldType)}.
+   *
+   * @param coder Beam {@link SchemaCoder}
+   */
+  @SuppressWarnings("unchecked")
+  private static <T> @Nullable Encoder<T> schemaEncoder(SchemaCoder<T> coder) {
+    StructType structType = structTypeOf(coder.getSchema());
+    if (structType == null) {
+      return null;
+    }
+    Literal litCoder = lit(coder, SchemaCoder.class);
+    Expression in = rootRef(OBJECT_TYPE, true);
+    Expression row = invokeIfNotNull(Utils.class, "toInternalRow", structType, in, litCoder);
+    Expression col = rootCol(structType);
+
+    StructField[] fields = structType.fields();
+    Tuple2<String, Expression>[] serializers = new Tuple2[fields.length];
+    Expression[] deserializers = new Expression[fields.length * 2];
+    for (int i = 0; i < fields.length; i++) {
+      String name = fields[i].name();
+      serializers[i] = tuple(name, new GetStructField(row, i, new Some<>(name)));
+      deserializers[i * 2] = lit(name);
+      deserializers[i * 2 + 1] = new GetStructField(col, i, new Some<>(name));
+    }
+    // Spark requires a struct of the fields of a top level row, nested the row is serialized
+    // directly by the single invoke so the value is converted once, see serializer(Encoder)
+    // T could be private, use OBJECT_TYPE for code generation to not risk an IllegalAccessError
+    return EncoderFactory.create(
+        serializerObject(in, serializers),
+        invokeIfNotNull(
+            Utils.class,
+            "fromInternalRow",
+            OBJECT_TYPE,
+            new CreateNamedStruct(seqOf(deserializers)),
+            litCoder),
+        coder.getEncodedTypeDescriptor().getRawType());
+  }
+
+  private static @Nullable StructType structTypeOf(Schema schema) {
+    if (schema.getFieldCount() == 0) {
+      return null;
+    }
+    StructField[] fields = new StructField[schema.getFieldCount()];
+    for (int i = 0; i < fields.length; i++) {
+      Field field = schema.getField(i);
+      DataType type = sparkTypeOf(field.getType());
+      if (type == null) {
+        return null;
+      }
+      fields[i] = DataTypes.createStructField(field.getName(), type, field.getType().getNullable());
+    }
+    return DataTypes.createStructType(fields);
+  }
+
+  // Spark type of a schema field, values are converted in Utils.toSparkValue / fromSparkValue
+  private static @Nullable DataType sparkTypeOf(FieldType type) {
+    switch (type.getTypeName()) {
+      case BYTE:
+        return DataTypes.ByteType;
+      case INT16:
+        return DataTypes.ShortType;
+      case INT32:
+        return DataTypes.IntegerType;
+      case INT64:
+        return DataTypes.LongType;
+      case FLOAT:
+        return DataTypes.FloatType;
+      case DOUBLE:
+        return DataTypes.DoubleType;
+      case BOOLEAN:
+        return DataTypes.BooleanType;
+      case STRING:
+        return DataTypes.StringType;
+      case BYTES:
+        return DataTypes.BinaryType;
+      case DATETIME:
+        return DataTypes.TimestampType;
+      case ROW:
+        return structTypeOf(Preconditions.checkNotNull(type.getRowSchema()));
+      default:
+        return null;
+    }
+  }
+
   private static <T, W extends BoundedWindow> Expression serializeWindowedValue(
       Expression in,
       Encoder<T> valueEnc,
@@ -492,8 +597,32 @@ public class EncoderHelpers {
     return deserializer(enc).transformUp(replace(GetColumnByOrdinal.class, input));
   }
 
+  /**
+   * Serializer of {@code enc} to nest into another serializer. If it only takes apart a single
+   * struct expression into all of its fields, as required for top level rows, the struct
+   * expression itself is returned so that it is evaluated once rather than once per field.
+   */
   private static <T> Expression serializer(Encoder<T> enc) {
-    return ((ExpressionEncoder<T>) enc).objSerializer();
+    Expression serializer = ((ExpressionEncoder<T>) enc).objSerializer();
+    Expression struct = serializer instanceof If ? ((If) serializer).falseValue() : serializer;
+    if (!(struct instanceof CreateNamedStruct)) {
+      return serializer;
+    }
+    Seq<Expression> fields = ((CreateNamedStruct) struct).valExprs();
+    @Nullable Expression row = null;
+    for (int i = 0; i < fields.size(); i++) {
+      if (!(fields.apply(i) instanceof GetStructField)) {
+        return serializer;
+      }
+      GetStructField field = (GetStructField) fields.apply(i);
+      if (field.ordinal() != i || (row != null && field.child() != row)) {
+        return serializer;
+      }
+      row = field.child();
+    }
+    return row != null && ((StructType) row.dataType()).size() == fields.size()
+        ? row
+        : serializer;
   }
 
   private static <T> Expression deserializer(Encoder<T> enc) {
@@ -501,7 +630,7 @@ public class EncoderHelpers {
   }
 
   private static <T> DataType serializedType(Encoder<T> enc) {
-    return ((ExpressionEncoder<T>) enc).objSerializer().dataType();
+    return serializer(enc).dataType();
   }
 
   private static <T> DataType deserializedType(Encoder<T> enc) {
@@ -548,6 +677,81 @@ public class EncoderHelpers {
       return CoderHelpers.toByteArray(paneInfo, PaneInfoCoder.of());
     }
 
+    public static InternalRow toInternalRow(Object value, SchemaCoder<Object> coder) {
+      return toInternalRow(coder.getToRowFunction().apply(value));
+    }
+
+    public static Object fromInternalRow(InternalRow row, SchemaCoder<Object> coder) {
+      return coder.getFromRowFunction().apply(fromInternalRow(row, coder.getSchema()));
+    }
+
+    private static InternalRow toInternalRow(Row row) {
+      Schema schema = row.getSchema();
+      Object[] values = new Object[schema.getFieldCount()];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = toSparkValue(row.getValue(i), schema.getField(i).getType());
+      }
+      return new GenericInternalRow(values);
+    }
+
+    private static Row fromInternalRow(InternalRow row, Schema schema) {
+      Row.Builder builder = Row.withSchema(schema);
+      for (int i = 0; i < schema.getFieldCount(); i++) {
+        builder.addValue(fromSparkValue(row, i, schema.getField(i).getType()));
+      }
+      return builder.build();
+    }
+
+    private static @Nullable Object toSparkValue(@Nullable Object value, FieldType type) {
+      if (value == null) {
+        return null;
+      }
+      switch (type.getTypeName()) {
+        case STRING:
+          return UTF8String.fromString((String) value);
+        case DATETIME:
+          // Spark timestamps are in microseconds
+          return ((ReadableInstant) value).getMillis() * 1000L;
+        case ROW:
+          return toInternalRow((Row) value);
+        default:
+          return value;
+      }
+    }
+
+    private static @Nullable Object fromSparkValue(InternalRow row, int idx, FieldType type) {
+      if (row.isNullAt(idx)) {
+        return null;
+      }
+      switch (type.getTypeName()) {
+        case BYTE:
+          return row.getByte(idx);
+        case INT16:
+          return row.getShort(idx);
+        case INT32:
+          return row.getInt(idx);
+        case INT64:
+          return row.getLong(idx);
+        case FLOAT:
+          return row.getFloat(idx);
+        case DOUBLE:
+          return row.getDouble(idx);
+        case BOOLEAN:
+          return row.getBoolean(idx);
+        case STRING:
+          return row.getUTF8String(idx).toString();
+        case BYTES:
+          return row.getBinary(idx);
+        case DATETIME:
+          return Instant.ofEpochMilli(Math.floorDiv(row.getLong(idx), 1000L));
+        case ROW:
+          Schema schema = Preconditions.checkNotNull(type.getRowSchema());
+          return fromInternalRow(row.getStruct(idx, schema.getFieldCount()), schema);
+        default:
+          throw new IllegalArgumentException("Unsupported field type " + type);
+      }
+    }
+
     /** The end of the only window (max timestamp). */
     public static Instant maxTimestamp(Iterable<BoundedWindow> windows) {
       return Iterables.getOnlyElement(windows).maxTimestamp();
@@ -30,7 +30,9 @@ import static org.apache.beam.runners.spark.structuredstreaming.translation.help
 import static org.apache.beam.runners.spark.structuredstreaming.translation.utils.ScalaInterop.tuple;
 import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Predicates.notNull;
 import static org.apache.spark.sql.types.DataTypes.IntegerType;
+import static org.apache.spark.sql.types.DataTypes.LongType;
 import static org.apache.spark.sql.types.DataTypes.StringType;
+import static org.apache.spark.sql.types.DataTypes.TimestampType;
 import static org.apache.spark.sql.types.DataTypes.createStructField;
 import static org.apache.spark.sql.types.DataTypes.createStructType;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -46,6 +48,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import org.apache.beam.runners.spark.structuredstreaming.SparkSessionRule;
 import org.apache.beam.sdk.coders.BigDecimalCoder;
@@ -63,8 +66,11 @@ import org.apache.beam.sdk.coders.ListCoder;
 import org.apache.beam.sdk.coders.StringUtf8Coder;
 import org.apache.beam.sdk.coders.VarIntCoder;
 import org.apache.beam.sdk.coders.VarLongCoder;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.schemas.SchemaCoder;
 import org.apache.beam.sdk.transforms.windowing.GlobalWindow;
 import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.Row;
 import org.apache.beam.sdk.values.TypeDescriptor;
 import org.apache.beam.sdk.values.WindowedValue;
 import org.apache.beam.sdk.values.WindowedValues;
@@ -226,6 +232,65 @@ public class EncoderHelpersTest {
     assertThat(dataset.collectAsList(), equalTo(data));
   }
 
+  @Test
+  public void testEncoderForSchemaCoder() {
+    Schema nested = Schema.builder().addStringField("name").build();
+    Schema schema =
+        Schema.builder()
+            .addInt32Field("id")
+            .addNullableField("count", Schema.FieldType.INT64)
+            .addDateTimeField("time")
+            .addRowField("nested", nested)
+            .build();
+    List<Row> data =
+        asList(
+            row(schema, 1, 10L, Instant.ofEpochMilli(1), row(nested, "a")),
+            row(schema, 2, null, Instant.ofEpochMilli(-1), row(nested, "b")));
+
+    Encoder<Row> encoder = encoderFor(SchemaCoder.of(schema));
+    serializeAndDeserialize(data.get(0), encoder);
+
+    Dataset<Row> dataset = createDataset(data, encoder);
+
+    // top level fields are nullable as the row is converted by a nullable static invoke
+    StructType rowSchema =
+        createStructType(
+            new StructField[] {
+              createStructField("id", IntegerType, true),
+              createStructField("count", LongType, true),
+              createStructField("time", TimestampType, true),
+              createStructField(
+                  "nested",
+                  createStructType(
+                      new StructField[] {createStructField("name", StringType, false)}),
+                  true)
+            });
+
+    assertThat(dataset.schema(), equalTo(rowSchema));
+    assertThat(dataset.collectAsList(), equalTo(data));
+  }
+
+  @Test
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public void testNestedSchemaValueIsConvertedOnce() {
+    Schema schema = Schema.builder().addInt32Field("a").addInt32Field("b").build();
+    AtomicInteger conversions = new AtomicInteger();
+    SchemaCoder<Object> coder =
+        (SchemaCoder)
+            SchemaCoder.<Row>of(
+                schema,
+                TypeDescriptor.of(Row.class),
+                row -> {
+                  conversions.incrementAndGet();
+                  return row;
+                },
+                row -> row);
+    Encoder<WindowedValue<Object>> encoder = windowedValueEncoder(encoderFor(coder), windowEnc);
+
+    serializeAndDeserialize(WindowedValues.valueInGlobalWindow(row(schema, 1, 2)), encoder);
+    assertThat(conversions.get(), equalTo(1));
+  }
+
   @Test
   public void testOneOffEncoder() {
     List<Coder<?>> coders = ImmutableList.copyOf(BASIC_CASES.keySet());
@@ -248,6 +313,10 @@ public class EncoderHelpersTest {
     return new BigDecimal(l, new MathContext(type.precision())).setScale(type.scale());
   }
 
+  private static Row row(Schema schema, Object... values) {
+    return Row.withSchema(schema).addValues(values).build();
+  }
+
   // test and explicit serialization roundtrip
   private static <T> void serializeAndDeserialize(T data, Encoder<T> enc) {
     ExpressionEncoder<T> bound = (ExpressionEncoder<T>) enc;
@@ -71,6 +71,18 @@ public interface SparkPipelineOptions extends SparkCommonPipelineOptions {
 
   void setBundleSize(Long value);
 
+  @Description(
+      "Number of bytes of encoded values per key the GroupByKey translation for huge values keeps "
+          + "in memory before spilling them to a local temporary file. Setting it allows the "
+          + "grouped values to be iterated more than once. The default (-1) keeps the values "
+          + "single-pass and never spills. Only applies if the GroupByKey translation for huge "
+          + "values is used, that is if preferGroupByKeyToHandleHugeValues is enabled for the "
+          + "classic translator, or for non-merging windows with the portable batch translator.")
+  @Default.Long(-1)
+  Long getGroupByKeySpillThresholdBytes();
+
+  void setGroupByKeySpillThresholdBytes(Long groupByKeySpillThresholdBytes);
+
   @Description(
       "If the spark runner will be initialized with a provided Spark Context. "
           + "The Spark Context should be provided with SparkContextOptions.")
@@ -17,6 +17,17 @@
  */
 package org.apache.beam.runners.spark.translation;
 
+import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Preconditions.checkState;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -39,13 +50,17 @@ import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Abstra
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Iterables;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Iterators;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.PeekingIterator;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.io.ByteStreams;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.primitives.Bytes;
 import org.apache.spark.HashPartitioner;
 import org.apache.spark.Partitioner;
+import org.apache.spark.SparkEnv;
+import org.apache.spark.TaskContext;
 import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.function.Function;
 import org.apache.spark.api.java.function.Function2;
+import org.apache.spark.util.TaskCompletionListener;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.joda.time.Instant;
 import org.slf4j.Logger;
@@ -78,6 +93,10 @@ public class GroupNonMergingWindowsFunctions {
    *
    * <p>repartitionAndSortWithinPartitions is used because all values are not collected into memory
    * at once, but streamed with iterator unlike GroupByKey (it minimizes memory pressure).
+   *
+   * <p>With a negative {@code spillThresholdBytes} the values of a key can be iterated only once.
+   * Otherwise they can be reiterated, keeping up to {@code spillThresholdBytes} of encoded values
+   * per key in memory and spilling the rest to a local temporary file.
    */
   static <K, V, W extends BoundedWindow>
       JavaRDD<WindowedValue<KV<K, Iterable<V>>>> groupByKeyAndWindow(
@@ -85,7 +104,8 @@ public class GroupNonMergingWindowsFunctions {
           Coder<K> keyCoder,
           Coder<V> valueCoder,
           WindowingStrategy<?, W> windowingStrategy,
-          Partitioner partitioner) {
+          Partitioner partitioner,
+          long spillThresholdBytes) {
     final Coder<W> windowCoder = windowingStrategy.getWindowFn().windowCoder();
     FullWindowedValueCoder<KV<K, V>> windowedKvCoder =
         WindowedValues.FullWindowedValueCoder.of(KvCoder.of(keyCoder, valueCoder), windowCoder);
@@ -95,7 +115,18 @@ public class GroupNonMergingWindowsFunctions {
     return windowInKey
         .repartitionAndSortWithinPartitions(getPartitioner(partitioner, rdd))
         .mapPartitions(
-            it -> new GroupByKeyIterator<>(it, keyCoder, windowingStrategy, windowedKvCoder))
+            it -> {
+              final GroupByKeyIterator<K, V, W> groupByKeyIterator =
+                  new GroupByKeyIterator<>(
+                      it, keyCoder, windowingStrategy, windowedKvCoder, spillThresholdBytes);
+              final TaskContext taskContext = TaskContext.get();
+              if (taskContext != null) {
+                // make sure spilled values are removed also when the task fails
+                taskContext.addTaskCompletionListener(
+                    (TaskCompletionListener) context -> groupByKeyIterator.releaseValues());
+              }
+              return groupByKeyIterator;
+            })
         .filter(Objects::nonNull); // filter last null element from GroupByKeyIterator
   }
 
@@ -158,8 +189,8 @@ public class GroupNonMergingWindowsFunctions {
   }
 
   /**
-   * Transform stream of sorted key values into stream of value iterators for each key. This
-   * iterator can be iterated only once!
+   * Transform stream of sorted key values into stream of value iterators for each key. Unless a
+   * non-negative spill threshold is given, values of each key can be iterated only once!
    *
    * <p>From Iterator<K, V> transform to <K, Iterator<V>>.
    *
@@ -173,9 +204,11 @@ public class GroupNonMergingWindowsFunctions {
     private final Coder<K> keyCoder;
     private final WindowingStrategy<?, W> windowingStrategy;
     private final FullWindowedValueCoder<KV<K, V>> windowedValueCoder;
+    private final long spillThresholdBytes;
 
     private boolean hasNext = true;
     private ByteArray currentKey = null;
+    private @Nullable ReiterableValues currentValues = null;
 
     GroupByKeyIterator(
         Iterator<Tuple2<ByteArray, byte[]>> inner,
@@ -183,11 +216,21 @@ public class GroupNonMergingWindowsFunctions {
         WindowingStrategy<?, W> windowingStrategy,
         WindowedValues.FullWindowedValueCoder<KV<K, V>> windowedValueCoder)
         throws Coder.NonDeterministicException {
+      this(inner, keyCoder, windowingStrategy, windowedValueCoder, -1L);
+    }
+
+    GroupByKeyIterator(
+        Iterator<Tuple2<ByteArray, byte[]>> inner,
+        Coder<K> keyCoder,
+        WindowingStrategy<?, W> windowingStrategy,
+        WindowedValues.FullWindowedValueCoder<KV<K, V>> windowedValueCoder,
+        long spillThresholdBytes) {
 
       this.inner = Iterators.peekingIterator(inner);
       this.keyCoder = keyCoder;
       this.windowingStrategy = windowingStrategy;
       this.windowedValueCoder = windowedValueCoder;
+      this.spillThresholdBytes = spillThresholdBytes;
     }
 
     @Override
@@ -197,6 +240,7 @@ public class GroupNonMergingWindowsFunctions {
 
     @Override
     public WindowedValue<KV<K, Iterable<V>>> next() {
+      releaseValues();
       while (inner.hasNext()) {
         final ByteArray nextKey = inner.peek()._1;
         if (nextKey.equals(currentKey)) {
@@ -206,13 +250,27 @@ public class GroupNonMergingWindowsFunctions {
         }
         currentKey = nextKey;
         final WindowedValue<KV<K, V>> decodedItem = decodeItem(inner.peek());
-        return decodedItem.withValue(
-            KV.of(decodedItem.getValue().getKey(), new ValueIterator(inner, currentKey)));
+        final Iterable<V> values;
+        if (spillThresholdBytes < 0) {
+          values = new ValueIterator(inner, currentKey);
+        } else {
+          currentValues = new ReiterableValues(currentKey);
+          values = currentValues;
+        }
+        return decodedItem.withValue(KV.of(decodedItem.getValue().getKey(), values));
       }
       hasNext = false;
       return null;
     }
 
+    /** Drops values recorded for the current key, including any spilled to disk. */
+    void releaseValues() {
+      if (currentValues != null) {
+        currentValues.release();
+        currentValues = null;
+      }
+    }
+
     class ValueIterator implements Iterable<V> {
 
       boolean consumed = false;
@@ -244,6 +302,151 @@ public class GroupNonMergingWindowsFunctions {
       }
     }
 
+    /**
+     * Values of a single key which can be iterated more than once. Values are read lazily from the
+     * sorted stream and their encoded form is recorded, in memory up to {@code spillThresholdBytes}
+     * and in a local temporary file beyond that, so later iterations can replay them. The recording
+     * is dropped once {@link GroupByKeyIterator} advances to the next key.
+     */
+    class ReiterableValues implements Iterable<V> {
+
+      private final ByteArray currentKey;
+      private final List<byte[]> buffered = new ArrayList<>();
+      private final List<Closeable> spillReaders = new ArrayList<>();
+      private long bufferedBytes = 0;
+      private long recordedCount = 0;
+      private boolean released = false;
+      private @Nullable File spillFile = null;
+      private @Nullable DataOutputStream spillWriter = null;
+
+      ReiterableValues(ByteArray currentKey) {
+        this.currentKey = currentKey;
+      }
+
+      @Override
+      public Iterator<V> iterator() {
+        checkNotReleased();
+        return new AbstractIterator<V>() {
+          private long position = 0;
+          // offset in the spill file of the value at position, once past the buffered values
+          private long spillOffset = 0;
+          private @Nullable DataInputStream spillReader = null;
+          private long spillReaderOffset = 0;
+
+          @Override
+          protected V computeNext() {
+            checkNotReleased();
+            final byte[] bytes;
+            if (position < recordedCount) {
+              bytes = readRecorded();
+            } else if (inner.hasNext() && currentKey.equals(inner.peek()._1)) {
+              bytes = inner.next()._2;
+              if (record(bytes)) {
+                spillOffset += Integer.BYTES + bytes.length;
+              }
+            } else {
+              return endOfData();
+            }
+            position++;
+            return decodeValue(bytes);
+          }
+
+          private byte[] readRecorded() {
+            if (position < buffered.size()) {
+              return buffered.get((int) position);
+            }
+            try {
+              if (spillWriter != null) {
+                spillWriter.flush();
+              }
+              if (spillReader == null) {
+                checkState(spillFile != null, "Values of the key were not spilled");
+                final FileInputStream in = new FileInputStream(spillFile);
+                spillReaders.add(in);
+                in.getChannel().position(spillOffset);
+                spillReader = new DataInputStream(new BufferedInputStream(in));
+                spillReaderOffset = spillOffset;
+              }
+              // skip the values this iterator spilled itself since it last read from the file
+              ByteStreams.skipFully(spillReader, spillOffset - spillReaderOffset);
+              final byte[] bytes = new byte[spillReader.readInt()];
+              spillReader.readFully(bytes);
+              spillOffset += Integer.BYTES + bytes.length;
+              spillReaderOffset = spillOffset;
+              return bytes;
+            } catch (IOException e) {
+              throw new IllegalStateException("Error reading spilled values from " + spillFile, e);
+            }
+          }
+        };
+      }
+
+      /** Records the next value of the key, returns true if it was spilled to disk. */
+      private boolean record(byte[] bytes) {
+        recordedCount++;
+        if (spillWriter == null && bufferedBytes + bytes.length <= spillThresholdBytes) {
+          buffered.add(bytes);
+          bufferedBytes += bytes.length;
+          return false;
+        } else {
+          try {
+            if (spillWriter == null) {
+              spillFile = createSpillFile();
+              spillWriter =
+                  new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spillFile)));
+            }
+            spillWriter.writeInt(bytes.length);
+            spillWriter.write(bytes);
+            return true;
+          } catch (IOException e) {
+            throw new IllegalStateException("Error spilling values to " + spillFile, e);
+          }
+        }
+      }
+
+      /**
+       * Creates the spill file in the executor's local directories managed by Spark, so it is
+       * placed on the configured {@code spark.local.dir} and cleaned up along with the executor.
+       */
+      private File createSpillFile() throws IOException {
+        SparkEnv env = SparkEnv.get();
+        if (env == null) {
+          // not running within a Spark executor
+          return File.createTempFile("beam-spark-gbk-", ".values");
+        }
+        return env.blockManager().diskBlockManager().createTempLocalBlock()._2();
+      }
+
+      private void checkNotReleased() {
+        checkState(
+            !released,
+            "Values of a key can't be iterated after advancing to the next key, "
+                + "otherwise there could be data lost");
+      }
+
+      private void release() {
+        released = true;
+        buffered.clear();
+        try {
+          for (Closeable reader : spillReaders) {
+            reader.close();
+          }
+          if (spillWriter != null) {
+            spillWriter.close();
+          }
+        } catch (IOException e) {
+          LOG.warn("Failed to close spilled values file {}", spillFile, e);
+        } finally {
+          spillReaders.clear();
+          spillWriter = null;
+          if (spillFile != null && !spillFile.delete()) {
+            LOG.warn("Failed to delete spilled values file {}", spillFile);
+          }
+          spillFile = null;
+        }
+      }
+    }
+
     private V decodeValue(byte[] windowedValueBytes) {
       final WindowedValue<KV<K, V>> windowedValue =
           CoderHelpers.fromByteArray(windowedValueBytes, windowedValueCoder);
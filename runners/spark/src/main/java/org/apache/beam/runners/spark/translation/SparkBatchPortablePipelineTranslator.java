@@ -191,7 +191,16 @@ public class SparkBatchPortablePipelineTranslator
       // we can have a memory sensitive translation for non-merging windows
       groupedByKeyAndWindow =
           GroupNonMergingWindowsFunctions.groupByKeyAndWindow(
-              inputRdd, inputKeyCoder, inputValueCoder, windowingStrategy, partitioner);
+              inputRdd,
+              inputKeyCoder,
+              inputValueCoder,
+              windowingStrategy,
+              partitioner,
+              context
+                  .serializablePipelineOptions
+                  .get()
+                  .as(SparkPipelineOptions.class)
+                  .getGroupByKeySpillThresholdBytes());
     } else {
       JavaRDD<KV<K, Iterable<WindowedValue<V>>>> groupedByKeyOnly =
           GroupCombineFunctions.groupByKeyOnly(inputRdd, inputKeyCoder, wvCoder, partitioner);
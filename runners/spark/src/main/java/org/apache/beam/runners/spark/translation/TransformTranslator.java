@@ -150,11 +150,9 @@ public final class TransformTranslator {
 
         JavaRDD<WindowedValue<KV<K, Iterable<V>>>> groupedByKey;
         Partitioner partitioner = getPartitioner(context);
-        boolean enableHugeValuesTranslation =
-            context
-                .getOptions()
-                .as(SparkPipelineOptions.class)
-                .getPreferGroupByKeyToHandleHugeValues();
+        SparkPipelineOptions options = context.getOptions().as(SparkPipelineOptions.class);
+        boolean enableHugeValuesTranslation = options.getPreferGroupByKeyToHandleHugeValues();
+        long spillThresholdBytes = options.getGroupByKeySpillThresholdBytes();
         if (enableHugeValuesTranslation
             && context.isCandidateForGroupByKeyAndWindow(transform)
             && GroupNonMergingWindowsFunctions.isEligibleForGroupByWindow(windowingStrategy)) {
@@ -162,7 +160,12 @@ public final class TransformTranslator {
           // key and does not require them to fit into memory
           groupedByKey =
               GroupNonMergingWindowsFunctions.groupByKeyAndWindow(
-                  inRDD, keyCoder, coder.getValueCoder(), windowingStrategy, partitioner);
+                  inRDD,
+                  keyCoder,
+                  coder.getValueCoder(),
+                  windowingStrategy,
+                  partitioner,
+                  spillThresholdBytes);
         } else {
 
           // As this is batch, we can ignore triggering and allowed lateness parameters.
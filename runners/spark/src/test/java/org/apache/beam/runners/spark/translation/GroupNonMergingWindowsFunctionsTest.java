@@ -17,6 +17,8 @@
  */
 package org.apache.beam.runners.spark.translation;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.junit.Assert.assertEquals;
 
 import java.util.Arrays;
@@ -113,15 +115,71 @@ public class GroupNonMergingWindowsFunctionsTest {
     }
   }
 
+  @Test
+  public void testGbkIteratorValuesCanBeReiteratedInMemory() {
+    GroupByKeyIterator<String, Integer, GlobalWindow> iteratorUnderTest =
+        createGbkIterator(Long.MAX_VALUE);
+    Iterable<Integer> k1Values = iteratorUnderTest.next().getValue().getValue();
+    assertThat(k1Values, contains(1, 2));
+    assertThat(k1Values, contains(1, 2));
+
+    Iterable<Integer> k2Values = iteratorUnderTest.next().getValue().getValue();
+    assertThat(k2Values, contains(3, 4, 5));
+    assertThat(k2Values, contains(3, 4, 5));
+  }
+
+  @Test
+  public void testGbkIteratorValuesCanBeReiteratedWhenSpilled() {
+    // nothing fits into memory, so all values of a key are spilled to disk
+    GroupByKeyIterator<String, Integer, GlobalWindow> iteratorUnderTest = createGbkIterator(0L);
+    iteratorUnderTest.next();
+    Iterable<Integer> k2Values = iteratorUnderTest.next().getValue().getValue();
+
+    // interleaved iterations replay what the other one has already read from the stream
+    Iterator<Integer> first = k2Values.iterator();
+    assertEquals(3, first.next().intValue());
+    assertThat(k2Values, contains(3, 4, 5));
+    assertEquals(4, first.next().intValue());
+    assertEquals(5, first.next().intValue());
+    Assert.assertFalse(first.hasNext());
+    assertThat(k2Values, contains(3, 4, 5));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testGbkIteratorValuesCannotBeReiteratedAfterNextKey() {
+    GroupByKeyIterator<String, Integer, GlobalWindow> iteratorUnderTest = createGbkIterator(0L);
+    Iterable<Integer> k1Values = iteratorUnderTest.next().getValue().getValue();
+    assertThat(k1Values, contains(1, 2));
+    iteratorUnderTest.next();
+    // values of k1 were released when advancing to k2
+    k1Values.iterator();
+  }
+
   private GroupByKeyIterator<String, Integer, GlobalWindow> createGbkIterator()
       throws Coder.NonDeterministicException {
     return createGbkIterator(
-        GlobalWindow.INSTANCE, GlobalWindow.Coder.INSTANCE, WindowingStrategy.globalDefault());
+        GlobalWindow.INSTANCE, GlobalWindow.Coder.INSTANCE, WindowingStrategy.globalDefault(), -1L);
+  }
+
+  private GroupByKeyIterator<String, Integer, GlobalWindow> createGbkIterator(
+      long spillThresholdBytes) {
+    return createGbkIterator(
+        GlobalWindow.INSTANCE,
+        GlobalWindow.Coder.INSTANCE,
+        WindowingStrategy.globalDefault(),
+        spillThresholdBytes);
   }
 
   private <W extends BoundedWindow> GroupByKeyIterator<String, Integer, W> createGbkIterator(
-      W window, Coder<W> winCoder, WindowingStrategy<Object, W> winStrategy)
-      throws Coder.NonDeterministicException {
+      W window, Coder<W> winCoder, WindowingStrategy<Object, W> winStrategy) {
+    return createGbkIterator(window, winCoder, winStrategy, -1L);
+  }
+
+  private <W extends BoundedWindow> GroupByKeyIterator<String, Integer, W> createGbkIterator(
+      W window,
+      Coder<W> winCoder,
+      WindowingStrategy<Object, W> winStrategy,
+      long spillThresholdBytes) {
 
     StringUtf8Coder keyCoder = StringUtf8Coder.of();
     final WindowedValues.FullWindowedValueCoder<KV<String, Integer>> winValCoder =
@@ -138,7 +196,8 @@ public class GroupNonMergingWindowsFunctionsTest {
             factory.create("k2", 3),
             factory.create("k2", 4),
             factory.create("k2", 5));
-    return new GroupByKeyIterator<>(items.iterator(), keyCoder, winStrategy, winValCoder);
+    return new GroupByKeyIterator<>(
+        items.iterator(), keyCoder, winStrategy, winValCoder, spillThresholdBytes);
   }
 
   private static class ItemFactory<K, V, W extends BoundedWindow> {
@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.jmh.coders;
+
+import java.io.IOException;
+import java.io.InputStream;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.FusedCoderGenerator;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.coders.VarLongCoder;
+import org.apache.beam.sdk.transforms.windowing.GlobalWindow;
+import org.apache.beam.sdk.util.ByteStringOutputStream;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.WindowedValue;
+import org.apache.beam.sdk.values.WindowedValues;
+import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.ByteString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks comparing coders generated by {@link FusedCoderGenerator} against the composed coders
+ * they were generated from, using the {@code WindowedValue<KV<String, Long>>} encoding that is
+ * common on the Fn API data plane.
+ */
+public class FusedCoderBenchmark {
+  private static final int NUM_ELEMENTS = 1000;
+
+  @State(Scope.Benchmark)
+  public static class CoderState {
+    @Param({"composed", "fused"})
+    public String coderType = "composed";
+
+    Coder<WindowedValue<KV<String, Long>>> coder;
+    WindowedValue<KV<String, Long>>[] elements;
+    ByteString encoded;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() throws IOException {
+      Coder<WindowedValue<KV<String, Long>>> composedCoder =
+          WindowedValues.getFullCoder(
+              KvCoder.of(StringUtf8Coder.of(), VarLongCoder.of()), GlobalWindow.Coder.INSTANCE);
+      coder =
+          "fused".equals(coderType) ? FusedCoderGenerator.generate(composedCoder) : composedCoder;
+      elements = new WindowedValue[NUM_ELEMENTS];
+      ByteStringOutputStream output = new ByteStringOutputStream();
+      for (int i = 0; i < NUM_ELEMENTS; ++i) {
+        elements[i] = WindowedValues.valueInGlobalWindow(KV.of("key" + i, (long) i));
+        composedCoder.encode(elements[i], output);
+      }
+      encoded = output.toByteString();
+    }
+  }
+
+  @Benchmark
+  public void testEncode(CoderState state, Blackhole blackhole) throws IOException {
+    ByteStringOutputStream output = new ByteStringOutputStream();
+    for (int i = 0; i < NUM_ELEMENTS; ++i) {
+      state.coder.encode(state.elements[i], output);
+    }
+    blackhole.consume(output.toByteString());
+  }
+
+  @Benchmark
+  public void testDecode(CoderState state, Blackhole blackhole) throws IOException {
+    InputStream input = state.encoded.newInput();
+    for (int i = 0; i < NUM_ELEMENTS; ++i) {
+      blackhole.consume(state.coder.decode(input));
+    }
+  }
+}
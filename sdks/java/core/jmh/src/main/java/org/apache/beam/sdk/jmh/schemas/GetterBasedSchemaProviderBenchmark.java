@@ -44,7 +44,8 @@ import org.openjdk.jmh.infra.Blackhole;
  * <p>Each benchmark method invocation, depending on {@link RowBundle#action}, either reads a single
  * field of a bundle of {@link RowBundle#bundleSize n} rows using the corresponding getter via
  * {@link RowWithGetters#getValue} or writes that field using the corresponding setter to a new
- * object instance.
+ * object instance. Optionally, the bundle is encoded / decoded as a whole, either as a list of
+ * rows or as a columnar record batch.
  *
  * <p>Rows are created upfront and provided as JMH {@link State} to exclude initialization costs
  * from the measurement.
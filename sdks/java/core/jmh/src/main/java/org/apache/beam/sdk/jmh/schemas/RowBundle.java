@@ -18,6 +18,13 @@
 package org.apache.beam.sdk.jmh.schemas;
 
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.CoderException;
+import org.apache.beam.sdk.coders.ListCoder;
+import org.apache.beam.sdk.coders.RowCoder;
+import org.apache.beam.sdk.extensions.arrow.ArrowRowBatchCoder;
 import org.apache.beam.sdk.schemas.Factory;
 import org.apache.beam.sdk.schemas.GetterBasedSchemaProvider;
 import org.apache.beam.sdk.schemas.NoSuchSchemaException;
@@ -26,6 +33,7 @@ import org.apache.beam.sdk.schemas.Schema.FieldType;
 import org.apache.beam.sdk.schemas.SchemaCoder;
 import org.apache.beam.sdk.schemas.SchemaRegistry;
 import org.apache.beam.sdk.transforms.SerializableFunction;
+import org.apache.beam.sdk.util.CoderUtils;
 import org.apache.beam.sdk.values.Row;
 import org.apache.beam.sdk.values.RowWithGetters;
 import org.apache.beam.sdk.values.RowWithStorage;
@@ -52,6 +60,10 @@ import org.openjdk.jmh.infra.Blackhole;
  * <p>Setup per {@link Level#Invocation} has considerable drawbacks. Though, given that processing
  * bundles of rows (n={@link #bundleSize}) takes well above 1 ms, each individual invocation can be
  * adequately timestamped without risking generating wrong results.
+ *
+ * <p>The coding actions are not run by default and have to be selected explicitly, e.g. using
+ * {@code -p action=ENCODE_ROWS,ENCODE_ARROW_BATCH}. Arrow record batches only support bundles of
+ * primitive fields.
  */
 @State(Scope.Benchmark)
 public class RowBundle<T> {
@@ -74,7 +86,19 @@ public class RowBundle<T> {
      * Repeatedly (3x) read field from {@link RowWithGetters} provided by {@link
      * GetterBasedSchemaProvider#toRowFunction(TypeDescriptor)}.
      */
-    READ_REPEATED
+    READ_REPEATED,
+
+    /** Encode the bundle as a list of rows using {@link RowCoder}. */
+    ENCODE_ROWS,
+
+    /** Decode the bundle from a list of rows encoded using {@link RowCoder}. */
+    DECODE_ROWS,
+
+    /** Encode the bundle column by column as a record batch using {@link ArrowRowBatchCoder}. */
+    ENCODE_ARROW_BATCH,
+
+    /** Decode the bundle from a record batch encoded using {@link ArrowRowBatchCoder}. */
+    DECODE_ARROW_BATCH
   }
 
   private static final SchemaRegistry REGISTRY = SchemaRegistry.createDefault();
@@ -82,12 +106,20 @@ public class RowBundle<T> {
   private final SerializableFunction<Row, T> fromRow;
   private final SerializableFunction<T, Row> toRow;
 
+  private final Schema schema;
+
   private final Row rowWithStorage;
 
   private final T rowTarget;
 
   private Row[] rows;
 
+  private Coder<List<Row>> bundleCoder;
+
+  private List<Row> bundle;
+
+  private byte[] encodedBundle;
+
   @Param("1000000")
   int bundleSize;
 
@@ -106,7 +138,8 @@ public class RowBundle<T> {
       }
       fromRow = coder.getFromRowFunction();
       toRow = coder.getToRowFunction();
-      rowWithStorage = createRowWithStorage(coder.getSchema());
+      schema = coder.getSchema();
+      rowWithStorage = createRowWithStorage(schema);
       rowTarget = fromRow.apply(rowWithStorage);
     } catch (NoSuchSchemaException e) {
       throw new RuntimeException(e);
@@ -119,6 +152,13 @@ public class RowBundle<T> {
     if (action == Action.WRITE) {
       return;
     }
+    // encoded bundles are immutable, set up once
+    if (isCodingAction()) {
+      if (bundleCoder == null) {
+        setupCoding();
+      }
+      return;
+    }
     if (rows == null) {
       rows = new Row[bundleSize];
     }
@@ -128,14 +168,41 @@ public class RowBundle<T> {
     }
   }
 
+  private boolean isCodingAction() {
+    return action != Action.READ_ONCE && action != Action.READ_REPEATED && action != Action.WRITE;
+  }
+
+  private void setupCoding() {
+    bundleCoder =
+        action == Action.ENCODE_ROWS || action == Action.DECODE_ROWS
+            ? ListCoder.of(RowCoder.of(schema))
+            : ArrowRowBatchCoder.of(schema);
+    bundle = Collections.nCopies(bundleSize, rowWithStorage);
+    try {
+      encodedBundle = CoderUtils.encodeToByteArray(bundleCoder, bundle);
+    } catch (CoderException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
   /** Runs benchmark iteration on a bundle of rows. */
   public void processRows(Blackhole blackhole) {
-    if (action == Action.READ_ONCE) {
-      readRowsOnce(blackhole);
-    } else if (action == Action.READ_REPEATED) {
-      readRowsRepeatedly(blackhole);
-    } else {
-      writeRows(blackhole);
+    switch (action) {
+      case READ_ONCE:
+        readRowsOnce(blackhole);
+        break;
+      case READ_REPEATED:
+        readRowsRepeatedly(blackhole);
+        break;
+      case WRITE:
+        writeRows(blackhole);
+        break;
+      case ENCODE_ROWS:
+      case ENCODE_ARROW_BATCH:
+        encodeRows(blackhole);
+        break;
+      default:
+        decodeRows(blackhole);
     }
   }
 
@@ -164,6 +231,22 @@ public class RowBundle<T> {
     }
   }
 
+  private void encodeRows(Blackhole blackhole) {
+    try {
+      blackhole.consume(CoderUtils.encodeToByteArray(bundleCoder, bundle));
+    } catch (CoderException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private void decodeRows(Blackhole blackhole) {
+    try {
+      blackhole.consume(CoderUtils.decodeFromByteArray(bundleCoder, encodedBundle));
+    } catch (CoderException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
   private static final Instant TODAY = DateTime.now().withTimeAtStartOfDay().toInstant();
 
   /** Creates row of type {@link RowWithStorage} with single field matching the provided schema. */
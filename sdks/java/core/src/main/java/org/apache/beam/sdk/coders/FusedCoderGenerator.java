@@ -0,0 +1,512 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.coders;
+
+import static org.apache.beam.sdk.util.ByteBuddyUtils.getClassLoadingStrategy;
+import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Preconditions.checkState;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.concurrent.GuardedBy;
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.description.type.TypeDescription.ForLoadedType;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.dynamic.scaffold.InstrumentedType;
+import net.bytebuddy.implementation.Implementation;
+import net.bytebuddy.implementation.bytecode.ByteCodeAppender;
+import net.bytebuddy.implementation.bytecode.Duplication;
+import net.bytebuddy.implementation.bytecode.StackManipulation;
+import net.bytebuddy.implementation.bytecode.constant.IntegerConstant;
+import net.bytebuddy.implementation.bytecode.member.MethodInvocation;
+import net.bytebuddy.implementation.bytecode.member.MethodReturn;
+import net.bytebuddy.implementation.bytecode.member.MethodVariableAccess;
+import net.bytebuddy.matcher.ElementMatchers;
+import org.apache.beam.sdk.util.common.ElementByteSizeObserver;
+import org.apache.beam.sdk.util.common.ReflectHelpers;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.TypeDescriptor;
+import org.apache.beam.sdk.values.WindowedValue;
+import org.apache.beam.sdk.values.WindowedValues.FullWindowedValueCoder;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.annotations.VisibleForTesting;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ImmutableMap;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Maps;
+
+/**
+ * A utility for generating a {@link Coder} which fuses a tree of standard coders into a single
+ * generated encode and decode method.
+ *
+ * <p>{@link KvCoder} and {@link FullWindowedValueCoder} nodes of the tree are unrolled into the
+ * generated methods, and well known leaf coders such as {@link StringUtf8Coder} and {@link
+ * VarLongCoder} are invoked through static call sites. This avoids the chain of virtual calls that
+ * evaluating the composed coders requires, which the JIT is often unable to inline since the same
+ * coder classes are used with many different component coders. Any other coder within the tree is
+ * invoked as is.
+ *
+ * <p>For example, for {@code FullWindowedValueCoder.of(KvCoder.of(StringUtf8Coder.of(),
+ * VarLongCoder.of()), windowCoder)} the generated class corresponds to the following Java class:
+ *
+ * <pre><code>
+ * class FusedCoder$Generated extends FusedCoder {
+ *  {@literal @}Override
+ *   public void encode(Object value, OutputStream outStream) {
+ *     encodeWindowedValueMetadata(value, this, 0, outStream);
+ *     Object kv = windowedValueValue(value);
+ *     encodeString(kvKey(kv), outStream);
+ *     encodeVarLong(kvValue(kv), outStream);
+ *   }
+ *
+ *  {@literal @}Override
+ *   public Object decode(InputStream inStream) {
+ *     return withValue(
+ *         decodeWindowedValueMetadata(this, 0, inStream),
+ *         kv(decodeString(inStream), decodeVarLong(inStream)));
+ *   }
+ * }
+ * </code></pre>
+ *
+ * <p>The generated coder is only used for the nested context. Encoding and decoding within the
+ * outer context, as well as all other methods, delegate to the original coder. Java serialization
+ * of a generated coder also produces the original coder.
+ */
+@SuppressWarnings({
+  "nullness", // TODO(https://github.com/apache/beam/issues/20497)
+  "rawtypes",
+  "unchecked"
+})
+public abstract class FusedCoderGenerator {
+  private static final ByteBuddy BYTE_BUDDY = new ByteBuddy();
+
+  private static final ForLoadedType HELPERS_TYPE = new ForLoadedType(Helpers.class);
+
+  /** The name suffix of the static encode and decode helpers for each supported leaf coder. */
+  private static final Map<Class<?>, String> LEAF_CODERS =
+      ImmutableMap.<Class<?>, String>builder()
+          .put(StringUtf8Coder.class, "String")
+          .put(VarLongCoder.class, "VarLong")
+          .put(VarIntCoder.class, "VarInt")
+          .put(ByteArrayCoder.class, "ByteArray")
+          .put(BigEndianLongCoder.class, "BigEndianLong")
+          .put(BigEndianIntegerCoder.class, "BigEndianInteger")
+          .put(DoubleCoder.class, "Double")
+          .put(BooleanCoder.class, "Boolean")
+          .build();
+
+  // Cache for Coder classes that are already generated.
+  @GuardedBy("cacheLock")
+  private static final Map<Coder<?>, Coder<?>> GENERATED_CODERS = Maps.newHashMap();
+
+  private static final Object cacheLock = new Object();
+
+  /**
+   * Returns a fused coder that produces the same encoding as {@code coder} or {@code coder} itself
+   * if it does not contain any nodes that can be fused.
+   */
+  public static <T> Coder<T> generate(Coder<T> coder) {
+    if (!isFusable(coder)) {
+      return coder;
+    }
+    synchronized (cacheLock) {
+      Coder<?> existingCoder = GENERATED_CODERS.get(coder);
+      if (existingCoder != null) {
+        return (Coder<T>) existingCoder;
+      }
+
+      List<Coder<?>> encodeDelegates = new ArrayList<>();
+      StackManipulation encode = encodeNode(coder, encodeDelegates);
+      List<Coder<?>> decodeDelegates = new ArrayList<>();
+      StackManipulation decode = decodeNode(coder, decodeDelegates);
+      // Both traversals visit the tree in the same order.
+      checkState(encodeDelegates.equals(decodeDelegates));
+
+      DynamicType.Builder<FusedCoder> builder =
+          BYTE_BUDDY
+              .subclass(FusedCoder.class)
+              .method(ElementMatchers.named("encode").and(ElementMatchers.takesArguments(2)))
+              .intercept(
+                  new GeneratedMethod(
+                      new StackManipulation.Compound(
+                          // Element to encode. (offset 1, as offset 0 is always "this").
+                          MethodVariableAccess.REFERENCE.loadFrom(1),
+                          encode,
+                          MethodReturn.VOID)))
+              .method(ElementMatchers.named("decode").and(ElementMatchers.takesArguments(1)))
+              .intercept(
+                  new GeneratedMethod(
+                      new StackManipulation.Compound(decode, MethodReturn.REFERENCE)));
+
+      Coder<T> fusedCoder;
+      try {
+        fusedCoder =
+            builder
+                .make()
+                .load(
+                    ReflectHelpers.findClassLoader(Coder.class.getClassLoader()),
+                    getClassLoadingStrategy(Coder.class))
+                .getLoaded()
+                .getDeclaredConstructor(Coder.class, Coder[].class)
+                .newInstance(coder, encodeDelegates.toArray(new Coder[0]));
+      } catch (InstantiationException
+          | IllegalAccessException
+          | NoSuchMethodException
+          | InvocationTargetException e) {
+        throw new RuntimeException("Unable to generate fused coder for " + coder, e);
+      }
+      GENERATED_CODERS.put(coder, fusedCoder);
+      return fusedCoder;
+    }
+  }
+
+  @VisibleForTesting
+  static void clearFusedCoderCache() {
+    synchronized (cacheLock) {
+      GENERATED_CODERS.clear();
+    }
+  }
+
+  private static boolean isFusable(Coder<?> coder) {
+    return coder instanceof KvCoder
+        || coder instanceof FullWindowedValueCoder
+        || LEAF_CODERS.containsKey(coder.getClass());
+  }
+
+  /**
+   * Returns the bytecode encoding the value on top of the stack, consuming it. Coders which are not
+   * unrolled are added to {@code delegates} and invoked through the generated coder.
+   */
+  private static StackManipulation encodeNode(Coder<?> coder, List<Coder<?>> delegates) {
+    if (coder instanceof KvCoder) {
+      KvCoder<?, ?> kvCoder = (KvCoder<?, ?>) coder;
+      return new StackManipulation.Compound(
+          Duplication.SINGLE,
+          invokeHelper("kvKey"),
+          encodeNode(kvCoder.getKeyCoder(), delegates),
+          invokeHelper("kvValue"),
+          encodeNode(kvCoder.getValueCoder(), delegates));
+    } else if (coder instanceof FullWindowedValueCoder) {
+      int index = delegates.size();
+      delegates.add(coder);
+      return new StackManipulation.Compound(
+          Duplication.SINGLE,
+          MethodVariableAccess.loadThis(),
+          IntegerConstant.forValue(index),
+          MethodVariableAccess.REFERENCE.loadFrom(2),
+          invokeHelper("encodeWindowedValueMetadata"),
+          invokeHelper("windowedValueValue"),
+          encodeNode(((FullWindowedValueCoder<?>) coder).getValueCoder(), delegates));
+    }
+    String leaf = LEAF_CODERS.get(coder.getClass());
+    if (leaf != null) {
+      return new StackManipulation.Compound(
+          MethodVariableAccess.REFERENCE.loadFrom(2), invokeHelper("encode" + leaf));
+    }
+    int index = delegates.size();
+    delegates.add(coder);
+    return new StackManipulation.Compound(
+        MethodVariableAccess.loadThis(),
+        IntegerConstant.forValue(index),
+        MethodVariableAccess.REFERENCE.loadFrom(2),
+        invokeHelper("encodeWith"));
+  }
+
+  /** Returns the bytecode decoding a value and pushing it on top of the stack. */
+  private static StackManipulation decodeNode(Coder<?> coder, List<Coder<?>> delegates) {
+    if (coder instanceof KvCoder) {
+      KvCoder<?, ?> kvCoder = (KvCoder<?, ?>) coder;
+      return new StackManipulation.Compound(
+          decodeNode(kvCoder.getKeyCoder(), delegates),
+          decodeNode(kvCoder.getValueCoder(), delegates),
+          invokeHelper("kv"));
+    } else if (coder instanceof FullWindowedValueCoder) {
+      int index = delegates.size();
+      delegates.add(coder);
+      return new StackManipulation.Compound(
+          MethodVariableAccess.loadThis(),
+          IntegerConstant.forValue(index),
+          MethodVariableAccess.REFERENCE.loadFrom(1),
+          invokeHelper("decodeWindowedValueMetadata"),
+          decodeNode(((FullWindowedValueCoder<?>) coder).getValueCoder(), delegates),
+          invokeHelper("withValue"));
+    }
+    String leaf = LEAF_CODERS.get(coder.getClass());
+    if (leaf != null) {
+      return new StackManipulation.Compound(
+          MethodVariableAccess.REFERENCE.loadFrom(1), invokeHelper("decode" + leaf));
+    }
+    int index = delegates.size();
+    delegates.add(coder);
+    return new StackManipulation.Compound(
+        MethodVariableAccess.loadThis(),
+        IntegerConstant.forValue(index),
+        MethodVariableAccess.REFERENCE.loadFrom(1),
+        invokeHelper("decodeWith"));
+  }
+
+  private static StackManipulation invokeHelper(String name) {
+    return MethodInvocation.invoke(
+        HELPERS_TYPE
+            .getDeclaredMethods()
+            .filter(ElementMatchers.isStatic().and(ElementMatchers.named(name)))
+            .getOnly());
+  }
+
+  private static class GeneratedMethod implements Implementation {
+    private final StackManipulation body;
+
+    GeneratedMethod(StackManipulation body) {
+      this.body = body;
+    }
+
+    @Override
+    public InstrumentedType prepare(InstrumentedType instrumentedType) {
+      return instrumentedType;
+    }
+
+    @Override
+    public ByteCodeAppender appender(Target implementationTarget) {
+      return (methodVisitor, implementationContext, instrumentedMethod) -> {
+        StackManipulation.Size size = body.apply(methodVisitor, implementationContext);
+        return new ByteCodeAppender.Size(size.getMaximalSize(), instrumentedMethod.getStackSize());
+      };
+    }
+  }
+
+  /**
+   * The base class of generated coders. Only {@link #encode(Object, OutputStream)} and {@link
+   * #decode(InputStream)} are generated, everything else delegates to the original coder.
+   */
+  public abstract static class FusedCoder<T> extends Coder<T> {
+    private final Coder<T> coder;
+    // The coders invoked by the generated methods, indexed by the order they are visited in.
+    private final Coder<?>[] delegates;
+
+    public FusedCoder(Coder<T> coder, Coder<?>[] delegates) {
+      this.coder = coder;
+      this.delegates = delegates;
+    }
+
+    /** Returns the coder this coder was generated from. */
+    public Coder<T> getFusedCoder() {
+      return coder;
+    }
+
+    @Override
+    public void encode(T value, OutputStream outStream, Context context)
+        throws CoderException, IOException {
+      if (context.isWholeStream) {
+        coder.encode(value, outStream, context);
+      } else {
+        encode(value, outStream);
+      }
+    }
+
+    @Override
+    public T decode(InputStream inStream, Context context) throws CoderException, IOException {
+      if (context.isWholeStream) {
+        return coder.decode(inStream, context);
+      }
+      return decode(inStream);
+    }
+
+    @Override
+    public List<? extends Coder<?>> getCoderArguments() {
+      return coder.getCoderArguments();
+    }
+
+    @Override
+    public void verifyDeterministic() throws NonDeterministicException {
+      coder.verifyDeterministic();
+    }
+
+    @Override
+    public boolean consistentWithEquals() {
+      return coder.consistentWithEquals();
+    }
+
+    @Override
+    public Object structuralValue(T value) {
+      return coder.structuralValue(value);
+    }
+
+    @Override
+    public boolean isRegisterByteSizeObserverCheap(T value) {
+      return coder.isRegisterByteSizeObserverCheap(value);
+    }
+
+    @Override
+    public void registerByteSizeObserver(T value, ElementByteSizeObserver observer)
+        throws Exception {
+      coder.registerByteSizeObserver(value, observer);
+    }
+
+    @Override
+    public TypeDescriptor<T> getEncodedTypeDescriptor() {
+      return coder.getEncodedTypeDescriptor();
+    }
+
+    // Generated classes are not available when deserializing so serialize the original coder.
+    protected Object writeReplace() {
+      return coder;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof FusedCoder)) {
+        return false;
+      }
+      return coder.equals(((FusedCoder<?>) o).coder);
+    }
+
+    @Override
+    public int hashCode() {
+      return coder.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return "FusedCoder(" + coder + ")";
+    }
+  }
+
+  /** Static methods invoked by the generated coders. */
+  private static class Helpers {
+    private static final StringUtf8Coder STRING_CODER = StringUtf8Coder.of();
+    private static final VarLongCoder VAR_LONG_CODER = VarLongCoder.of();
+    private static final VarIntCoder VAR_INT_CODER = VarIntCoder.of();
+    private static final ByteArrayCoder BYTE_ARRAY_CODER = ByteArrayCoder.of();
+    private static final BigEndianLongCoder BIG_ENDIAN_LONG_CODER = BigEndianLongCoder.of();
+    private static final BigEndianIntegerCoder BIG_ENDIAN_INTEGER_CODER =
+        BigEndianIntegerCoder.of();
+    private static final DoubleCoder DOUBLE_CODER = DoubleCoder.of();
+    private static final BooleanCoder BOOLEAN_CODER = BooleanCoder.of();
+
+    static Object kvKey(Object kv) {
+      return ((KV) kv).getKey();
+    }
+
+    static Object kvValue(Object kv) {
+      return ((KV) kv).getValue();
+    }
+
+    static Object kv(Object key, Object value) {
+      return KV.of(key, value);
+    }
+
+    static void encodeWindowedValueMetadata(
+        Object windowedValue, FusedCoder fusedCoder, int index, OutputStream outStream)
+        throws IOException {
+      ((FullWindowedValueCoder) fusedCoder.delegates[index])
+          .encodeMetadata((WindowedValue) windowedValue, outStream);
+    }
+
+    static Object windowedValueValue(Object windowedValue) {
+      return ((WindowedValue) windowedValue).getValue();
+    }
+
+    static Object decodeWindowedValueMetadata(
+        FusedCoder fusedCoder, int index, InputStream inStream) throws IOException {
+      return ((FullWindowedValueCoder) fusedCoder.delegates[index]).decodeMetadata(inStream);
+    }
+
+    static Object withValue(Object windowedValue, Object value) {
+      return ((WindowedValue) windowedValue).withValue(value);
+    }
+
+    static void encodeWith(
+        Object value, FusedCoder fusedCoder, int index, OutputStream outStream)
+        throws IOException {
+      fusedCoder.delegates[index].encode(value, outStream);
+    }
+
+    static Object decodeWith(FusedCoder fusedCoder, int index, InputStream inStream)
+        throws IOException {
+      return fusedCoder.delegates[index].decode(inStream);
+    }
+
+    static void encodeString(Object value, OutputStream outStream) throws IOException {
+      STRING_CODER.encode((String) value, outStream);
+    }
+
+    static Object decodeString(InputStream inStream) throws IOException {
+      return STRING_CODER.decode(inStream);
+    }
+
+    static void encodeVarLong(Object value, OutputStream outStream) throws IOException {
+      VAR_LONG_CODER.encode((Long) value, outStream);
+    }
+
+    static Object decodeVarLong(InputStream inStream) throws IOException {
+      return VAR_LONG_CODER.decode(inStream);
+    }
+
+    static void encodeVarInt(Object value, OutputStream outStream) throws IOException {
+      VAR_INT_CODER.encode((Integer) value, outStream);
+    }
+
+    static Object decodeVarInt(InputStream inStream) throws IOException {
+      return VAR_INT_CODER.decode(inStream);
+    }
+
+    static void encodeByteArray(Object value, OutputStream outStream) throws IOException {
+      BYTE_ARRAY_CODER.encode((byte[]) value, outStream);
+    }
+
+    static Object decodeByteArray(InputStream inStream) throws IOException {
+      return BYTE_ARRAY_CODER.decode(inStream);
+    }
+
+    static void encodeBigEndianLong(Object value, OutputStream outStream) throws IOException {
+      BIG_ENDIAN_LONG_CODER.encode((Long) value, outStream);
+    }
+
+    static Object decodeBigEndianLong(InputStream inStream) throws IOException {
+      return BIG_ENDIAN_LONG_CODER.decode(inStream);
+    }
+
+    static void encodeBigEndianInteger(Object value, OutputStream outStream) throws IOException {
+      BIG_ENDIAN_INTEGER_CODER.encode((Integer) value, outStream);
+    }
+
+    static Object decodeBigEndianInteger(InputStream inStream) throws IOException {
+      return BIG_ENDIAN_INTEGER_CODER.decode(inStream);
+    }
+
+    static void encodeDouble(Object value, OutputStream outStream) throws IOException {
+      DOUBLE_CODER.encode((Double) value, outStream);
+    }
+
+    static Object decodeDouble(InputStream inStream) throws IOException {
+      return DOUBLE_CODER.decode(inStream);
+    }
+
+    static void encodeBoolean(Object value, OutputStream outStream) throws IOException {
+      BOOLEAN_CODER.encode((Boolean) value, outStream);
+    }
+
+    static Object decodeBoolean(InputStream inStream) throws IOException {
+      return BOOLEAN_CODER.decode(inStream);
+    }
+  }
+}
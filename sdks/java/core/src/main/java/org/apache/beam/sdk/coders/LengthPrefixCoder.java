@@ -24,7 +24,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.List;
+import org.apache.beam.sdk.util.ByteStringInputStream;
 import org.apache.beam.sdk.util.VarInt;
+import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.ByteString;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ImmutableList;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.io.ByteStreams;
 
@@ -61,6 +63,12 @@ public class LengthPrefixCoder<T> extends StructuredCoder<T> {
   @Override
   public T decode(InputStream inStream) throws CoderException, IOException {
     long size = VarInt.decodeLong(inStream);
+    if (inStream instanceof ByteStringInputStream && size >= 0 && size <= Integer.MAX_VALUE) {
+      // Bound the value by a view over the underlying bytes which allows the value coder to
+      // decode without copying.
+      ByteString bytes = ((ByteStringInputStream) inStream).readByteString((int) size);
+      return valueCoder.decode(ByteStringInputStream.of(bytes), Context.OUTER);
+    }
     return valueCoder.decode(ByteStreams.limit(inStream, size), Context.OUTER);
   }
 
@@ -37,6 +37,7 @@ import org.apache.beam.sdk.options.ExperimentalOptions;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.util.ByteStringOutputStream;
 import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.ByteString;
+import org.apache.beam.vendor.grpc.v1p69p0.io.grpc.stub.CallStreamObserver;
 import org.apache.beam.vendor.grpc.v1p69p0.io.grpc.stub.StreamObserver;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.annotations.VisibleForTesting;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.util.concurrent.ThreadFactoryBuilder;
@@ -52,6 +53,12 @@ import org.slf4j.LoggerFactory;
  *
  * <p>The default time-based buffer threshold can be overridden by specifying the experiment {@code
  * data_buffer_time_limit_ms=<milliseconds>}
+ *
+ * <p>Specifying the experiment {@code data_buffer_adaptive} makes the size-based threshold adapt to
+ * the observed output rate. After every flush the threshold is moved towards the number of bytes
+ * that is produced within {@code data_buffer_target_latency_ms=<milliseconds>} and is grown when
+ * the outbound stream reports that it is not ready to accept more messages. The adapted threshold
+ * stays within [{@code data_buffer_size_limit / 16}, {@code data_buffer_size_limit * 4}].
  */
 @SuppressWarnings({
   "nullness" // TODO(https://github.com/apache/beam/issues/20497)
@@ -68,10 +75,22 @@ public class BeamFnDataOutboundAggregator {
   public static final int DEFAULT_BUFFER_LIMIT_BYTES = 1_000_000;
   public static final String DATA_BUFFER_TIME_LIMIT_MS = "data_buffer_time_limit_ms=";
   public static final long DEFAULT_BUFFER_LIMIT_TIME_MS = -1L;
+  public static final String DATA_BUFFER_ADAPTIVE = "data_buffer_adaptive";
+  public static final String DATA_BUFFER_TARGET_LATENCY_MS = "data_buffer_target_latency_ms=";
+  public static final long DEFAULT_TARGET_LATENCY_MS = 100L;
+  private static final int ADAPTIVE_MIN_LIMIT_DIVISOR = 16;
+  private static final int ADAPTIVE_MAX_LIMIT_MULTIPLIER = 4;
 
   private static final Logger LOG = LoggerFactory.getLogger(BeamFnDataOutboundAggregator.class);
   private final int sizeLimit;
   private final long timeLimit;
+  private final boolean adaptive;
+  private final long targetLatencyNanos;
+  private final int minAdaptiveSizeLimit;
+  private final int maxAdaptiveSizeLimit;
+  // The threshold currently in use, equal to sizeLimit unless the adaptive mode is enabled.
+  private int currentSizeLimit;
+  private long lastFlushNanos;
   private final Supplier<String> processBundleRequestIdSupplier;
   @VisibleForTesting final Map<String, Receiver<?>> outputDataReceivers;
   @VisibleForTesting final Map<TimerEndpoint, Receiver<?>> outputTimersReceivers;
@@ -89,6 +108,13 @@ public class BeamFnDataOutboundAggregator {
       boolean collectElementsIfNoFlushes) {
     this.sizeLimit = getSizeLimit(options);
     this.timeLimit = getTimeLimit(options);
+    this.adaptive = isAdaptive(options);
+    this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(getTargetLatency(options));
+    this.minAdaptiveSizeLimit = Math.max(1, sizeLimit / ADAPTIVE_MIN_LIMIT_DIVISOR);
+    this.maxAdaptiveSizeLimit =
+        (int) Math.min(Integer.MAX_VALUE, (long) sizeLimit * ADAPTIVE_MAX_LIMIT_MULTIPLIER);
+    this.currentSizeLimit = sizeLimit;
+    this.lastFlushNanos = System.nanoTime();
     this.collectElementsIfNoFlushes = collectElementsIfNoFlushes;
     this.outputDataReceivers = new HashMap<>();
     this.outputTimersReceivers = new HashMap<>();
@@ -164,11 +190,54 @@ public class BeamFnDataOutboundAggregator {
     if (bytesWrittenSinceFlush == 0) {
       return;
     }
+    long flushedBytes = bytesWrittenSinceFlush;
     Elements.Builder elements = convertBufferForTransmission();
     if (elements.getDataCount() > 0 || elements.getTimersCount() > 0) {
       outboundObserver.onNext(elements.build());
     }
     hasFlushedForBundle = true;
+    if (adaptive) {
+      adaptSizeLimit(flushedBytes);
+    }
+  }
+
+  /**
+   * Moves the size threshold towards the number of bytes produced within the target latency based
+   * upon the rate observed since the previous flush. If the outbound stream is applying
+   * backpressure, the threshold is doubled instead so that fewer and larger messages are sent.
+   */
+  private void adaptSizeLimit(long flushedBytes) {
+    long now = System.nanoTime();
+    long elapsedNanos = Math.max(1L, now - lastFlushNanos);
+    lastFlushNanos = now;
+
+    long target;
+    if (outboundObserver instanceof CallStreamObserver
+        && !((CallStreamObserver<?>) outboundObserver).isReady()) {
+      target = (long) currentSizeLimit * 2;
+    } else {
+      double bytesPerNano = (double) flushedBytes / elapsedNanos;
+      // Average with the current threshold to dampen oscillation between bursts.
+      target = ((long) (bytesPerNano * targetLatencyNanos) + currentSizeLimit) / 2;
+    }
+    int newSizeLimit =
+        (int) Math.max(minAdaptiveSizeLimit, Math.min(maxAdaptiveSizeLimit, target));
+    if (newSizeLimit != currentSizeLimit) {
+      LOG.debug(
+          "Adapting outbound data buffer size limit from {} to {} bytes for instruction {}.",
+          currentSizeLimit,
+          newSizeLimit,
+          processBundleRequestIdSupplier.get());
+      currentSizeLimit = newSizeLimit;
+    }
+  }
+
+  /**
+   * Returns the size-based buffer threshold currently in use. This only differs from the
+   * configured {@code data_buffer_size_limit} when {@code data_buffer_adaptive} is enabled.
+   */
+  public int getCurrentSizeLimit() {
+    return currentSizeLimit;
   }
 
   /**
@@ -220,6 +289,8 @@ public class BeamFnDataOutboundAggregator {
     // This is now at the end of a bundle, so we reset hasFlushedForBundle to prepare for new
     // bundles.
     hasFlushedForBundle = false;
+    // Time between bundles is not representative of the output rate.
+    lastFlushNanos = System.nanoTime();
     return null;
   }
 
@@ -322,6 +393,20 @@ public class BeamFnDataOutboundAggregator {
     return DEFAULT_BUFFER_LIMIT_TIME_MS;
   }
 
+  private static boolean isAdaptive(PipelineOptions options) {
+    return ExperimentalOptions.hasExperiment(options, DATA_BUFFER_ADAPTIVE);
+  }
+
+  private static long getTargetLatency(PipelineOptions options) {
+    List<String> experiments = options.as(ExperimentalOptions.class).getExperiments();
+    for (String experiment : experiments == null ? Collections.<String>emptyList() : experiments) {
+      if (experiment.startsWith(DATA_BUFFER_TARGET_LATENCY_MS)) {
+        return Long.parseLong(experiment.substring(DATA_BUFFER_TARGET_LATENCY_MS.length()));
+      }
+    }
+    return DEFAULT_TARGET_LATENCY_MS;
+  }
+
   @VisibleForTesting
   class Receiver<T> implements FnDataReceiver<T> {
     private final ByteStringOutputStream output;
@@ -347,7 +432,7 @@ public class BeamFnDataOutboundAggregator {
       bytesWrittenSinceFlush += delta;
       perBundleByteCount += delta;
       perBundleElementCount += 1;
-      if (bytesWrittenSinceFlush > sizeLimit) {
+      if (bytesWrittenSinceFlush > currentSizeLimit) {
         flushInternal();
       }
     }
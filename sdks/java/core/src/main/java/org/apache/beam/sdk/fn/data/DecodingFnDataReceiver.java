@@ -19,6 +19,7 @@ package org.apache.beam.sdk.fn.data;
 
 import java.io.InputStream;
 import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.util.ByteStringInputStream;
 import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.ByteString;
 
 /** A receiver of encoded data, decoding it and passing it onto a downstream consumer. */
@@ -38,7 +39,7 @@ public class DecodingFnDataReceiver<T> implements FnDataReceiver<ByteString> {
 
   @Override
   public void accept(ByteString input) throws Exception {
-    InputStream inputStream = input.newInput();
+    InputStream inputStream = ByteStringInputStream.of(input);
     while (inputStream.available() > 0) {
       consumer.accept(coder.decode(inputStream));
     }
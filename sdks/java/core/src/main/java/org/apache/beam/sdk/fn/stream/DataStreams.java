@@ -19,6 +19,7 @@ package org.apache.beam.sdk.fn.stream;
 
 import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Preconditions.checkState;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -28,6 +29,7 @@ import java.util.List;
 import java.util.NoSuchElementException;
 import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.fn.data.WeightedList;
+import org.apache.beam.sdk.util.ByteStringInputStream;
 import org.apache.beam.sdk.util.ByteStringOutputStream;
 import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.ByteString;
 
@@ -192,11 +194,11 @@ public class DataStreams {
      */
     public WeightedList<T> decodeFromChunkBoundaryToChunkBoundary() {
       ByteString byteString = inputByteStrings.next();
-      inbound.currentStream = byteString.newInput();
+      inbound.currentStream = ByteStringInputStream.of(byteString);
       inbound.position = 0;
 
       try {
-        InputStream previousStream = inbound.currentStream;
+        ByteStringInputStream previousStream = inbound.currentStream;
         List<T> rvals = new ArrayList<>();
         while (previousStream == inbound.currentStream && inbound.currentStream.available() != 0) {
           T next = next();
@@ -253,7 +255,7 @@ public class DataStreams {
 
       try {
         long previousPosition = inbound.position;
-        InputStream previousStream = inbound.currentStream;
+        ByteStringInputStream previousStream = inbound.currentStream;
         T next = coder.decode(inbound);
         // Skip one byte if decoding the value consumed 0 bytes.
         if (previousPosition == inbound.position && previousStream == inbound.currentStream) {
@@ -270,7 +272,8 @@ public class DataStreams {
       throw new UnsupportedOperationException();
     }
 
-    private static final InputStream EMPTY_STREAM = ByteString.EMPTY.newInput();
+    private static final ByteStringInputStream EMPTY_STREAM =
+        ByteStringInputStream.of(ByteString.EMPTY);
 
     /**
      * An input stream which concatenates multiple {@link ByteString}s. Lazily accesses the {@link
@@ -278,18 +281,18 @@ public class DataStreams {
      *
      * <p>Closing this input stream has no effect.
      */
-    private class Inbound extends InputStream {
+    private class Inbound extends ByteStringInputStream {
       private int position; // Position within the current input stream.
-      private InputStream currentStream;
+      private ByteStringInputStream currentStream;
 
       public Inbound() {
         this.currentStream = EMPTY_STREAM;
       }
 
       public boolean isReady() throws IOException {
-        // Note that ByteString#newInput is guaranteed to return the length of the entire ByteString
-        // minus the number of bytes that have been read so far and can be reliably used to tell
-        // us whether we are at the end of the stream.
+        // Note that ByteStringInputStream#available is guaranteed to return the length of the
+        // entire ByteString minus the number of bytes that have been read so far and can be
+        // reliably used to tell us whether we are at the end of the stream.
         while (currentStream.available() == 0) {
           if (!inputByteStrings.isReady()) {
             return false;
@@ -297,21 +300,21 @@ public class DataStreams {
           if (!inputByteStrings.hasNext()) {
             return true;
           }
-          currentStream = inputByteStrings.next().newInput();
+          currentStream = ByteStringInputStream.of(inputByteStrings.next());
           position = 0;
         }
         return true;
       }
 
       public boolean isEof() throws IOException {
-        // Note that ByteString#newInput is guaranteed to return the length of the entire ByteString
-        // minus the number of bytes that have been read so far and can be reliably used to tell
-        // us whether we are at the end of the stream.
+        // Note that ByteStringInputStream#available is guaranteed to return the length of the
+        // entire ByteString minus the number of bytes that have been read so far and can be
+        // reliably used to tell us whether we are at the end of the stream.
         while (currentStream.available() == 0) {
           if (!inputByteStrings.hasNext()) {
             return true;
           }
-          currentStream = inputByteStrings.next().newInput();
+          currentStream = ByteStringInputStream.of(inputByteStrings.next());
           position = 0;
         }
         return false;
@@ -325,7 +328,7 @@ public class DataStreams {
           if (!inputByteStrings.hasNext()) {
             return -1;
           }
-          currentStream = inputByteStrings.next().newInput();
+          currentStream = ByteStringInputStream.of(inputByteStrings.next());
           position = 0;
         }
         position += 1;
@@ -337,7 +340,7 @@ public class DataStreams {
         int remainingLen = len;
         while (remainingLen > 0) {
           int read;
-          // Move on to the next stream if this stream is done. Note that ByteString.newInput
+          // Move on to the next stream if this stream is done. Note that ByteStringInputStream
           // guarantees that read will consume the entire ByteString if the passed in length is
           // greater than or equal to the remaining amount.
           while ((read = currentStream.read(b, off + len - remainingLen, remainingLen)) == -1) {
@@ -346,7 +349,7 @@ public class DataStreams {
               position += bytesRead;
               return bytesRead > 0 ? bytesRead : -1;
             }
-            currentStream = inputByteStrings.next().newInput();
+            currentStream = ByteStringInputStream.of(inputByteStrings.next());
             position = 0;
           }
           remainingLen -= read;
@@ -354,6 +357,46 @@ public class DataStreams {
         position += len;
         return len;
       }
+
+      @Override
+      public ByteString readByteString(int length) throws IOException {
+        // Fast path: the bytes are contained within the current ByteString and can be returned
+        // as a view without copying.
+        if (currentStream.available() >= length) {
+          position += length;
+          return currentStream.readByteString(length);
+        }
+        ByteString rval = ByteString.EMPTY;
+        int remainingLen = length;
+        while (remainingLen > 0) {
+          while (currentStream.available() == 0) {
+            if (!inputByteStrings.hasNext()) {
+              throw new EOFException(
+                  String.format(
+                      "Requested %s bytes but only %s bytes remain.",
+                      length, length - remainingLen));
+            }
+            currentStream = ByteStringInputStream.of(inputByteStrings.next());
+            position = 0;
+          }
+          int toRead = Math.min(remainingLen, currentStream.available());
+          rval = rval.concat(currentStream.readByteString(toRead));
+          position += toRead;
+          remainingLen -= toRead;
+        }
+        return rval;
+      }
+
+      @Override
+      public ByteString readRemaining() throws IOException {
+        ByteString rval = currentStream.readRemaining();
+        while (inputByteStrings.hasNext()) {
+          rval = rval.concat(inputByteStrings.next());
+        }
+        currentStream = EMPTY_STREAM;
+        position = 0;
+        return rval;
+      }
     }
   }
 }
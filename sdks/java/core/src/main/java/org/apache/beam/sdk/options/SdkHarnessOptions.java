@@ -208,6 +208,48 @@ public interface SdkHarnessOptions extends PipelineOptions, MemoryMonitorOptions
 
   void setMaxCacheMemoryUsageMbClass(Class<? extends MaxCacheMemoryUsageMb> kls);
 
+  /**
+   * Whether the process wide cache within the SDK harness uses a frequency based admission filter.
+   *
+   * <p>When enabled, keys which have been accessed only once recently are not admitted into a full
+   * cache. This prevents scans over many distinct keys, such as user state for a large key space,
+   * from evicting frequently used entries.
+   */
+  @Description(
+      "Whether the process wide cache within the SDK harness uses a frequency based admission "
+          + "filter. When enabled, keys which have been accessed only once recently are not "
+          + "admitted into a full cache, protecting frequently used entries from being evicted.")
+  @Default.Boolean(false)
+  boolean getEnableCacheAdmissionFilter();
+
+  void setEnableCacheAdmissionFilter(boolean value);
+
+  /**
+   * The maximum number of pages of paged state, such as large bags or iterable side inputs, that
+   * are requested ahead of being consumed. Set to 0 to only request the next page once the current
+   * page is received.
+   */
+  @Description(
+      "The maximum number of pages of paged state, such as large bags or iterable side inputs, "
+          + "that are requested ahead of being consumed. Set to 0 to only request the next page "
+          + "once the current page is received.")
+  @Default.Integer(0)
+  int getStateReadAheadPages();
+
+  void setStateReadAheadPages(int value);
+
+  /**
+   * The maximum size (in MB) of pages of paged state that were requested ahead of being consumed
+   * within a bundle, see {@link #getStateReadAheadPages()}.
+   */
+  @Description(
+      "The maximum size (in MB) of pages of paged state that were requested ahead of being "
+          + "consumed within a bundle, see --stateReadAheadPages.")
+  @Default.Integer(64)
+  int getStateReadAheadMb();
+
+  void setStateReadAheadMb(int value);
+
   /**
    * A {@link DefaultValueFactory} which constructs an instance of the class specified by {@link
    * #getMaxCacheMemoryUsageMbClass maxCacheMemoryUsageMbClass} to compute the maximum amount of
@@ -822,6 +822,46 @@ public abstract class DoFn<InputT extends @Nullable Object, OutputT extends @Nul
   @Target(ElementType.METHOD)
   public @interface ProcessElement {}
 
+  /**
+   * Annotation for an optional method which processes a batch of elements at once. Runners which
+   * support batched processing may invoke this method instead of {@link ProcessElement} for a
+   * consecutive run of input elements which share the same window, timestamp and pane. Runners
+   * which do not support it, or which are unable to form a batch, continue to invoke {@link
+   * ProcessElement} for each element, so a {@link DoFn} declaring this method must still declare a
+   * {@link ProcessElement} method with equivalent semantics.
+   *
+   * <p>This method must satisfy the following constraints:
+   *
+   * <ul>
+   *   <li>Exactly one of its arguments must be tagged with the {@link Element} annotation and be of
+   *       type {@code List<InputT>}. It will be passed the elements of the current batch in input
+   *       order. The list is only valid for the duration of the call and must not be retained or
+   *       modified.
+   *   <li>If one of its arguments is tagged with the {@link Timestamp} annotation, then it will be
+   *       passed the timestamp shared by all elements of the batch; the argument must be of type
+   *       {@link Instant}.
+   *   <li>If one of its arguments is a subtype of {@link BoundedWindow}, then it will be passed the
+   *       window shared by all elements of the batch.
+   *   <li>If one of its arguments is of type {@link PaneInfo}, then it will be passed the pane
+   *       shared by all elements of the batch.
+   *   <li>If one of the parameters is of type {@link PipelineOptions}, then it will be passed the
+   *       options for the current pipeline.
+   *   <li>If one of the parameters is of type {@link OutputReceiver}, then it will be passed an
+   *       output receiver for outputting elements to the default output.
+   *   <li>If one of the parameters is of type {@link MultiOutputReceiver}, then it will be passed
+   *       an output receiver for outputting to multiple tagged outputs.
+   *   <li>It must return {@code void}.
+   * </ul>
+   *
+   * <p>A {@link DoFn} declaring this method must not be splittable, use state or timers, or require
+   * time sorted input. Runners may choose to only use {@link ProcessElement} when the {@link
+   * ParDo} has side inputs.
+   */
+  @Documented
+  @Retention(RetentionPolicy.RUNTIME)
+  @Target(ElementType.METHOD)
+  public @interface ProcessBatch {}
+
   /**
    * Parameter annotation for the input element for {@link ProcessElement}, {@link
    * GetInitialRestriction}, {@link GetSize}, {@link SplitRestriction}, {@link
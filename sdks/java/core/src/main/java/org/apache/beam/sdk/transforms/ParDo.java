@@ -584,6 +584,9 @@ public class ParDo {
         input.getWindowingStrategy().getWindowFn().getWindowTypeDescriptor();
 
     validateWindowTypeForMethod(actualWindowT, signature.processElement());
+    if (signature.processBatch() != null) {
+      validateWindowTypeForMethod(actualWindowT, signature.processBatch());
+    }
     for (OnTimerMethod method : signature.onTimerMethods().values()) {
       validateWindowTypeForMethod(actualWindowT, method);
     }
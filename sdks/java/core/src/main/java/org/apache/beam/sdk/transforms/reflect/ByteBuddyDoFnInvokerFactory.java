@@ -74,6 +74,7 @@ import org.apache.beam.sdk.transforms.DoFn.GetSize;
 import org.apache.beam.sdk.transforms.DoFn.ProcessElement;
 import org.apache.beam.sdk.transforms.DoFn.TruncateRestriction;
 import org.apache.beam.sdk.transforms.reflect.DoFnSignature.OnTimerMethod;
+import org.apache.beam.sdk.transforms.reflect.DoFnSignature.Parameter.BatchElementsParameter;
 import org.apache.beam.sdk.transforms.reflect.DoFnSignature.Parameter.BundleFinalizerParameter;
 import org.apache.beam.sdk.transforms.reflect.DoFnSignature.Parameter.Cases;
 import org.apache.beam.sdk.transforms.reflect.DoFnSignature.Parameter.CausedByDrainParameter;
@@ -125,6 +126,7 @@ class ByteBuddyDoFnInvokerFactory implements DoFnInvokerFactory {
   public static final String FINISH_BUNDLE_CONTEXT_PARAMETER_METHOD = "finishBundleContext";
   public static final String PROCESS_CONTEXT_PARAMETER_METHOD = "processContext";
   public static final String ELEMENT_PARAMETER_METHOD = "element";
+  public static final String BATCH_ELEMENTS_PARAMETER_METHOD = "batchElements";
   public static final String SCHEMA_ELEMENT_PARAMETER_METHOD = "schemaElement";
   public static final String TIMESTAMP_PARAMETER_METHOD = "timestamp";
   public static final String CAUSED_BY_DRAIN_PARAMETER_METHOD = "causedByDrain";
@@ -595,6 +597,14 @@ class ByteBuddyDoFnInvokerFactory implements DoFnInvokerFactory {
             .method(ElementMatchers.named("invokeProcessElement"))
             .intercept(new ProcessElementDelegation(clazzDescription, signature.processElement()))
 
+            //   public invokeProcessBatch(ExtraContextFactory) {
+            //     delegate.<@ProcessBatch>(... pass just the right args ...);
+            //   }
+            .method(ElementMatchers.named("invokeProcessBatch"))
+            .intercept(
+                delegateMethodWithExtraParametersOrThrow(
+                    clazzDescription, signature.processBatch()))
+
             //   public invokeStartBundle(Context c) { delegate.<@StartBundle>(c); }
             //   ... etc ...
             .method(ElementMatchers.named("invokeStartBundle"))
@@ -1066,6 +1076,15 @@ class ByteBuddyDoFnInvokerFactory implements DoFnInvokerFactory {
                 TypeCasting.to(new TypeDescription.ForLoadedType(p.elementT().getRawType())));
           }
 
+          @Override
+          public StackManipulation dispatch(BatchElementsParameter p) {
+            return new StackManipulation.Compound(
+                pushDelegate,
+                MethodInvocation.invoke(
+                    getExtraContextFactoryMethodDescription(
+                        BATCH_ELEMENTS_PARAMETER_METHOD, DoFn.class)));
+          }
+
           @Override
           public StackManipulation dispatch(SchemaElementParameter p) {
             ForLoadedType elementType = new ForLoadedType(p.elementT().getRawType());
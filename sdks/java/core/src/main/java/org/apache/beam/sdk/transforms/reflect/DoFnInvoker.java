@@ -17,6 +17,7 @@
  */
 package org.apache.beam.sdk.transforms.reflect;
 
+import java.util.List;
 import org.apache.beam.sdk.annotations.Internal;
 import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.coders.CoderRegistry;
@@ -79,6 +80,17 @@ public interface DoFnInvoker<InputT, OutputT> {
    */
   DoFn.ProcessContinuation invokeProcessElement(ArgumentProvider<InputT, OutputT> extra);
 
+  /**
+   * Invoke the {@link DoFn.ProcessBatch} method on the bound {@link DoFn}.
+   *
+   * <p>Throws {@link UnsupportedOperationException} if the {@link DoFn} does not declare a {@link
+   * DoFn.ProcessBatch} method.
+   *
+   * @param extra Factory for producing the batch of elements and extra parameter objects (such as
+   *     window), if necessary.
+   */
+  void invokeProcessBatch(ArgumentProvider<InputT, OutputT> extra);
+
   /** Invoke the appropriate {@link DoFn.OnTimer} method on the bound {@link DoFn}. */
   void invokeOnTimer(
       String timerId, String timerFamilyId, ArgumentProvider<InputT, OutputT> arguments);
@@ -187,6 +199,16 @@ public interface DoFnInvoker<InputT, OutputT> {
     /** Provide a reference to the input element. */
     InputT element(DoFn<InputT, OutputT> doFn);
 
+    /**
+     * Provide the batch of input elements for a {@link DoFn.ProcessBatch} method. All elements of
+     * the batch share the {@link #window}, {@link #timestamp} and {@link #paneInfo} provided by
+     * this {@link ArgumentProvider}.
+     */
+    default List<InputT> batchElements(DoFn<InputT, OutputT> doFn) {
+      throw new UnsupportedOperationException(
+          "Batch elements unsupported by " + getClass().getName());
+    }
+
     /**
      * Provide a reference to the input element key in {@link org.apache.beam.sdk.values.KV} pair.
      *
@@ -299,6 +321,12 @@ public interface DoFnInvoker<InputT, OutputT> {
           String.format("Element unsupported in %s", getErrorContext()));
     }
 
+    @Override
+    public List<InputT> batchElements(DoFn<InputT, OutputT> doFn) {
+      throw new UnsupportedOperationException(
+          String.format("Batch elements unsupported in %s", getErrorContext()));
+    }
+
     @Override
     public @Nullable Object key() {
       throw new UnsupportedOperationException(
@@ -504,6 +532,11 @@ public interface DoFnInvoker<InputT, OutputT> {
       return delegate.element(doFn);
     }
 
+    @Override
+    public List<InputT> batchElements(DoFn<InputT, OutputT> doFn) {
+      return delegate.batchElements(doFn);
+    }
+
     @Override
     public @Nullable Object key() {
       return delegate.key();
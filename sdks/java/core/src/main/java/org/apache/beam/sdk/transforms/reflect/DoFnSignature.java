@@ -79,6 +79,10 @@ public abstract class DoFnSignature {
   @Pure
   public abstract ProcessElementMethod processElement();
 
+  /** Details about this {@link DoFn}'s {@link DoFn.ProcessBatch} method. */
+  @Pure
+  public abstract @Nullable ProcessBatchMethod processBatch();
+
   /** Details about the state cells that this {@link DoFn} declares. Immutable. */
   @Pure
   public abstract Map<String, StateDeclaration> stateDeclarations();
@@ -192,6 +196,8 @@ public abstract class DoFnSignature {
 
     abstract Builder setProcessElement(ProcessElementMethod processElement);
 
+    abstract Builder setProcessBatch(ProcessBatchMethod processBatch);
+
     abstract Builder setStartBundle(BundleMethod startBundle);
 
     abstract Builder setFinishBundle(BundleMethod finishBundle);
@@ -346,6 +352,8 @@ public abstract class DoFnSignature {
         return cases.dispatch((CausedByDrainParameter) this);
       } else if (this instanceof KeyParameter) {
         return cases.dispatch((KeyParameter) this);
+      } else if (this instanceof BatchElementsParameter) {
+        return cases.dispatch((BatchElementsParameter) this);
       } else {
         throw new IllegalStateException(
             String.format(
@@ -406,6 +414,8 @@ public abstract class DoFnSignature {
 
       ResultT dispatch(KeyParameter p);
 
+      ResultT dispatch(BatchElementsParameter p);
+
       /** A base class for a visitor with a default method for cases it is not interested in. */
       abstract class WithDefault<ResultT> implements Cases<ResultT> {
 
@@ -535,6 +545,11 @@ public abstract class DoFnSignature {
         public ResultT dispatch(KeyParameter p) {
           return dispatchDefault(p);
         }
+
+        @Override
+        public ResultT dispatch(BatchElementsParameter p) {
+          return dispatchDefault(p);
+        }
       }
     }
 
@@ -656,6 +671,11 @@ public abstract class DoFnSignature {
       return new AutoValue_DoFnSignature_Parameter_KeyParameter(keyT);
     }
 
+    /** Returns a {@link BatchElementsParameter}. */
+    public static BatchElementsParameter batchElementsParameter(TypeDescriptor<?> elementT) {
+      return new AutoValue_DoFnSignature_Parameter_BatchElementsParameter(elementT);
+    }
+
     /** Returns a {@link PipelineOptionsParameter}. */
     public static PipelineOptionsParameter pipelineOptions() {
       return PIPELINE_OPTIONS_PARAMETER;
@@ -823,6 +843,19 @@ public abstract class DoFnSignature {
       public abstract TypeDescriptor<?> keyT();
     }
 
+    /**
+     * Descriptor for a {@link Parameter} of type {@link DoFn.Element} on a {@link
+     * DoFn.ProcessBatch} method, receiving a {@code List} of input elements.
+     */
+    @AutoValue
+    public abstract static class BatchElementsParameter extends Parameter {
+      BatchElementsParameter() {}
+
+      /** The type of the individual elements of the batch. */
+      @Pure
+      public abstract TypeDescriptor<?> elementT();
+    }
+
     /**
      * Descriptor for a {@link Parameter} representing the time domain of a timer.
      *
@@ -1219,6 +1252,34 @@ public abstract class DoFnSignature {
     }
   }
 
+  /** Describes a {@link DoFn.ProcessBatch} method. */
+  @AutoValue
+  public abstract static class ProcessBatchMethod implements MethodWithExtraParameters {
+    /** The annotated method itself. */
+    @Override
+    @Pure
+    public abstract Method targetMethod();
+
+    /** Types of optional parameters of the annotated method, in the order they appear. */
+    @Override
+    @Pure
+    public abstract List<Parameter> extraParameters();
+
+    /** The window type used by this method, if any. */
+    @Override
+    @Pure
+    public abstract @Nullable TypeDescriptor<? extends BoundedWindow> windowT();
+
+    @Pure
+    static ProcessBatchMethod create(
+        Method targetMethod,
+        List<Parameter> extraParameters,
+        @Nullable TypeDescriptor<? extends BoundedWindow> windowT) {
+      return new AutoValue_DoFnSignature_ProcessBatchMethod(
+          targetMethod, Collections.unmodifiableList(extraParameters), windowT);
+    }
+  }
+
   /** Describes a {@link DoFn.OnWindowExpiration} method. */
   @AutoValue
   public abstract static class OnWindowExpirationMethod implements MethodWithExtraParameters {
@@ -160,6 +160,16 @@ public class DoFnSignatures {
               Parameter.CausedByDrainParameter.class,
               Parameter.BundleFinalizerParameter.class);
 
+  private static final ImmutableList<Class<? extends Parameter>> ALLOWED_PROCESS_BATCH_PARAMETERS =
+      ImmutableList.of(
+          Parameter.BatchElementsParameter.class,
+          Parameter.TimestampParameter.class,
+          Parameter.OutputReceiverParameter.class,
+          Parameter.TaggedOutputReceiverParameter.class,
+          Parameter.WindowParameter.class,
+          Parameter.PaneInfoParameter.class,
+          Parameter.PipelineOptionsParameter.class);
+
   private static final ImmutableList<Class<? extends Parameter>> ALLOWED_SETUP_PARAMETERS =
       ImmutableList.of(Parameter.PipelineOptionsParameter.class);
 
@@ -542,6 +552,7 @@ public class DoFnSignatures {
 
     Method processElementMethod =
         findAnnotatedMethod(errors, DoFn.ProcessElement.class, fnClass, true);
+    Method processBatchMethod = findAnnotatedMethod(errors, DoFn.ProcessBatch.class, fnClass, false);
     Method startBundleMethod = findAnnotatedMethod(errors, DoFn.StartBundle.class, fnClass, false);
     Method finishBundleMethod =
         findAnnotatedMethod(errors, DoFn.FinishBundle.class, fnClass, false);
@@ -651,6 +662,26 @@ public class DoFnSignatures {
             processElementErrors, fnT, processElementMethod, inputT, outputT, fnContext);
     signatureBuilder.setProcessElement(processElement);
 
+    if (processBatchMethod != null) {
+      ErrorReporter processBatchErrors =
+          errors.forMethod(DoFn.ProcessBatch.class, processBatchMethod);
+      processBatchErrors.checkArgument(
+          !processElement.isSplittable(), "Not supported for splittable %s", format(DoFn.class));
+      processBatchErrors.checkArgument(
+          fnContext.getStateDeclarations().isEmpty()
+              && fnContext.getTimerDeclarations().isEmpty()
+              && fnContext.getTimerFamilyDeclarations().isEmpty(),
+          "Not supported for %s using state or timers",
+          format(DoFn.class));
+      processBatchErrors.checkArgument(
+          !processElement.requiresTimeSortedInput(),
+          "Not supported for %s requiring time sorted input",
+          format(DoFn.class));
+      signatureBuilder.setProcessBatch(
+          analyzeProcessBatchMethod(
+              processBatchErrors, fnT, processBatchMethod, inputT, outputT, fnContext));
+    }
+
     if (startBundleMethod != null) {
       ErrorReporter startBundleErrors = errors.forMethod(DoFn.StartBundle.class, startBundleMethod);
       signatureBuilder.setStartBundle(
@@ -1297,6 +1328,51 @@ public class DoFnSignatures {
         DoFn.ProcessContinuation.class.equals(m.getReturnType()));
   }
 
+  @VisibleForTesting
+  static DoFnSignature.ProcessBatchMethod analyzeProcessBatchMethod(
+      ErrorReporter errors,
+      TypeDescriptor<? extends DoFn<?, ?>> fnClass,
+      Method m,
+      TypeDescriptor<?> inputT,
+      TypeDescriptor<?> outputT,
+      FnAnalysisContext fnContext) {
+    errors.checkArgument(void.class.equals(m.getReturnType()), "Must return void");
+
+    MethodAnalysisContext methodContext = MethodAnalysisContext.create();
+    TypeDescriptor<? extends BoundedWindow> windowT = getWindowType(fnClass, m);
+    TypeDescriptor<?> expectedBatchT = listTypeOf(inputT);
+
+    Type[] params = m.getGenericParameterTypes();
+    for (int i = 0; i < params.length; ++i) {
+      ParameterDescription param =
+          ParameterDescription.of(
+              m, i, fnClass.resolveType(params[i]), Arrays.asList(m.getParameterAnnotations()[i]));
+      Parameter extraParam;
+      if (hasAnnotation(DoFn.Element.class, param.getAnnotations())) {
+        errors
+            .forParameter(param)
+            .checkArgument(
+                param.getType().equals(expectedBatchT),
+                "@Element argument must have type %s",
+                format(expectedBatchT));
+        errors.checkArgument(
+            !methodContext.hasParameter(Parameter.BatchElementsParameter.class),
+            "Multiple @Element parameters");
+        extraParam = Parameter.batchElementsParameter(inputT);
+      } else {
+        extraParam = analyzeExtraParameter(errors, fnContext, methodContext, param, inputT, outputT);
+      }
+      checkParameterOneOf(errors, extraParam, ALLOWED_PROCESS_BATCH_PARAMETERS);
+      methodContext.addParameter(extraParam);
+    }
+    errors.checkArgument(
+        methodContext.hasParameter(Parameter.BatchElementsParameter.class),
+        "Must have an @Element parameter of type %s",
+        format(expectedBatchT));
+
+    return DoFnSignature.ProcessBatchMethod.create(m, methodContext.getExtraParameters(), windowT);
+  }
+
   private static void checkParameterOneOf(
       ErrorReporter errors,
       Parameter parameter,
@@ -1810,6 +1886,11 @@ public class DoFnSignatures {
         new TypeParameter<OutputT>() {}, outputT);
   }
 
+  /** Generates a {@link TypeDescriptor} for {@code List<T>} given {@code T}. */
+  private static <T> TypeDescriptor<List<T>> listTypeOf(TypeDescriptor<T> elementT) {
+    return new TypeDescriptor<List<T>>() {}.where(new TypeParameter<T>() {}, elementT);
+  }
+
   @VisibleForTesting
   static DoFnSignature.SplitRestrictionMethod analyzeSplitRestrictionMethod(
       ErrorReporter errors,
@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import javax.annotation.concurrent.NotThreadSafe;
+import org.apache.beam.sdk.annotations.Internal;
+import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.ByteString;
+
+/**
+ * An {@link InputStream} over one or more {@link ByteString}s which is able to return the bytes it
+ * has not yet consumed as {@link ByteString} views without copying them.
+ *
+ * <p>{@link org.apache.beam.sdk.coders.Coder Coders} may check for this type to avoid
+ * materializing intermediate {@code byte[]}s while decoding, for example when decoding a {@link
+ * String} or when bounding the input of a length prefixed value. Callers must not assume that
+ * views returned by this stream are backed by a copy since the underlying {@link ByteString} may
+ * share memory with the original buffer.
+ *
+ * <p>Closing this input stream has no effect.
+ *
+ * <p>This class is not thread safe.
+ */
+@Internal
+@NotThreadSafe
+public abstract class ByteStringInputStream extends InputStream {
+
+  /** Returns a {@link ByteStringInputStream} over the bytes of the given {@link ByteString}. */
+  public static ByteStringInputStream of(ByteString byteString) {
+    return new ForByteString(byteString);
+  }
+
+  /**
+   * Returns the next {@code length} bytes of this stream as a {@link ByteString} and advances past
+   * them.
+   *
+   * <p>The returned {@link ByteString} is a view over the bytes of this stream when they are
+   * contained within a single underlying {@link ByteString} and a concatenation of such views
+   * otherwise.
+   *
+   * @throws EOFException if fewer than {@code length} bytes remain in this stream.
+   */
+  public abstract ByteString readByteString(int length) throws IOException;
+
+  /** Returns all remaining bytes of this stream as a {@link ByteString} and advances to the end. */
+  public abstract ByteString readRemaining() throws IOException;
+
+  /** A {@link ByteStringInputStream} over a single {@link ByteString}. */
+  private static final class ForByteString extends ByteStringInputStream {
+    private final ByteString byteString;
+    private int position;
+
+    private ForByteString(ByteString byteString) {
+      this.byteString = byteString;
+      this.position = 0;
+    }
+
+    @Override
+    public int read() {
+      if (position >= byteString.size()) {
+        return -1;
+      }
+      return byteString.byteAt(position++) & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (off < 0 || len < 0 || len > b.length - off) {
+        throw new IndexOutOfBoundsException();
+      }
+      if (len == 0) {
+        return 0;
+      }
+      int remaining = byteString.size() - position;
+      if (remaining <= 0) {
+        return -1;
+      }
+      int toRead = Math.min(len, remaining);
+      byteString.copyTo(b, position, off, toRead);
+      position += toRead;
+      return toRead;
+    }
+
+    @Override
+    public long skip(long n) {
+      if (n <= 0) {
+        return 0;
+      }
+      int toSkip = (int) Math.min(n, byteString.size() - position);
+      position += toSkip;
+      return toSkip;
+    }
+
+    /** Returns the exact number of bytes remaining in this stream. */
+    @Override
+    public int available() {
+      return byteString.size() - position;
+    }
+
+    @Override
+    public ByteString readByteString(int length) throws IOException {
+      if (length < 0) {
+        throw new IllegalArgumentException("Negative length: " + length);
+      }
+      if (length > byteString.size() - position) {
+        throw new EOFException(
+            String.format(
+                "Requested %s bytes but only %s bytes remain.",
+                length, byteString.size() - position));
+      }
+      ByteString rval = byteString.substring(position, position + length);
+      position += length;
+      return rval;
+    }
+
+    @Override
+    public ByteString readRemaining() {
+      ByteString rval = byteString.substring(position);
+      position = byteString.size();
+      return rval;
+    }
+  }
+}
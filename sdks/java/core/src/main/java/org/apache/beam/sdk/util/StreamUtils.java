@@ -51,6 +51,10 @@ public class StreamUtils {
       // Fast path for the exposed version.
       return ((ExposedByteArrayInputStream) stream).readAll();
     }
+    if (stream instanceof ByteStringInputStream) {
+      // Fast path for ByteStringInputStream, copies the remaining bytes exactly once.
+      return ((ByteStringInputStream) stream).readRemaining().toByteArray();
+    }
     if (stream instanceof ByteArrayInputStream) {
       // Fast path for ByteArrayInputStream.
       byte[] ret = new byte[stream.available()];
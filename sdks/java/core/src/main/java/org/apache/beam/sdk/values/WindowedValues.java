@@ -915,6 +915,17 @@ public class WindowedValues {
     @Override
     public void encode(WindowedValue<T> windowedElem, OutputStream outStream, Context context)
         throws CoderException, IOException {
+      encodeMetadata(windowedElem, outStream);
+      valueCoder.encode(windowedElem.getValue(), outStream, context);
+    }
+
+    /**
+     * Encodes the timestamp, windows, pane and element metadata of the windowed value, which
+     * precede the encoded value. Used by coders which encode the value themselves.
+     */
+    @Internal
+    public void encodeMetadata(WindowedValue<?> windowedElem, OutputStream outStream)
+        throws CoderException, IOException {
       InstantCoder.of().encode(windowedElem.getTimestamp(), outStream);
       windowsCoder.encode(windowedElem.getWindows(), outStream);
       boolean metadataSupported = isMetadataSupported();
@@ -933,7 +944,6 @@ public class WindowedValues {
 
         ByteArrayCoder.of().encode(em.toByteArray(), outStream);
       }
-      valueCoder.encode(windowedElem.getValue(), outStream, context);
     }
 
     @Override
@@ -947,15 +957,7 @@ public class WindowedValues {
       Instant timestamp = InstantCoder.of().decode(inStream);
       Collection<? extends BoundedWindow> windows = windowsCoder.decode(inStream);
       PaneInfo paneInfo = PaneInfoCoder.INSTANCE.decode(inStream);
-      CausedByDrain causedByDrain = CausedByDrain.NORMAL;
-      if (isMetadataSupported() && paneInfo.isElementMetadata()) {
-        BeamFnApi.Elements.ElementMetadata elementMetadata =
-            BeamFnApi.Elements.ElementMetadata.parseFrom(ByteArrayCoder.of().decode(inStream));
-        causedByDrain =
-            elementMetadata.getDrain().equals(BeamFnApi.Elements.DrainMode.Enum.DRAINING)
-                ? CausedByDrain.CAUSED_BY_DRAIN
-                : CausedByDrain.NORMAL;
-      }
+      CausedByDrain causedByDrain = decodeCausedByDrain(paneInfo, inStream);
       T value = valueCoder.decode(inStream, context);
 
       // Because there are some remaining (incorrect) uses of WindowedValue with no windows,
@@ -964,6 +966,34 @@ public class WindowedValues {
           value, timestamp, windows, paneInfo, causedByDrain);
     }
 
+    /**
+     * Decodes the metadata written by {@link #encodeMetadata}. The returned {@link WindowedValue}
+     * has a {@code null} value which is expected to be replaced using {@link
+     * WindowedValue#withValue} once the value has been decoded.
+     */
+    @Internal
+    public WindowedValue<@Nullable Object> decodeMetadata(InputStream inStream)
+        throws CoderException, IOException {
+      Instant timestamp = InstantCoder.of().decode(inStream);
+      Collection<? extends BoundedWindow> windows = windowsCoder.decode(inStream);
+      PaneInfo paneInfo = PaneInfoCoder.INSTANCE.decode(inStream);
+      CausedByDrain causedByDrain = decodeCausedByDrain(paneInfo, inStream);
+      return WindowedValues.createWithoutValidation(
+          null, timestamp, windows, paneInfo, causedByDrain);
+    }
+
+    private static CausedByDrain decodeCausedByDrain(PaneInfo paneInfo, InputStream inStream)
+        throws IOException {
+      if (isMetadataSupported() && paneInfo.isElementMetadata()) {
+        BeamFnApi.Elements.ElementMetadata elementMetadata =
+            BeamFnApi.Elements.ElementMetadata.parseFrom(ByteArrayCoder.of().decode(inStream));
+        return elementMetadata.getDrain().equals(BeamFnApi.Elements.DrainMode.Enum.DRAINING)
+            ? CausedByDrain.CAUSED_BY_DRAIN
+            : CausedByDrain.NORMAL;
+      }
+      return CausedByDrain.NORMAL;
+    }
+
     @Override
     public void verifyDeterministic() throws NonDeterministicException {
       verifyDeterministic(
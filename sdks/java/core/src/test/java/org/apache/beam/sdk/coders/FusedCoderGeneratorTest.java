@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.coders;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import org.apache.beam.sdk.coders.FusedCoderGenerator.FusedCoder;
+import org.apache.beam.sdk.testing.CoderProperties;
+import org.apache.beam.sdk.transforms.windowing.GlobalWindow;
+import org.apache.beam.sdk.transforms.windowing.IntervalWindow;
+import org.apache.beam.sdk.transforms.windowing.PaneInfo;
+import org.apache.beam.sdk.util.CoderUtils;
+import org.apache.beam.sdk.util.SerializableUtils;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.WindowedValues;
+import org.joda.time.Instant;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link FusedCoderGenerator}. */
+@RunWith(JUnit4.class)
+public class FusedCoderGeneratorTest {
+
+  @After
+  public void tearDown() {
+    FusedCoderGenerator.clearFusedCoderCache();
+  }
+
+  private static <T> void assertSameEncoding(Coder<T> coder, T value) throws Exception {
+    Coder<T> fusedCoder = FusedCoderGenerator.generate(coder);
+    assertThat(fusedCoder, instanceOf(FusedCoder.class));
+    for (Coder.Context context : CoderProperties.ALL_CONTEXTS) {
+      byte[] expected = CoderUtils.encodeToByteArray(coder, value, context);
+      assertArrayEquals(expected, CoderUtils.encodeToByteArray(fusedCoder, value, context));
+      CoderProperties.coderDecodeEncodeEqualInContext(fusedCoder, context, value);
+    }
+  }
+
+  @Test
+  public void testKvCoder() throws Exception {
+    assertSameEncoding(KvCoder.of(StringUtf8Coder.of(), VarLongCoder.of()), KV.of("key", 42L));
+    assertSameEncoding(
+        KvCoder.of(VarIntCoder.of(), KvCoder.of(BooleanCoder.of(), DoubleCoder.of())),
+        KV.of(-1, KV.of(true, 3.5)));
+    assertSameEncoding(
+        KvCoder.of(BigEndianLongCoder.of(), BigEndianIntegerCoder.of()), KV.of(Long.MIN_VALUE, 7));
+  }
+
+  @Test
+  public void testKvCoderWithByteArrays() throws Exception {
+    Coder<KV<byte[], byte[]>> coder = KvCoder.of(ByteArrayCoder.of(), ByteArrayCoder.of());
+    Coder<KV<byte[], byte[]>> fusedCoder = FusedCoderGenerator.generate(coder);
+    KV<byte[], byte[]> value = KV.of(new byte[] {1, 2, 3}, new byte[] {4, 5});
+    byte[] encoded = CoderUtils.encodeToByteArray(fusedCoder, value);
+    assertArrayEquals(CoderUtils.encodeToByteArray(coder, value), encoded);
+    KV<byte[], byte[]> decoded = CoderUtils.decodeFromByteArray(fusedCoder, encoded);
+    assertArrayEquals(value.getKey(), decoded.getKey());
+    assertArrayEquals(value.getValue(), decoded.getValue());
+  }
+
+  @Test
+  public void testKvCoderWithOtherComponents() throws Exception {
+    assertSameEncoding(
+        KvCoder.of(
+            LengthPrefixCoder.of(StringUtf8Coder.of()), IterableCoder.of(VarLongCoder.of())),
+        KV.of("key", Arrays.asList(1L, 2L, 3L)));
+  }
+
+  @Test
+  public void testWindowedValueCoder() throws Exception {
+    assertSameEncoding(
+        WindowedValues.getFullCoder(
+            KvCoder.of(StringUtf8Coder.of(), VarLongCoder.of()), GlobalWindow.Coder.INSTANCE),
+        WindowedValues.valueInGlobalWindow(KV.of("key", 42L)));
+    assertSameEncoding(
+        WindowedValues.getFullCoder(StringUtf8Coder.of(), IntervalWindow.getCoder()),
+        WindowedValues.of(
+            "value",
+            new Instant(5),
+            Arrays.asList(
+                new IntervalWindow(new Instant(0), new Instant(10)),
+                new IntervalWindow(new Instant(5), new Instant(15))),
+            PaneInfo.ON_TIME_AND_ONLY_FIRING));
+  }
+
+  @Test
+  public void testNonFusableCoderIsReturned() {
+    Coder<Iterable<Long>> coder = IterableCoder.of(VarLongCoder.of());
+    assertSame(coder, FusedCoderGenerator.generate(coder));
+  }
+
+  @Test
+  public void testGeneratedCodersAreCached() {
+    assertSame(
+        FusedCoderGenerator.generate(KvCoder.of(StringUtf8Coder.of(), VarLongCoder.of())),
+        FusedCoderGenerator.generate(KvCoder.of(StringUtf8Coder.of(), VarLongCoder.of())));
+  }
+
+  @Test
+  public void testSerializesAsOriginalCoder() {
+    Coder<KV<String, Long>> coder = KvCoder.of(StringUtf8Coder.of(), VarLongCoder.of());
+    assertEquals(coder, SerializableUtils.clone(FusedCoderGenerator.generate(coder)));
+  }
+}
@@ -333,6 +333,99 @@ public class BeamFnDataOutboundAggregatorTest {
     checkEqualInAnyOrder(builder.build(), values.get(1));
   }
 
+  @Test
+  public void testAdaptiveBufferLimitGrowsWithHighOutputRate() throws Exception {
+    List<BeamFnApi.Elements> values = new ArrayList<>();
+    PipelineOptions options = PipelineOptionsFactory.create();
+    options
+        .as(ExperimentalOptions.class)
+        .setExperiments(
+            Arrays.asList(
+                "data_buffer_size_limit=100",
+                "data_buffer_adaptive",
+                "data_buffer_target_latency_ms=60000"));
+    BeamFnDataOutboundAggregator aggregator =
+        new BeamFnDataOutboundAggregator(
+            options,
+            endpoint::getInstructionId,
+            TestStreams.<Elements>withOnNext(values::add).build(),
+            false);
+    FnDataReceiver<byte[]> dataReceiver = registerOutputLocation(aggregator, endpoint, CODER);
+    aggregator.start();
+    assertEquals(100, aggregator.getCurrentSizeLimit());
+
+    // Filling the buffer far faster than the target latency should grow the limit up to 4x.
+    for (int i = 0; i < 100; ++i) {
+      dataReceiver.accept(new byte[50]);
+    }
+    assertEquals(400, aggregator.getCurrentSizeLimit());
+    int flushesAtMaxLimit = values.size();
+    for (int i = 0; i < 40; ++i) {
+      dataReceiver.accept(new byte[50]);
+    }
+    // Each message now carries at least 400 bytes, 51 bytes per element.
+    assertEquals(flushesAtMaxLimit + 5, values.size());
+    aggregator.sendOrCollectBufferedDataAndFinishOutboundStreams();
+  }
+
+  @Test
+  public void testAdaptiveBufferLimitShrinksWithLowOutputRate() throws Exception {
+    List<BeamFnApi.Elements> values = new ArrayList<>();
+    PipelineOptions options = PipelineOptionsFactory.create();
+    options
+        .as(ExperimentalOptions.class)
+        .setExperiments(
+            Arrays.asList(
+                "data_buffer_size_limit=1600",
+                "data_buffer_adaptive",
+                "data_buffer_target_latency_ms=0"));
+    BeamFnDataOutboundAggregator aggregator =
+        new BeamFnDataOutboundAggregator(
+            options,
+            endpoint::getInstructionId,
+            TestStreams.<Elements>withOnNext(values::add).build(),
+            false);
+    FnDataReceiver<byte[]> dataReceiver = registerOutputLocation(aggregator, endpoint, CODER);
+    aggregator.start();
+
+    // A zero target latency should shrink the limit down to 1/16 of the configured size limit.
+    for (int i = 0; i < 200; ++i) {
+      dataReceiver.accept(new byte[50]);
+    }
+    assertEquals(100, aggregator.getCurrentSizeLimit());
+    aggregator.sendOrCollectBufferedDataAndFinishOutboundStreams();
+  }
+
+  @Test
+  public void testAdaptiveBufferLimitGrowsUnderBackpressure() throws Exception {
+    List<BeamFnApi.Elements> values = new ArrayList<>();
+    PipelineOptions options = PipelineOptionsFactory.create();
+    options
+        .as(ExperimentalOptions.class)
+        .setExperiments(
+            Arrays.asList(
+                "data_buffer_size_limit=100",
+                "data_buffer_adaptive",
+                "data_buffer_target_latency_ms=0"));
+    BeamFnDataOutboundAggregator aggregator =
+        new BeamFnDataOutboundAggregator(
+            options,
+            endpoint::getInstructionId,
+            TestStreams.<Elements>withOnNext(values::add).withIsReady(() -> false).build(),
+            false);
+    FnDataReceiver<byte[]> dataReceiver = registerOutputLocation(aggregator, endpoint, CODER);
+    aggregator.start();
+
+    dataReceiver.accept(new byte[100]);
+    assertEquals(1, values.size());
+    assertEquals(200, aggregator.getCurrentSizeLimit());
+    dataReceiver.accept(new byte[100]);
+    dataReceiver.accept(new byte[100]);
+    assertEquals(2, values.size());
+    assertEquals(400, aggregator.getCurrentSizeLimit());
+    aggregator.sendOrCollectBufferedDataAndFinishOutboundStreams();
+  }
+
   private void checkEqualInAnyOrder(Elements first, Elements second) {
     MatcherAssert.assertThat(
         first.getDataList(), Matchers.containsInAnyOrder(second.getDataList().toArray()));
@@ -35,6 +35,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.NoSuchElementException;
 import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.LengthPrefixCoder;
 import org.apache.beam.sdk.coders.StringUtf8Coder;
 import org.apache.beam.sdk.fn.data.WeightedList;
 import org.apache.beam.sdk.fn.stream.DataStreams.DataStreamDecoder;
@@ -155,6 +156,29 @@ public class DataStreamsTest {
       assertFalse(decoder.hasNext());
     }
 
+    @Test
+    public void testDecodeValuesSpanningManyChunks() throws Exception {
+      Coder<String> coder = LengthPrefixCoder.of(StringUtf8Coder.of());
+      ByteStringOutputStream output = new ByteStringOutputStream();
+      coder.encode("ABC", output);
+      coder.encode("", output);
+      coder.encode("\u00e9\u00e8DEFGHIJ", output);
+      ByteString encoded = output.toByteString();
+
+      // Split the encoding into single byte chunks to force every value to span multiple chunks.
+      List<ByteString> chunks = new ArrayList<>();
+      for (int i = 0; i < encoded.size(); ++i) {
+        chunks.add(encoded.substring(i, i + 1));
+      }
+      DataStreamDecoder<String> decoder =
+          new DataStreamDecoder<>(
+              coder, PrefetchableIterators.maybePrefetchable(chunks.iterator()));
+      assertThat(
+          Arrays.asList(Iterators.toArray(decoder, String.class)),
+          contains("ABC", "", "\u00e9\u00e8DEFGHIJ"));
+      assertFalse(decoder.hasNext());
+    }
+
     private ByteString encode(String... values) throws IOException {
       ByteStringOutputStream out = new ByteStringOutputStream();
       for (String value : values) {
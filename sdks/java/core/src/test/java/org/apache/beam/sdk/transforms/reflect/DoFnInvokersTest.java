@@ -33,6 +33,7 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -266,6 +267,40 @@ public class DoFnInvokersTest {
             mockMultiOutputReceiver);
   }
 
+  @Test
+  public void testDoFnWithProcessBatch() throws Exception {
+    class MockFn extends DoFn<String, String> {
+      @DoFn.ProcessElement
+      public void processElement(@Element String element) throws Exception {}
+
+      @DoFn.ProcessBatch
+      public void processBatch(
+          @Element List<String> elements,
+          @Timestamp Instant timestamp,
+          IntervalWindow w,
+          OutputReceiver<String> receiver)
+          throws Exception {}
+    }
+
+    List<String> elements = Arrays.asList("a", "b", "c");
+    when(mockArgumentProvider.batchElements(ArgumentMatchers.<DoFn>any())).thenReturn(elements);
+    MockFn fn = mock(MockFn.class);
+    DoFnInvokers.invokerFor(fn).invokeProcessBatch(mockArgumentProvider);
+    verify(fn).processBatch(elements, mockTimestamp, mockWindow, mockOutputReceiver);
+    verify(fn, never()).processElement(any());
+  }
+
+  @Test
+  public void testDoFnWithoutProcessBatch() throws Exception {
+    class MockFn extends DoFn<String, String> {
+      @DoFn.ProcessElement
+      public void processElement(@Element String element) throws Exception {}
+    }
+
+    thrown.expect(UnsupportedOperationException.class);
+    DoFnInvokers.invokerFor(mock(MockFn.class)).invokeProcessBatch(mockArgumentProvider);
+  }
+
   /** Tests that the generated {@link DoFnInvoker} passes the state parameter that it should. */
   @Test
   public void testDoFnWithState() throws Exception {
@@ -26,6 +26,7 @@ import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -55,6 +56,7 @@ import org.apache.beam.sdk.testing.SerializableMatchers;
 import org.apache.beam.sdk.transforms.DoFn;
 import org.apache.beam.sdk.transforms.Sum;
 import org.apache.beam.sdk.transforms.reflect.DoFnSignature.Parameter;
+import org.apache.beam.sdk.transforms.reflect.DoFnSignature.Parameter.BatchElementsParameter;
 import org.apache.beam.sdk.transforms.reflect.DoFnSignature.Parameter.BundleFinalizerParameter;
 import org.apache.beam.sdk.transforms.reflect.DoFnSignature.Parameter.CausedByDrainParameter;
 import org.apache.beam.sdk.transforms.reflect.DoFnSignature.Parameter.ElementParameter;
@@ -168,6 +170,104 @@ public class DoFnSignaturesTest {
         instanceOf(TaggedOutputReceiverParameter.class));
   }
 
+  @Test
+  public void testProcessBatch() throws Exception {
+    DoFnSignature sig =
+        DoFnSignatures.getSignature(
+            new DoFn<String, String>() {
+              @ProcessElement
+              public void process(@Element String element) {}
+
+              @ProcessBatch
+              public void processBatch(
+                  @Element List<String> elements,
+                  @Timestamp Instant timestamp,
+                  BoundedWindow window,
+                  OutputReceiver<String> receiver) {}
+            }.getClass());
+
+    assertThat(sig.processBatch(), notNullValue());
+    assertThat(sig.processBatch().extraParameters().size(), equalTo(4));
+    assertThat(
+        sig.processBatch().extraParameters().get(0), instanceOf(BatchElementsParameter.class));
+    assertThat(sig.processBatch().extraParameters().get(1), instanceOf(TimestampParameter.class));
+    assertThat(sig.processBatch().extraParameters().get(2), instanceOf(WindowParameter.class));
+    assertThat(
+        sig.processBatch().extraParameters().get(3), instanceOf(OutputReceiverParameter.class));
+    assertTrue(sig.processBatch().observesWindow());
+  }
+
+  @Test
+  public void testNoProcessBatch() throws Exception {
+    DoFnSignature sig =
+        DoFnSignatures.getSignature(
+            new DoFn<String, String>() {
+              @ProcessElement
+              public void process(@Element String element) {}
+            }.getClass());
+
+    assertThat(sig.processBatch(), nullValue());
+  }
+
+  @Test
+  public void testProcessBatchWrongElementType() throws Exception {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("@Element argument must have type List<String>");
+    DoFnSignatures.getSignature(
+        new DoFn<String, String>() {
+          @ProcessElement
+          public void process(@Element String element) {}
+
+          @ProcessBatch
+          public void processBatch(@Element List<Integer> elements) {}
+        }.getClass());
+  }
+
+  @Test
+  public void testProcessBatchMissingElements() throws Exception {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("Must have an @Element parameter");
+    DoFnSignatures.getSignature(
+        new DoFn<String, String>() {
+          @ProcessElement
+          public void process(@Element String element) {}
+
+          @ProcessBatch
+          public void processBatch(OutputReceiver<String> receiver) {}
+        }.getClass());
+  }
+
+  @Test
+  public void testProcessBatchIllegalParameter() throws Exception {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("Illegal parameter type");
+    DoFnSignatures.getSignature(
+        new DoFn<String, String>() {
+          @ProcessElement
+          public void process(@Element String element) {}
+
+          @ProcessBatch
+          public void processBatch(@Element List<String> elements, ProcessContext c) {}
+        }.getClass());
+  }
+
+  @Test
+  public void testProcessBatchWithState() throws Exception {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("Not supported for DoFn using state or timers");
+    DoFnSignatures.getSignature(
+        new DoFn<KV<String, Integer>, String>() {
+          @StateId("foo")
+          private final StateSpec<ValueState<Integer>> state = StateSpecs.value();
+
+          @ProcessElement
+          public void process(@StateId("foo") ValueState<Integer> state) {}
+
+          @ProcessBatch
+          public void processBatch(@Element List<KV<String, Integer>> elements) {}
+        }.getClass());
+  }
+
   @Test
   public void testMismatchingElementType() throws Exception {
     DoFnSignature sig =
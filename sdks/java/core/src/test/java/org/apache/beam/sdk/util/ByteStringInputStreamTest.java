@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.io.EOFException;
+import java.nio.charset.StandardCharsets;
+import org.apache.beam.sdk.coders.ByteArrayCoder;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.LengthPrefixCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.ByteString;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ByteStringInputStreamTest {
+
+  private static final ByteString DATA =
+      ByteString.copyFrom("0123456789", StandardCharsets.UTF_8);
+
+  @Test
+  public void testRead() throws Exception {
+    ByteStringInputStream in = ByteStringInputStream.of(DATA);
+    assertEquals(10, in.available());
+    assertEquals('0', in.read());
+    byte[] buffer = new byte[4];
+    assertEquals(4, in.read(buffer, 0, 4));
+    assertArrayEquals("1234".getBytes(StandardCharsets.UTF_8), buffer);
+    assertEquals(2, in.skip(2));
+    assertEquals(3, in.available());
+    assertEquals(3, in.read(buffer, 1, 3));
+    assertArrayEquals("1789".getBytes(StandardCharsets.UTF_8), buffer);
+    assertEquals(0, in.available());
+    assertEquals(-1, in.read());
+    assertEquals(-1, in.read(buffer, 0, 4));
+    assertEquals(0, in.read(buffer, 0, 0));
+  }
+
+  @Test
+  public void testReadUnsignedByte() throws Exception {
+    ByteStringInputStream in = ByteStringInputStream.of(ByteString.copyFrom(new byte[] {-1}));
+    assertEquals(255, in.read());
+  }
+
+  @Test
+  public void testReadByteString() throws Exception {
+    ByteStringInputStream in = ByteStringInputStream.of(DATA);
+    in.read();
+    assertEquals(DATA.substring(1, 4), in.readByteString(3));
+    assertEquals(ByteString.EMPTY, in.readByteString(0));
+    assertThrows(EOFException.class, () -> in.readByteString(7));
+    assertEquals(DATA.substring(4), in.readRemaining());
+    assertEquals(0, in.available());
+    assertEquals(ByteString.EMPTY, in.readRemaining());
+  }
+
+  @Test
+  public void testDecodeWithCoders() throws Exception {
+    Coder<String> stringCoder = StringUtf8Coder.of();
+    Coder<byte[]> bytesCoder = LengthPrefixCoder.of(ByteArrayCoder.of());
+    Coder<String> prefixedStringCoder = LengthPrefixCoder.of(StringUtf8Coder.of());
+    ByteStringOutputStream out = new ByteStringOutputStream();
+    stringCoder.encode("\u00e9t\u00e9", out);
+    bytesCoder.encode(new byte[] {1, 2, 3}, out);
+    prefixedStringCoder.encode("abc", out);
+    stringCoder.encode("whole stream", out, Coder.Context.OUTER);
+
+    ByteStringInputStream in = ByteStringInputStream.of(out.toByteString());
+    assertEquals("\u00e9t\u00e9", stringCoder.decode(in));
+    assertArrayEquals(new byte[] {1, 2, 3}, bytesCoder.decode(in));
+    assertEquals("abc", prefixedStringCoder.decode(in));
+    assertEquals("whole stream", stringCoder.decode(in, Coder.Context.OUTER));
+    assertEquals(-1, in.read());
+  }
+}
@@ -22,6 +22,8 @@ import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Pr
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
@@ -35,6 +37,7 @@ import org.apache.arrow.vector.VectorSchemaRoot;
 import org.apache.arrow.vector.ipc.ReadChannel;
 import org.apache.arrow.vector.ipc.message.ArrowRecordBatch;
 import org.apache.arrow.vector.ipc.message.MessageSerializer;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
 import org.apache.arrow.vector.types.TimeUnit;
 import org.apache.arrow.vector.types.pojo.ArrowType;
 import org.apache.arrow.vector.util.Text;
@@ -556,5 +559,53 @@ public class ArrowConversion {
       }
       return builder.build();
     }
+
+    /**
+     * Converts a flat Beam row schema to an Arrow schema.
+     *
+     * <p>Only primitive field types and {@link FieldType#DATETIME} are supported; {@link
+     * FieldType#DATETIME} fields map to millisecond precision UTC timestamps.
+     */
+    public static org.apache.arrow.vector.types.pojo.Schema toArrowSchema(Schema schema) {
+      List<org.apache.arrow.vector.types.pojo.Field> fields = new ArrayList<>();
+      for (Field field : schema.getFields()) {
+        ArrowType arrowType = toArrowType(field.getType());
+        fields.add(
+            new org.apache.arrow.vector.types.pojo.Field(
+                field.getName(),
+                field.getType().getNullable()
+                    ? org.apache.arrow.vector.types.pojo.FieldType.nullable(arrowType)
+                    : org.apache.arrow.vector.types.pojo.FieldType.notNullable(arrowType),
+                Collections.emptyList()));
+      }
+      return new org.apache.arrow.vector.types.pojo.Schema(fields);
+    }
+
+    private static ArrowType toArrowType(FieldType fieldType) {
+      switch (fieldType.getTypeName()) {
+        case BYTE:
+          return new ArrowType.Int(8, true);
+        case INT16:
+          return new ArrowType.Int(16, true);
+        case INT32:
+          return new ArrowType.Int(32, true);
+        case INT64:
+          return new ArrowType.Int(64, true);
+        case FLOAT:
+          return new ArrowType.FloatingPoint(FloatingPointPrecision.SINGLE);
+        case DOUBLE:
+          return new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE);
+        case BOOLEAN:
+          return ArrowType.Bool.INSTANCE;
+        case STRING:
+          return ArrowType.Utf8.INSTANCE;
+        case BYTES:
+          return ArrowType.Binary.INSTANCE;
+        case DATETIME:
+          return new ArrowType.Timestamp(TimeUnit.MILLISECOND, "UTC");
+        default:
+          throw new IllegalArgumentException("Type \'" + fieldType + "\' not supported.");
+      }
+    }
   }
 }
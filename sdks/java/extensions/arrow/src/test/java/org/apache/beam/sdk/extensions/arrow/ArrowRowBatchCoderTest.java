@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.extensions.arrow;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.schemas.Schema.Field;
+import org.apache.beam.sdk.schemas.Schema.FieldType;
+import org.apache.beam.sdk.testing.CoderProperties;
+import org.apache.beam.sdk.util.CoderUtils;
+import org.apache.beam.sdk.values.Row;
+import org.joda.time.Instant;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ArrowRowBatchCoderTest {
+  @Rule public ExpectedException thrown = ExpectedException.none();
+
+  private static final Schema SCHEMA =
+      Schema.builder()
+          .addByteField("byte")
+          .addInt16Field("int16")
+          .addInt32Field("int32")
+          .addInt64Field("int64")
+          .addFloatField("float")
+          .addDoubleField("double")
+          .addBooleanField("boolean")
+          .addStringField("string")
+          .addByteArrayField("bytes")
+          .addDateTimeField("datetime")
+          .addNullableField("nullableString", FieldType.STRING)
+          .addNullableField("nullableInt64", FieldType.INT64)
+          .build();
+
+  private static Row row(int i) {
+    return Row.withSchema(SCHEMA)
+        .addValues(
+            (byte) i,
+            (short) (i * 2),
+            i * 3,
+            i * 4L,
+            i * 0.5f,
+            i * 0.25d,
+            i % 2 == 0,
+            "str" + i,
+            ("bytes" + i).getBytes(StandardCharsets.UTF_8),
+            new Instant(1_600_000_000_000L + i),
+            i % 3 == 0 ? null : "nullable\u00e9" + i,
+            i % 5 == 0 ? null : (long) -i)
+        .build();
+  }
+
+  private static List<Row> rows(int count) {
+    List<Row> rows = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      rows.add(row(i));
+    }
+    return rows;
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    ArrowRowBatchCoder coder = ArrowRowBatchCoder.of(SCHEMA);
+    List<Row> rows = rows(100);
+    assertThat(
+        CoderUtils.decodeFromByteArray(coder, CoderUtils.encodeToByteArray(coder, rows)),
+        equalTo(rows));
+  }
+
+  @Test
+  public void testEmptyBatch() throws Exception {
+    CoderProperties.coderDecodeEncodeEqual(ArrowRowBatchCoder.of(SCHEMA), Collections.emptyList());
+  }
+
+  @Test
+  public void testNestedContext() throws Exception {
+    CoderProperties.coderDecodeEncodeEqualInContext(
+        ArrowRowBatchCoder.of(SCHEMA), Coder.Context.NESTED, rows(10));
+  }
+
+  @Test
+  public void testCoderSerializable() {
+    CoderProperties.coderSerializable(ArrowRowBatchCoder.of(SCHEMA));
+  }
+
+  @Test
+  public void testUnsupportedSchema() {
+    thrown.expect(IllegalArgumentException.class);
+    ArrowRowBatchCoder.of(Schema.of(Field.of("array", FieldType.array(FieldType.STRING))));
+  }
+
+  @Test
+  public void toArrowSchema_roundTripsBeamSchema() {
+    Schema schema =
+        Schema.builder()
+            .addInt32Field("int32")
+            .addNullableField("string", FieldType.STRING)
+            .addByteArrayField("bytes")
+            .build();
+    assertThat(
+        ArrowConversion.ArrowSchemaTranslator.toBeamSchema(
+            ArrowConversion.ArrowSchemaTranslator.toArrowSchema(schema)),
+        equalTo(schema));
+  }
+}
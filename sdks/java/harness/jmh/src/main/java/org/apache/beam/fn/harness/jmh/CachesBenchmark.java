@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness.jmh;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.apache.beam.fn.harness.Cache;
+import org.apache.beam.fn.harness.Caches;
+import org.apache.beam.sdk.options.PipelineOptionsFactory;
+import org.apache.beam.sdk.options.SdkHarnessOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Replays a trace of state accesses against the process wide cache with and without the frequency
+ * based admission filter.
+ *
+ * <p>Every miss invokes a loading function that simulates the cost of fetching state from the
+ * runner, such that a better hit rate translates into higher throughput.
+ */
+public class CachesBenchmark {
+  private static final int TRACE_LENGTH = 1_000_000;
+  private static final int KEY_SPACE = 100_000;
+  private static final int VALUE_BYTES = 1 << 10;
+  private static final int CACHE_MB = 16;
+  private static final long LOAD_TOKENS = 1_000;
+
+  @State(Scope.Benchmark)
+  public static class TraceState {
+    @Param({"true", "false"})
+    public String admissionFilter;
+
+    /**
+     * The access pattern of the trace.
+     *
+     * <ul>
+     *   <li>{@code zipf}: keys accessed following a Zipf distribution
+     *   <li>{@code zipfWithScans}: like {@code zipf}, but every 10th access reads a key that is
+     *       accessed only once, such as when iterating over state for a large key space
+     * </ul>
+     */
+    @Param({"zipf", "zipfWithScans"})
+    public String trace;
+
+    Cache<String, byte[]> cache;
+    String[] keys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      SdkHarnessOptions options = PipelineOptionsFactory.as(SdkHarnessOptions.class);
+      options.setMaxCacheMemoryUsageMb(CACHE_MB);
+      options.setEnableCacheAdmissionFilter(Boolean.parseBoolean(admissionFilter));
+      cache = Caches.fromOptions(options);
+      keys = generateTrace("zipfWithScans".equals(trace));
+    }
+  }
+
+  private static String[] generateTrace(boolean withScans) {
+    // Use a stable seed to ensure consistency across benchmark runs
+    Random random = new Random(-2134890234);
+    double[] cumulativeProbabilities = new double[KEY_SPACE];
+    double sum = 0;
+    for (int i = 0; i < KEY_SPACE; i++) {
+      sum += 1.0 / (i + 1);
+      cumulativeProbabilities[i] = sum;
+    }
+    String[] keys = new String[TRACE_LENGTH];
+    int scanKey = 0;
+    for (int i = 0; i < TRACE_LENGTH; i++) {
+      if (withScans && i % 10 == 0) {
+        keys[i] = "scan" + scanKey++;
+      } else {
+        int index = Arrays.binarySearch(cumulativeProbabilities, random.nextDouble() * sum);
+        keys[i] = "key" + (index < 0 ? -index - 1 : index);
+      }
+    }
+    return keys;
+  }
+
+  @Benchmark
+  public void testReplayTrace(TraceState state, Blackhole blackhole) {
+    for (String key : state.keys) {
+      blackhole.consume(
+          state.cache.computeIfAbsent(
+              key,
+              (unused) -> {
+                Blackhole.consumeCPU(LOAD_TOKENS);
+                return new byte[VALUE_BYTES];
+              }));
+    }
+  }
+}
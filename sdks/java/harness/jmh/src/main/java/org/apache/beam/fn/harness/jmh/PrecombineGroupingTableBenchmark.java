@@ -24,8 +24,12 @@ import java.util.Random;
 import org.apache.beam.fn.harness.Cache;
 import org.apache.beam.fn.harness.Caches;
 import org.apache.beam.fn.harness.Caches.ClearableCache;
+import org.apache.beam.fn.harness.EncodedPrecombineGroupingTable;
 import org.apache.beam.fn.harness.PrecombineGroupingTable;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.CoderRegistry;
 import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.coders.VarIntCoder;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.options.PipelineOptionsFactory;
 import org.apache.beam.sdk.transforms.Combine;
@@ -53,6 +57,8 @@ public class PrecombineGroupingTableBenchmark {
 
     final Cache<Object, Object> cache = Caches.fromOptions(options);
 
+    Coder<int[]> accumulatorCoder;
+
     List<WindowedValue<KV<String, Integer>>> elements;
 
     @Param({"true", "false"})
@@ -62,8 +68,10 @@ public class PrecombineGroupingTableBenchmark {
     public String distribution;
 
     @Setup(Level.Trial)
-    public void setUp() {
+    public void setUp() throws Exception {
       this.elements = generateTestData(distribution);
+      this.accumulatorCoder =
+          sumInts.getAccumulatorCoder(CoderRegistry.createDefault(), VarIntCoder.of());
     }
   }
 
@@ -127,4 +135,24 @@ public class PrecombineGroupingTableBenchmark {
     groupingTable.flush(blackhole::consume);
     cache.clear();
   }
+
+  @Benchmark
+  @Threads(16)
+  public void sumIntegerBinaryCombineEncoded(SumIntegerBinaryCombine table, Blackhole blackhole)
+      throws Exception {
+    if (!Boolean.valueOf(table.globallyWindowed)) {
+      // The encoded grouping table only supports globally windowed inputs.
+      return;
+    }
+    ClearableCache<Object, Object> cache =
+        new ClearableCache<>(Caches.subCache(table.cache, Thread.currentThread().getName()));
+    EncodedPrecombineGroupingTable<String, Integer, int[]> groupingTable =
+        EncodedPrecombineGroupingTable.combining(
+            table.options, cache, table.sumInts, StringUtf8Coder.of(), table.accumulatorCoder);
+    for (int i = 0, size = table.elements.size(); i < size; ++i) {
+      groupingTable.put(table.elements.get(i), blackhole::consume);
+    }
+    groupingTable.flush(blackhole::consume);
+    cache.clear();
+  }
 }
@@ -40,6 +40,8 @@ import org.openjdk.jmh.infra.Blackhole;
 /** Benchmarks for sampling execution state. */
 public class ExecutionStateSamplerBenchmark {
   private static final String PTRANSFORM = "benchmarkPTransform";
+  // The number of nested states entered for each element of a deeply fused stage.
+  private static final int FUSED_STAGE_DEPTH = 32;
 
   @State(Scope.Thread)
   public static class RunnersCoreStateTracker {
@@ -60,10 +62,19 @@ public class ExecutionStateSamplerBenchmark {
             "process",
             Urns.PROCESS_BUNDLE_MSECS,
             new HashMap<>(Collections.singletonMap(Labels.PTRANSFORM, PTRANSFORM)));
+    public final SimpleExecutionState[] fusedStates = new SimpleExecutionState[FUSED_STAGE_DEPTH];
+    public final Closeable[] fusedCloseables = new Closeable[FUSED_STAGE_DEPTH];
 
     @Setup
     public void setup(RunnersCoreStateSampler sharedState) {
       tracker = new ExecutionStateTracker(sharedState.sampler);
+      for (int i = 0; i < FUSED_STAGE_DEPTH; ++i) {
+        fusedStates[i] =
+            new SimpleExecutionState(
+                "process",
+                Urns.PROCESS_BUNDLE_MSECS,
+                new HashMap<>(Collections.singletonMap(Labels.PTRANSFORM, PTRANSFORM + i)));
+      }
     }
 
     @TearDown
@@ -100,6 +111,7 @@ public class ExecutionStateSamplerBenchmark {
     public org.apache.beam.fn.harness.control.ExecutionStateSampler.ExecutionState state1;
     public org.apache.beam.fn.harness.control.ExecutionStateSampler.ExecutionState state2;
     public org.apache.beam.fn.harness.control.ExecutionStateSampler.ExecutionState state3;
+    public org.apache.beam.fn.harness.control.ExecutionStateSampler.ExecutionState[] fusedStates;
 
     @Setup
     public void setup(HarnessStateSampler sharedState) {
@@ -107,6 +119,13 @@ public class ExecutionStateSamplerBenchmark {
       state1 = tracker.create("1", PTRANSFORM, PTRANSFORM + "Name", "1");
       state2 = tracker.create("2", PTRANSFORM, PTRANSFORM + "Name", "2");
       state3 = tracker.create("3", PTRANSFORM, PTRANSFORM + "Name", "3");
+      fusedStates =
+          new org.apache.beam.fn.harness.control.ExecutionStateSampler.ExecutionState
+              [FUSED_STAGE_DEPTH];
+      for (int i = 0; i < FUSED_STAGE_DEPTH; ++i) {
+        fusedStates[i] =
+            tracker.create("fused" + i, PTRANSFORM + i, PTRANSFORM + i + "Name", "process");
+      }
     }
 
     @TearDown
@@ -224,4 +243,49 @@ public class ExecutionStateSamplerBenchmark {
     }
     state.tracker.reset();
   }
+
+  @Benchmark
+  @Threads(16)
+  public void testDeepFusedStageRunnersCoreStateSampler(
+      RunnersCoreStateTracker trackerState, Blackhole bh) throws Exception {
+    ExecutionStateTracker tracker = trackerState.tracker;
+    SimpleExecutionState[] states = trackerState.fusedStates;
+    Closeable[] closeables = trackerState.fusedCloseables;
+    Closeable c = tracker.activate();
+    for (int i = 0; i < 1000; ) {
+      // Each element passes through every transform of the fused stage.
+      for (int j = 0; j < states.length; ++j) {
+        closeables[j] = tracker.enterState(states[j]);
+      }
+      // trivial code that is being sampled for this state
+      i += 1;
+      bh.consume(i);
+      for (int j = closeables.length - 1; j >= 0; --j) {
+        closeables[j].close();
+      }
+    }
+    c.close();
+  }
+
+  @Benchmark
+  @Threads(16)
+  public void testDeepFusedStageHarnessStateSampler(HarnessStateTracker state, Blackhole bh)
+      throws Exception {
+    org.apache.beam.fn.harness.control.ExecutionStateSampler.ExecutionState[] states =
+        state.fusedStates;
+    state.tracker.start("processBundleId");
+    for (int i = 0; i < 1000; ) {
+      // Each element passes through every transform of the fused stage.
+      for (int j = 0; j < states.length; ++j) {
+        states[j].activate();
+      }
+      // trivial code that is being sampled for this state
+      i += 1;
+      bh.consume(i);
+      for (int j = states.length - 1; j >= 0; --j) {
+        states[j].deactivate();
+      }
+    }
+    state.tracker.reset();
+  }
 }
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness.jmh.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.Elements;
+import org.apache.beam.sdk.coders.ByteArrayCoder;
+import org.apache.beam.sdk.coders.LengthPrefixCoder;
+import org.apache.beam.sdk.fn.data.BeamFnDataOutboundAggregator;
+import org.apache.beam.sdk.fn.data.FnDataReceiver;
+import org.apache.beam.sdk.fn.test.TestStreams;
+import org.apache.beam.sdk.options.ExperimentalOptions;
+import org.apache.beam.sdk.options.PipelineOptions;
+import org.apache.beam.sdk.options.PipelineOptionsFactory;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for {@link BeamFnDataOutboundAggregator} comparing the fixed size-based flush policy
+ * against the adaptive one. Sample time mode reports percentiles of the time taken to output a
+ * small bundle, which includes the time spent flushing to the outbound stream.
+ */
+public class BeamFnDataOutboundAggregatorBenchmark {
+  private static final int ELEMENTS_PER_BUNDLE = 1_000;
+
+  @State(Scope.Thread)
+  public static class AggregatorState {
+    @Param({"fixed", "adaptive"})
+    public String flushPolicy = "fixed";
+
+    @Param({"10", "1000"})
+    public int elementSize = 10;
+
+    /** Simulated cost of sending a single message over the gRPC stream. */
+    @Param({"1000"})
+    public int tokensPerMessage = 1000;
+
+    public BeamFnDataOutboundAggregator aggregator;
+    public FnDataReceiver<byte[]> receiver;
+    public byte[] element;
+    public long messages;
+
+    @Setup
+    public void setup() {
+      List<String> experiments = new ArrayList<>();
+      if ("adaptive".equals(flushPolicy)) {
+        experiments.add(BeamFnDataOutboundAggregator.DATA_BUFFER_ADAPTIVE);
+      }
+      PipelineOptions options = PipelineOptionsFactory.create();
+      options.as(ExperimentalOptions.class).setExperiments(experiments);
+      aggregator =
+          new BeamFnDataOutboundAggregator(
+              options,
+              () -> "instructionId",
+              TestStreams.<Elements>withOnNext(
+                      elements -> {
+                        messages += 1;
+                        Blackhole.consumeCPU(tokensPerMessage);
+                      })
+                  .build(),
+              false);
+      receiver =
+          aggregator.registerOutputDataLocation(
+              "pTransformId", LengthPrefixCoder.of(ByteArrayCoder.of()));
+      aggregator.start();
+      element = new byte[elementSize];
+    }
+
+    @TearDown
+    public void tearDown() {
+      aggregator.discard();
+    }
+  }
+
+  /** Reports the number of messages sent to the outbound stream alongside the benchmark score. */
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  @State(Scope.Thread)
+  public static class MessageCounters {
+    public long messages;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      messages = 0;
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public void testBundle(AggregatorState state, MessageCounters counters, Blackhole blackhole)
+      throws Exception {
+    for (int i = 0; i < ELEMENTS_PER_BUNDLE; ++i) {
+      state.receiver.accept(state.element);
+    }
+    blackhole.consume(state.aggregator.sendOrCollectBufferedDataAndFinishOutboundStreams());
+    counters.messages += state.messages;
+    state.messages = 0;
+  }
+}
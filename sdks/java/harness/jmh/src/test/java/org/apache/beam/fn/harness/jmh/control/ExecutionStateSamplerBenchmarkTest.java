@@ -80,4 +80,26 @@ public class ExecutionStateSamplerBenchmarkTest {
     state.tearDown();
     threadState.tearDown();
   }
+
+  @Test
+  public void testDeepFusedStageRunnersCoreStateSampler() throws Exception {
+    RunnersCoreStateSampler state = new RunnersCoreStateSampler();
+    RunnersCoreStateTracker threadState = new RunnersCoreStateTracker();
+    state.setup();
+    threadState.setup(state);
+    new ExecutionStateSamplerBenchmark()
+        .testDeepFusedStageRunnersCoreStateSampler(threadState, blackhole);
+    state.tearDown();
+  }
+
+  @Test
+  public void testDeepFusedStageHarnessStateSampler() throws Exception {
+    HarnessStateSampler state = new HarnessStateSampler();
+    HarnessStateTracker threadState = new HarnessStateTracker();
+    threadState.setup(state);
+    new ExecutionStateSamplerBenchmark()
+        .testDeepFusedStageHarnessStateSampler(threadState, blackhole);
+    state.tearDown();
+    threadState.tearDown();
+  }
 }
@@ -30,6 +30,7 @@ import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.options.SdkHarnessOptions;
 import org.apache.beam.sdk.util.Weighted;
 import org.apache.beam.sdk.util.WeightedValue;
+import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.ByteString;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.annotations.VisibleForTesting;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.cache.CacheBuilder;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.cache.CacheStats;
@@ -64,11 +65,26 @@ public final class Caches {
    */
   private static final long CACHE_SIZE_CHANGE_LIMIT_BYTES = 1 << 16;
 
+  /**
+   * The average entry size used to size the {@link FrequencySketch} of caches with an {@link
+   * AdmissionFilter}.
+   */
+  private static final long EXPECTED_AVERAGE_ENTRY_BYTES = 1 << 10;
+
+  /**
+   * The minimum estimated access frequency, including the current access, of a key that is not
+   * cached yet for it to be admitted into a full cache.
+   */
+  @VisibleForTesting static final int MIN_ADMISSION_FREQUENCY = 2;
+
   private static final MemoryMeter MEMORY_METER = MemoryMeter.builder().build();
 
   /** The size of a reference. */
   public static final long REFERENCE_SIZE = 8;
 
+  /** The size of an object header. */
+  private static final long OBJECT_HEADER_SIZE = 16;
+
   /** Returns the amount of memory in bytes the provided object consumes. */
   public static long weigh(Object o) {
     if (o == null) {
@@ -77,6 +93,19 @@ public final class Caches {
     if (o instanceof Weighted) {
       return ((Weighted) o).getWeight() + REFERENCE_SIZE + 8;
     }
+    // Cheap estimates for the most frequent keys and values, avoiding reflective measurement.
+    if (o instanceof byte[]) {
+      return arrayWeight(((byte[]) o).length);
+    }
+    if (o instanceof String) {
+      // Assumes a two byte per character encoding to not underestimate non Latin-1 strings.
+      return alignedWeight(OBJECT_HEADER_SIZE + REFERENCE_SIZE)
+          + arrayWeight(2L * ((String) o).length());
+    }
+    if (o instanceof ByteString) {
+      return alignedWeight(OBJECT_HEADER_SIZE + REFERENCE_SIZE)
+          + arrayWeight(((ByteString) o).size());
+    }
     try {
       return MEMORY_METER.measureDeep(o);
     } catch (RuntimeException e) {
@@ -87,6 +116,14 @@ public final class Caches {
     }
   }
 
+  private static long arrayWeight(long length) {
+    return alignedWeight(OBJECT_HEADER_SIZE + length);
+  }
+
+  private static long alignedWeight(long bytes) {
+    return (bytes + 7) & ~7L;
+  }
+
   /**
    * Returns whether the cache should be updated in the case where the objects size has changed.
    *
@@ -161,8 +198,10 @@ public final class Caches {
    * parameters within {@link SdkHarnessOptions}.
    */
   public static <K, V> Cache<K, V> fromOptions(PipelineOptions options) {
+    SdkHarnessOptions sdkHarnessOptions = options.as(SdkHarnessOptions.class);
     return forMaximumBytes(
-        ((long) options.as(SdkHarnessOptions.class).getMaxCacheMemoryUsageMb()) << 20);
+        ((long) sdkHarnessOptions.getMaxCacheMemoryUsageMb()) << 20,
+        sdkHarnessOptions.getEnableCacheAdmissionFilter());
   }
 
   /**
@@ -178,7 +217,8 @@ public final class Caches {
           ((SubCache<?, ?>) cache).cache,
           ((SubCache<?, ?>) cache).keyPrefix.subKey(keyPrefix, additionalKeyPrefix),
           ((SubCache<?, ?>) cache).maxWeightInBytes,
-          ((SubCache<?, ?>) cache).weightInBytes);
+          ((SubCache<?, ?>) cache).weightInBytes,
+          ((SubCache<?, ?>) cache).admissionFilter);
     }
     throw new IllegalArgumentException(
         String.format(
@@ -188,6 +228,16 @@ public final class Caches {
 
   @VisibleForTesting
   static <K, V> Cache<K, V> forMaximumBytes(long maximumBytes) {
+    return forMaximumBytes(maximumBytes, false);
+  }
+
+  /**
+   * Returns a cache bounded by {@code maximumBytes}, optionally guarded by an {@link
+   * AdmissionFilter} which prevents keys that were accessed only once recently from displacing
+   * existing entries once the cache is full.
+   */
+  @VisibleForTesting
+  static <K, V> Cache<K, V> forMaximumBytes(long maximumBytes, boolean enableAdmissionFilter) {
     // We specifically use Guava cache since it allows for recursive computeIfAbsent calls
     // preventing deadlock from occurring when a loading function mutates the underlying cache
     LongAdder weightInBytes = new LongAdder();
@@ -234,7 +284,53 @@ public final class Caches {
             .getCache(),
         CompositeKeyPrefix.ROOT,
         maximumBytes,
-        weightInBytes);
+        weightInBytes,
+        enableAdmissionFilter ? new AdmissionFilter(maximumBytes, weightInBytes) : null);
+  }
+
+  /**
+   * A TinyLFU style admission filter.
+   *
+   * <p>Every lookup is recorded within a {@link FrequencySketch}. Once the cache is close to its
+   * maximum weight, keys that are not cached yet are only admitted if they have been looked up
+   * recently at least {@link Caches#MIN_ADMISSION_FREQUENCY} times. This protects frequently used
+   * entries from being evicted by scans over keys which are only accessed once. Insertions are not
+   * recorded, so that a lookup miss followed by a put of the loaded value counts as one access.
+   * Rejected values are still returned to the caller, they are just not retained by the cache.
+   */
+  @VisibleForTesting
+  static class AdmissionFilter {
+    private final FrequencySketch sketch;
+    private final long admitAllBelowBytes;
+    private final LongAdder weightInBytes;
+    private final LongAdder rejections;
+
+    AdmissionFilter(long maximumBytes, LongAdder weightInBytes) {
+      this.sketch = new FrequencySketch(maximumBytes / EXPECTED_AVERAGE_ENTRY_BYTES);
+      // Start filtering slightly before the cache is full since eviction keeps the weight below
+      // the maximum.
+      this.admitAllBelowBytes = maximumBytes - (maximumBytes >> 4);
+      this.weightInBytes = weightInBytes;
+      this.rejections = new LongAdder();
+    }
+
+    void recordLookup(CompositeKey key) {
+      sketch.increment(key.frequencyHash());
+    }
+
+    /** Returns whether a value for {@code key}, which is not cached yet, should be cached. */
+    boolean admit(CompositeKey key) {
+      if (weightInBytes.longValue() < admitAllBelowBytes
+          || sketch.frequency(key.frequencyHash()) >= MIN_ADMISSION_FREQUENCY) {
+        return true;
+      }
+      rejections.increment();
+      return false;
+    }
+
+    long getRejections() {
+      return rejections.longValue();
+    }
   }
 
   private static WeightedValue<Object> addWeightedValue(
@@ -267,6 +363,7 @@ public final class Caches {
     private final CompositeKeyPrefix keyPrefix;
     private final long maxWeightInBytes;
     private final LongAdder weightInBytes;
+    private final AdmissionFilter admissionFilter;
 
     SubCache(
         org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.cache.Cache<
@@ -274,16 +371,22 @@ public final class Caches {
             cache,
         CompositeKeyPrefix keyPrefix,
         long maxWeightInBytes,
-        LongAdder weightInBytes) {
+        LongAdder weightInBytes,
+        AdmissionFilter admissionFilter) {
       this.cache = cache;
       this.keyPrefix = keyPrefix;
       this.maxWeightInBytes = maxWeightInBytes;
       this.weightInBytes = weightInBytes;
+      this.admissionFilter = admissionFilter;
     }
 
     @Override
     public V peek(K key) {
-      WeightedValue<Object> value = cache.getIfPresent(keyPrefix.valueKey(key));
+      CompositeKey compositeKey = keyPrefix.valueKey(key);
+      if (admissionFilter != null) {
+        admissionFilter.recordLookup(compositeKey);
+      }
+      WeightedValue<Object> value = cache.getIfPresent(compositeKey);
       if (value == null) {
         return null;
       }
@@ -294,6 +397,17 @@ public final class Caches {
     public V computeIfAbsent(K key, Function<K, V> loadingFunction) {
       try {
         CompositeKey compositeKey = keyPrefix.valueKey(key);
+        if (admissionFilter != null) {
+          admissionFilter.recordLookup(compositeKey);
+          // Map#get does not record a lookup within the cache stats.
+          if (cache.asMap().get(compositeKey) == null && !admissionFilter.admit(compositeKey)) {
+            Object value = loadingFunction.apply(key);
+            if (value instanceof WeightedValue) {
+              return (V) ((WeightedValue<Object>) value).getValue();
+            }
+            return (V) value;
+          }
+        }
         return (V)
             cache
                 .get(
@@ -308,6 +422,11 @@ public final class Caches {
     @Override
     public void put(K key, V value) {
       CompositeKey compositeKey = keyPrefix.valueKey(key);
+      if (admissionFilter != null) {
+        if (!cache.asMap().containsKey(compositeKey) && !admissionFilter.admit(compositeKey)) {
+          return;
+        }
+      }
       cache.put(compositeKey, addWeightedValue(compositeKey, value, weightInBytes));
     }
 
@@ -319,15 +438,20 @@ public final class Caches {
     @Override
     public String describeStats() {
       CacheStats stats = cache.stats();
-      return String.format(
-          "used/max %d/%d MB, hit %.2f%%, lookups %d, avg load time %.0f ns, loads %d, evictions %d",
-          weightInBytes.longValue() >> 20,
-          maxWeightInBytes >> 20,
-          stats.hitRate() * 100.,
-          stats.requestCount(),
-          stats.averageLoadPenalty(),
-          stats.loadCount(),
-          stats.evictionCount());
+      String description =
+          String.format(
+              "used/max %d/%d MB, hit %.2f%%, lookups %d, avg load time %.0f ns, loads %d, evictions %d",
+              weightInBytes.longValue() >> 20,
+              maxWeightInBytes >> 20,
+              stats.hitRate() * 100.,
+              stats.requestCount(),
+              stats.averageLoadPenalty(),
+              stats.loadCount(),
+              stats.evictionCount());
+      if (admissionFilter != null) {
+        description += String.format(", rejections %d", admissionFilter.getRejections());
+      }
+      return description;
     }
   }
 
@@ -422,6 +546,11 @@ public final class Caches {
       return Arrays.hashCode(namespace);
     }
 
+    /** A hash code which unlike {@link #hashCode()} also distinguishes keys within a namespace. */
+    int frequencyHash() {
+      return 31 * Arrays.hashCode(namespace) + Objects.hashCode(key);
+    }
+
     @Override
     public long getWeight() {
       return weight + 24 + REFERENCE_SIZE * namespace.length;
@@ -442,7 +571,8 @@ public final class Caches {
           ((SubCache<K, V>) cache).cache,
           ((SubCache<CompositeKey, V>) cache).keyPrefix,
           ((SubCache<CompositeKey, V>) cache).maxWeightInBytes,
-          ((SubCache<CompositeKey, V>) cache).weightInBytes);
+          ((SubCache<CompositeKey, V>) cache).weightInBytes,
+          ((SubCache<CompositeKey, V>) cache).admissionFilter);
       // We specifically use a weak hash map so that once the key is no longer referenced we don't
       // have to keep track of it anymore and the weak hash map will garbage collect it for us.
       this.weakHashSet = Collections.newSetFromMap(new WeakHashMap<>());
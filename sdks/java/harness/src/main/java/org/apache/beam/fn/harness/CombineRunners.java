@@ -75,7 +75,8 @@ public class CombineRunners {
     private final CombineFn<InputT, AccumT, ?> combineFn;
     private final FnDataReceiver<WindowedValue<KV<KeyT, AccumT>>> output;
     private final Coder<KeyT> keyCoder;
-    private @Nullable PrecombineGroupingTable<KeyT, InputT, AccumT> groupingTable;
+    private final Coder<AccumT> accumulatorCoder;
+    private @Nullable GroupingTable<KeyT, InputT, AccumT> groupingTable;
     private boolean isGloballyWindowed;
 
     PrecombineRunner(
@@ -84,8 +85,10 @@ public class CombineRunners {
         Supplier<Cache<?, ?>> bundleCache,
         CombineFn<InputT, AccumT, ?> combineFn,
         FnDataReceiver<WindowedValue<KV<KeyT, AccumT>>> output,
-        Coder<KeyT> keyCoder) {
-      this(options, ptransformId, bundleCache, combineFn, output, keyCoder, false);
+        Coder<KeyT> keyCoder,
+        Coder<AccumT> accumulatorCoder) {
+      this(
+          options, ptransformId, bundleCache, combineFn, output, keyCoder, accumulatorCoder, false);
     }
 
     PrecombineRunner(
@@ -95,6 +98,7 @@ public class CombineRunners {
         CombineFn<InputT, AccumT, ?> combineFn,
         FnDataReceiver<WindowedValue<KV<KeyT, AccumT>>> output,
         Coder<KeyT> keyCoder,
+        Coder<AccumT> accumulatorCoder,
         boolean isGloballyWindowed) {
       this.options = options;
       this.ptransformId = ptransformId;
@@ -102,16 +106,29 @@ public class CombineRunners {
       this.combineFn = combineFn;
       this.output = output;
       this.keyCoder = keyCoder;
+      this.accumulatorCoder = accumulatorCoder;
       this.isGloballyWindowed = isGloballyWindowed;
     }
 
-    private PrecombineGroupingTable<KeyT, InputT, AccumT> getGroupingTable() {
+    private GroupingTable<KeyT, InputT, AccumT> getGroupingTable() {
       return checkStateNotNull(
           this.groupingTable,
           "groupingTable not initialized. Did you call this outside of the context of bundle processing?");
     }
 
     void startBundle() {
+      if (EncodedPrecombineGroupingTable.isEnabled(options)
+          && EncodedPrecombineGroupingTable.isSupported(
+              keyCoder, accumulatorCoder, isGloballyWindowed)) {
+        groupingTable =
+            EncodedPrecombineGroupingTable.combining(
+                options,
+                Caches.subCache(bundleCache.get(), ptransformId),
+                combineFn,
+                keyCoder,
+                accumulatorCoder);
+        return;
+      }
       groupingTable =
           PrecombineGroupingTable.combiningAndSampling(
               options,
@@ -181,6 +198,8 @@ public class CombineRunners {
           (CombineFn)
               SerializableUtils.deserializeFromByteArray(
                   combinePayload.getCombineFn().getPayload().toByteArray(), "CombineFn");
+      Coder<AccumT> accumulatorCoder =
+          (Coder<AccumT>) rehydratedComponents.getCoder(combinePayload.getAccumulatorCoderId());
 
       FnDataReceiver<WindowedValue<KV<KeyT, AccumT>>> consumer =
           (FnDataReceiver)
@@ -195,6 +214,7 @@ public class CombineRunners {
               combineFn,
               consumer,
               keyCoder,
+              accumulatorCoder,
               isGloballyWindowed);
 
       // Register the appropriate handlers.
@@ -0,0 +1,478 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness;
+
+import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Preconditions.checkState;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import org.apache.beam.fn.harness.Cache.Shrinkable;
+import org.apache.beam.runners.core.GlobalCombineFnRunner;
+import org.apache.beam.runners.core.GlobalCombineFnRunners;
+import org.apache.beam.runners.core.NullSideInputReader;
+import org.apache.beam.sdk.coders.BigEndianIntegerCoder;
+import org.apache.beam.sdk.coders.BigEndianLongCoder;
+import org.apache.beam.sdk.coders.BigEndianShortCoder;
+import org.apache.beam.sdk.coders.BooleanCoder;
+import org.apache.beam.sdk.coders.ByteCoder;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.DelegateCoder;
+import org.apache.beam.sdk.coders.DoubleCoder;
+import org.apache.beam.sdk.coders.FloatCoder;
+import org.apache.beam.sdk.coders.VarIntCoder;
+import org.apache.beam.sdk.coders.VarLongCoder;
+import org.apache.beam.sdk.fn.data.FnDataReceiver;
+import org.apache.beam.sdk.options.ExperimentalOptions;
+import org.apache.beam.sdk.options.PipelineOptions;
+import org.apache.beam.sdk.transforms.Combine.CombineFn;
+import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
+import org.apache.beam.sdk.transforms.windowing.GlobalWindow;
+import org.apache.beam.sdk.util.Weighted;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.WindowedValue;
+import org.apache.beam.sdk.values.WindowedValues;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.annotations.VisibleForTesting;
+
+/**
+ * A grouping table for globally windowed inputs which stores encoded keys and encoded accumulators
+ * within a few flat arrays instead of a map of objects.
+ *
+ * <p>Keys are encoded with their deterministic coder into a shared byte arena and are located
+ * through an open-addressing table of entry indices. Each entry owns a slot of a fixed width within
+ * a second byte arena which holds the encoded accumulator. Since the weight of this table is the
+ * size of these arrays it is known exactly and does not require reflective weighing.
+ *
+ * <p>This table is only applicable when {@link #isSupported} returns true, specifically when the
+ * key coder is deterministic and the accumulator coder has a bounded encoded size such as the
+ * accumulators of {@code Sum} and {@code Count}. It is enabled with the experiment {@code
+ * enable_encoded_precombine_grouping_table}.
+ *
+ * <p>{@link NotThreadSafe} because the caller must use the bundle processing thread when invoking
+ * {@link #put} and {@link #flush}. {@link #shrink} may be called from any thread.
+ */
+@SuppressWarnings({
+  "nullness" // TODO(https://github.com/apache/beam/issues/20497)
+})
+@NotThreadSafe
+public class EncodedPrecombineGroupingTable<K, InputT, AccumT>
+    implements GroupingTable<K, InputT, AccumT>,
+        Shrinkable<EncodedPrecombineGroupingTable<K, InputT, AccumT>>,
+        Weighted {
+
+  public static final String ENCODED_GROUPING_TABLE_EXPERIMENT =
+      "enable_encoded_precombine_grouping_table";
+
+  /** Returns whether the experiment enabling this grouping table has been specified. */
+  public static boolean isEnabled(PipelineOptions options) {
+    return ExperimentalOptions.hasExperiment(options, ENCODED_GROUPING_TABLE_EXPERIMENT);
+  }
+
+  /**
+   * Returns whether the key coder is deterministic and the accumulator coder has a bounded encoded
+   * size, which are required to use this grouping table.
+   */
+  public static boolean isSupported(
+      Coder<?> keyCoder, Coder<?> accumulatorCoder, boolean isGloballyWindowed) {
+    if (!isGloballyWindowed || maxEncodedSize(accumulatorCoder) < 0) {
+      return false;
+    }
+    try {
+      keyCoder.verifyDeterministic();
+      return true;
+    } catch (Coder.NonDeterministicException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Returns a grouping table that combines inputs into an accumulator. The grouping table uses the
+   * cache to defer flushing output until the cache evicts the table.
+   */
+  public static <K, InputT, AccumT> EncodedPrecombineGroupingTable<K, InputT, AccumT> combining(
+      PipelineOptions options,
+      Cache<Object, Object> cache,
+      CombineFn<InputT, AccumT, ?> combineFn,
+      Coder<K> keyCoder,
+      Coder<AccumT> accumulatorCoder) {
+    return new EncodedPrecombineGroupingTable<>(
+        options, cache, keyCoder, accumulatorCoder, GlobalCombineFnRunners.create(combineFn));
+  }
+
+  /**
+   * Returns the maximum number of bytes that the coder produces for any value, or -1 if it is
+   * unbounded or unknown.
+   */
+  @VisibleForTesting
+  static int maxEncodedSize(Coder<?> coder) {
+    if (coder instanceof DelegateCoder) {
+      return maxEncodedSize(((DelegateCoder<?, ?>) coder).getCoder());
+    } else if (coder instanceof BigEndianLongCoder || coder instanceof DoubleCoder) {
+      return 8;
+    } else if (coder instanceof BigEndianIntegerCoder || coder instanceof FloatCoder) {
+      return 4;
+    } else if (coder instanceof BigEndianShortCoder) {
+      return 2;
+    } else if (coder instanceof ByteCoder || coder instanceof BooleanCoder) {
+      return 1;
+    } else if (coder instanceof VarLongCoder) {
+      return 10;
+    } else if (coder instanceof VarIntCoder) {
+      return 5;
+    }
+    return -1;
+  }
+
+  // Prevent the table from growing too large, matching PrecombineGroupingTable.
+  private static final int DEFAULT_MAX_GROUPING_TABLE_SIZE = 12_000;
+  private static final int INITIAL_CAPACITY = 16;
+  private static final int INITIAL_KEY_ARENA_BYTES = 1024;
+  private static final int EMPTY = -1;
+  private static final Collection<? extends BoundedWindow> GLOBAL_WINDOWS =
+      Collections.singletonList(GlobalWindow.INSTANCE);
+
+  private static final class Key implements Weighted {
+    private static final Key INSTANCE = new Key();
+
+    @Override
+    public long getWeight() {
+      // Ignore the actual size of this singleton because it is trivial and because
+      // the weight reported here will be counted many times as it is present in
+      // many different state subcaches.
+      return 0;
+    }
+  }
+
+  private final PipelineOptions options;
+  private final Cache<Key, EncodedPrecombineGroupingTable<K, InputT, AccumT>> cache;
+  private final Coder<K> keyCoder;
+  private final Coder<AccumT> accumulatorCoder;
+  private final GlobalCombineFnRunner<InputT, AccumT, ?> combineFn;
+  // Each accumulator slot is a single length byte followed by the encoded accumulator.
+  private final int accumulatorSlotSize;
+  private final AtomicLong maxWeight;
+  private final EncodingBuffer encodingBuffer;
+  private final DecodingBuffer decodingBuffer;
+  private long lastWeightForFlush;
+
+  // Open-addressing table of entry indices, its length is always a power of two.
+  private int[] table;
+  // Per entry state indexed by entry index.
+  private int[] keyHashes;
+  private int[] keyOffsets;
+  private int[] keyLengths;
+  private byte[] accumulatorArena;
+  private byte[] keyArena;
+  private int keyArenaSize;
+  private int size;
+
+  @VisibleForTesting
+  EncodedPrecombineGroupingTable(
+      PipelineOptions options,
+      Cache<?, ?> cache,
+      Coder<K> keyCoder,
+      Coder<AccumT> accumulatorCoder,
+      GlobalCombineFnRunner<InputT, AccumT, ?> combineFn) {
+    int maxAccumulatorSize = maxEncodedSize(accumulatorCoder);
+    checkState(
+        maxAccumulatorSize >= 0,
+        "Accumulator coder %s does not have a bounded encoded size.",
+        accumulatorCoder);
+    this.options = options;
+    this.cache = (Cache<Key, EncodedPrecombineGroupingTable<K, InputT, AccumT>>) cache;
+    this.keyCoder = keyCoder;
+    this.accumulatorCoder = accumulatorCoder;
+    this.combineFn = combineFn;
+    this.accumulatorSlotSize = maxAccumulatorSize + 1;
+    this.maxWeight = new AtomicLong();
+    this.encodingBuffer = new EncodingBuffer();
+    this.decodingBuffer = new DecodingBuffer();
+    reset();
+    this.cache.put(Key.INSTANCE, this);
+  }
+
+  private void reset() {
+    table = new int[INITIAL_CAPACITY * 2];
+    Arrays.fill(table, EMPTY);
+    keyHashes = new int[INITIAL_CAPACITY];
+    keyOffsets = new int[INITIAL_CAPACITY];
+    keyLengths = new int[INITIAL_CAPACITY];
+    accumulatorArena = new byte[INITIAL_CAPACITY * accumulatorSlotSize];
+    keyArena = new byte[INITIAL_KEY_ARENA_BYTES];
+    keyArenaSize = 0;
+    size = 0;
+  }
+
+  @Nullable
+  @Override
+  public EncodedPrecombineGroupingTable<K, InputT, AccumT> shrink() {
+    long currentWeight = maxWeight.updateAndGet(operand -> operand >> 1);
+    // It is possible that we are shrunk multiple times until the requested max weight is too small.
+    // In this case we want to effectively stop shrinking since we can't effectively cache much
+    // at this time and the next insertion will likely evict all records.
+    if (currentWeight <= 100L) {
+      return null;
+    }
+    return this;
+  }
+
+  @Override
+  public long getWeight() {
+    return maxWeight.get();
+  }
+
+  /** Returns the exact number of bytes held by the arrays backing this table. */
+  @VisibleForTesting
+  long getTableWeight() {
+    return 4L * (table.length + keyHashes.length + keyOffsets.length + keyLengths.length)
+        + accumulatorArena.length
+        + keyArena.length;
+  }
+
+  @VisibleForTesting
+  int size() {
+    return size;
+  }
+
+  @Override
+  public void put(
+      WindowedValue<KV<K, InputT>> value, FnDataReceiver<WindowedValue<KV<K, AccumT>>> receiver)
+      throws Exception {
+    encodingBuffer.reset();
+    keyCoder.encode(value.getValue().getKey(), encodingBuffer);
+    int hash = hash(encodingBuffer.buffer, encodingBuffer.count);
+
+    int mask = table.length - 1;
+    int slot = hash & mask;
+    int entry;
+    while ((entry = table[slot]) != EMPTY
+        && (keyHashes[entry] != hash || !keyEquals(entry, encodingBuffer))) {
+      slot = (slot + 1) & mask;
+    }
+
+    AccumT accumulator;
+    if (entry == EMPTY) {
+      entry = addEntry(slot, hash, encodingBuffer);
+      accumulator =
+          combineFn.createAccumulator(options, NullSideInputReader.empty(), GLOBAL_WINDOWS);
+    } else {
+      accumulator = readAccumulator(entry);
+    }
+    accumulator =
+        combineFn.addInput(
+            accumulator,
+            value.getValue().getValue(),
+            options,
+            NullSideInputReader.empty(),
+            GLOBAL_WINDOWS);
+    writeAccumulator(entry, accumulator);
+
+    if (size >= DEFAULT_MAX_GROUPING_TABLE_SIZE) {
+      flush(receiver);
+      lastWeightForFlush = getTableWeight();
+    } else if (Caches.shouldUpdateOnSizeChange(lastWeightForFlush, getTableWeight())) {
+      flushIfNeeded(receiver);
+      lastWeightForFlush = getTableWeight();
+    }
+  }
+
+  private void flushIfNeeded(FnDataReceiver<WindowedValue<KV<K, AccumT>>> receiver)
+      throws Exception {
+    long weight = getTableWeight();
+    // Increase the maximum only if we require it
+    maxWeight.accumulateAndGet(weight, (current, update) -> current < update ? update : current);
+
+    // Update the cache to ensure that LRU is handled appropriately and for the cache to have an
+    // opportunity to shrink the maxWeight if necessary.
+    cache.put(Key.INSTANCE, this);
+
+    // Entries are not ordered by recency so all of them are output if the cache has shrunk the
+    // maximum weight. Only output from the bundle processing thread that is inserting elements into
+    // the grouping table. This ensures that we honor the guarantee that transforms for a single
+    // bundle execute using the same thread.
+    if (weight > maxWeight.get()) {
+      flush(receiver);
+    }
+  }
+
+  /** Flushes all entries in this table to output. */
+  @Override
+  public void flush(FnDataReceiver<WindowedValue<KV<K, AccumT>>> receiver) throws Exception {
+    cache.remove(Key.INSTANCE);
+    for (int entry = 0; entry < size; ++entry) {
+      decodingBuffer.reset(keyArena, keyOffsets[entry], keyLengths[entry]);
+      K key = keyCoder.decode(decodingBuffer);
+      AccumT accumulator =
+          combineFn.compact(
+              readAccumulator(entry), options, NullSideInputReader.empty(), GLOBAL_WINDOWS);
+      receiver.accept(WindowedValues.valueInGlobalWindow(KV.of(key, accumulator)));
+    }
+    reset();
+  }
+
+  private boolean keyEquals(int entry, EncodingBuffer key) {
+    if (keyLengths[entry] != key.count) {
+      return false;
+    }
+    int offset = keyOffsets[entry];
+    for (int i = 0; i < key.count; ++i) {
+      if (keyArena[offset + i] != key.buffer[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int addEntry(int slot, int hash, EncodingBuffer key) {
+    if (size == keyHashes.length) {
+      int newCapacity = keyHashes.length * 2;
+      keyHashes = Arrays.copyOf(keyHashes, newCapacity);
+      keyOffsets = Arrays.copyOf(keyOffsets, newCapacity);
+      keyLengths = Arrays.copyOf(keyLengths, newCapacity);
+      accumulatorArena = Arrays.copyOf(accumulatorArena, newCapacity * accumulatorSlotSize);
+    }
+    if (keyArenaSize + key.count > keyArena.length) {
+      keyArena = Arrays.copyOf(keyArena, Math.max(keyArena.length * 2, keyArenaSize + key.count));
+    }
+    System.arraycopy(key.buffer, 0, keyArena, keyArenaSize, key.count);
+
+    int entry = size++;
+    keyHashes[entry] = hash;
+    keyOffsets[entry] = keyArenaSize;
+    keyLengths[entry] = key.count;
+    keyArenaSize += key.count;
+    table[slot] = entry;
+
+    // Keep the load factor of the open-addressing table at or below one half.
+    if (size * 2 > table.length) {
+      int[] newTable = new int[table.length * 2];
+      Arrays.fill(newTable, EMPTY);
+      int mask = newTable.length - 1;
+      for (int i = 0; i < size; ++i) {
+        int newSlot = keyHashes[i] & mask;
+        while (newTable[newSlot] != EMPTY) {
+          newSlot = (newSlot + 1) & mask;
+        }
+        newTable[newSlot] = i;
+      }
+      table = newTable;
+    }
+    return entry;
+  }
+
+  private AccumT readAccumulator(int entry) throws IOException {
+    int offset = entry * accumulatorSlotSize;
+    decodingBuffer.reset(accumulatorArena, offset + 1, accumulatorArena[offset] & 0xFF);
+    return accumulatorCoder.decode(decodingBuffer);
+  }
+
+  private void writeAccumulator(int entry, AccumT accumulator) throws IOException {
+    encodingBuffer.reset();
+    accumulatorCoder.encode(accumulator, encodingBuffer);
+    checkState(
+        encodingBuffer.count < accumulatorSlotSize,
+        "Encoded accumulator of %s bytes exceeds the expected maximum of %s bytes.",
+        encodingBuffer.count,
+        accumulatorSlotSize - 1);
+    int offset = entry * accumulatorSlotSize;
+    accumulatorArena[offset] = (byte) encodingBuffer.count;
+    System.arraycopy(encodingBuffer.buffer, 0, accumulatorArena, offset + 1, encodingBuffer.count);
+  }
+
+  private static int hash(byte[] bytes, int length) {
+    int h = 1;
+    for (int i = 0; i < length; ++i) {
+      h = 31 * h + bytes[i];
+    }
+    // Spread the higher bits downwards since only the lower bits select the table slot.
+    h *= 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  /** A reusable unsynchronized output stream exposing its buffer. */
+  private static class EncodingBuffer extends OutputStream {
+    private byte[] buffer = new byte[64];
+    private int count;
+
+    void reset() {
+      count = 0;
+    }
+
+    private void ensureCapacity(int additional) {
+      if (count + additional > buffer.length) {
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, count + additional));
+      }
+    }
+
+    @Override
+    public void write(int b) {
+      ensureCapacity(1);
+      buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      ensureCapacity(len);
+      System.arraycopy(b, off, buffer, count, len);
+      count += len;
+    }
+  }
+
+  /** A reusable input stream over a slice of an arena. */
+  private static class DecodingBuffer extends InputStream {
+    private byte[] buffer = new byte[0];
+    private int position;
+    private int limit;
+
+    void reset(byte[] buffer, int offset, int length) {
+      this.buffer = buffer;
+      this.position = offset;
+      this.limit = offset + length;
+    }
+
+    @Override
+    public int read() {
+      return position < limit ? buffer[position++] & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (len == 0) {
+        return 0;
+      }
+      if (position >= limit) {
+        return -1;
+      }
+      int bytesRead = Math.min(len, limit - position);
+      System.arraycopy(buffer, position, b, off, bytesRead);
+      position += bytesRead;
+      return bytesRead;
+    }
+
+    @Override
+    public int available() {
+      return limit - position;
+    }
+  }
+}
@@ -315,6 +315,28 @@ public class FnApiDoFnRunner<InputT, RestrictionT, PositionT, WatermarkEstimator
   /** Only valid during {@link #processTimer}, null otherwise. */
   private TimeDomain currentTimeDomain;
 
+  /**
+   * The maximum number of elements buffered before invoking the {@link DoFn.ProcessBatch} method.
+   */
+  @VisibleForTesting static final int MAX_BATCH_SIZE = 1024;
+
+  /**
+   * Elements buffered for the next {@link DoFn.ProcessBatch} invocation. All buffered elements
+   * share the window {@link #currentBatchWindow} and the timestamp, pane and drain status of {@link
+   * #currentBatchTemplate}. Only used when the {@link DoFn} declares a {@link DoFn.ProcessBatch}
+   * method.
+   */
+  private final List<InputT> currentBatch = new ArrayList<>();
+
+  /** The first element of {@link #currentBatch}, null when the batch is empty. */
+  private @Nullable WindowedValue<InputT> currentBatchTemplate;
+
+  /** The window shared by all elements of {@link #currentBatch}, null when the batch is empty. */
+  private @Nullable BoundedWindow currentBatchWindow;
+
+  /** Only valid during {@link #flushBatch}, null otherwise. */
+  private @Nullable List<InputT> currentBatchElements;
+
   FnApiDoFnRunner(
       PipelineOptions pipelineOptions,
       ShortIdMap shortIds,
@@ -463,7 +485,11 @@ public class FnApiDoFnRunner<InputT, RestrictionT, PositionT, WatermarkEstimator
     final FnDataReceiver<WindowedValue> mainInputConsumer;
     switch (pTransform.getSpec().getUrn()) {
       case PTransformTranslation.PAR_DO_TRANSFORM_URN:
-        if (doFnSignature.processElement().observesWindow() || !sideInputMapping.isEmpty()) {
+        if (doFnSignature.processBatch() != null && sideInputMapping.isEmpty()) {
+          mainInputConsumer = this::processElementForBatchingParDo;
+          this.processContext = new WindowObservingProcessBundleContext();
+          addResetFunction.accept(this::resetBatch);
+        } else if (doFnSignature.processElement().observesWindow() || !sideInputMapping.isEmpty()) {
           mainInputConsumer = this::processElementForWindowObservingParDo;
           this.processContext = new WindowObservingProcessBundleContext();
         } else {
@@ -646,6 +672,53 @@ public class FnApiDoFnRunner<InputT, RestrictionT, PositionT, WatermarkEstimator
     }
   }
 
+  private void processElementForBatchingParDo(WindowedValue<InputT> elem) {
+    for (BoundedWindow window : elem.getWindows()) {
+      if (!currentBatch.isEmpty() && !isSameBatch(elem, window)) {
+        flushBatch();
+      }
+      if (currentBatch.isEmpty()) {
+        currentBatchTemplate = elem;
+        currentBatchWindow = window;
+      }
+      currentBatch.add(elem.getValue());
+      if (currentBatch.size() >= MAX_BATCH_SIZE) {
+        flushBatch();
+      }
+    }
+  }
+
+  private boolean isSameBatch(WindowedValue<InputT> elem, BoundedWindow window) {
+    return window.equals(currentBatchWindow)
+        && elem.getTimestamp().equals(currentBatchTemplate.getTimestamp())
+        && elem.getPaneInfo().equals(currentBatchTemplate.getPaneInfo())
+        && elem.causedByDrain() == currentBatchTemplate.causedByDrain();
+  }
+
+  /** Invokes the {@link DoFn.ProcessBatch} method with any buffered elements. */
+  private void flushBatch() {
+    if (currentBatch.isEmpty()) {
+      return;
+    }
+    currentElement = currentBatchTemplate;
+    currentWindow = currentBatchWindow;
+    currentBatchElements = Collections.unmodifiableList(currentBatch);
+    try {
+      doFnInvoker.invokeProcessBatch(processContext);
+    } finally {
+      resetBatch();
+    }
+  }
+
+  private void resetBatch() {
+    currentBatch.clear();
+    currentBatchTemplate = null;
+    currentBatchWindow = null;
+    currentBatchElements = null;
+    currentElement = null;
+    currentWindow = null;
+  }
+
   private void processElementForWindowObservingSizedElementAndRestriction(
       WindowedValue<KV<KV<InputT, KV<RestrictionT, WatermarkEstimatorStateT>>, Double>> elem) {
     currentElement = elem.withValue(elem.getValue().getKey().getKey());
@@ -1300,6 +1373,8 @@ public class FnApiDoFnRunner<InputT, RestrictionT, PositionT, WatermarkEstimator
   }
 
   private void finishBundle() throws Exception {
+    flushBatch();
+
     if (timerBundleTracker != null) {
       timerBundleTracker.outputTimers(outboundTimerReceivers::get);
     }
@@ -2024,6 +2099,14 @@ public class FnApiDoFnRunner<InputT, RestrictionT, PositionT, WatermarkEstimator
       return element();
     }
 
+    @Override
+    public List<InputT> batchElements(DoFn<InputT, OutputT> doFn) {
+      checkState(
+          currentBatchElements != null,
+          "Cannot access batch elements outside of @ProcessBatch method.");
+      return currentBatchElements;
+    }
+
     @Override
     public Object key() {
       throw new UnsupportedOperationException(
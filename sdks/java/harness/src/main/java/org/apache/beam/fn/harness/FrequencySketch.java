@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A probabilistic multiset used to estimate how often a key has been accessed recently, as
+ * described in <a href="https://arxiv.org/abs/1512.00727">TinyLFU: A Highly Efficient Cache
+ * Admission Policy</a>.
+ *
+ * <p>The sketch is a count-min sketch with four hash functions and 4-bit counters, sixteen of which
+ * are packed into each {@code long}. All counters are halved once the number of increments reaches
+ * ten times the table length so that the frequencies reflect recent history.
+ *
+ * <p>This class is thread safe. Counters are updated with compare-and-set, and halving the counters
+ * is serialized so that concurrent increments never run it more than once per sample.
+ */
+class FrequencySketch {
+  private static final long[] SEEDS = {
+    0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+  };
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final long ONE_MASK = 0x1111111111111111L;
+  private static final int MIN_TABLE_LENGTH = 1 << 6;
+  private static final int MAX_TABLE_LENGTH = 1 << 16;
+
+  /** The maximum estimated frequency. */
+  static final int MAX_FREQUENCY = 15;
+
+  private final AtomicLongArray table;
+  private final int tableMask;
+  private final int sampleSize;
+  private final AtomicInteger size;
+
+  /**
+   * Creates a sketch sized for approximately {@code expectedEntries} distinct keys. The table is
+   * bounded to keep the memory overhead of the sketch itself small.
+   */
+  FrequencySketch(long expectedEntries) {
+    long length = Long.highestOneBit(Math.max(expectedEntries, 1L) - 1) << 1;
+    int tableLength = (int) Math.min(MAX_TABLE_LENGTH, Math.max(MIN_TABLE_LENGTH, length));
+    this.table = new AtomicLongArray(tableLength);
+    this.tableMask = tableLength - 1;
+    this.sampleSize = 10 * tableLength;
+    this.size = new AtomicInteger();
+  }
+
+  /** Returns the estimated number of recent accesses of the key with the given hash code. */
+  int frequency(int hashCode) {
+    int hash = spread(hashCode);
+    int start = (hash & 3) << 2;
+    int frequency = MAX_FREQUENCY;
+    for (int i = 0; i < 4; i++) {
+      int offset = (start + i) << 2;
+      int count = (int) ((table.get(indexOf(hash, i)) >>> offset) & 0xfL);
+      frequency = Math.min(frequency, count);
+    }
+    return frequency;
+  }
+
+  /** Records an access of the key with the given hash code. */
+  void increment(int hashCode) {
+    int hash = spread(hashCode);
+    int start = (hash & 3) << 2;
+    boolean added = false;
+    for (int i = 0; i < 4; i++) {
+      added |= incrementAt(indexOf(hash, i), start + i);
+    }
+    if (added && size.incrementAndGet() >= sampleSize) {
+      reset();
+    }
+  }
+
+  private boolean incrementAt(int index, int counter) {
+    int offset = counter << 2;
+    long mask = 0xfL << offset;
+    while (true) {
+      long word = table.get(index);
+      if ((word & mask) == mask) {
+        return false;
+      }
+      if (table.compareAndSet(index, word, word + (1L << offset))) {
+        return true;
+      }
+    }
+  }
+
+  /** Halves all counters, accounting for the truncation of odd counters. */
+  private synchronized void reset() {
+    // Another thread may have halved the counters while this one waited.
+    if (size.get() < sampleSize) {
+      return;
+    }
+    int odd = 0;
+    for (int i = 0; i < table.length(); i++) {
+      long word;
+      do {
+        word = table.get(i);
+      } while (!table.compareAndSet(i, word, (word >>> 1) & RESET_MASK));
+      odd += Long.bitCount(word & ONE_MASK);
+    }
+    int truncated = odd >>> 2;
+    size.getAndUpdate(current -> (current >>> 1) - truncated);
+  }
+
+  private int indexOf(int hash, int i) {
+    long h = (hash + SEEDS[i]) * SEEDS[i];
+    h += h >>> 32;
+    return ((int) h) & tableMask;
+  }
+
+  private static int spread(int hashCode) {
+    int h = hashCode * 0x9e3779b9;
+    return h ^ (h >>> 16);
+  }
+}
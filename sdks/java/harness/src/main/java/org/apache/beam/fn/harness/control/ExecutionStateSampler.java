@@ -19,6 +19,7 @@ package org.apache.beam.fn.harness.control;
 
 import com.google.auto.value.AutoValue;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -30,7 +31,9 @@ import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.function.Consumer;
 import javax.annotation.concurrent.GuardedBy;
 import org.apache.beam.fn.harness.logging.BeamFnLoggingMDC;
@@ -68,6 +71,19 @@ public class ExecutionStateSampler {
   private static final Logger LOG = LoggerFactory.getLogger(ExecutionStateSampler.class);
   private static final int DEFAULT_SAMPLING_PERIOD_MS = 200;
   private static final long MAX_LULL_TIME_MS = TimeUnit.MINUTES.toMillis(5);
+  // The initial number of nested execution states a tracker can hold before growing its stack.
+  private static final int INITIAL_STATE_STACK_DEPTH = 16;
+  // Used by the bundle processing thread to publish transitions with release semantics only,
+  // avoiding a full fence for every state transition.
+  private static final AtomicReferenceFieldUpdater<
+          ExecutionStateTracker, ExecutionStateTracker.ExecutionStateImpl>
+      CURRENT_STATE_UPDATER =
+          AtomicReferenceFieldUpdater.newUpdater(
+              ExecutionStateTracker.class,
+              ExecutionStateTracker.ExecutionStateImpl.class,
+              "currentState");
+  private static final AtomicLongFieldUpdater<ExecutionStateTracker> NUM_TRANSITIONS_UPDATER =
+      AtomicLongFieldUpdater.newUpdater(ExecutionStateTracker.class, "numTransitions");
   private static final PeriodFormatter DURATION_FORMATTER =
       new PeriodFormatterBuilder()
           .appendDays()
@@ -243,48 +259,54 @@ public class ExecutionStateSampler {
 
     @Override
     public Counter getCounter(MetricName metricName) {
-      if (tracker.currentState != null) {
-        return tracker.currentState.metricsContainer.getCounter(metricName);
+      ExecutionStateTracker.ExecutionStateImpl current = tracker.currentState;
+      if (current != null) {
+        return current.metricsContainer.getCounter(metricName);
       }
       return tracker.metricsContainerRegistry.getUnboundContainer().getCounter(metricName);
     }
 
     @Override
     public Distribution getDistribution(MetricName metricName) {
-      if (tracker.currentState != null) {
-        return tracker.currentState.metricsContainer.getDistribution(metricName);
+      ExecutionStateTracker.ExecutionStateImpl current = tracker.currentState;
+      if (current != null) {
+        return current.metricsContainer.getDistribution(metricName);
       }
       return tracker.metricsContainerRegistry.getUnboundContainer().getDistribution(metricName);
     }
 
     @Override
     public Gauge getGauge(MetricName metricName) {
-      if (tracker.currentState != null) {
-        return tracker.currentState.metricsContainer.getGauge(metricName);
+      ExecutionStateTracker.ExecutionStateImpl current = tracker.currentState;
+      if (current != null) {
+        return current.metricsContainer.getGauge(metricName);
       }
       return tracker.metricsContainerRegistry.getUnboundContainer().getGauge(metricName);
     }
 
     @Override
     public StringSet getStringSet(MetricName metricName) {
-      if (tracker.currentState != null) {
-        return tracker.currentState.metricsContainer.getStringSet(metricName);
+      ExecutionStateTracker.ExecutionStateImpl current = tracker.currentState;
+      if (current != null) {
+        return current.metricsContainer.getStringSet(metricName);
       }
       return tracker.metricsContainerRegistry.getUnboundContainer().getStringSet(metricName);
     }
 
     @Override
     public BoundedTrie getBoundedTrie(MetricName metricName) {
-      if (tracker.currentState != null) {
-        return tracker.currentState.metricsContainer.getBoundedTrie(metricName);
+      ExecutionStateTracker.ExecutionStateImpl current = tracker.currentState;
+      if (current != null) {
+        return current.metricsContainer.getBoundedTrie(metricName);
       }
       return tracker.metricsContainerRegistry.getUnboundContainer().getBoundedTrie(metricName);
     }
 
     @Override
     public Histogram getHistogram(MetricName metricName, HistogramData.BucketType bucketType) {
-      if (tracker.currentState != null) {
-        return tracker.currentState.metricsContainer.getHistogram(metricName, bucketType);
+      ExecutionStateTracker.ExecutionStateImpl current = tracker.currentState;
+      if (current != null) {
+        return current.metricsContainer.getHistogram(metricName, bucketType);
       }
       return tracker
           .metricsContainerRegistry
@@ -294,8 +316,9 @@ public class ExecutionStateSampler {
 
     @Override
     public Iterable<MonitoringInfo> getMonitoringInfos() {
-      if (tracker.currentState != null) {
-        return tracker.currentState.metricsContainer.getMonitoringInfos();
+      ExecutionStateTracker.ExecutionStateImpl current = tracker.currentState;
+      if (current != null) {
+        return current.metricsContainer.getMonitoringInfos();
       }
       return tracker.metricsContainerRegistry.getUnboundContainer().getMonitoringInfos();
     }
@@ -319,15 +342,19 @@ public class ExecutionStateSampler {
     private final AtomicLong lastTransitionTimeMillis;
     // Used to throttle lull logging.
     private long lastLullReport;
+    // Read by the ExecutionStateSampler, written by the bundle processing thread frequently with
+    // release semantics through NUM_TRANSITIONS_UPDATER. Not private so that the field updater can
+    // access it.
+    volatile long numTransitions;
+    // Read by multiple threads, written by the bundle processing thread frequently with release
+    // semantics through CURRENT_STATE_UPDATER. Not private so that the field updater can access it.
+    volatile @Nullable ExecutionStateImpl currentState;
+    // Read and written by the bundle processing thread frequently. Holds the states to return to
+    // as nested states are deactivated. Grown on demand and reused across bundles so that state
+    // transitions never allocate.
+    private @Nullable ExecutionStateImpl[] previousStates;
     // Read and written by the bundle processing thread frequently.
-    private long numTransitions;
-    // Read by the ExecutionStateSampler, written by the bundle processing thread lazily and
-    // frequently.
-    private final AtomicLong numTransitionsLazy;
-    // Read and written by the bundle processing thread frequently.
-    private @Nullable ExecutionStateImpl currentState;
-    // Read by multiple threads, written by the bundle processing thread lazily.
-    private final AtomicReference<@Nullable ExecutionStateImpl> currentStateLazy;
+    private int depth;
     // If an exception occurs, this will be to state at the time of exception.
     private boolean inErrorState = false;
     // Read and written by the ExecutionStateSampler thread
@@ -342,8 +369,7 @@ public class ExecutionStateSampler {
       this.trackedThread = new AtomicReference<>();
       this.startTimeMillis = new AtomicLong();
       this.lastTransitionTimeMillis = new AtomicLong();
-      this.numTransitionsLazy = new AtomicLong();
-      this.currentStateLazy = new AtomicReference<>();
+      this.previousStates = new ExecutionStateImpl[INITIAL_STATE_STACK_DEPTH];
       this.processBundleId = new AtomicReference<>();
       this.metricsContainer = new MetricsContainerForTracker(this);
     }
@@ -391,12 +417,12 @@ public class ExecutionStateSampler {
      *     approximation, all of that time should be associated with this state.
      */
     private Optional<String> takeSample(long currentTimeMillis, long millisSinceLastSample) {
-      ExecutionStateImpl currentExecutionState = currentStateLazy.get();
+      ExecutionStateImpl currentExecutionState = currentState;
       if (currentExecutionState != null) {
         currentExecutionState.takeSample(millisSinceLastSample);
       }
 
-      long transitionsAtThisSample = numTransitionsLazy.get();
+      long transitionsAtThisSample = numTransitions;
 
       if (transitionsAtThisSample != transitionsAtLastSample) {
         lastTransitionTimeMillis.lazySet(currentTimeMillis);
@@ -488,7 +514,7 @@ public class ExecutionStateSampler {
       long startTimeMillisSnapshot = startTimeMillis.get();
       long lastTransitionTimeMillisSnapshot = lastTransitionTimeMillis.get();
       // We are actively processing a bundle but may have not yet entered into a state.
-      ExecutionStateImpl current = currentStateLazy.get();
+      ExecutionStateImpl current = currentState;
       @Nullable String id = null;
       @Nullable String name = null;
       if (current != null) {
@@ -506,10 +532,42 @@ public class ExecutionStateSampler {
 
     /** Returns the ptransform id of the currently executing thread. */
     public @Nullable String getCurrentThreadsPTransformId() {
-      if (currentState == null) {
+      ExecutionStateImpl current = currentState;
+      if (current == null) {
         return null;
       }
-      return currentState.ptransformId;
+      return current.ptransformId;
+    }
+
+    /**
+     * Makes {@code newState} the current state, remembering the state to return to once it is
+     * deactivated.
+     *
+     * <p>Only invoked by the bundle processing thread. This is on the hottest path so it must not
+     * allocate, synchronize or issue more than release stores.
+     */
+    private void push(ExecutionStateImpl newState) {
+      @Nullable ExecutionStateImpl[] stack = previousStates;
+      if (depth == stack.length) {
+        stack = Arrays.copyOf(stack, depth * 2);
+        previousStates = stack;
+      }
+      stack[depth++] = currentState;
+      CURRENT_STATE_UPDATER.lazySet(this, newState);
+      NUM_TRANSITIONS_UPDATER.lazySet(this, numTransitions + 1);
+    }
+
+    /**
+     * Returns to the state that was current before the most recently activated state.
+     *
+     * <p>Only invoked by the bundle processing thread.
+     */
+    private void pop() {
+      @Nullable ExecutionStateImpl[] stack = previousStates;
+      ExecutionStateImpl previous = stack[--depth];
+      stack[depth] = null;
+      CURRENT_STATE_UPDATER.lazySet(this, previous);
+      NUM_TRANSITIONS_UPDATER.lazySet(this, numTransitions + 1);
     }
 
     /** {@link ExecutionState} represents the current state of an execution thread. */
@@ -531,8 +589,6 @@ public class ExecutionStateSampler {
 
       @GuardedBy("this")
       private long lastReportedValue;
-      // Read and written by the bundle processing thread frequently.
-      private @Nullable ExecutionStateImpl previousState;
 
       @SuppressWarnings("methodref")
       private final ActiveState activeState = this::deactivate;
@@ -584,11 +640,7 @@ public class ExecutionStateSampler {
 
       @Override
       public void activate() {
-        previousState = currentState;
-        currentState = this;
-        currentStateLazy.lazySet(this);
-        numTransitions += 1;
-        numTransitionsLazy.lazySet(numTransitions);
+        push(this);
       }
 
       @Override
@@ -599,12 +651,7 @@ public class ExecutionStateSampler {
 
       @Override
       public void deactivate() {
-        currentState = previousState;
-        currentStateLazy.lazySet(previousState);
-        previousState = null;
-
-        numTransitions += 1;
-        numTransitionsLazy.lazySet(numTransitions);
+        pop();
       }
 
       @Override
@@ -664,8 +711,11 @@ public class ExecutionStateSampler {
       this.processBundleId.lazySet(null);
       this.trackedThread.lazySet(null);
       this.startTimeMillis.lazySet(0);
-      this.numTransitions = 0;
-      this.numTransitionsLazy.lazySet(0);
+      NUM_TRANSITIONS_UPDATER.lazySet(this, 0);
+      // A bundle that failed may not have deactivated its states.
+      CURRENT_STATE_UPDATER.lazySet(this, null);
+      Arrays.fill(previousStates, 0, depth, null);
+      this.depth = 0;
       this.lastTransitionTimeMillis.lazySet(0);
       this.metricsContainerRegistry.reset();
       this.inErrorState = false;
@@ -55,6 +55,8 @@ import org.apache.beam.fn.harness.data.PTransformFunctionRegistry;
 import org.apache.beam.fn.harness.debug.DataSampler;
 import org.apache.beam.fn.harness.state.BeamFnStateClient;
 import org.apache.beam.fn.harness.state.BeamFnStateGrpcClientCache;
+import org.apache.beam.fn.harness.state.CoalescingStateClient;
+import org.apache.beam.fn.harness.state.ReadAheadStateClient;
 import org.apache.beam.model.fnexecution.v1.BeamFnApi;
 import org.apache.beam.model.fnexecution.v1.BeamFnApi.Elements;
 import org.apache.beam.model.fnexecution.v1.BeamFnApi.InstructionRequest;
@@ -818,6 +820,17 @@ public class ProcessBundleHandler {
       BeamFnStateClient underlyingClient =
           beamFnStateGrpcClientCache.forApiServiceDescriptor(
               bundleDescriptor.getStateApiServiceDescriptor());
+      if (CoalescingStateClient.isEnabled(options)) {
+        underlyingClient = new CoalescingStateClient(underlyingClient);
+      }
+      SdkHarnessOptions sdkHarnessOptions = options.as(SdkHarnessOptions.class);
+      if (sdkHarnessOptions.getStateReadAheadPages() > 0) {
+        underlyingClient =
+            new ReadAheadStateClient(
+                underlyingClient,
+                sdkHarnessOptions.getStateReadAheadPages(),
+                ((long) sdkHarnessOptions.getStateReadAheadMb()) << 20);
+      }
       beamFnStateClient = new BlockTillStateCallsFinish(underlyingClient);
     } else {
       beamFnStateClient = new FailAllStateCallsForBundle(processBundleRequest);
@@ -1245,6 +1258,11 @@ public class ProcessBundleHandler {
             currentPhase);
       }
       currentPhase = phaser.arriveAndAwaitAdvance();
+      if (beamFnStateClient instanceof ReadAheadStateClient) {
+        // Release pages which were read ahead but not consumed during this bundle and wait for
+        // read ahead requests which are still outstanding, these are not tracked by the phaser.
+        ((ReadAheadStateClient) beamFnStateClient).discardAll();
+      }
     }
 
     @Override
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness.state;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateKey;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateRequest;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateResponse;
+import org.apache.beam.sdk.options.ExperimentalOptions;
+import org.apache.beam.sdk.options.PipelineOptions;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.annotations.VisibleForTesting;
+
+/**
+ * A {@link BeamFnStateClient} which coalesces identical get requests that are outstanding at the
+ * same time into a single request to the runner.
+ *
+ * <p>Identical get requests are common when several iterables or prefetches of the same state are
+ * created before the first response arrives, for example when a stateful {@code DoFn} calls {@code
+ * readLater()} on a state cell and then reads it, or when {@link ReadAheadStateClient} requests a
+ * page that the consumer asks for at the same time.
+ *
+ * <p>Requests which mutate a {@link StateKey} are forwarded as is. Get requests for the same state
+ * that are made afterwards are not coalesced with get requests made before the mutation. All keys
+ * of a multimap or ordered list user state refer to the same state, so that for example appending
+ * to a single multimap key also stops coalescing with an outstanding request for the map's keys.
+ * Appends and clears are already deferred until the end of the bundle and grouped per state key by
+ * the state objects created by {@link FnApiStateAccessor}.
+ *
+ * <p>Coalescing is enabled with the {@value #ENABLE_STATE_REQUEST_COALESCING_EXPERIMENT}
+ * experiment.
+ */
+public class CoalescingStateClient implements BeamFnStateClient {
+  public static final String ENABLE_STATE_REQUEST_COALESCING_EXPERIMENT =
+      "enable_state_request_coalescing";
+
+  /** Returns whether the experiment enabling coalescing of state requests has been specified. */
+  public static boolean isEnabled(PipelineOptions options) {
+    return ExperimentalOptions.hasExperiment(options, ENABLE_STATE_REQUEST_COALESCING_EXPERIMENT);
+  }
+
+  private final BeamFnStateClient beamFnStateClient;
+
+  /**
+   * Outstanding get requests without their id, indexed by the state they read, see {@link
+   * StateKeys#stateOf}. Guarded by this.
+   */
+  private final Map<StateKey, Map<StateRequest, CompletableFuture<StateResponse>>> outstandingGets;
+
+  private final LongAdder coalescedRequests;
+
+  public CoalescingStateClient(BeamFnStateClient beamFnStateClient) {
+    this.beamFnStateClient = beamFnStateClient;
+    this.outstandingGets = new HashMap<>();
+    this.coalescedRequests = new LongAdder();
+  }
+
+  @Override
+  @SuppressWarnings("FutureReturnValueIgnored")
+  public CompletableFuture<StateResponse> handle(StateRequest.Builder requestBuilder) {
+    if (requestBuilder.getRequestCase() != StateRequest.RequestCase.GET) {
+      StateKey mutatedState = StateKeys.stateOf(requestBuilder.getStateKey());
+      synchronized (this) {
+        outstandingGets.remove(mutatedState);
+      }
+      return beamFnStateClient.handle(requestBuilder);
+    }
+
+    StateRequest request = requestBuilder.clone().clearId().build();
+    StateKey state = StateKeys.stateOf(request.getStateKey());
+    CompletableFuture<StateResponse> response;
+    synchronized (this) {
+      Map<StateRequest, CompletableFuture<StateResponse>> stateGets =
+          outstandingGets.computeIfAbsent(state, unused -> new HashMap<>());
+      response = stateGets.get(request);
+      if (response != null) {
+        coalescedRequests.increment();
+        return response;
+      }
+      response = new CompletableFuture<>();
+      stateGets.put(request, response);
+    }
+
+    CompletableFuture<StateResponse> coalescedResponse = response;
+    CompletableFuture<StateResponse> delegateResponse;
+    try {
+      delegateResponse = beamFnStateClient.handle(requestBuilder);
+    } catch (RuntimeException e) {
+      // Don't let identical requests wait for a response that never arrives.
+      removeOutstandingGet(state, request, coalescedResponse);
+      coalescedResponse.completeExceptionally(e);
+      throw e;
+    }
+    delegateResponse.whenComplete(
+        (stateResponse, throwable) -> {
+          removeOutstandingGet(state, request, coalescedResponse);
+          if (throwable != null) {
+            coalescedResponse.completeExceptionally(throwable);
+          } else {
+            coalescedResponse.complete(stateResponse);
+          }
+        });
+    return coalescedResponse;
+  }
+
+  private synchronized void removeOutstandingGet(
+      StateKey state, StateRequest request, CompletableFuture<StateResponse> response) {
+    Map<StateRequest, CompletableFuture<StateResponse>> stateGets = outstandingGets.get(state);
+    // The gets of the state were dropped already if it was mutated in the meantime.
+    if (stateGets != null && stateGets.remove(request, response) && stateGets.isEmpty()) {
+      outstandingGets.remove(state);
+    }
+  }
+
+  /** Returns the number of get requests which were answered by an already outstanding request. */
+  @VisibleForTesting
+  long getCoalescedRequests() {
+    return coalescedRequests.longValue();
+  }
+}
@@ -0,0 +1,318 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness.state;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateGetRequest;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateKey;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateRequest;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateResponse;
+import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.ByteString;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.annotations.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link BeamFnStateClient} which reads ahead paged state.
+ *
+ * <p>Whenever a response to a get request contains a continuation token, the request for the
+ * following page is issued before it is asked for. Pages are read ahead until at most {@code
+ * maxPagesAhead} unconsumed pages exist for a {@link StateKey} and the unconsumed pages of all
+ * state keys hold at most {@code maxBytesAhead} bytes. Since a continuation token is only known
+ * once the previous page arrived, pages ahead are requested one after the other, but without
+ * waiting for the consumer.
+ *
+ * <p>This benefits all users of {@link StateFetchingIterators} such as {@link BagUserState},
+ * {@link IterableSideInput} and {@link MultimapSideInput}, which already request the next page
+ * once the current page was received but block on the round trip when consuming pages faster than
+ * a single request completes.
+ *
+ * <p>Pages read ahead for a state are discarded when a request which mutates that state is made.
+ * All state keys of a multimap or ordered list user state refer to the same state, e.g. clearing
+ * the keys of a multimap discards the pages read ahead for the values of every map key. Call {@link
+ * #discardAll} once a bundle is done to release pages that were read ahead for iterators that were
+ * abandoned and to wait for read ahead requests which are still outstanding.
+ */
+public class ReadAheadStateClient implements BeamFnStateClient {
+  private static final Logger LOG = LoggerFactory.getLogger(ReadAheadStateClient.class);
+
+  private final BeamFnStateClient beamFnStateClient;
+  private final int maxPagesAhead;
+  private final long maxBytesAhead;
+
+  // All fields below are guarded by this.
+  private final Map<PageKey, PageAhead> pagesAhead;
+  private final Set<PageKey> pagesInFlight;
+  private long bytesAhead;
+  private long generation;
+  private int requestsInFlight;
+
+  // Statistics since the last call to discardAll.
+  private long readyHits;
+  private long pendingHits;
+  private long misses;
+  private long discarded;
+
+  public ReadAheadStateClient(
+      BeamFnStateClient beamFnStateClient, int maxPagesAhead, long maxBytesAhead) {
+    this.beamFnStateClient = beamFnStateClient;
+    this.maxPagesAhead = maxPagesAhead;
+    this.maxBytesAhead = maxBytesAhead;
+    this.pagesAhead = new HashMap<>();
+    this.pagesInFlight = new HashSet<>();
+  }
+
+  @Override
+  @SuppressWarnings("FutureReturnValueIgnored")
+  public CompletableFuture<StateResponse> handle(StateRequest.Builder requestBuilder) {
+    if (requestBuilder.getRequestCase() != StateRequest.RequestCase.GET) {
+      synchronized (this) {
+        discard(requestBuilder.getStateKey());
+      }
+      return beamFnStateClient.handle(requestBuilder);
+    }
+
+    StateRequest request = requestBuilder.build();
+    PageKey pageKey = new PageKey(request.getStateKey(), request.getGet().getContinuationToken());
+    CompletableFuture<StateResponse> response = null;
+    long currentGeneration;
+    synchronized (this) {
+      currentGeneration = generation;
+      PageAhead pageAhead = pagesAhead.remove(pageKey);
+      if (pageAhead != null) {
+        response = pageAhead.response;
+        bytesAhead -= pageAhead.bytes;
+        if (response.isDone()) {
+          readyHits += 1;
+        } else {
+          pendingHits += 1;
+        }
+      } else {
+        misses += 1;
+        pagesInFlight.add(pageKey);
+      }
+    }
+    if (response == null) {
+      response = beamFnStateClient.handle(requestBuilder);
+      response.whenComplete(
+          (stateResponse, throwable) -> {
+            synchronized (this) {
+              pagesInFlight.remove(pageKey);
+            }
+          });
+    }
+    // Continue reading ahead as the consumer makes progress.
+    response.thenAccept(stateResponse -> readAhead(request, stateResponse, currentGeneration));
+    return response;
+  }
+
+  /**
+   * Requests the first page following {@code response} which was not requested yet if the read
+   * ahead limits allow it.
+   */
+  @SuppressWarnings("FutureReturnValueIgnored")
+  private void readAhead(StateRequest request, StateResponse response, long requestGeneration) {
+    ByteString nextToken = response.getGet().getContinuationToken();
+    if (nextToken.isEmpty()) {
+      return;
+    }
+    PageKey nextPageKey = new PageKey(request.getStateKey(), nextToken);
+    PageAhead nextPage = new PageAhead();
+    synchronized (this) {
+      // Skip over pages which were read ahead already.
+      for (PageAhead pageAhead = pagesAhead.get(nextPageKey);
+          pageAhead != null;
+          pageAhead = pagesAhead.get(nextPageKey)) {
+        if (!pageAhead.response.isDone() || pageAhead.response.isCompletedExceptionally()) {
+          // Reading ahead continues once the page is received.
+          return;
+        }
+        nextToken = pageAhead.response.join().getGet().getContinuationToken();
+        if (nextToken.isEmpty()) {
+          return;
+        }
+        nextPageKey = new PageKey(request.getStateKey(), nextToken);
+      }
+      if (requestGeneration != generation
+          || pagesInFlight.contains(nextPageKey)
+          || bytesAhead >= maxBytesAhead
+          || countPagesAhead(request.getStateKey()) >= maxPagesAhead) {
+        return;
+      }
+      pagesAhead.put(nextPageKey, nextPage);
+      // Accounted for before the request is made, discardAll waits until it completes.
+      requestsInFlight += 1;
+    }
+
+    PageKey requestedPageKey = nextPageKey;
+    StateRequest nextRequest =
+        request
+            .toBuilder()
+            .clearId()
+            .setGet(StateGetRequest.newBuilder().setContinuationToken(nextToken))
+            .build();
+    CompletableFuture<StateResponse> nextResponseFuture;
+    try {
+      nextResponseFuture = beamFnStateClient.handle(nextRequest.toBuilder());
+    } catch (RuntimeException e) {
+      nextResponseFuture = new CompletableFuture<>();
+      nextResponseFuture.completeExceptionally(e);
+    }
+    nextResponseFuture.whenComplete(
+        (nextResponse, throwable) -> {
+          synchronized (this) {
+            // Only account for pages which have not been consumed or discarded yet.
+            if (throwable == null && pagesAhead.get(requestedPageKey) == nextPage) {
+              nextPage.bytes = nextResponse.getGet().getData().size();
+              bytesAhead += nextPage.bytes;
+            }
+            requestsInFlight -= 1;
+            notifyAll();
+          }
+          if (throwable != null) {
+            nextPage.response.completeExceptionally(throwable);
+          } else {
+            nextPage.response.complete(nextResponse);
+            readAhead(nextRequest, nextResponse, requestGeneration);
+          }
+        });
+  }
+
+  /**
+   * Discards all pages that were read ahead and not consumed yet.
+   *
+   * <p>No further pages are read ahead for requests made so far, and this blocks until read ahead
+   * requests which are still outstanding completed. Their responses are ignored.
+   */
+  public synchronized void discardAll() throws InterruptedException {
+    if (readyHits + pendingHits + misses > 0) {
+      LOG.debug(
+          "State read ahead: {} ready hits, {} pending hits, {} misses, {} discarded pages.",
+          readyHits,
+          pendingHits,
+          misses,
+          discarded + pagesAhead.size());
+    }
+    for (PageAhead page : pagesAhead.values()) {
+      page.response.cancel(false);
+    }
+    pagesAhead.clear();
+    bytesAhead = 0;
+    generation += 1;
+    readyHits = 0;
+    pendingHits = 0;
+    misses = 0;
+    discarded = 0;
+    while (requestsInFlight > 0) {
+      wait();
+    }
+  }
+
+  /**
+   * Discards pages read ahead for the state {@code stateKey} refers to, guarded by this.
+   *
+   * <p>Outstanding read ahead chains of all state keys are stopped as well, they are resumed by the
+   * next request for a page.
+   */
+  private void discard(StateKey stateKey) {
+    generation += 1;
+    StateKey mutatedState = StateKeys.stateOf(stateKey);
+    Iterator<Map.Entry<PageKey, PageAhead>> entries = pagesAhead.entrySet().iterator();
+    while (entries.hasNext()) {
+      Map.Entry<PageKey, PageAhead> entry = entries.next();
+      if (StateKeys.stateOf(entry.getKey().stateKey).equals(mutatedState)) {
+        entry.getValue().response.cancel(false);
+        bytesAhead -= entry.getValue().bytes;
+        discarded += 1;
+        entries.remove();
+      }
+    }
+  }
+
+  private int countPagesAhead(StateKey stateKey) {
+    int count = 0;
+    for (PageKey pageKey : pagesAhead.keySet()) {
+      if (pageKey.stateKey.equals(stateKey)) {
+        count += 1;
+      }
+    }
+    return count;
+  }
+
+  @VisibleForTesting
+  synchronized long getBytesAhead() {
+    return bytesAhead;
+  }
+
+  @VisibleForTesting
+  synchronized int getPagesAhead() {
+    return pagesAhead.size();
+  }
+
+  @VisibleForTesting
+  synchronized long getReadyHits() {
+    return readyHits;
+  }
+
+  @VisibleForTesting
+  synchronized long getMisses() {
+    return misses;
+  }
+
+  /** A page that was requested ahead of being consumed. */
+  private static class PageAhead {
+    private final CompletableFuture<StateResponse> response = new CompletableFuture<>();
+
+    /** The size of the received page, guarded by the enclosing client. */
+    private long bytes;
+  }
+
+  /** Identifies a page of a state key by the continuation token used to request it. */
+  private static class PageKey {
+    private final StateKey stateKey;
+    private final ByteString continuationToken;
+
+    private PageKey(StateKey stateKey, ByteString continuationToken) {
+      this.stateKey = stateKey;
+      this.continuationToken = continuationToken;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof PageKey)) {
+        return false;
+      }
+      PageKey that = (PageKey) o;
+      return stateKey.equals(that.stateKey) && continuationToken.equals(that.continuationToken);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(stateKey, continuationToken);
+    }
+  }
+}
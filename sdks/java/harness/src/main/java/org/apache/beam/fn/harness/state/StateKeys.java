@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness.state;
+
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateKey;
+import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.ByteString;
+
+/** Utilities for {@link StateKey}s shared by the state clients. */
+final class StateKeys {
+
+  /**
+   * Returns a key identifying the state that {@code stateKey} refers to. All keys of a multimap or
+   * ordered list user state refer to the same state, independent of the map key or range.
+   */
+  static StateKey stateOf(StateKey stateKey) {
+    switch (stateKey.getTypeCase()) {
+      case MULTIMAP_USER_STATE:
+        StateKey.MultimapUserState multimap = stateKey.getMultimapUserState();
+        return userStateKey(
+            multimap.getTransformId(),
+            multimap.getUserStateId(),
+            multimap.getWindow(),
+            multimap.getKey());
+      case MULTIMAP_KEYS_USER_STATE:
+        StateKey.MultimapKeysUserState multimapKeys = stateKey.getMultimapKeysUserState();
+        return userStateKey(
+            multimapKeys.getTransformId(),
+            multimapKeys.getUserStateId(),
+            multimapKeys.getWindow(),
+            multimapKeys.getKey());
+      case MULTIMAP_ENTRIES_USER_STATE:
+        StateKey.MultimapEntriesUserState multimapEntries = stateKey.getMultimapEntriesUserState();
+        return userStateKey(
+            multimapEntries.getTransformId(),
+            multimapEntries.getUserStateId(),
+            multimapEntries.getWindow(),
+            multimapEntries.getKey());
+      case ORDERED_LIST_USER_STATE:
+        StateKey.OrderedListUserState orderedList = stateKey.getOrderedListUserState();
+        return userStateKey(
+            orderedList.getTransformId(),
+            orderedList.getUserStateId(),
+            orderedList.getWindow(),
+            orderedList.getKey());
+      default:
+        return stateKey;
+    }
+  }
+
+  private static StateKey userStateKey(
+      String transformId, String userStateId, ByteString window, ByteString key) {
+    return StateKey.newBuilder()
+        .setBagUserState(
+            StateKey.BagUserState.newBuilder()
+                .setTransformId(transformId)
+                .setUserStateId(userStateId)
+                .setWindow(window)
+                .setKey(key))
+        .build();
+  }
+
+  private StateKeys() {}
+}
@@ -29,6 +29,7 @@ import org.apache.beam.fn.harness.Caches.ClearableCache;
 import org.apache.beam.sdk.options.PipelineOptionsFactory;
 import org.apache.beam.sdk.util.Weighted;
 import org.apache.beam.sdk.util.WeightedValue;
+import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.ByteString;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -77,6 +78,63 @@ public class CachesTest {
     testCache(Caches.fromOptions(PipelineOptionsFactory.create()));
   }
 
+  @Test
+  public void testCacheWithAdmissionFilter() throws Exception {
+    testCache(Caches.forMaximumBytes(MB, true));
+    testCache(Caches.subCache(Caches.forMaximumBytes(MB, true), "prefix"));
+  }
+
+  @Test
+  public void testAdmissionFilterRejectsKeysSeenOnceWhenFull() throws Exception {
+    Cache<Object, Object> cache = Caches.forMaximumBytes(1000 * MB, true);
+    for (int i = 0; i < 10; ++i) {
+      cache.put(WeightedValue.of("key" + i, 1), WeightedValue.of("value" + i, 95 * MB));
+    }
+    assertThat(cache.describeStats(), containsString("used/max 950/1000 MB"));
+
+    // The cache is almost full, a key accessed for the first time is loaded but not cached.
+    WeightedValue<String> newKey = WeightedValue.of("newKey", 1);
+    assertEquals(
+        "newValue",
+        cache.computeIfAbsent(newKey, (unused) -> WeightedValue.of("newValue", 95 * MB)));
+    assertNull(cache.peek(newKey));
+    assertThat(cache.describeStats(), containsString("rejections 1"));
+    assertThat(cache.describeStats(), containsString("evictions 0"));
+
+    // Once accessed repeatedly the key is admitted, evicting the least recently used entry.
+    cache.put(newKey, WeightedValue.of("newValue", 95 * MB));
+    assertEquals("newValue", cache.peek(newKey));
+    assertThat(cache.describeStats(), containsString("rejections 1"));
+    assertThat(cache.describeStats(), containsString("evictions 1"));
+  }
+
+  @Test
+  public void testAdmissionFilterRejectsOneOffKeysPutAfterLookupMiss() throws Exception {
+    Cache<Object, Object> cache = Caches.forMaximumBytes(1000 * MB, true);
+    for (int i = 0; i < 10; ++i) {
+      cache.put(WeightedValue.of("key" + i, 1), WeightedValue.of("value" + i, 95 * MB));
+    }
+
+    // A scan over keys accessed once, each looked up and then put after loading its value.
+    for (int i = 0; i < 10; ++i) {
+      WeightedValue<String> scannedKey = WeightedValue.of("scannedKey" + i, 1);
+      assertNull(cache.peek(scannedKey));
+      cache.put(scannedKey, WeightedValue.of("scannedValue" + i, 95 * MB));
+    }
+    assertThat(cache.describeStats(), containsString("rejections 10"));
+    assertThat(cache.describeStats(), containsString("evictions 0"));
+    for (int i = 0; i < 10; ++i) {
+      assertEquals("value" + i, cache.peek(WeightedValue.of("key" + i, 1)));
+    }
+  }
+
+  @Test
+  public void testWeighCommonTypes() {
+    assertEquals(24, Caches.weigh(new byte[5]));
+    assertEquals(24 + 24, Caches.weigh("abc"));
+    assertEquals(24 + 24, Caches.weigh(ByteString.copyFromUtf8("abcde")));
+  }
+
   @Test
   public void testSubCache() throws Exception {
     testCache(Caches.subCache(Caches.eternal(), "prefix"));
@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness;
+
+import static org.apache.beam.sdk.values.WindowedValues.valueInGlobalWindow;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.beam.runners.core.GlobalCombineFnRunners;
+import org.apache.beam.sdk.coders.BigEndianLongCoder;
+import org.apache.beam.sdk.coders.CoderRegistry;
+import org.apache.beam.sdk.coders.DoubleCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.coders.VarLongCoder;
+import org.apache.beam.sdk.fn.data.FnDataReceiver;
+import org.apache.beam.sdk.options.PipelineOptionsFactory;
+import org.apache.beam.sdk.transforms.Combine.CombineFn;
+import org.apache.beam.sdk.transforms.Sum;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.WindowedValue;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link EncodedPrecombineGroupingTable}. */
+@RunWith(JUnit4.class)
+public class EncodedPrecombineGroupingTableTest {
+
+  private static class TestOutputReceiver<T> implements FnDataReceiver<T> {
+    final List<T> outputElems = new ArrayList<>();
+
+    @Override
+    public void accept(T elem) {
+      outputElems.add(elem);
+    }
+  }
+
+  private static final CombineFn<Integer, Long, Long> COMBINE_FN =
+      new CombineFn<Integer, Long, Long>() {
+
+        @Override
+        public Long createAccumulator() {
+          return 0L;
+        }
+
+        @Override
+        public Long addInput(Long accumulator, Integer value) {
+          return accumulator + value;
+        }
+
+        @Override
+        public Long mergeAccumulators(Iterable<Long> accumulators) {
+          long sum = 0;
+          for (Long part : accumulators) {
+            sum += part;
+          }
+          return sum;
+        }
+
+        @Override
+        public Long extractOutput(Long accumulator) {
+          return accumulator;
+        }
+      };
+
+  private EncodedPrecombineGroupingTable<String, Integer, Long> createTable(long maxBytes) {
+    return new EncodedPrecombineGroupingTable<>(
+        PipelineOptionsFactory.create(),
+        Caches.forMaximumBytes(maxBytes),
+        StringUtf8Coder.of(),
+        VarLongCoder.of(),
+        GlobalCombineFnRunners.create(COMBINE_FN));
+  }
+
+  @Test
+  public void testCombining() throws Exception {
+    EncodedPrecombineGroupingTable<String, Integer, Long> table = createTable(100_000_000L);
+    TestOutputReceiver<WindowedValue<KV<String, Long>>> receiver = new TestOutputReceiver<>();
+
+    table.put(valueInGlobalWindow(KV.of("A", 1)), receiver);
+    table.put(valueInGlobalWindow(KV.of("B", 9)), receiver);
+    table.put(valueInGlobalWindow(KV.of("A", 2)), receiver);
+    table.put(valueInGlobalWindow(KV.of("B", 2)), receiver);
+    table.put(valueInGlobalWindow(KV.of("A", 4)), receiver);
+    table.put(valueInGlobalWindow(KV.of("", -5)), receiver);
+    assertThat(receiver.outputElems, empty());
+    assertEquals(3, table.size());
+
+    table.flush(receiver);
+    assertThat(
+        receiver.outputElems,
+        containsInAnyOrder(
+            valueInGlobalWindow(KV.of("A", 1L + 2 + 4)),
+            valueInGlobalWindow(KV.of("B", 9L + 2)),
+            valueInGlobalWindow(KV.of("", -5L))));
+    assertEquals(0, table.size());
+  }
+
+  @Test
+  public void testCombiningManyKeysGrowsTable() throws Exception {
+    EncodedPrecombineGroupingTable<String, Integer, Long> table = createTable(100_000_000L);
+    TestOutputReceiver<WindowedValue<KV<String, Long>>> receiver = new TestOutputReceiver<>();
+    long initialWeight = table.getTableWeight();
+
+    for (int round = 0; round < 3; ++round) {
+      for (int i = 0; i < 5000; ++i) {
+        table.put(valueInGlobalWindow(KV.of("key" + i, i)), receiver);
+      }
+    }
+    assertThat(receiver.outputElems, empty());
+    assertEquals(5000, table.size());
+    assertThat(table.getTableWeight(), greaterThan(initialWeight));
+
+    table.flush(receiver);
+    Map<String, Long> results = new HashMap<>();
+    for (WindowedValue<KV<String, Long>> output : receiver.outputElems) {
+      results.put(output.getValue().getKey(), output.getValue().getValue());
+    }
+    assertEquals(5000, results.size());
+    for (int i = 0; i < 5000; ++i) {
+      assertEquals(Long.valueOf(3L * i), results.get("key" + i));
+    }
+    assertEquals(initialWeight, table.getTableWeight());
+  }
+
+  @Test
+  public void testFlushesWhenTableIsFull() throws Exception {
+    EncodedPrecombineGroupingTable<String, Integer, Long> table = createTable(100_000_000L);
+    TestOutputReceiver<WindowedValue<KV<String, Long>>> receiver = new TestOutputReceiver<>();
+
+    for (int i = 0; i < 12_001; ++i) {
+      table.put(valueInGlobalWindow(KV.of(Integer.toString(i), i)), receiver);
+    }
+    assertEquals(12_000, receiver.outputElems.size());
+    assertEquals(1, table.size());
+  }
+
+  @Test
+  public void testIsSupported() throws Exception {
+    assertTrue(
+        EncodedPrecombineGroupingTable.isSupported(
+            StringUtf8Coder.of(), VarLongCoder.of(), true));
+    assertTrue(
+        EncodedPrecombineGroupingTable.isSupported(
+            StringUtf8Coder.of(),
+            Sum.ofLongs().getAccumulatorCoder(CoderRegistry.createDefault(), VarLongCoder.of()),
+            true));
+    assertFalse(
+        EncodedPrecombineGroupingTable.isSupported(
+            StringUtf8Coder.of(), VarLongCoder.of(), false));
+    assertFalse(
+        EncodedPrecombineGroupingTable.isSupported(DoubleCoder.of(), VarLongCoder.of(), true));
+    assertFalse(
+        EncodedPrecombineGroupingTable.isSupported(
+            StringUtf8Coder.of(), StringUtf8Coder.of(), true));
+  }
+
+  @Test
+  public void testMaxEncodedSize() {
+    assertEquals(8, EncodedPrecombineGroupingTable.maxEncodedSize(BigEndianLongCoder.of()));
+    assertEquals(10, EncodedPrecombineGroupingTable.maxEncodedSize(VarLongCoder.of()));
+    assertEquals(-1, EncodedPrecombineGroupingTable.maxEncodedSize(StringUtf8Coder.of()));
+  }
+}
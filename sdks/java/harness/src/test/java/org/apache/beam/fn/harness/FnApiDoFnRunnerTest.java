@@ -595,6 +595,80 @@ public class FnApiDoFnRunnerTest implements Serializable {
       assertThat(mainOutputValues, empty());
     }
 
+    private static class TestProcessBatchDoFn extends DoFn<String, String> {
+      @ProcessElement
+      public void processElement(@Element String element, OutputReceiver<String> receiver) {
+        receiver.output("1:" + element);
+      }
+
+      @ProcessBatch
+      public void processBatch(@Element List<String> elements, OutputReceiver<String> receiver) {
+        for (String element : elements) {
+          receiver.output(elements.size() + ":" + element);
+        }
+      }
+    }
+
+    @Test
+    public void testProcessBatch() throws Exception {
+      Pipeline p = Pipeline.create();
+      PCollection<String> valuePCollection =
+          p.apply(Create.of("unused"))
+              .apply(Window.into(FixedWindows.of(Duration.standardMinutes(1))));
+      PCollection<String> outputPCollection =
+          valuePCollection.apply(TEST_TRANSFORM_ID, ParDo.of(new TestProcessBatchDoFn()));
+
+      SdkComponents sdkComponents = SdkComponents.create(p.getOptions());
+      RunnerApi.Pipeline pProto = PipelineTranslation.toProto(p, sdkComponents, true);
+      String inputPCollectionId = sdkComponents.registerPCollection(valuePCollection);
+      String outputPCollectionId = sdkComponents.registerPCollection(outputPCollection);
+
+      RunnerApi.PTransform pTransform =
+          pProto.getComponents().getTransformsOrThrow(TEST_TRANSFORM_ID);
+
+      PTransformRunnerFactoryTestContext context =
+          PTransformRunnerFactoryTestContext.builder(TEST_TRANSFORM_ID, pTransform)
+              .processBundleInstructionId("57")
+              .components(
+                  RunnerApi.Components.newBuilder()
+                      .putAllCoders(pProto.getComponents().getCodersMap())
+                      .putAllEnvironments(Collections.emptyMap())
+                      .putAllWindowingStrategies(pProto.getComponents().getWindowingStrategiesMap())
+                      .putAllPcollections(pProto.getComponentsOrBuilder().getPcollectionsMap())
+                      .build())
+              .build();
+      List<WindowedValue<String>> mainOutputValues = new ArrayList<>();
+      context.addPCollectionConsumer(
+          outputPCollectionId,
+          (FnDataReceiver) (FnDataReceiver<WindowedValue<String>>) mainOutputValues::add);
+
+      new FnApiDoFnRunner.Factory<>().addRunnerForPTransform(context);
+
+      Iterables.getOnlyElement(context.getStartBundleFunctions()).run();
+      mainOutputValues.clear();
+
+      IntervalWindow windowA = new IntervalWindow(new Instant(0L), Duration.standardMinutes(1));
+      IntervalWindow windowB = new IntervalWindow(new Instant(60000L), Duration.standardMinutes(1));
+      FnDataReceiver<WindowedValue<?>> mainInput =
+          context.getPCollectionConsumer(inputPCollectionId);
+      mainInput.accept(valueInWindows("X", windowA));
+      mainInput.accept(valueInWindows("Y", windowA));
+      // Elements are buffered until the window changes or the bundle finishes.
+      assertThat(mainOutputValues, empty());
+      mainInput.accept(valueInWindows("Z", windowB));
+      assertThat(
+          mainOutputValues,
+          contains(valueInWindows("2:X", windowA), valueInWindows("2:Y", windowA)));
+      mainOutputValues.clear();
+
+      Iterables.getOnlyElement(context.getFinishBundleFunctions()).run();
+      assertThat(mainOutputValues, contains(valueInWindows("1:Z", windowB)));
+      mainOutputValues.clear();
+
+      Iterables.getOnlyElement(context.getTearDownFunctions()).run();
+      assertThat(mainOutputValues, empty());
+    }
+
     private static class TestSideInputIsAccessibleForDownstreamCallersDoFn
         extends DoFn<String, Iterable<String>> {
       public static final String USER_COUNTER_NAME = "userCountedElems";
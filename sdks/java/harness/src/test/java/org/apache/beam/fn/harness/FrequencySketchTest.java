@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link FrequencySketch}. */
+@RunWith(JUnit4.class)
+public class FrequencySketchTest {
+  @Test
+  public void testFrequency() {
+    FrequencySketch sketch = new FrequencySketch(1024);
+    assertEquals(0, sketch.frequency(42));
+    sketch.increment(42);
+    sketch.increment(42);
+    sketch.increment(43);
+    assertEquals(2, sketch.frequency(42));
+    assertEquals(1, sketch.frequency(43));
+  }
+
+  @Test
+  public void testFrequencySaturates() {
+    FrequencySketch sketch = new FrequencySketch(1024);
+    for (int i = 0; i < 100; ++i) {
+      sketch.increment(42);
+    }
+    assertEquals(FrequencySketch.MAX_FREQUENCY, sketch.frequency(42));
+  }
+
+  @Test
+  public void testFrequenciesAreHalvedPeriodically() {
+    // The smallest table consists of 64 longs, counters are halved every 640 increments.
+    FrequencySketch sketch = new FrequencySketch(1);
+    for (int i = 0; i < 8; ++i) {
+      sketch.increment(42);
+    }
+    assertEquals(8, sketch.frequency(42));
+    for (int i = 0; i < 640; ++i) {
+      sketch.increment(1000 + i);
+    }
+    assertTrue(sketch.frequency(42) < 8);
+  }
+
+  @Test
+  public void testConcurrentIncrements() throws Exception {
+    FrequencySketch sketch = new FrequencySketch(1024);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int thread = 0; thread < 4; ++thread) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  // Enough increments to halve the counters several times.
+                  for (int i = 0; i < 100_000; ++i) {
+                    sketch.increment(i % 2000);
+                    sketch.increment(42);
+                  }
+                }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    // The hot key's counters stay saturated, they are only halved once per sample.
+    assertTrue(sketch.frequency(42) >= FrequencySketch.MAX_FREQUENCY / 2);
+  }
+}
@@ -624,6 +624,71 @@ public class ExecutionStateSamplerTest {
     expectedLogs.verifyNotLogged("Operation ongoing");
   }
 
+  @Test
+  public void testDeeplyNestedAndReentrantStates() throws Exception {
+    MillisProvider clock = mock(MillisProvider.class);
+    ExecutionStateSampler sampler =
+        new ExecutionStateSampler(
+            PipelineOptionsFactory.fromArgs("--experiments=state_sampling_period_millis=10")
+                .create(),
+            clock,
+            mockOnTimeoutExceededCallback);
+    ExecutionStateTracker tracker = sampler.create();
+    ExecutionState state1 =
+        tracker.create("shortId1", "ptransformId1", "ptransformIdName1", "process");
+    ExecutionState state2 =
+        tracker.create("shortId2", "ptransformId2", "ptransformIdName2", "process");
+
+    tracker.start("bundleId");
+    // Go deeper than the initial capacity of the state stack, re-entering the same states.
+    for (int i = 0; i < 50; ++i) {
+      (i % 2 == 0 ? state1 : state2).activate();
+    }
+    assertEquals("ptransformId2", tracker.getCurrentThreadsPTransformId());
+    for (int i = 49; i > 0; --i) {
+      (i % 2 == 0 ? state1 : state2).deactivate();
+      assertEquals(
+          i % 2 == 0 ? "ptransformId2" : "ptransformId1",
+          tracker.getCurrentThreadsPTransformId());
+    }
+    state1.deactivate();
+    assertNull(tracker.getCurrentThreadsPTransformId());
+    tracker.reset();
+    sampler.stop();
+  }
+
+  @Test
+  public void testResetAfterFailedBundleClearsActiveStates() throws Exception {
+    MillisProvider clock = mock(MillisProvider.class);
+    ExecutionStateSampler sampler =
+        new ExecutionStateSampler(
+            PipelineOptionsFactory.fromArgs("--experiments=state_sampling_period_millis=10")
+                .create(),
+            clock,
+            mockOnTimeoutExceededCallback);
+    ExecutionStateTracker tracker = sampler.create();
+    ExecutionState state1 =
+        tracker.create("shortId1", "ptransformId1", "ptransformIdName1", "process");
+    ExecutionState state2 =
+        tracker.create("shortId2", "ptransformId2", "ptransformIdName2", "process");
+
+    // The bundle fails without deactivating its states.
+    tracker.start("bundleId1");
+    state1.activate();
+    state2.activate();
+    tracker.reset();
+    assertNull(tracker.getCurrentThreadsPTransformId());
+
+    // The reused tracker starts from an empty stack.
+    tracker.start("bundleId2");
+    state2.activate();
+    assertEquals("ptransformId2", tracker.getCurrentThreadsPTransformId());
+    state2.deactivate();
+    assertNull(tracker.getCurrentThreadsPTransformId());
+    tracker.reset();
+    sampler.stop();
+  }
+
   @Test
   public void testLullDetectionOccursInActiveBundle() throws Exception {
     MillisProvider clock = mock(MillisProvider.class);
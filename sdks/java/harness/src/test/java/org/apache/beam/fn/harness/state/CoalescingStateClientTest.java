@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness.state;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateAppendRequest;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateClearRequest;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateGetRequest;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateKey;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateRequest;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateResponse;
+import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.ByteString;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link CoalescingStateClient}. */
+@RunWith(JUnit4.class)
+public class CoalescingStateClientTest {
+  private static final StateKey STATE_KEY =
+      StateKey.newBuilder()
+          .setRunner(StateKey.Runner.newBuilder().setKey(ByteString.copyFromUtf8("A")))
+          .build();
+  private static final StateRequest GET_REQUEST =
+      StateRequest.newBuilder()
+          .setInstructionId("instruction")
+          .setStateKey(STATE_KEY)
+          .setGet(StateGetRequest.getDefaultInstance())
+          .build();
+  private static final StateRequest APPEND_REQUEST =
+      StateRequest.newBuilder()
+          .setInstructionId("instruction")
+          .setStateKey(STATE_KEY)
+          .setAppend(StateAppendRequest.newBuilder().setData(ByteString.copyFromUtf8("value")))
+          .build();
+
+  private static final StateKey MULTIMAP_KEYS_STATE_KEY =
+      StateKey.newBuilder()
+          .setMultimapKeysUserState(
+              StateKey.MultimapKeysUserState.newBuilder()
+                  .setTransformId("transform")
+                  .setUserStateId("state")
+                  .setWindow(ByteString.copyFromUtf8("window"))
+                  .setKey(ByteString.copyFromUtf8("key")))
+          .build();
+  private static final StateKey MULTIMAP_STATE_KEY =
+      StateKey.newBuilder()
+          .setMultimapUserState(
+              StateKey.MultimapUserState.newBuilder()
+                  .setTransformId("transform")
+                  .setUserStateId("state")
+                  .setWindow(ByteString.copyFromUtf8("window"))
+                  .setKey(ByteString.copyFromUtf8("key"))
+                  .setMapKey(ByteString.copyFromUtf8("mapKey")))
+          .build();
+
+  private final List<CompletableFuture<StateResponse>> responses = new ArrayList<>();
+  private final BeamFnStateClient pendingStateClient =
+      new BeamFnStateClient() {
+        @Override
+        public CompletableFuture<StateResponse> handle(StateRequest.Builder requestBuilder) {
+          requestBuilder.setId("id" + responses.size());
+          CompletableFuture<StateResponse> response = new CompletableFuture<>();
+          responses.add(response);
+          return response;
+        }
+      };
+
+  @Test
+  public void testCoalescesOutstandingGets() throws Exception {
+    CoalescingStateClient client = new CoalescingStateClient(pendingStateClient);
+    CompletableFuture<StateResponse> first = client.handle(GET_REQUEST.toBuilder());
+    CompletableFuture<StateResponse> second = client.handle(GET_REQUEST.toBuilder());
+    assertEquals(1, responses.size());
+    assertSame(first, second);
+    assertEquals(1, client.getCoalescedRequests());
+
+    responses.get(0).complete(StateResponse.getDefaultInstance());
+    assertTrue(first.isDone());
+
+    // Requests made after the response was received are not coalesced.
+    client.handle(GET_REQUEST.toBuilder());
+    assertEquals(2, responses.size());
+  }
+
+  @Test
+  public void testDifferentGetsAreNotCoalesced() throws Exception {
+    CoalescingStateClient client = new CoalescingStateClient(pendingStateClient);
+    CompletableFuture<StateResponse> first = client.handle(GET_REQUEST.toBuilder());
+    CompletableFuture<StateResponse> second =
+        client.handle(
+            GET_REQUEST
+                .toBuilder()
+                .setGet(
+                    StateGetRequest.newBuilder()
+                        .setContinuationToken(ByteString.copyFromUtf8("token"))));
+    assertEquals(2, responses.size());
+    assertNotSame(first, second);
+    assertEquals(0, client.getCoalescedRequests());
+  }
+
+  @Test
+  public void testGetsAreNotCoalescedAcrossMutations() throws Exception {
+    CoalescingStateClient client = new CoalescingStateClient(pendingStateClient);
+    CompletableFuture<StateResponse> first = client.handle(GET_REQUEST.toBuilder());
+    client.handle(APPEND_REQUEST.toBuilder());
+    client.handle(APPEND_REQUEST.toBuilder());
+    CompletableFuture<StateResponse> second = client.handle(GET_REQUEST.toBuilder());
+    assertEquals(4, responses.size());
+    assertNotSame(first, second);
+    assertEquals(0, client.getCoalescedRequests());
+  }
+
+  @Test
+  public void testFailuresArePropagated() throws Exception {
+    CoalescingStateClient client = new CoalescingStateClient(pendingStateClient);
+    CompletableFuture<StateResponse> first = client.handle(GET_REQUEST.toBuilder());
+    CompletableFuture<StateResponse> second = client.handle(GET_REQUEST.toBuilder());
+    responses.get(0).completeExceptionally(new RuntimeException("TEST ERROR"));
+    assertTrue(first.isCompletedExceptionally());
+    assertTrue(second.isCompletedExceptionally());
+  }
+
+  @Test
+  public void testSynchronousFailuresAreNotCoalesced() throws Exception {
+    AtomicBoolean fail = new AtomicBoolean(true);
+    CoalescingStateClient client =
+        new CoalescingStateClient(
+            requestBuilder -> {
+              if (fail.get()) {
+                throw new IllegalStateException("TEST ERROR");
+              }
+              return pendingStateClient.handle(requestBuilder);
+            });
+    assertThrows(IllegalStateException.class, () -> client.handle(GET_REQUEST.toBuilder()));
+
+    // A later identical request is sent rather than waiting for the failed one.
+    fail.set(false);
+    CompletableFuture<StateResponse> response = client.handle(GET_REQUEST.toBuilder());
+    assertEquals(1, responses.size());
+    assertEquals(0, client.getCoalescedRequests());
+    responses.get(0).complete(StateResponse.getDefaultInstance());
+    assertTrue(response.isDone());
+  }
+
+  @Test
+  public void testMultimapKeysGetsAreNotCoalescedAcrossSingleKeyAppend() throws Exception {
+    CoalescingStateClient client = new CoalescingStateClient(pendingStateClient);
+    StateRequest getKeys = GET_REQUEST.toBuilder().setStateKey(MULTIMAP_KEYS_STATE_KEY).build();
+    CompletableFuture<StateResponse> first = client.handle(getKeys.toBuilder());
+    client.handle(APPEND_REQUEST.toBuilder().setStateKey(MULTIMAP_STATE_KEY));
+    CompletableFuture<StateResponse> second = client.handle(getKeys.toBuilder());
+    assertEquals(3, responses.size());
+    assertNotSame(first, second);
+    assertEquals(0, client.getCoalescedRequests());
+
+    // The response of the get made before the append doesn't affect the later get.
+    responses.get(0).complete(StateResponse.getDefaultInstance());
+    CompletableFuture<StateResponse> third = client.handle(getKeys.toBuilder());
+    assertSame(second, third);
+    assertEquals(1, client.getCoalescedRequests());
+  }
+
+  @Test
+  public void testMultimapKeysGetsAreNotCoalescedAcrossSingleKeyClear() throws Exception {
+    CoalescingStateClient client = new CoalescingStateClient(pendingStateClient);
+    StateRequest getKeys = GET_REQUEST.toBuilder().setStateKey(MULTIMAP_KEYS_STATE_KEY).build();
+    CompletableFuture<StateResponse> first = client.handle(getKeys.toBuilder());
+    client.handle(
+        StateRequest.newBuilder()
+            .setInstructionId("instruction")
+            .setStateKey(MULTIMAP_STATE_KEY)
+            .setClear(StateClearRequest.getDefaultInstance()));
+    CompletableFuture<StateResponse> second = client.handle(getKeys.toBuilder());
+    assertEquals(3, responses.size());
+    assertNotSame(first, second);
+    assertEquals(0, client.getCoalescedRequests());
+  }
+
+  @Test
+  public void testGetsOfOtherStatesAreCoalescedAcrossMutations() throws Exception {
+    CoalescingStateClient client = new CoalescingStateClient(pendingStateClient);
+    CompletableFuture<StateResponse> first = client.handle(GET_REQUEST.toBuilder());
+    client.handle(APPEND_REQUEST.toBuilder().setStateKey(MULTIMAP_STATE_KEY));
+    CompletableFuture<StateResponse> second = client.handle(GET_REQUEST.toBuilder());
+    assertSame(first, second);
+    assertEquals(1, client.getCoalescedRequests());
+  }
+}
@@ -0,0 +1,238 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness.state;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.beam.fn.harness.state.StateFetchingIterators.LazyBlockingStateFetchingIterator;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateAppendRequest;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateClearRequest;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateGetRequest;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateGetResponse;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateKey;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateRequest;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateResponse;
+import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.ByteString;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link ReadAheadStateClient}. */
+@RunWith(JUnit4.class)
+public class ReadAheadStateClientTest {
+  private static final int NUM_PAGES = 10;
+  private static final StateKey STATE_KEY =
+      StateKey.newBuilder()
+          .setRunner(StateKey.Runner.newBuilder().setKey(ByteString.copyFromUtf8("A")))
+          .build();
+  private static final StateRequest FIRST_PAGE_REQUEST =
+      StateRequest.newBuilder()
+          .setInstructionId("instruction")
+          .setStateKey(STATE_KEY)
+          .setGet(StateGetRequest.getDefaultInstance())
+          .build();
+
+  private final AtomicInteger callCount = new AtomicInteger();
+
+  /** Serves {@link #NUM_PAGES} pages where each page's continuation token is its index. */
+  private final BeamFnStateClient pagingStateClient =
+      new BeamFnStateClient() {
+        @Override
+        public CompletableFuture<StateResponse> handle(StateRequest.Builder requestBuilder) {
+          callCount.incrementAndGet();
+          if (requestBuilder.getRequestCase() != StateRequest.RequestCase.GET) {
+            return CompletableFuture.completedFuture(StateResponse.getDefaultInstance());
+          }
+          ByteString token = requestBuilder.getGet().getContinuationToken();
+          int page = token.isEmpty() ? 0 : Integer.parseInt(token.toStringUtf8());
+          return CompletableFuture.completedFuture(
+              StateResponse.newBuilder()
+                  .setGet(
+                      StateGetResponse.newBuilder()
+                          .setData(ByteString.copyFromUtf8("value" + page))
+                          .setContinuationToken(
+                              page + 1 < NUM_PAGES
+                                  ? ByteString.copyFromUtf8(Integer.toString(page + 1))
+                                  : ByteString.EMPTY))
+                  .build());
+        }
+      };
+
+  @Test
+  public void testReadsAheadUpToMaxPages() throws Exception {
+    ReadAheadStateClient client = new ReadAheadStateClient(pagingStateClient, 3, Long.MAX_VALUE);
+    assertEquals(
+        ByteString.copyFromUtf8("value0"),
+        client.handle(FIRST_PAGE_REQUEST.toBuilder()).get().getGet().getData());
+    assertEquals(4, callCount.get());
+    assertEquals(3, client.getPagesAhead());
+    assertEquals(18, client.getBytesAhead());
+
+    // Consuming a page read ahead continues reading ahead.
+    assertEquals(
+        ByteString.copyFromUtf8("value1"),
+        client.handle(pageRequest(1)).get().getGet().getData());
+    assertEquals(5, callCount.get());
+    assertEquals(3, client.getPagesAhead());
+    assertEquals(1, client.getReadyHits());
+    assertEquals(1, client.getMisses());
+  }
+
+  @Test
+  public void testIteratingAllPages() throws Exception {
+    ReadAheadStateClient client = new ReadAheadStateClient(pagingStateClient, 2, Long.MAX_VALUE);
+    LazyBlockingStateFetchingIterator pages =
+        new LazyBlockingStateFetchingIterator(client, FIRST_PAGE_REQUEST);
+    List<ByteString> values = new ArrayList<>();
+    while (pages.hasNext()) {
+      values.add(pages.next());
+    }
+
+    List<ByteString> expected = new ArrayList<>();
+    for (int i = 0; i < NUM_PAGES; ++i) {
+      expected.add(ByteString.copyFromUtf8("value" + i));
+    }
+    assertEquals(expected, values);
+    // Every page is requested exactly once and only the first page is not read ahead.
+    assertEquals(NUM_PAGES, callCount.get());
+    assertEquals(1, client.getMisses());
+    assertEquals(NUM_PAGES - 1, client.getReadyHits());
+    assertEquals(0, client.getPagesAhead());
+    assertEquals(0, client.getBytesAhead());
+  }
+
+  @Test
+  public void testReadAheadIsBoundedByBytes() throws Exception {
+    ReadAheadStateClient client = new ReadAheadStateClient(pagingStateClient, NUM_PAGES, 10);
+    client.handle(FIRST_PAGE_REQUEST.toBuilder()).get();
+    // The second page read ahead exceeds the budget of 10 bytes.
+    assertEquals(2, client.getPagesAhead());
+    assertEquals(12, client.getBytesAhead());
+  }
+
+  @Test
+  public void testMutationDiscardsPagesReadAhead() throws Exception {
+    ReadAheadStateClient client = new ReadAheadStateClient(pagingStateClient, 3, Long.MAX_VALUE);
+    client.handle(FIRST_PAGE_REQUEST.toBuilder()).get();
+    assertEquals(3, client.getPagesAhead());
+
+    client
+        .handle(
+            StateRequest.newBuilder()
+                .setStateKey(STATE_KEY)
+                .setAppend(StateAppendRequest.newBuilder().setData(ByteString.copyFromUtf8("new"))))
+        .get();
+    assertEquals(0, client.getPagesAhead());
+    assertEquals(0, client.getBytesAhead());
+
+    // Pages are requested again after the mutation.
+    int callsBeforeRead = callCount.get();
+    client.handle(pageRequest(1)).get();
+    assertEquals(callsBeforeRead + 4, callCount.get());
+  }
+
+  @Test
+  public void testClearingMultimapKeysDiscardsPagesOfAllMapKeys() throws Exception {
+    ReadAheadStateClient client = new ReadAheadStateClient(pagingStateClient, 3, Long.MAX_VALUE);
+    StateKey mapKeyState =
+        StateKey.newBuilder()
+            .setMultimapUserState(
+                StateKey.MultimapUserState.newBuilder()
+                    .setTransformId("transform")
+                    .setUserStateId("state")
+                    .setKey(ByteString.copyFromUtf8("key"))
+                    .setMapKey(ByteString.copyFromUtf8("mapKey")))
+            .build();
+    client.handle(FIRST_PAGE_REQUEST.toBuilder().setStateKey(mapKeyState)).get();
+    client.handle(FIRST_PAGE_REQUEST.toBuilder()).get();
+    assertEquals(6, client.getPagesAhead());
+
+    client
+        .handle(
+            StateRequest.newBuilder()
+                .setStateKey(
+                    StateKey.newBuilder()
+                        .setMultimapKeysUserState(
+                            StateKey.MultimapKeysUserState.newBuilder()
+                                .setTransformId("transform")
+                                .setUserStateId("state")
+                                .setKey(ByteString.copyFromUtf8("key"))))
+                .setClear(StateClearRequest.getDefaultInstance()))
+        .get();
+    // Only the pages of the unrelated state are left.
+    assertEquals(3, client.getPagesAhead());
+    assertEquals(18, client.getBytesAhead());
+  }
+
+  @Test
+  public void testDiscardAllWaitsForOutstandingReadAhead() throws Exception {
+    CompletableFuture<StateResponse> secondPage = new CompletableFuture<>();
+    BeamFnStateClient slowStateClient =
+        requestBuilder ->
+            requestBuilder.getGet().getContinuationToken().isEmpty()
+                ? pagingStateClient.handle(requestBuilder)
+                : secondPage;
+    ReadAheadStateClient client = new ReadAheadStateClient(slowStateClient, 3, Long.MAX_VALUE);
+    client.handle(FIRST_PAGE_REQUEST.toBuilder()).get();
+
+    CompletableFuture<Void> discardAll =
+        CompletableFuture.runAsync(
+            () -> {
+              try {
+                client.discardAll();
+              } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+              }
+            });
+    assertThrows(TimeoutException.class, () -> discardAll.get(100, TimeUnit.MILLISECONDS));
+
+    secondPage.complete(pagingStateClient.handle(pageRequest(1)).get());
+    discardAll.get();
+    // The response is ignored and reading ahead does not continue after the bundle.
+    assertEquals(2, callCount.get());
+    assertEquals(0, client.getPagesAhead());
+    assertEquals(0, client.getBytesAhead());
+  }
+
+  @Test
+  public void testDiscardAll() throws Exception {
+    ReadAheadStateClient client = new ReadAheadStateClient(pagingStateClient, 3, Long.MAX_VALUE);
+    client.handle(FIRST_PAGE_REQUEST.toBuilder()).get();
+    assertEquals(3, client.getPagesAhead());
+
+    client.discardAll();
+    assertEquals(0, client.getPagesAhead());
+    assertEquals(0, client.getBytesAhead());
+    assertEquals(0, client.getMisses());
+  }
+
+  private static StateRequest.Builder pageRequest(int page) {
+    return FIRST_PAGE_REQUEST
+        .toBuilder()
+        .setGet(
+            StateGetRequest.newBuilder()
+                .setContinuationToken(ByteString.copyFromUtf8(Integer.toString(page))));
+  }
+}